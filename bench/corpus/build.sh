@@ -0,0 +1,70 @@
+#!/bin/sh
+# Builds the corpus modules from src/ with wasi-sdk, replacing the checked-in ones, or with --native, builds each
+# kernel for this machine with cc and checks its checksum against MANIFEST. See README.md.
+#
+# Usage: build.sh [--native] [NAME...]
+#
+# WASI_SDK points at a wasi-sdk install (default /opt/wasi-sdk). The sqlite workload also needs SQLITE_AMALGAMATION,
+# a directory holding sqlite3.c and sqlite3.h; without it, sqlite is skipped.
+
+set -eu
+cd "$(dirname "$0")"
+
+native=false
+if [ "${1:-}" = "--native" ]; then
+    native=true
+    shift
+fi
+
+WASI_SDK=${WASI_SDK:-/opt/wasi-sdk}
+CFLAGS="-O2 -std=c11 -Wall -Wextra -ffp-contract=off"
+
+# The kernels are freestanding and import nothing. -mbulk-memory lets the compiler's own copies and fills become
+# memory.copy and memory.fill rather than calls into a libc that isn't there.
+WASM_FLAGS="--target=wasm32 -nostdlib -ffreestanding -mbulk-memory -Wl,--no-entry"
+
+# SQLite needs libc, but nothing in wasi-libc that reaches the host once SQLITE_OS_OTHER leaves out the file system,
+# so it links without the WASI start files and still imports nothing.
+SQLITE_FLAGS="-DSQLITE_OS_OTHER=1 -DSQLITE_TEMP_STORE=3 -DSQLITE_OMIT_LOCALTIME -DSQLITE_OMIT_SHARED_CACHE -DSQLITE_OMIT_WAL -DSQLITE_DEFAULT_MEMSTATUS=0"
+
+names=${*:-$(grep -v '^#' MANIFEST | cut -d' ' -f1) sqlite}
+failed=false
+
+for name in $names; do
+    sources="src/$name.c"
+    flags=""
+
+    if [ "$name" = sqlite ]; then
+        if [ -z "${SQLITE_AMALGAMATION:-}" ]; then
+            echo "sqlite: skipped, SQLITE_AMALGAMATION isn't set"
+            continue
+        fi
+
+        sources="$sources $SQLITE_AMALGAMATION/sqlite3.c"
+        flags="-I$SQLITE_AMALGAMATION -DSQLITE_THREADSAFE=0 -DSQLITE_OMIT_LOAD_EXTENSION"
+    fi
+
+    if $native; then
+        # Built for the host, SQLite keeps its own VFS, which an in-memory database never touches anyway.
+        cc $CFLAGS $flags -o "/tmp/corpus-$name" $sources src/native.c -lm
+        actual=$("/tmp/corpus-$name") || { echo "$name: run returned different checksums"; failed=true; continue; }
+        expected=$(sed -n "s/^#* *$name [^ ]* \([0-9a-f]*\)$/\1/p" MANIFEST)
+        if [ "$actual" = "$(printf '%016x' "0x$expected")" ]; then
+            echo "$name: ok"
+        else
+            echo "$name: got $actual, expected $expected"
+            failed=true
+        fi
+    elif [ "$name" = sqlite ]; then
+        "$WASI_SDK/bin/clang" --target=wasm32-wasi -nostartfiles -Wl,--no-entry $CFLAGS $flags $SQLITE_FLAGS \
+            -o "$name.wasm" $sources
+        echo "$name: wrote $name.wasm"
+    else
+        "$WASI_SDK/bin/clang" $WASM_FLAGS $CFLAGS -o "$name.wasm" $sources
+        echo "$name: wrote $name.wasm"
+    fi
+done
+
+if $failed; then
+    exit 1
+fi
@@ -0,0 +1,97 @@
+// Shared by the corpus kernels. They're built freestanding, with no libc, so that the modules import nothing; this
+// header supplies the little they need: the export attribute, java.util.Random (which the Java generators used for
+// their inputs, so that the inputs here come out byte for byte the same), and appending text to a buffer.
+
+#ifndef CORPUS_H
+#define CORPUS_H
+
+#include <stdint.h>
+
+#ifdef __wasm__
+#define CORPUS_EXPORT(name) __attribute__((export_name(name)))
+#else
+#define CORPUS_EXPORT(name)
+#endif
+
+typedef struct {
+    uint64_t seed;
+} java_random;
+
+static inline void java_random_init(java_random *random, int64_t seed) {
+    random->seed = ((uint64_t) seed ^ 0x5deece66dULL) & ((1ULL << 48) - 1);
+}
+
+static inline int32_t java_random_next(java_random *random, int bits) {
+    random->seed = (random->seed * 0x5deece66dULL + 0xbULL) & ((1ULL << 48) - 1);
+    return (int32_t) (random->seed >> (48 - bits));
+}
+
+static inline int32_t java_random_next_int(java_random *random, int32_t bound) {
+    int32_t r = java_random_next(random, 31);
+    int32_t m = bound - 1;
+
+    if ((bound & m) == 0) {
+        return (int32_t) (((int64_t) bound * r) >> 31);
+    }
+
+    // Java rejects the draws in the last, partial run of bound values by checking for int overflow.
+    for (int32_t u = r; (int64_t) u - (r = u % bound) + m > INT32_MAX; u = java_random_next(random, 31)) {
+    }
+
+    return r;
+}
+
+static inline int java_random_next_boolean(java_random *random) {
+    return java_random_next(random, 1) != 0;
+}
+
+static inline double java_random_next_double(java_random *random) {
+    int64_t high = java_random_next(random, 26);
+    int64_t low = java_random_next(random, 27);
+    return (double) ((high << 27) + low) * 0x1.0p-53;
+}
+
+typedef struct {
+    char *data;
+    int length;
+} text;
+
+static inline void text_char(text *text, char c) {
+    text->data[text->length++] = c;
+}
+
+static inline void text_string(text *text, const char *string) {
+    while (*string) {
+        text_char(text, *string++);
+    }
+}
+
+static inline void text_int(text *text, int32_t value) {
+    char digits[10];
+    int count = 0;
+    uint32_t magnitude = value < 0 ? 0u - (uint32_t) value : (uint32_t) value;
+
+    if (value < 0) {
+        text_char(text, '-');
+    }
+
+    do {
+        digits[count++] = (char) ('0' + magnitude % 10);
+        magnitude /= 10;
+    } while (magnitude != 0);
+
+    while (count > 0) {
+        text_char(text, digits[--count]);
+    }
+}
+
+// %02d
+static inline void text_int2(text *text, int32_t value) {
+    if (value < 10) {
+        text_char(text, '0');
+    }
+
+    text_int(text, value);
+}
+
+#endif
@@ -0,0 +1,230 @@
+// A single-pass JSON tokenizer and validator over about 48 KB of generated records, dispatching on a character class
+// table through a switch. It checks bracket nesting and literals, and scans strings (including escapes) and numbers.
+// The checksum folds the token counts, a hash of the string contents, and the sum of the numbers with their decimal
+// points dropped; it's -1 if the document is malformed.
+
+#include "corpus.h"
+
+#define STACK_SIZE 256
+
+enum {
+    WHITESPACE,
+    STRING,
+    NUMBER,
+    OPEN,
+    CLOSE,
+    PUNCTUATION,
+    LITERAL,
+    ERROR,
+};
+
+static const char *const names[] = {
+    "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliett", "kilo", "lima",
+};
+
+// Room for the record that runs past 48000 bytes and the closing bracket, plus the word-sized reads of literals.
+static char input_buffer[49152];
+static const uint8_t *const input = (const uint8_t *) input_buffer;
+static int input_length;
+
+static uint8_t classes[256];
+static uint8_t stack[STACK_SIZE];
+
+static const char *name(java_random *random) {
+    return names[java_random_next_int(random, 12)];
+}
+
+// An array of records with strings (some escaped), integers, decimals, literals, and nested arrays and objects,
+// pretty-printed the way a typical API response is.
+static void make_input(void) {
+    java_random random;
+    java_random_init(&random, 1234);
+    text text = {input_buffer, 0};
+    text_string(&text, "[\n");
+
+    for (int id = 0; text.length < 48000; id++) {
+        if (id != 0) {
+            text_string(&text, ",\n");
+        }
+
+        text_string(&text, "  {\n");
+        text_string(&text, "    \"id\": ");
+        text_int(&text, id);
+        text_string(&text, ",\n");
+        text_string(&text, "    \"name\": \"");
+        text_string(&text, name(&random));
+        text_string(&text, java_random_next_int(&random, 4) == 0 ? " \\\"the\\\" " : " ");
+        text_string(&text, name(&random));
+        text_string(&text, "\",\n");
+        text_string(&text, "    \"score\": ");
+        text_int(&text, java_random_next_int(&random, 2001) - 1000);
+        text_char(&text, '.');
+        text_int(&text, java_random_next_int(&random, 100));
+        text_string(&text, ",\n");
+        text_string(&text, "    \"active\": ");
+        text_string(&text, java_random_next_boolean(&random) ? "true" : "false");
+        text_string(&text, ",\n");
+        text_string(&text, "    \"parent\": ");
+        if (java_random_next_int(&random, 3) == 0) {
+            text_string(&text, "null");
+        } else {
+            text_int(&text, java_random_next_int(&random, id + 1));
+        }
+        text_string(&text, ",\n");
+        text_string(&text, "    \"tags\": [");
+        for (int i = java_random_next_int(&random, 4); i > 0; i--) {
+            text_char(&text, '"');
+            text_string(&text, name(&random));
+            text_string(&text, i == 1 ? "\"" : "\", ");
+        }
+        text_string(&text, "],\n");
+        text_string(&text, "    \"position\": {\"x\": ");
+        text_int(&text, java_random_next_int(&random, 10000));
+        text_string(&text, ", \"y\": -");
+        text_int(&text, java_random_next_int(&random, 10000));
+        text_string(&text, ", \"path\": [[1, 2], [3, 4]]}\n");
+        text_string(&text, "  }");
+    }
+
+    text_string(&text, "\n]\n");
+    input_length = text.length;
+
+    for (int c = 0; c < 256; c++) {
+        classes[c] = ERROR;
+    }
+
+    for (const char *c = " \t\n\r"; *c; c++) classes[(uint8_t) *c] = WHITESPACE;
+    for (const char *c = "-0123456789"; *c; c++) classes[(uint8_t) *c] = NUMBER;
+    for (const char *c = "tfn"; *c; c++) classes[(uint8_t) *c] = LITERAL;
+    classes['"'] = STRING;
+    classes['['] = OPEN;
+    classes['{'] = OPEN;
+    classes[']'] = CLOSE;
+    classes['}'] = CLOSE;
+    classes[','] = PUNCTUATION;
+    classes[':'] = PUNCTUATION;
+}
+
+static uint32_t load32(const uint8_t *bytes) {
+    return bytes[0] | (uint32_t) bytes[1] << 8 | (uint32_t) bytes[2] << 16 | (uint32_t) bytes[3] << 24;
+}
+
+CORPUS_EXPORT("run") uint64_t run(void) {
+    if (input_length == 0) {
+        make_input();
+    }
+
+    int pos = 0;
+    int depth = 0;
+    uint32_t strings = 0, numbers = 0, containers = 0, literals = 0, string_hash = 0;
+    uint64_t number_sum = 0;
+
+    while (pos < input_length) {
+        uint32_t c = input[pos];
+
+        switch (classes[c]) {
+            case WHITESPACE:
+                pos++;
+                break;
+
+            // Strings, up to the closing quote, skipping over whatever follows a backslash.
+            case STRING:
+                strings++;
+                pos++;
+                for (;;) {
+                    if (pos >= input_length) {
+                        return (uint64_t) -1;
+                    }
+
+                    c = input[pos];
+                    if (c == '"') {
+                        break;
+                    }
+
+                    string_hash = string_hash * 31 + c;
+                    pos += 1 + (c == '\\');
+                }
+                pos++;
+                break;
+
+            // Numbers, as their digits with any decimal point dropped.
+            case NUMBER: {
+                numbers++;
+                int negative = c == '-';
+                pos += negative;
+                uint64_t number = 0;
+                while (pos < input_length) {
+                    c = input[pos];
+                    if (c == '.') {
+                        pos++;
+                        continue;
+                    }
+
+                    uint32_t digit = c - '0';
+                    if (digit > 9) {
+                        break;
+                    }
+
+                    number = number * 10 + digit;
+                    pos++;
+                }
+                number_sum += negative ? 0 - number : number;
+                break;
+            }
+
+            case OPEN:
+                if (depth >= STACK_SIZE) {
+                    return (uint64_t) -1;
+                }
+                stack[depth++] = (uint8_t) c;
+                containers++;
+                pos++;
+                break;
+
+            // Closing brackets, which must match the top of the stack; ']' and '}' are both two past their opener.
+            case CLOSE:
+                if (depth == 0 || (int) stack[--depth] - (int) c != -2) {
+                    return (uint64_t) -1;
+                }
+                pos++;
+                break;
+
+            case PUNCTUATION:
+                pos++;
+                break;
+
+            // true, false and null, compared a word at a time.
+            case LITERAL: {
+                uint32_t word = load32(input + pos);
+                if (word == 0x65757274 || word == 0x6c6c756e) {
+                    literals++;
+                    pos += 4;
+                    break;
+                }
+
+                if (word == 0x736c6166 && input[pos + 4] == 'e') {
+                    literals++;
+                    pos += 5;
+                    break;
+                }
+
+                return (uint64_t) -1;
+            }
+
+            default:
+                return (uint64_t) -1;
+        }
+    }
+
+    if (depth != 0) {
+        return (uint64_t) -1;
+    }
+
+    uint64_t result = number_sum;
+    result = result * 31 + strings;
+    result = result * 31 + numbers;
+    result = result * 31 + containers;
+    result = result * 31 + literals;
+    result = result * 31 + string_hash;
+    return result;
+}
@@ -0,0 +1,218 @@
+// An LZ77 codec in the style of LZ4: a greedy compressor with a hash table of 4-byte sequences, and a decompressor,
+// round-tripping 60000 bytes of generated text. The compressed form is LZ4's block format: each sequence is a token
+// byte with the literal and match lengths in its nibbles, the literals, a little-endian u16 match offset, with lengths
+// that don't fit in a nibble continued in extra bytes; the last sequence has literals only. The checksum is the
+// compressed size in the high half and an FNV-1a hash of the decompressed text in the low half, or -1 if it doesn't
+// match the input.
+
+#include "corpus.h"
+
+#define INPUT_LENGTH 60000
+#define TABLE_SIZE 4096
+
+static const char *const subjects[] = {
+    "the compiler", "a module", "the runtime", "every function", "the table", "this memory", "the host",
+    "an instance", "the validator", "each thread", "the linker", "a trap handler",
+};
+
+static const char *const verbs[] = {
+    "reads", "writes", "grows", "calls", "checks", "links", "exports", "imports", "translates", "unwinds",
+    "verifies", "drops",
+};
+
+static const char *const objects[] = {
+    "the data segment", "a global", "every element", "its locals", "the stack", "a reference", "the result",
+    "each page", "the operand", "an exception", "the import table", "the code section",
+};
+
+static const char *const tails[] = {
+    "", " before it returns", " after the call", " at the start of each loop", " on every thread",
+    " unless it traps", " as late as possible",
+};
+
+#define COUNT(array) ((int) (sizeof(array) / sizeof((array)[0])))
+
+// Room for the sentence that runs past the end, which is cut off.
+static char input_buffer[INPUT_LENGTH + 128];
+static const uint8_t *const input = (const uint8_t *) input_buffer;
+static int input_ready;
+
+static uint32_t table[TABLE_SIZE];
+static uint8_t compressed[2 * 65536];
+static uint8_t output[65536];
+
+// Drawn with a skew towards the front of each list, so that the text repeats itself at about the rate prose does.
+static const char *pick(java_random *random, const char *const *choices, int count) {
+    double fraction = java_random_next_double(random);
+    return choices[(int) (count * (fraction * fraction))];
+}
+
+static void make_input(void) {
+    java_random random;
+    java_random_init(&random, 77);
+    text text = {input_buffer, 0};
+
+    while (text.length < INPUT_LENGTH) {
+        int start = text.length;
+        text_string(&text, pick(&random, subjects, COUNT(subjects)));
+        text_char(&text, ' ');
+        text_string(&text, pick(&random, verbs, COUNT(verbs)));
+        text_char(&text, ' ');
+        text_string(&text, pick(&random, objects, COUNT(objects)));
+        text_string(&text, pick(&random, tails, COUNT(tails)));
+        input_buffer[start] = (char) (input_buffer[start] - 'a' + 'A');
+        text_string(&text, java_random_next_int(&random, 8) == 0 ? ".\n" : ". ");
+    }
+}
+
+static uint32_t load32(const uint8_t *bytes) {
+    return bytes[0] | (uint32_t) bytes[1] << 8 | (uint32_t) bytes[2] << 16 | (uint32_t) bytes[3] << 24;
+}
+
+// Writes what's left of a length over the 15 that fits in its nibble, as a run of 255s and a final byte below 255.
+static int write_length_tail(int op, uint32_t length) {
+    if (length >= 15) {
+        length -= 15;
+
+        while (length >= 255) {
+            compressed[op++] = 255;
+            length -= 255;
+        }
+
+        compressed[op++] = (uint8_t) length;
+    }
+
+    return op;
+}
+
+// Writes the sequence for the literals from anchor up to ip, followed by a match of length match_length at offset
+// ip - match if match_length isn't zero.
+static int write_sequence(int op, int anchor, int ip, int match, uint32_t match_length) {
+    uint32_t literals = (uint32_t) (ip - anchor);
+    uint32_t token = (literals < 15 ? literals : 15) << 4;
+
+    if (match_length != 0) {
+        token |= match_length - 4 < 15 ? match_length - 4 : 15;
+    }
+
+    compressed[op++] = (uint8_t) token;
+    op = write_length_tail(op, literals);
+
+    for (uint32_t i = 0; i < literals; i++) {
+        compressed[op + i] = input[anchor + i];
+    }
+
+    op += (int) literals;
+
+    if (match_length != 0) {
+        uint32_t offset = (uint32_t) (ip - match);
+        compressed[op++] = (uint8_t) offset;
+        compressed[op++] = (uint8_t) (offset >> 8);
+        op = write_length_tail(op, match_length - 4);
+    }
+
+    return op;
+}
+
+static int compress(void) {
+    int ip = 0;
+    int op = 0;
+    int anchor = 0;
+
+    for (int i = 0; i < TABLE_SIZE; i++) {
+        table[i] = 0;
+    }
+
+    while (ip < INPUT_LENGTH - 4) {
+        // Look the sequence at ip up in the table, replacing it with ip + 1 (zero marks an empty slot).
+        uint32_t sequence = load32(input + ip);
+        uint32_t slot = (sequence * 0x9e3779b1u) >> 20;
+        int match = (int) table[slot] - 1;
+        table[slot] = (uint32_t) ip + 1;
+
+        if (match >= 0 && (uint32_t) (ip - match) <= 0xffff && load32(input + match) == sequence) {
+            // Extend the match as far as it goes.
+            int length = 4;
+            while (ip + length < INPUT_LENGTH && input[match + length] == input[ip + length]) {
+                length++;
+            }
+
+            op = write_sequence(op, anchor, ip, match, (uint32_t) length);
+            ip += length;
+            anchor = ip;
+            continue;
+        }
+
+        ip++;
+    }
+
+    return write_sequence(op, anchor, INPUT_LENGTH, 0, 0);
+}
+
+// Adds the bytes that follow a length nibble of 15 onto the length, up to and including the first byte below 255.
+static uint32_t read_length(int *ip, uint32_t length) {
+    if (length == 15) {
+        uint8_t next;
+        do {
+            next = compressed[(*ip)++];
+            length += next;
+        } while (next == 255);
+    }
+
+    return length;
+}
+
+static int decompress(int size) {
+    int ip = 0;
+    int op = 0;
+
+    for (;;) {
+        uint8_t token = compressed[ip++];
+        uint32_t literals = read_length(&ip, token >> 4);
+
+        for (uint32_t i = 0; i < literals; i++) {
+            output[op + i] = compressed[ip + i];
+        }
+
+        ip += (int) literals;
+        op += (int) literals;
+
+        if (ip >= size) {
+            return op;
+        }
+
+        int offset = compressed[ip] | compressed[ip + 1] << 8;
+        ip += 2;
+        uint32_t length = read_length(&ip, token & 15) + 4;
+
+        // Matches may overlap their own output, so they're copied a byte at a time.
+        for (uint32_t i = 0; i < length; i++) {
+            output[op + i] = output[op - offset + i];
+        }
+
+        op += (int) length;
+    }
+}
+
+CORPUS_EXPORT("run") uint64_t run(void) {
+    if (!input_ready) {
+        make_input();
+        input_ready = 1;
+    }
+
+    int compressed_size = compress();
+    if (decompress(compressed_size) != INPUT_LENGTH) {
+        return (uint64_t) -1;
+    }
+
+    uint32_t hash = 0x811c9dc5;
+    for (int i = 0; i < INPUT_LENGTH; i++) {
+        if (output[i] != input[i]) {
+            return (uint64_t) -1;
+        }
+
+        hash = (hash ^ output[i]) * 0x01000193;
+    }
+
+    return (uint64_t) (uint32_t) compressed_size << 32 | hash;
+}
@@ -0,0 +1,14 @@
+// A driver for building a kernel for the host instead, to check it against the manifest: prints the checksum run
+// returns, and fails if a second call returns a different one.
+
+#include <stdint.h>
+#include <stdio.h>
+
+uint64_t run(void);
+
+int main(void) {
+    uint64_t first = run();
+    uint64_t second = run();
+    printf("%016llx\n", (unsigned long long) first);
+    return first == second ? 0 : 1;
+}
@@ -0,0 +1,53 @@
+// PolyBench's gemm, C = alpha * A * B + beta * C over square double matrices, with PolyBench's initial values. The
+// checksum is the bits of the sum of C.
+
+#include "corpus.h"
+
+#define N 96
+
+static double a[N][N];
+static double b[N][N];
+static double c[N][N];
+
+CORPUS_EXPORT("run") uint64_t run(void) {
+    for (int i = 0; i < N; i++) {
+        for (int k = 0; k < N; k++) {
+            a[i][k] = (double) (i * (k + 1) % N) / N;
+        }
+    }
+
+    for (int k = 0; k < N; k++) {
+        for (int j = 0; j < N; j++) {
+            b[k][j] = (double) (k * (j + 2) % N) / N;
+        }
+    }
+
+    for (int i = 0; i < N; i++) {
+        for (int j = 0; j < N; j++) {
+            c[i][j] = (double) ((i * j + 1) % N) / N;
+        }
+    }
+
+    for (int i = 0; i < N; i++) {
+        for (int j = 0; j < N; j++) {
+            c[i][j] *= 1.2;
+        }
+
+        for (int k = 0; k < N; k++) {
+            double scaled = 1.5 * a[i][k];
+            for (int j = 0; j < N; j++) {
+                c[i][j] += scaled * b[k][j];
+            }
+        }
+    }
+
+    double sum = 0;
+    for (int i = 0; i < N; i++) {
+        for (int j = 0; j < N; j++) {
+            sum += c[i][j];
+        }
+    }
+
+    union { double value; uint64_t bits; } result = {sum};
+    return result.bits;
+}
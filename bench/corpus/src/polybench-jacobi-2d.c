@@ -0,0 +1,43 @@
+// PolyBench's jacobi-2d, a five-point stencil alternating between two double grids, with PolyBench's initial values.
+// The checksum is the bits of the sum of A.
+
+#include "corpus.h"
+
+#define N 100
+#define STEPS 20
+
+static double a[N][N];
+static double b[N][N];
+
+CORPUS_EXPORT("run") uint64_t run(void) {
+    for (int i = 0; i < N; i++) {
+        for (int j = 0; j < N; j++) {
+            a[i][j] = (double) (i * (j + 2) + 2) / N;
+            b[i][j] = (double) (i * (j + 3) + 3) / N;
+        }
+    }
+
+    for (int t = 0; t < STEPS; t++) {
+        for (int i = 1; i < N - 1; i++) {
+            for (int j = 1; j < N - 1; j++) {
+                b[i][j] = 0.2 * (a[i][j] + a[i][j - 1] + a[i][j + 1] + a[i + 1][j] + a[i - 1][j]);
+            }
+        }
+
+        for (int i = 1; i < N - 1; i++) {
+            for (int j = 1; j < N - 1; j++) {
+                a[i][j] = 0.2 * (b[i][j] + b[i][j - 1] + b[i][j + 1] + b[i + 1][j] + b[i - 1][j]);
+            }
+        }
+    }
+
+    double sum = 0;
+    for (int i = 0; i < N; i++) {
+        for (int j = 0; j < N; j++) {
+            sum += a[i][j];
+        }
+    }
+
+    union { double value; uint64_t bits; } result = {sum};
+    return result.bits;
+}
@@ -0,0 +1,135 @@
+// The backtracking regular expression matcher from Kernighan and Pike's The Practice of Programming (literals, '.',
+// '*', '^' and '$'), run for a dozen patterns against about 40 KB of generated log lines. The checksum folds the
+// number of lines each pattern matches.
+
+#include "corpus.h"
+
+#define LINE_COUNT 520
+
+static const char *const patterns[] = {
+    "ERROR", "^2026-03-1.*WARN", "took 1..ms", "status=5..$", "user.*admin", "a*b*c*d", "worker-1 ", "id=.*7$",
+    ".*o.*r.*d.*e.*r", "^.*timeout", "GET /api/.*s/.*9 ", "q*u*e*u*e",
+};
+
+static const char *const levels[] = {"DEBUG", "INFO", "INFO", "INFO", "WARN", "ERROR"};
+static const char *const methods[] = {"GET", "GET", "GET", "POST", "PUT", "DELETE"};
+static const char *const resources[] = {"users", "orders", "admin", "queues", "sessions", "timeouts"};
+
+#define COUNT(array) ((int) (sizeof(array) / sizeof((array)[0])))
+
+static char strings[LINE_COUNT * 128];
+static const char *lines[LINE_COUNT];
+
+// Access log lines with a timestamp, level, worker, request, timing and status, some with trailing fields.
+static void make_lines(void) {
+    java_random random;
+    java_random_init(&random, 4242);
+    text text = {strings, 0};
+
+    for (int i = 0; i < LINE_COUNT; i++) {
+        lines[i] = strings + text.length;
+
+        text_string(&text, "2026-03-");
+        text_int2(&text, 1 + java_random_next_int(&random, 28));
+        text_char(&text, ' ');
+        text_int2(&text, java_random_next_int(&random, 24));
+        text_char(&text, ':');
+        text_int2(&text, java_random_next_int(&random, 60));
+        text_char(&text, ':');
+        text_int2(&text, java_random_next_int(&random, 60));
+        text_char(&text, ' ');
+        text_string(&text, levels[java_random_next_int(&random, COUNT(levels))]);
+        text_string(&text, " worker-");
+        text_int(&text, java_random_next_int(&random, 16));
+        text_char(&text, ' ');
+        text_string(&text, methods[java_random_next_int(&random, COUNT(methods))]);
+        text_string(&text, " /api/");
+        text_string(&text, resources[java_random_next_int(&random, COUNT(resources))]);
+        text_char(&text, '/');
+        text_int(&text, java_random_next_int(&random, 100000));
+        text_string(&text, " took ");
+        text_int(&text, java_random_next_int(&random, 2000));
+        text_string(&text, "ms status=");
+        text_int(&text, java_random_next_int(&random, 5) == 0 ? 500 + java_random_next_int(&random, 4) : 200);
+
+        switch (java_random_next_int(&random, 4)) {
+            case 0:
+                text_string(&text, " user=");
+                text_string(&text, resources[java_random_next_int(&random, COUNT(resources))]);
+                break;
+            case 1:
+                text_string(&text, " id=");
+                text_int(&text, java_random_next_int(&random, 1000));
+                break;
+        }
+
+        text_char(&text, '\0');
+    }
+}
+
+static int match_here(const char *regexp, const char *text);
+
+// match_star(c, regexp, text): whether c*regexp matches at the start of text, trying the shortest run first.
+static int match_star(int c, const char *regexp, const char *text) {
+    do {
+        if (match_here(regexp, text)) {
+            return 1;
+        }
+    } while (*text != '\0' && (*text++ == c || c == '.'));
+
+    return 0;
+}
+
+// match_here(regexp, text): whether regexp matches at the start of text.
+static int match_here(const char *regexp, const char *text) {
+    if (regexp[0] == '\0') {
+        return 1;
+    }
+
+    if (regexp[1] == '*') {
+        return match_star(regexp[0], regexp + 2, text);
+    }
+
+    if (regexp[0] == '$' && regexp[1] == '\0') {
+        return *text == '\0';
+    }
+
+    if (*text != '\0' && (regexp[0] == '.' || regexp[0] == *text)) {
+        return match_here(regexp + 1, text + 1);
+    }
+
+    return 0;
+}
+
+// match(regexp, text): whether regexp matches anywhere in text.
+static int match(const char *regexp, const char *text) {
+    if (regexp[0] == '^') {
+        return match_here(regexp + 1, text);
+    }
+
+    do {
+        if (match_here(regexp, text)) {
+            return 1;
+        }
+    } while (*text++ != '\0');
+
+    return 0;
+}
+
+CORPUS_EXPORT("run") uint64_t run(void) {
+    if (lines[0] == 0) {
+        make_lines();
+    }
+
+    uint64_t total = 0;
+    for (int p = 0; p < COUNT(patterns); p++) {
+        uint32_t matching = 0;
+        for (int l = 0; l < LINE_COUNT; l++) {
+            matching += (uint32_t) match(patterns[p], lines[l]);
+        }
+
+        total = total * 1000003 + matching;
+    }
+
+    return total;
+}
@@ -0,0 +1,106 @@
+// SHA-256 (FIPS 180-4) of a 32 KiB xorshift-generated message. The checksum folds the eight words of the digest into
+// two.
+
+#include "corpus.h"
+
+#define MESSAGE_LENGTH 32768
+
+static const uint32_t round_constants[64] = {
+    0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+    0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+    0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+    0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+    0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+    0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+    0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+    0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2,
+};
+
+static const uint32_t initial_hash[8] = {
+    0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19,
+};
+
+static uint8_t message[MESSAGE_LENGTH + 64];
+static uint32_t hash[8];
+
+static uint32_t rotr(uint32_t x, int n) {
+    return (x >> n) | (x << (32 - n));
+}
+
+static uint32_t load_big_endian(const uint8_t *bytes) {
+    return (uint32_t) bytes[0] << 24 | (uint32_t) bytes[1] << 16 | (uint32_t) bytes[2] << 8 | bytes[3];
+}
+
+static void compress(const uint8_t *block) {
+    uint32_t w[64];
+
+    for (int t = 0; t < 16; t++) {
+        w[t] = load_big_endian(block + t * 4);
+    }
+
+    for (int t = 16; t < 64; t++) {
+        uint32_t s0 = rotr(w[t - 15], 7) ^ rotr(w[t - 15], 18) ^ (w[t - 15] >> 3);
+        uint32_t s1 = rotr(w[t - 2], 17) ^ rotr(w[t - 2], 19) ^ (w[t - 2] >> 10);
+        w[t] = s1 + w[t - 7] + s0 + w[t - 16];
+    }
+
+    uint32_t a = hash[0], b = hash[1], c = hash[2], d = hash[3], e = hash[4], f = hash[5], g = hash[6], h = hash[7];
+
+    for (int t = 0; t < 64; t++) {
+        uint32_t t1 = h + (rotr(e, 6) ^ rotr(e, 11) ^ rotr(e, 25)) + (g ^ (e & (f ^ g))) + round_constants[t] + w[t];
+        uint32_t t2 = (rotr(a, 2) ^ rotr(a, 13) ^ rotr(a, 22)) + ((a & b) | (c & (a | b)));
+        h = g;
+        g = f;
+        f = e;
+        e = d + t1;
+        d = c;
+        c = b;
+        b = a;
+        a = t1 + t2;
+    }
+
+    hash[0] += a;
+    hash[1] += b;
+    hash[2] += c;
+    hash[3] += d;
+    hash[4] += e;
+    hash[5] += f;
+    hash[6] += g;
+    hash[7] += h;
+}
+
+CORPUS_EXPORT("run") uint64_t run(void) {
+    // The message, one xorshift32 word at a time, stored little-endian as the generator's i32.store did
+    uint32_t state = 0x9e3779b9;
+    for (int i = 0; i < MESSAGE_LENGTH; i += 4) {
+        state ^= state << 13;
+        state ^= state >> 17;
+        state ^= state << 5;
+        message[i] = (uint8_t) state;
+        message[i + 1] = (uint8_t) (state >> 8);
+        message[i + 2] = (uint8_t) (state >> 16);
+        message[i + 3] = (uint8_t) (state >> 24);
+    }
+
+    // Padding: a one bit, zeros, then the message length in bits as a big-endian u64, filling one more block
+    for (int i = MESSAGE_LENGTH; i < MESSAGE_LENGTH + 64; i++) {
+        message[i] = 0;
+    }
+
+    uint32_t bits = MESSAGE_LENGTH * 8;
+    message[MESSAGE_LENGTH] = 0x80;
+    message[MESSAGE_LENGTH + 60] = (uint8_t) (bits >> 24);
+    message[MESSAGE_LENGTH + 61] = (uint8_t) (bits >> 16);
+    message[MESSAGE_LENGTH + 62] = (uint8_t) (bits >> 8);
+    message[MESSAGE_LENGTH + 63] = (uint8_t) bits;
+
+    for (int i = 0; i < 8; i++) {
+        hash[i] = initial_hash[i];
+    }
+
+    for (int block = 0; block < MESSAGE_LENGTH / 64 + 1; block++) {
+        compress(message + block * 64);
+    }
+
+    return (uint64_t) (hash[0] ^ hash[2] ^ hash[4] ^ hash[6]) << 32 | (hash[1] ^ hash[3] ^ hash[5] ^ hash[7]);
+}
@@ -0,0 +1,241 @@
+// SQLite on an in-memory database: fills a table through a prepared insert in one transaction, indexes it, then runs
+// range queries through the index, a sort, an aggregate into a second table, a join against it, an update and a
+// delete. Every call opens and closes its own database, so that each does the same work. The checksum folds every
+// result read back, or is -1 if any statement fails.
+//
+// Built against the amalgamation with SQLITE_OS_OTHER, so the module imports nothing: the only VFS is the one below,
+// which can't open files (an in-memory database with temp_store=3 never needs one) and reports a fixed time and fixed
+// randomness, so that runs are deterministic. See ../README.md for the build.
+
+#include <string.h>
+
+#include "corpus.h"
+#include "sqlite3.h"
+
+#define ROWS 5000
+#define RANGE_QUERIES 200
+
+#ifdef SQLITE_OS_OTHER
+
+static int memory_open(sqlite3_vfs *vfs, const char *name, sqlite3_file *file, int flags, int *out_flags) {
+    (void) vfs, (void) name, (void) flags, (void) out_flags;
+    file->pMethods = 0;
+    return SQLITE_CANTOPEN;
+}
+
+static int memory_delete(sqlite3_vfs *vfs, const char *name, int sync_directory) {
+    (void) vfs, (void) name, (void) sync_directory;
+    return SQLITE_IOERR_DELETE;
+}
+
+static int memory_access(sqlite3_vfs *vfs, const char *name, int flags, int *result) {
+    (void) vfs, (void) name, (void) flags;
+    *result = 0;
+    return SQLITE_OK;
+}
+
+static int memory_full_pathname(sqlite3_vfs *vfs, const char *name, int size, char *out) {
+    (void) vfs;
+    sqlite3_snprintf(size, out, "%s", name);
+    return SQLITE_OK;
+}
+
+static int memory_randomness(sqlite3_vfs *vfs, int size, char *out) {
+    (void) vfs;
+    for (int i = 0; i < size; i++) {
+        out[i] = (char) (i * 167 + 13);
+    }
+
+    return size;
+}
+
+static int memory_sleep(sqlite3_vfs *vfs, int microseconds) {
+    (void) vfs;
+    return microseconds;
+}
+
+// 2026-01-01 00:00:00 UTC, as a Julian day number in milliseconds.
+static int memory_current_time_int64(sqlite3_vfs *vfs, sqlite3_int64 *out) {
+    (void) vfs;
+    *out = 212633985600000LL;
+    return SQLITE_OK;
+}
+
+static int memory_current_time(sqlite3_vfs *vfs, double *out) {
+    sqlite3_int64 milliseconds;
+    memory_current_time_int64(vfs, &milliseconds);
+    *out = milliseconds / 86400000.0;
+    return SQLITE_OK;
+}
+
+static int memory_get_last_error(sqlite3_vfs *vfs, int size, char *out) {
+    (void) vfs, (void) size, (void) out;
+    return 0;
+}
+
+static sqlite3_vfs memory_vfs = {
+    .iVersion = 2,
+    .szOsFile = sizeof(sqlite3_file),
+    .mxPathname = 512,
+    .zName = "memory",
+    .xOpen = memory_open,
+    .xDelete = memory_delete,
+    .xAccess = memory_access,
+    .xFullPathname = memory_full_pathname,
+    .xRandomness = memory_randomness,
+    .xSleep = memory_sleep,
+    .xCurrentTime = memory_current_time,
+    .xGetLastError = memory_get_last_error,
+    .xCurrentTimeInt64 = memory_current_time_int64,
+};
+
+int sqlite3_os_init(void) {
+    return sqlite3_vfs_register(&memory_vfs, 1);
+}
+
+int sqlite3_os_end(void) {
+    return SQLITE_OK;
+}
+
+#endif
+
+static uint64_t checksum;
+
+static void fold(uint64_t value) {
+    checksum = checksum * 31 + value;
+}
+
+static void fold_text(const unsigned char *value) {
+    uint32_t hash = 0x811c9dc5;
+    for (; *value; value++) {
+        hash = (hash ^ *value) * 0x01000193;
+    }
+
+    fold(hash);
+}
+
+// Runs a statement that returns no rows.
+static int execute(sqlite3 *db, const char *sql) {
+    return sqlite3_exec(db, sql, 0, 0, 0) == SQLITE_OK;
+}
+
+// Runs a query, folding every column of every row into the checksum.
+static int query(sqlite3 *db, const char *sql) {
+    sqlite3_stmt *statement;
+    if (sqlite3_prepare_v2(db, sql, -1, &statement, 0) != SQLITE_OK) {
+        return 0;
+    }
+
+    int status;
+    while ((status = sqlite3_step(statement)) == SQLITE_ROW) {
+        for (int i = 0; i < sqlite3_column_count(statement); i++) {
+            if (sqlite3_column_type(statement, i) == SQLITE_TEXT) {
+                fold_text(sqlite3_column_text(statement, i));
+            } else {
+                fold((uint64_t) sqlite3_column_int64(statement, i));
+            }
+        }
+    }
+
+    sqlite3_finalize(statement);
+    return status == SQLITE_DONE;
+}
+
+static const char *const words[] = {
+    "zero", "one", "two", "three", "four", "five", "six", "seven", "eight", "nine",
+};
+
+static int fill(sqlite3 *db) {
+    sqlite3_stmt *insert;
+    if (sqlite3_prepare_v2(db, "INSERT INTO t1 VALUES (?1, ?2, ?3)", -1, &insert, 0) != SQLITE_OK) {
+        return 0;
+    }
+
+    uint32_t state = 0x9e3779b9;
+    char name[64];
+
+    for (int row = 1; row <= ROWS; row++) {
+        state ^= state << 13;
+        state ^= state >> 17;
+        state ^= state << 5;
+
+        // The value's digits spelled out, so that the text column sorts differently from the integer one.
+        uint32_t value = state % 1000000;
+        int length = 0;
+        for (uint32_t digits = value; length < 40; digits /= 10) {
+            const char *word = words[digits % 10];
+            size_t size = strlen(word);
+            memcpy(name + length, word, size);
+            length += (int) size;
+            if (digits < 10) {
+                break;
+            }
+            name[length++] = ' ';
+        }
+
+        sqlite3_bind_int(insert, 1, row);
+        sqlite3_bind_int(insert, 2, (int) value);
+        sqlite3_bind_text(insert, 3, name, length, SQLITE_TRANSIENT);
+
+        if (sqlite3_step(insert) != SQLITE_DONE) {
+            sqlite3_finalize(insert);
+            return 0;
+        }
+
+        sqlite3_reset(insert);
+    }
+
+    return sqlite3_finalize(insert) == SQLITE_OK;
+}
+
+static int range_queries(sqlite3 *db) {
+    sqlite3_stmt *select;
+    if (sqlite3_prepare_v2(db, "SELECT count(*), sum(b) FROM t1 WHERE b BETWEEN ?1 AND ?2", -1, &select, 0) != SQLITE_OK) {
+        return 0;
+    }
+
+    for (int i = 0; i < RANGE_QUERIES; i++) {
+        int low = (i * 7919) % 1000000;
+        sqlite3_bind_int(select, 1, low);
+        sqlite3_bind_int(select, 2, low + 10000);
+
+        if (sqlite3_step(select) != SQLITE_ROW) {
+            sqlite3_finalize(select);
+            return 0;
+        }
+
+        fold((uint64_t) sqlite3_column_int64(select, 0));
+        fold((uint64_t) sqlite3_column_int64(select, 1));
+        sqlite3_reset(select);
+    }
+
+    return sqlite3_finalize(select) == SQLITE_OK;
+}
+
+CORPUS_EXPORT("run") uint64_t run(void) {
+    sqlite3 *db;
+    checksum = 0;
+
+    if (sqlite3_open(":memory:", &db) != SQLITE_OK) {
+        sqlite3_close(db);
+        return (uint64_t) -1;
+    }
+
+    int ok = execute(db, "PRAGMA temp_store = MEMORY")
+        && execute(db, "CREATE TABLE t1 (a INTEGER PRIMARY KEY, b INTEGER, c TEXT)")
+        && execute(db, "BEGIN")
+        && fill(db)
+        && execute(db, "COMMIT")
+        && execute(db, "CREATE INDEX t1b ON t1 (b)")
+        && range_queries(db)
+        && query(db, "SELECT a, c FROM t1 ORDER BY c, a LIMIT 100")
+        && execute(db, "CREATE TABLE t2 AS SELECT b % 1000 AS k, count(*) AS n, max(a) AS m FROM t1 GROUP BY 1")
+        && query(db, "SELECT sum(t1.b * t2.n), count(*) FROM t1 JOIN t2 ON t1.a = t2.m")
+        && execute(db, "UPDATE t1 SET b = b * 2 WHERE a % 7 = 0")
+        && execute(db, "DELETE FROM t1 WHERE b % 3 = 0")
+        && query(db, "SELECT count(*), sum(b), min(c), max(c) FROM t1")
+        && query(db, "SELECT length(group_concat(c, ',')) FROM (SELECT c FROM t1 WHERE b < 50000 ORDER BY b)");
+
+    sqlite3_close(db);
+    return ok ? checksum : (uint64_t) -1;
+}
@@ -0,0 +1,102 @@
+package org.wastastic.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.ModuleInstance;
+import org.wastastic.TrapException;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class BoundsCheckBenchmark {
+    private static final int WORD_COUNT = 4096;
+
+    @Param({"IMPLICIT", "EXPLICIT"})
+    public String boundsChecks;
+
+    private MethodHandle sumWords;
+    private MethodHandle loadWord;
+    private ModuleInstance instance;
+    private TrapException.StackTraceMode previousStackTraceMode;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+        builder.memory(1, 1);
+
+        // sum_words(count) -> i32: adds up the first `count` 32-bit words of memory
+        var sumWordsFunction = builder.function("sum_words", builder.type(types(I32), types(I32)));
+        sumWordsFunction.locals(2, I32); // 1: index, 2: accumulator
+        sumWordsFunction.countedLoop(1, 0, 0, () -> sumWordsFunction
+            .localGet(2)
+            .localGet(1).i32Const(2).op(0x74) // i32.shl
+            .memoryAccess(0x28, 2, 0) // i32.load
+            .op(0x6a) // i32.add
+            .localSet(2)
+        );
+        sumWordsFunction.localGet(2);
+
+        // load_word(address) -> i32
+        var loadWordFunction = builder.function("load_word", builder.type(types(I32), types(I32)));
+        loadWordFunction.localGet(0).memoryAccess(0x28, 2, 0);
+
+        builder.exportFunction("sum_words", sumWordsFunction.id());
+        builder.exportFunction("load_word", loadWordFunction.id());
+
+        var options = CompilerOptions.defaults()
+            .withBoundsChecks(CompilerOptions.BoundsChecks.valueOf(boundsChecks));
+
+        var module = builder.compile(options);
+        module.precompileFunctions();
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+        sumWords = module.exportedFunctionHandle("sum_words");
+        loadWord = module.exportedFunctionHandle("load_word");
+
+        // Measure the cost of the bounds check itself rather than stack trace recovery.
+        previousStackTraceMode = TrapException.getStackTraceMode();
+        TrapException.setStackTraceMode(TrapException.StackTraceMode.NONE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TrapException.setStackTraceMode(previousStackTraceMode);
+    }
+
+    @Benchmark
+    public int inBounds() throws Throwable {
+        return (int) sumWords.invokeExact(WORD_COUNT, instance);
+    }
+
+    @Benchmark
+    public int outOfBounds() throws Throwable {
+        try {
+            return (int) loadWord.invokeExact(65536, instance);
+        }
+        catch (TrapException exception) {
+            return -1;
+        }
+    }
+}
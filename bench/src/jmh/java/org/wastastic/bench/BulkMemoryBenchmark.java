@@ -0,0 +1,88 @@
+package org.wastastic.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.ModuleInstance;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class BulkMemoryBenchmark {
+    private static final int PAGE_SIZE = 65536;
+
+    @Param({"16", "256", "4096", "65536"})
+    public int length;
+
+    private MethodHandle copy;
+    private MethodHandle copyOverlapping;
+    private MethodHandle fill;
+    private ModuleInstance instance;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+        builder.memory(3, 3);
+
+        var lengthType = builder.type(types(I32), types());
+
+        // copy(length): from the first page to the second
+        var copyFunction = builder.function("copy", lengthType);
+        copyFunction.i32Const(PAGE_SIZE).i32Const(0).localGet(0).prefixed(0xfc, 10).u32(0).u32(0); // memory.copy
+
+        // copy_overlapping(length): shifts the first `length` bytes up by one, so source and destination overlap
+        var copyOverlappingFunction = builder.function("copy_overlapping", lengthType);
+        copyOverlappingFunction.i32Const(1).i32Const(0).localGet(0).prefixed(0xfc, 10).u32(0).u32(0); // memory.copy
+
+        // fill(length): fills the third page
+        var fillFunction = builder.function("fill", lengthType);
+        fillFunction.i32Const(2 * PAGE_SIZE).i32Const(0x5a).localGet(0).prefixed(0xfc, 11).u32(0); // memory.fill
+
+        builder.exportFunction("copy", copyFunction.id());
+        builder.exportFunction("copy_overlapping", copyOverlappingFunction.id());
+        builder.exportFunction("fill", fillFunction.id());
+
+        var module = builder.compile(CompilerOptions.defaults());
+        module.precompileFunctions();
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+        copy = module.exportedFunctionHandle("copy");
+        copyOverlapping = module.exportedFunctionHandle("copy_overlapping");
+        fill = module.exportedFunctionHandle("fill");
+    }
+
+    @Benchmark
+    public void copy() throws Throwable {
+        copy.invokeExact(length, instance);
+    }
+
+    @Benchmark
+    public void copyOverlapping() throws Throwable {
+        copyOverlapping.invokeExact(Math.min(length, PAGE_SIZE - 1), instance);
+    }
+
+    @Benchmark
+    public void fill() throws Throwable {
+        fill.invokeExact(length, instance);
+    }
+}
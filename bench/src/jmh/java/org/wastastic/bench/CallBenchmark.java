@@ -0,0 +1,134 @@
+package org.wastastic.bench;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.ModuleInstance;
+import org.wastastic.QualifiedName;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.lang.invoke.MethodType.methodType;
+import static org.wastastic.bench.WasmModuleBuilder.FUNCREF;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class CallBenchmark {
+    private static final int CALLS = 1024;
+
+    private MethodHandle directCalls;
+    private MethodHandle indirectCalls;
+    private MethodHandle hostCalls;
+    private MethodHandle increment;
+    private ModuleInstance instance;
+    private int argument;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+        var unaryType = builder.type(types(I32), types(I32));
+        var hostIncrementId = builder.importFunction("env", "increment", unaryType);
+
+        // increment(x) -> x + 1, the callee of every call below
+        var incrementFunction = builder.function("increment", unaryType);
+        incrementFunction.localGet(0).i32Const(1).op(0x6a); // i32.add
+
+        var table = builder.table(FUNCREF, 1, 1);
+        builder.activeElements(table, 0, incrementFunction.id());
+
+        // Each of these calls increment `count` times in a loop, threading an accumulator through the calls.
+        var directCallsFunction = callLoop(builder, "direct_calls", unaryType, function -> function
+            .call(incrementFunction.id())
+        );
+
+        var indirectCallsFunction = callLoop(builder, "indirect_calls", unaryType, function -> function
+            .i32Const(0).callIndirect(unaryType, table)
+        );
+
+        var hostCallsFunction = callLoop(builder, "host_calls", unaryType, function -> function
+            .call(hostIncrementId)
+        );
+
+        builder.exportFunction("increment", incrementFunction.id());
+        builder.exportFunction("direct_calls", directCallsFunction.id());
+        builder.exportFunction("indirect_calls", indirectCallsFunction.id());
+        builder.exportFunction("host_calls", hostCallsFunction.id());
+
+        var module = builder.compile(CompilerOptions.defaults());
+        module.precompileFunctions();
+
+        var hostIncrement = MethodHandles.lookup().findStatic(CallBenchmark.class, "hostIncrement", methodType(int.class, int.class));
+        hostIncrement = MethodHandles.dropArguments(hostIncrement, 1, ModuleInstance.class);
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of(new QualifiedName("env", "increment"), hostIncrement));
+        directCalls = module.exportedFunctionHandle("direct_calls");
+        indirectCalls = module.exportedFunctionHandle("indirect_calls");
+        hostCalls = module.exportedFunctionHandle("host_calls");
+        increment = module.exportedFunctionHandle("increment");
+    }
+
+    private static int hostIncrement(int value) {
+        return value + 1;
+    }
+
+    private static @NotNull WasmModuleBuilder.Function callLoop(
+        @NotNull WasmModuleBuilder builder,
+        @NotNull String name,
+        int typeId,
+        @NotNull Consumer<WasmModuleBuilder.Function> call
+    ) {
+        var function = builder.function(name, typeId);
+        function.locals(2, I32); // 1: index, 2: accumulator
+        function.countedLoop(1, 0, 0, () -> {
+            function.localGet(2);
+            call.accept(function);
+            function.localSet(2);
+        });
+        function.localGet(2);
+        return function;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int directCall() throws Throwable {
+        return (int) directCalls.invokeExact(CALLS, instance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int indirectCall() throws Throwable {
+        return (int) indirectCalls.invokeExact(CALLS, instance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int hostCall() throws Throwable {
+        return (int) hostCalls.invokeExact(CALLS, instance);
+    }
+
+    @Benchmark
+    public int exportedCall() throws Throwable {
+        return argument = (int) increment.invokeExact(argument, instance);
+    }
+}
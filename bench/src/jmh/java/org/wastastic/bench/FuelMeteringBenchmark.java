@@ -0,0 +1,94 @@
+package org.wastastic.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.Fuel;
+import org.wastastic.FuelCosts;
+import org.wastastic.ModuleInstance;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class FuelMeteringBenchmark {
+    private static final int ITERATIONS = 4096;
+
+    @Param({"false", "true"})
+    public boolean metered;
+
+    private MethodHandle collatzSteps;
+    private ModuleInstance instance;
+    private Fuel fuel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+
+        // collatz_steps(count) -> i32: total Collatz steps for 1..count, a branchy loop nest with small basic blocks
+        var function = builder.function("collatz_steps", builder.type(types(I32), types(I32)));
+        function.locals(3, I32); // 1: start, 2: current value, 3: total steps
+        function.countedLoop(1, 1, 0, () -> function
+            .localGet(1).localSet(2)
+            .block(WasmModuleBuilder.EMPTY_BLOCK)
+            .loop(WasmModuleBuilder.EMPTY_BLOCK)
+            .localGet(2).i32Const(1).op(0x4d).brIf(1) // i32.le_u
+            .localGet(2).i32Const(1).op(0x71) // i32.and
+            .ifThen(WasmModuleBuilder.EMPTY_BLOCK)
+            .localGet(2).i32Const(3).op(0x6c).i32Const(1).op(0x6a).localSet(2) // 3n + 1
+            .otherwise()
+            .localGet(2).i32Const(1).op(0x76).localSet(2) // n >>> 1
+            .end()
+            .localGet(3).i32Const(1).op(0x6a).localSet(3)
+            .br(0)
+            .end()
+            .end()
+        );
+        function.localGet(3);
+
+        builder.exportFunction("collatz_steps", function.id());
+
+        var options = CompilerOptions.defaults();
+        if (metered) {
+            options = options.withFuelMetering(FuelCosts.defaults());
+        }
+
+        var module = builder.compile(options);
+        module.precompileFunctions();
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+        collatzSteps = module.exportedFunctionHandle("collatz_steps");
+
+        if (metered) {
+            fuel = (Fuel) module.fuelHandle().invokeExact(instance);
+        }
+    }
+
+    @Benchmark
+    public int collatzSteps() throws Throwable {
+        if (fuel != null) {
+            fuel.set(Long.MAX_VALUE);
+        }
+
+        return (int) collatzSteps.invokeExact(ITERATIONS, instance);
+    }
+}
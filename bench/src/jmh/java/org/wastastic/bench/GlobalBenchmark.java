@@ -0,0 +1,117 @@
+package org.wastastic.bench;
+
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.Global;
+import org.wastastic.ModuleInstance;
+import org.wastastic.QualifiedName;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class GlobalBenchmark {
+    private static final int ITERATIONS = 1024;
+
+    @Param({"false", "true"})
+    public boolean instanceSpecialization;
+
+    private MethodHandle immutableGets;
+    private MethodHandle mutableUpdates;
+    private MethodHandle importedUpdates;
+    private ModuleInstance instance;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+        var countType = builder.type(types(I32), types(I32));
+
+        var importedGlobal = builder.importGlobal("env", "counter", I32, true);
+        var immutableGlobal = builder.globalI64(false, 3);
+        var mutableGlobal = builder.globalI32(true, 0);
+
+        // immutable_gets(count) -> i32: sums an immutable i64 global `count` times
+        var immutableGetsFunction = builder.function("immutable_gets", countType);
+        immutableGetsFunction.locals(2, I32); // 1: index, 2: accumulator
+        immutableGetsFunction.countedLoop(1, 0, 0, () -> immutableGetsFunction
+            .localGet(2)
+            .globalGet(immutableGlobal).op(0xa7) // i32.wrap_i64
+            .op(0x6a).localSet(2) // i32.add
+        );
+        immutableGetsFunction.localGet(2);
+
+        // mutable_updates(count) -> i32 and imported_updates(count) -> i32: add the index to a mutable global on each
+        // iteration, through a defined and an imported global respectively
+        var mutableUpdatesFunction = globalUpdateLoop(builder, "mutable_updates", countType, mutableGlobal);
+        var importedUpdatesFunction = globalUpdateLoop(builder, "imported_updates", countType, importedGlobal);
+
+        builder.exportFunction("immutable_gets", immutableGetsFunction.id());
+        builder.exportFunction("mutable_updates", mutableUpdatesFunction.id());
+        builder.exportFunction("imported_updates", importedUpdatesFunction.id());
+
+        var options = CompilerOptions.defaults().withInstanceSpecialization(instanceSpecialization);
+        var module = builder.compile(options);
+        module.precompileFunctions();
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of(new QualifiedName("env", "counter"), Global.i32(0, true)));
+        immutableGets = module.exportedFunctionHandle("immutable_gets");
+        mutableUpdates = module.exportedFunctionHandle("mutable_updates");
+        importedUpdates = module.exportedFunctionHandle("imported_updates");
+    }
+
+    private static @NotNull WasmModuleBuilder.Function globalUpdateLoop(
+        @NotNull WasmModuleBuilder builder,
+        @NotNull String name,
+        int typeId,
+        int globalId
+    ) {
+        var function = builder.function(name, typeId);
+        function.locals(1, I32); // 1: index
+        function.countedLoop(1, 0, 0, () -> function
+            .globalGet(globalId).localGet(1).op(0x6a).globalSet(globalId) // i32.add
+        );
+        function.globalGet(globalId);
+        return function;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITERATIONS)
+    public int immutableGet() throws Throwable {
+        return (int) immutableGets.invokeExact(ITERATIONS, instance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITERATIONS)
+    public int mutableUpdate() throws Throwable {
+        return (int) mutableUpdates.invokeExact(ITERATIONS, instance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITERATIONS)
+    public int importedUpdate() throws Throwable {
+        return (int) importedUpdates.invokeExact(ITERATIONS, instance);
+    }
+}
@@ -0,0 +1,140 @@
+package org.wastastic.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.ModuleInstance;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wastastic.bench.WasmModuleBuilder.F32;
+import static org.wastastic.bench.WasmModuleBuilder.F64;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class MemoryAccessBenchmark {
+    private static final int ACCESSES = 4096;
+
+    public enum Access {
+        I32_LOAD(0x28, 2, I32, false),
+        I64_LOAD(0x29, 3, I64, false),
+        F32_LOAD(0x2a, 2, F32, false),
+        F64_LOAD(0x2b, 3, F64, false),
+        I32_LOAD8_S(0x2c, 0, I32, false),
+        I32_LOAD8_U(0x2d, 0, I32, false),
+        I32_LOAD16_S(0x2e, 1, I32, false),
+        I32_LOAD16_U(0x2f, 1, I32, false),
+        I64_LOAD8_S(0x30, 0, I64, false),
+        I64_LOAD8_U(0x31, 0, I64, false),
+        I64_LOAD16_S(0x32, 1, I64, false),
+        I64_LOAD16_U(0x33, 1, I64, false),
+        I64_LOAD32_S(0x34, 2, I64, false),
+        I64_LOAD32_U(0x35, 2, I64, false),
+        I32_STORE(0x36, 2, I32, true),
+        I64_STORE(0x37, 3, I64, true),
+        F32_STORE(0x38, 2, F32, true),
+        F64_STORE(0x39, 3, F64, true),
+        I32_STORE8(0x3a, 0, I32, true),
+        I32_STORE16(0x3b, 1, I32, true),
+        I64_STORE8(0x3c, 0, I64, true),
+        I64_STORE16(0x3d, 1, I64, true),
+        I64_STORE32(0x3e, 2, I64, true);
+
+        final int opcode;
+        final int alignment;
+        final byte valueType;
+        final boolean store;
+
+        Access(int opcode, int alignment, byte valueType, boolean store) {
+            this.opcode = opcode;
+            this.alignment = alignment;
+            this.valueType = valueType;
+            this.store = store;
+        }
+    }
+
+    @Param
+    public Access access;
+
+    @Param({"IMPLICIT", "EXPLICIT"})
+    public String boundsChecks;
+
+    private MethodHandle accessAll;
+    private ModuleInstance instance;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+        builder.memory(1, 1);
+
+        // access_all(count) -> i64: performs the access at each of the first `count` naturally aligned addresses. Loads
+        // fold their results into an i64 accumulator so none of them are dead; stores write the index.
+        var function = builder.function("access_all", builder.type(types(I32), types(I64)));
+        function.locals(1, I32).locals(1, I64); // 1: index, 2: accumulator
+        function.countedLoop(1, 0, 0, () -> {
+            if (access.store) {
+                function.localGet(1).i32Const(access.alignment).op(0x74); // i32.shl
+                function.localGet(1);
+
+                switch (access.valueType) {
+                    case I64 -> function.op(0xad); // i64.extend_i32_u
+                    case F32 -> function.op(0xb2); // f32.convert_i32_s
+                    case F64 -> function.op(0xb7); // f64.convert_i32_s
+                }
+
+                function.memoryAccess(access.opcode, access.alignment, 0);
+            }
+            else {
+                function.localGet(2);
+                function.localGet(1).i32Const(access.alignment).op(0x74); // i32.shl
+                function.memoryAccess(access.opcode, access.alignment, 0);
+
+                switch (access.valueType) {
+                    case I32 -> function.op(0xad); // i64.extend_i32_u
+                    case F32 -> function.op(0xbc).op(0xad); // i32.reinterpret_f32, i64.extend_i32_u
+                    case F64 -> function.op(0xbd); // i64.reinterpret_f64
+                }
+
+                function.op(0x7c).localSet(2); // i64.add
+            }
+        });
+        function.localGet(2);
+
+        builder.exportFunction("access_all", function.id());
+
+        var options = CompilerOptions.defaults()
+            .withBoundsChecks(CompilerOptions.BoundsChecks.valueOf(boundsChecks));
+
+        var module = builder.compile(options);
+        module.precompileFunctions();
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+        accessAll = module.exportedFunctionHandle("access_all");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public long access() throws Throwable {
+        return (long) accessAll.invokeExact(ACCESSES, instance);
+    }
+}
@@ -0,0 +1,103 @@
+package org.wastastic.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.ModuleInstance;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class MultiValueBenchmark {
+    private static final int CALLS = 1024;
+
+    private MethodHandle singleCalls;
+    private MethodHandle pairCalls;
+    private MethodHandle pair;
+    private ModuleInstance instance;
+    private int argument;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+        var countType = builder.type(types(I32), types(I32));
+
+        // single(x) -> i64 and pair(x) -> (i32, i32) return the same two halves, packed and as two results
+        var singleFunction = builder.function("single", builder.type(types(I32), types(I64)));
+        singleFunction.localGet(0).op(0xad).i64Const(32).op(0x86); // i64.extend_i32_u, i64.shl
+        singleFunction.localGet(0).i32Const(1).op(0x6a).op(0xad).op(0x84); // i32.add, i64.extend_i32_u, i64.or
+
+        var pairFunction = builder.function("pair", builder.type(types(I32), types(I32, I32)));
+        pairFunction.localGet(0).localGet(0).i32Const(1).op(0x6a); // i32.add
+
+        // single_calls(count) -> i32 and pair_calls(count) -> i32: call each `count` times, summing both halves
+        var singleCallsFunction = builder.function("single_calls", countType);
+        singleCallsFunction.locals(2, I32).locals(1, I64); // 1: index, 2: accumulator, 3: packed result
+        singleCallsFunction.countedLoop(1, 0, 0, () -> singleCallsFunction
+            .localGet(1).call(singleFunction.id()).localTee(3)
+            .i64Const(32).op(0x88).op(0xa7) // i64.shr_u, i32.wrap_i64
+            .localGet(3).op(0xa7) // i32.wrap_i64
+            .op(0x6a).localGet(2).op(0x6a).localSet(2) // i32.add, i32.add
+        );
+        singleCallsFunction.localGet(2);
+
+        var pairCallsFunction = builder.function("pair_calls", countType);
+        pairCallsFunction.locals(2, I32); // 1: index, 2: accumulator
+        pairCallsFunction.countedLoop(1, 0, 0, () -> pairCallsFunction
+            .localGet(1).call(pairFunction.id())
+            .op(0x6a).localGet(2).op(0x6a).localSet(2) // i32.add, i32.add
+        );
+        pairCallsFunction.localGet(2);
+
+        builder.exportFunction("pair", pairFunction.id());
+        builder.exportFunction("single_calls", singleCallsFunction.id());
+        builder.exportFunction("pair_calls", pairCallsFunction.id());
+
+        var module = builder.compile(CompilerOptions.defaults());
+        module.precompileFunctions();
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+        singleCalls = module.exportedFunctionHandle("single_calls");
+        pairCalls = module.exportedFunctionHandle("pair_calls");
+        pair = module.exportedFunctionHandle("pair");
+    }
+
+    // Baseline for pairCall: the same work with the results packed into a single i64.
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int singleResultCall() throws Throwable {
+        return (int) singleCalls.invokeExact(CALLS, instance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public int pairCall() throws Throwable {
+        return (int) pairCalls.invokeExact(CALLS, instance);
+    }
+
+    @Benchmark
+    public Object[] exportedPairCall() throws Throwable {
+        return (Object[]) pair.invokeExact(argument++, instance);
+    }
+}
@@ -0,0 +1,142 @@
+package org.wastastic.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.ModuleInstance;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wastastic.bench.WasmModuleBuilder.FUNCREF;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class TableBenchmark {
+    private static final int OPERATIONS = 1024;
+    private static final int TABLE_SIZE = 1024;
+
+    @Param({"IMPLICIT", "EXPLICIT"})
+    public String boundsChecks;
+
+    private MethodHandle getAll;
+    private MethodHandle setAll;
+    private MethodHandle sizeRepeatedly;
+    private MethodHandle fill;
+    private MethodHandle copy;
+    private ModuleInstance instance;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+        var countType = builder.type(types(I32), types(I32));
+
+        var element = builder.function("element", builder.type(types(), types()));
+
+        var table = builder.table(FUNCREF, TABLE_SIZE, TABLE_SIZE);
+        builder.activeElements(table, 0, element.id());
+
+        // get_all(count) -> i32: counts the null entries among the first `count`
+        var getAllFunction = builder.function("get_all", countType);
+        getAllFunction.locals(2, I32); // 1: index, 2: accumulator
+        getAllFunction.countedLoop(1, 0, 0, () -> getAllFunction
+            .localGet(2)
+            .localGet(1).op(0x25, table).op(0xd1) // table.get, ref.is_null
+            .op(0x6a).localSet(2) // i32.add
+        );
+        getAllFunction.localGet(2);
+
+        // set_all(count) -> i32: stores a function reference into each of the first `count` entries
+        var setAllFunction = builder.function("set_all", countType);
+        setAllFunction.locals(1, I32); // 1: index
+        setAllFunction.countedLoop(1, 0, 0, () -> setAllFunction
+            .localGet(1).op(0xd2, element.id()).op(0x26, table) // ref.func, table.set
+        );
+        setAllFunction.localGet(1);
+
+        // size_repeatedly(count) -> i32: sums table.size `count` times
+        var sizeRepeatedlyFunction = builder.function("size_repeatedly", countType);
+        sizeRepeatedlyFunction.locals(2, I32); // 1: index, 2: accumulator
+        sizeRepeatedlyFunction.countedLoop(1, 0, 0, () -> sizeRepeatedlyFunction
+            .localGet(2)
+            .prefixed(0xfc, 16).u32(table) // table.size
+            .op(0x6a).localSet(2) // i32.add
+        );
+        sizeRepeatedlyFunction.localGet(2);
+
+        // fill(count) -> i32: fills the first `count` entries with one reference
+        var fillFunction = builder.function("fill", countType);
+        fillFunction.i32Const(0).op(0xd2, element.id()).localGet(0).prefixed(0xfc, 17).u32(table); // table.fill
+        fillFunction.localGet(0);
+
+        // copy(count) -> i32: copies the first `count` entries over the next `count`
+        var copyFunction = builder.function("copy", countType);
+        copyFunction.localGet(0).i32Const(0).localGet(0).prefixed(0xfc, 14).u32(table).u32(table); // table.copy
+        copyFunction.localGet(0);
+
+        builder.exportFunction("get_all", getAllFunction.id());
+        builder.exportFunction("set_all", setAllFunction.id());
+        builder.exportFunction("size_repeatedly", sizeRepeatedlyFunction.id());
+        builder.exportFunction("fill", fillFunction.id());
+        builder.exportFunction("copy", copyFunction.id());
+
+        var options = CompilerOptions.defaults()
+            .withBoundsChecks(CompilerOptions.BoundsChecks.valueOf(boundsChecks));
+
+        var module = builder.compile(options);
+        module.precompileFunctions();
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+        getAll = module.exportedFunctionHandle("get_all");
+        setAll = module.exportedFunctionHandle("set_all");
+        sizeRepeatedly = module.exportedFunctionHandle("size_repeatedly");
+        fill = module.exportedFunctionHandle("fill");
+        copy = module.exportedFunctionHandle("copy");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int get() throws Throwable {
+        return (int) getAll.invokeExact(OPERATIONS, instance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int set() throws Throwable {
+        return (int) setAll.invokeExact(OPERATIONS, instance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int size() throws Throwable {
+        return (int) sizeRepeatedly.invokeExact(OPERATIONS, instance);
+    }
+
+    @Benchmark
+    public int fill() throws Throwable {
+        return (int) fill.invokeExact(TABLE_SIZE, instance);
+    }
+
+    @Benchmark
+    public int copy() throws Throwable {
+        return (int) copy.invokeExact(TABLE_SIZE / 2, instance);
+    }
+}
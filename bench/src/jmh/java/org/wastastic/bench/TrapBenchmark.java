@@ -0,0 +1,89 @@
+package org.wastastic.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wastastic.CompilerOptions;
+import org.wastastic.ModuleInstance;
+import org.wastastic.TrapException;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wastastic.bench.WasmModuleBuilder.EMPTY_BLOCK;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules=jdk.incubator.foreign"})
+public class TrapBenchmark {
+    @Param({"EAGER", "SAMPLED", "NONE"})
+    public String stackTraceMode;
+
+    @Param({"1", "32"})
+    public int depth;
+
+    private MethodHandle trapAtDepth;
+    private ModuleInstance instance;
+    private TrapException.StackTraceMode previousStackTraceMode;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        var builder = new WasmModuleBuilder();
+
+        // trap_at_depth(n): recurses n - 1 times, then executes unreachable
+        var function = builder.function("trap_at_depth", builder.type(types(I32), types()));
+        function.localGet(0).i32Const(1).op(0x4c); // i32.le_s
+        function.ifThen(EMPTY_BLOCK).op(0x00).end(); // unreachable
+        function.localGet(0).i32Const(1).op(0x6b).call(function.id()); // i32.sub
+
+        builder.exportFunction("trap_at_depth", function.id());
+
+        var module = builder.compile(CompilerOptions.defaults());
+        module.precompileFunctions();
+
+        instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+        trapAtDepth = module.exportedFunctionHandle("trap_at_depth");
+
+        previousStackTraceMode = TrapException.getStackTraceMode();
+        TrapException.setStackTraceMode(TrapException.StackTraceMode.valueOf(stackTraceMode));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TrapException.setStackTraceMode(previousStackTraceMode);
+    }
+
+    // Covers throwing the trap and unwinding to the caller, including walking the stack for traps that get a trace.
+    @Benchmark
+    public TrapException trap() throws Throwable {
+        try {
+            trapAtDepth.invokeExact(depth, instance);
+        }
+        catch (TrapException exception) {
+            return exception;
+        }
+
+        throw new AssertionError("trap_at_depth returned");
+    }
+
+    @Benchmark
+    public StackTraceElement[] trapWithStackTrace() throws Throwable {
+        return trap().getStackTrace();
+    }
+}
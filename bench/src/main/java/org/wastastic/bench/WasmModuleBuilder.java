@@ -0,0 +1,585 @@
+package org.wastastic.bench;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.CompilerOptions;
+import org.wastastic.Module;
+import org.wastastic.TranslationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+public final class WasmModuleBuilder {
+    public static final byte I32 = 0x7f;
+    public static final byte I64 = 0x7e;
+    public static final byte F32 = 0x7d;
+    public static final byte F64 = 0x7c;
+    public static final byte FUNCREF = 0x70;
+    public static final byte EXTERNREF = 0x6f;
+    public static final byte ANYREF = 0x6e;
+    public static final byte I8 = 0x78;
+    public static final byte I16 = 0x77;
+
+    public static final byte EMPTY_BLOCK = 0x40;
+
+    private final List<byte[]> types = new ArrayList<>();
+    private final List<byte[]> imports = new ArrayList<>();
+    private final List<Function> functions = new ArrayList<>();
+    private final List<byte[]> tables = new ArrayList<>();
+    private final List<byte[]> memories = new ArrayList<>();
+    private final List<byte[]> tags = new ArrayList<>();
+    private final List<byte[]> globals = new ArrayList<>();
+    private final List<byte[]> exports = new ArrayList<>();
+    private final List<byte[]> elements = new ArrayList<>();
+    private final List<byte[]> data = new ArrayList<>();
+    private final List<String> functionNames = new ArrayList<>();
+
+    private int importedFunctionCount;
+    private int importedMemoryCount;
+    private int importedTableCount;
+    private int importedGlobalCount;
+
+    public int type(byte @NotNull[] parameterTypes, byte @NotNull[] resultTypes) {
+        var out = new Bytes();
+        out.write(0x60);
+        out.u32(parameterTypes.length);
+        out.writeBytes(parameterTypes);
+        out.u32(resultTypes.length);
+        out.writeBytes(resultTypes);
+        return addType(out.toByteArray());
+    }
+
+    // GC struct type whose fields are all mutable
+    public int structType(byte @NotNull... fieldTypes) {
+        var out = new Bytes();
+        out.write(0x5f);
+        out.u32(fieldTypes.length);
+        for (var fieldType : fieldTypes) {
+            out.write(fieldType);
+            out.write(1);
+        }
+        return addType(out.toByteArray());
+    }
+
+    // GC array type with mutable elements
+    public int arrayType(byte elementType) {
+        var out = new Bytes();
+        out.write(0x5e);
+        out.write(elementType);
+        out.write(1);
+        return addType(out.toByteArray());
+    }
+
+    private int addType(byte @NotNull[] bytes) {
+        for (var i = 0; i < types.size(); i++) {
+            if (Arrays.equals(types.get(i), bytes)) {
+                return i;
+            }
+        }
+
+        types.add(bytes);
+        return types.size() - 1;
+    }
+
+    public static byte @NotNull[] types(byte @NotNull... types) {
+        return types;
+    }
+
+    public int importFunction(@NotNull String moduleName, @NotNull String name, int typeId) {
+        if (!functions.isEmpty()) {
+            throw new IllegalStateException("imports must precede defined functions");
+        }
+
+        var out = new Bytes();
+        out.name(moduleName);
+        out.name(name);
+        out.write(0x00);
+        out.u32(typeId);
+        imports.add(out.toByteArray());
+        functionNames.add(moduleName + "." + name);
+        return importedFunctionCount++;
+    }
+
+    public int importMemory(@NotNull String moduleName, @NotNull String name, int minPages, int maxPages) {
+        var out = new Bytes();
+        out.name(moduleName);
+        out.name(name);
+        out.write(0x02);
+        out.limits(minPages, maxPages);
+        imports.add(out.toByteArray());
+        return importedMemoryCount++;
+    }
+
+    public int importTable(@NotNull String moduleName, @NotNull String name, byte elementType, int minSize, int maxSize) {
+        var out = new Bytes();
+        out.name(moduleName);
+        out.name(name);
+        out.write(0x01);
+        out.write(elementType);
+        out.limits(minSize, maxSize);
+        imports.add(out.toByteArray());
+        return importedTableCount++;
+    }
+
+    public int importGlobal(@NotNull String moduleName, @NotNull String name, byte valueType, boolean mutable) {
+        var out = new Bytes();
+        out.name(moduleName);
+        out.name(name);
+        out.write(0x03);
+        out.write(valueType);
+        out.write(mutable ? 1 : 0);
+        imports.add(out.toByteArray());
+        return importedGlobalCount++;
+    }
+
+    public @NotNull Function function(@NotNull String name, int typeId) {
+        var function = new Function(importedFunctionCount + functions.size(), typeId);
+        functions.add(function);
+        functionNames.add(requireNonNull(name));
+        return function;
+    }
+
+    public int memory(int minPages, int maxPages) {
+        var out = new Bytes();
+        out.limits(minPages, maxPages);
+        memories.add(out.toByteArray());
+        return importedMemoryCount + memories.size() - 1;
+    }
+
+    public int table(byte elementType, int minSize, int maxSize) {
+        var out = new Bytes();
+        out.write(elementType);
+        out.limits(minSize, maxSize);
+        tables.add(out.toByteArray());
+        return importedTableCount + tables.size() - 1;
+    }
+
+    public int tag(int typeId) {
+        var out = new Bytes();
+        out.write(0x00);
+        out.u32(typeId);
+        tags.add(out.toByteArray());
+        return tags.size() - 1;
+    }
+
+    public int globalI32(boolean mutable, int initialValue) {
+        var out = new Bytes();
+        out.write(I32);
+        out.write(mutable ? 1 : 0);
+        out.write(0x41);
+        out.s32(initialValue);
+        out.write(0x0b);
+        globals.add(out.toByteArray());
+        return importedGlobalCount + globals.size() - 1;
+    }
+
+    // global initialized from an earlier immutable global, e.g. an imported base address
+    public int globalFromGlobal(byte valueType, boolean mutable, int sourceGlobalId) {
+        var out = new Bytes();
+        out.write(valueType);
+        out.write(mutable ? 1 : 0);
+        out.write(0x23);
+        out.u32(sourceGlobalId);
+        out.write(0x0b);
+        globals.add(out.toByteArray());
+        return importedGlobalCount + globals.size() - 1;
+    }
+
+    public int globalI64(boolean mutable, long initialValue) {
+        var out = new Bytes();
+        out.write(I64);
+        out.write(mutable ? 1 : 0);
+        out.write(0x42);
+        out.s64(initialValue);
+        out.write(0x0b);
+        globals.add(out.toByteArray());
+        return importedGlobalCount + globals.size() - 1;
+    }
+
+    public void exportFunction(@NotNull String name, int functionId) {
+        export(name, 0x00, functionId);
+    }
+
+    public void exportTable(@NotNull String name, int tableId) {
+        export(name, 0x01, tableId);
+    }
+
+    public void exportMemory(@NotNull String name, int memoryId) {
+        export(name, 0x02, memoryId);
+    }
+
+    public void exportGlobal(@NotNull String name, int globalId) {
+        export(name, 0x03, globalId);
+    }
+
+    public void exportTag(@NotNull String name, int tagId) {
+        export(name, 0x04, tagId);
+    }
+
+    private void export(@NotNull String name, int kind, int id) {
+        var out = new Bytes();
+        out.name(name);
+        out.write(kind);
+        out.u32(id);
+        exports.add(out.toByteArray());
+    }
+
+    public void activeElements(int tableId, int offset, int @NotNull... functionIds) {
+        var out = new Bytes();
+
+        if (tableId == 0) {
+            out.u32(0);
+        }
+        else {
+            out.u32(2);
+            out.u32(tableId);
+        }
+
+        out.write(0x41);
+        out.s32(offset);
+        out.write(0x0b);
+
+        if (tableId != 0) {
+            out.write(0x00);
+        }
+
+        out.u32(functionIds.length);
+        for (var functionId : functionIds) {
+            out.u32(functionId);
+        }
+
+        elements.add(out.toByteArray());
+    }
+
+    public void activeData(int memoryId, int offset, byte @NotNull[] contents) {
+        var out = new Bytes();
+
+        if (memoryId == 0) {
+            out.u32(0);
+        }
+        else {
+            out.u32(2);
+            out.u32(memoryId);
+        }
+
+        out.write(0x41);
+        out.s32(offset);
+        out.write(0x0b);
+        out.u32(contents.length);
+        out.writeBytes(contents);
+        data.add(out.toByteArray());
+    }
+
+    public byte @NotNull[] build() {
+        var out = new Bytes();
+        out.writeBytes(new byte[]{0x00, 0x61, 0x73, 0x6d, 0x01, 0x00, 0x00, 0x00});
+
+        section(out, 1, types);
+        section(out, 2, imports);
+
+        var functionSection = new ArrayList<byte[]>();
+        for (var function : functions) {
+            var entry = new Bytes();
+            entry.u32(function.typeId);
+            functionSection.add(entry.toByteArray());
+        }
+
+        section(out, 3, functionSection);
+        section(out, 4, tables);
+        section(out, 5, memories);
+        section(out, 13, tags);
+        section(out, 6, globals);
+        section(out, 7, exports);
+        section(out, 9, elements);
+
+        var codeSection = new ArrayList<byte[]>();
+        for (var function : functions) {
+            var body = function.body();
+            var entry = new Bytes();
+            entry.u32(body.length);
+            entry.writeBytes(body);
+            codeSection.add(entry.toByteArray());
+        }
+
+        section(out, 10, codeSection);
+        section(out, 11, data);
+
+        var nameMap = new Bytes();
+        nameMap.u32(functionNames.size());
+        for (var i = 0; i < functionNames.size(); i++) {
+            nameMap.u32(i);
+            nameMap.name(functionNames.get(i));
+        }
+
+        var nameSection = new Bytes();
+        nameSection.name("name");
+        nameSection.write(0x01);
+        nameSection.u32(nameMap.size());
+        nameSection.writeBytes(nameMap.toByteArray());
+
+        out.write(0x00);
+        out.u32(nameSection.size());
+        out.writeBytes(nameSection.toByteArray());
+
+        return out.toByteArray();
+    }
+
+    public @NotNull MemorySegment buildSegment() {
+        var bytes = build();
+        var segment = MemorySegment.allocateNative(bytes.length, ResourceScope.newImplicitScope());
+        segment.copyFrom(MemorySegment.ofArray(bytes));
+        return segment;
+    }
+
+    public @NotNull Module compile(@NotNull CompilerOptions options) throws TranslationException {
+        return Module.compile(buildSegment(), options);
+    }
+
+    private static void section(@NotNull Bytes out, int id, @NotNull List<byte[]> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        var body = new Bytes();
+        body.u32(entries.size());
+        for (var entry : entries) {
+            body.writeBytes(entry);
+        }
+
+        out.write(id);
+        out.u32(body.size());
+        out.writeBytes(body.toByteArray());
+    }
+
+    public static final class Function {
+        private final int id;
+        private final int typeId;
+        private final Bytes locals = new Bytes();
+        private final Bytes code = new Bytes();
+        private int localGroupCount;
+
+        private Function(int id, int typeId) {
+            this.id = id;
+            this.typeId = typeId;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public @NotNull Function locals(int count, byte type) {
+            locals.u32(count);
+            locals.write(type);
+            localGroupCount++;
+            return this;
+        }
+
+        public @NotNull Function op(int opcode) {
+            code.write(opcode);
+            return this;
+        }
+
+        public @NotNull Function op(int opcode, int immediate) {
+            code.write(opcode);
+            code.u32(immediate);
+            return this;
+        }
+
+        public @NotNull Function prefixed(int prefix, int opcode) {
+            code.write(prefix);
+            code.u32(opcode);
+            return this;
+        }
+
+        public @NotNull Function u32(int immediate) {
+            code.u32(immediate);
+            return this;
+        }
+
+        public @NotNull Function i32Const(int value) {
+            code.write(0x41);
+            code.s32(value);
+            return this;
+        }
+
+        public @NotNull Function i64Const(long value) {
+            code.write(0x42);
+            code.s64(value);
+            return this;
+        }
+
+        public @NotNull Function f32Const(float value) {
+            code.write(0x43);
+            var bits = Float.floatToRawIntBits(value);
+            for (var i = 0; i < 4; i++) {
+                code.write(bits >>> (i * 8));
+            }
+            return this;
+        }
+
+        public @NotNull Function f64Const(double value) {
+            code.write(0x44);
+            var bits = Double.doubleToRawLongBits(value);
+            for (var i = 0; i < 8; i++) {
+                code.write((int) (bits >>> (i * 8)));
+            }
+            return this;
+        }
+
+        public @NotNull Function localGet(int localId) {
+            return op(0x20, localId);
+        }
+
+        public @NotNull Function localSet(int localId) {
+            return op(0x21, localId);
+        }
+
+        public @NotNull Function localTee(int localId) {
+            return op(0x22, localId);
+        }
+
+        public @NotNull Function globalGet(int globalId) {
+            return op(0x23, globalId);
+        }
+
+        public @NotNull Function globalSet(int globalId) {
+            return op(0x24, globalId);
+        }
+
+        public @NotNull Function block(byte blockType) {
+            code.write(0x02);
+            code.write(blockType);
+            return this;
+        }
+
+        public @NotNull Function loop(byte blockType) {
+            code.write(0x03);
+            code.write(blockType);
+            return this;
+        }
+
+        public @NotNull Function ifThen(byte blockType) {
+            code.write(0x04);
+            code.write(blockType);
+            return this;
+        }
+
+        public @NotNull Function otherwise() {
+            return op(0x05);
+        }
+
+        public @NotNull Function end() {
+            return op(0x0b);
+        }
+
+        public @NotNull Function br(int depth) {
+            return op(0x0c, depth);
+        }
+
+        public @NotNull Function brIf(int depth) {
+            return op(0x0d, depth);
+        }
+
+        public @NotNull Function call(int functionId) {
+            return op(0x10, functionId);
+        }
+
+        public @NotNull Function callIndirect(int typeId, int tableId) {
+            return op(0x11, typeId).u32(tableId);
+        }
+
+        public @NotNull Function returnCall(int functionId) {
+            return op(0x12, functionId);
+        }
+
+        public @NotNull Function returnCallIndirect(int typeId, int tableId) {
+            return op(0x13, typeId).u32(tableId);
+        }
+
+        public @NotNull Function memoryAccess(int opcode, int alignment, int offset) {
+            return op(opcode, alignment).u32(offset);
+        }
+
+        // multi-memory form, with an explicit memory index
+        public @NotNull Function memoryAccess(int opcode, int alignment, int offset, int memoryId) {
+            return op(opcode, alignment | 0x40).u32(memoryId).u32(offset);
+        }
+
+        // Emits `for (local = start; local < limit; local++) { body }` around the code produced by the given callback,
+        // with `limit` read from limitLocal.
+        public @NotNull Function countedLoop(int local, int start, int limitLocal, @NotNull Runnable body) {
+            i32Const(start).localSet(local);
+            block(EMPTY_BLOCK);
+            loop(EMPTY_BLOCK);
+            localGet(local).localGet(limitLocal).op(0x4e).brIf(1); // i32.ge_s
+            body.run();
+            localGet(local).i32Const(1).op(0x6a).localSet(local);
+            br(0);
+            end();
+            end();
+            return this;
+        }
+
+        private byte @NotNull[] body() {
+            var out = new Bytes();
+            out.u32(localGroupCount);
+            out.writeBytes(locals.toByteArray());
+            out.writeBytes(code.toByteArray());
+            out.write(0x0b);
+            return out.toByteArray();
+        }
+    }
+
+    private static final class Bytes extends ByteArrayOutputStream {
+        void u32(int value) {
+            var remaining = Integer.toUnsignedLong(value);
+            do {
+                var b = (int) (remaining & 0x7f);
+                remaining >>>= 7;
+                write(remaining != 0 ? b | 0x80 : b);
+            } while (remaining != 0);
+        }
+
+        void s32(int value) {
+            s64(value);
+        }
+
+        void s64(long value) {
+            while (true) {
+                var b = (int) (value & 0x7f);
+                value >>= 7;
+
+                if ((value == 0 && (b & 0x40) == 0) || (value == -1 && (b & 0x40) != 0)) {
+                    write(b);
+                    return;
+                }
+
+                write(b | 0x80);
+            }
+        }
+
+        void name(@NotNull String name) {
+            var bytes = name.getBytes(StandardCharsets.UTF_8);
+            u32(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void limits(int minimum, int maximum) {
+            if (maximum == -1) {
+                write(0x00);
+                u32(minimum);
+            }
+            else {
+                write(0x01);
+                u32(minimum);
+                u32(maximum);
+            }
+        }
+    }
+}
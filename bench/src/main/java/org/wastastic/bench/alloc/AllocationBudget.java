@@ -0,0 +1,234 @@
+package org.wastastic.bench.alloc;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.CompilerOptions;
+import org.wastastic.FuelCosts;
+import org.wastastic.ModuleInstance;
+import org.wastastic.QualifiedName;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.lang.invoke.MethodType.methodType;
+import static org.wastastic.bench.WasmModuleBuilder.FUNCREF;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// Checks that warmed-up calls into guest code don't allocate. Each scenario is an exported (i32) -> i32 function that
+// runs some kind of operation the given number of times in a loop: memory loads and stores, direct, indirect and host
+// calls, bulk memory operations, direct and indirect calls returning more than one value, and plain calls from Java
+// into an export. Every scenario is compiled under each set of compiler options, called until the JIT has settled, and
+// then measured with ThreadMXBean's count of bytes allocated by the current thread; a scenario fails if it allocated
+// anything in the best of several measurements. Multiple results come back through a per-thread carrier rather than an
+// array, so that holds whether or not the JIT inlines the callee.
+//
+// Usage: AllocationBudget [--scenario NAME]... [--warmup-seconds S] [--measurements N] [--calls N]
+//
+// Exits with status 1 if any scenario allocated.
+public final class AllocationBudget {
+    private AllocationBudget() {}
+
+    private static final int LOOP_COUNT = 1024;
+
+    private record Options(@NotNull String name, @NotNull CompilerOptions options) {}
+
+    private static final List<Options> OPTIONS = List.of(
+        new Options("defaults", CompilerOptions.defaults()),
+        new Options("explicit-bounds-checks", CompilerOptions.defaults().withBoundsChecks(CompilerOptions.BoundsChecks.EXPLICIT)),
+        new Options("fuel-and-epochs", CompilerOptions.defaults().withFuelMetering(FuelCosts.defaults()).withEpochInterruption(true)),
+        new Options("instance-specialization", CompilerOptions.defaults().withInstanceSpecialization(true))
+    );
+
+    // handle is (i32, ModuleInstance) -> i32, and performs operationsPerInvocation operations per call.
+    private record Scenario(
+        @NotNull String name,
+        @NotNull MethodHandle handle,
+        @NotNull ModuleInstance instance,
+        int operationsPerInvocation
+    ) {}
+
+    public static void main(String[] args) throws Throwable {
+        var selected = new ArrayList<String>();
+        var warmupSeconds = 2.0;
+        var measurements = 5;
+        var invocations = 2000;
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--scenario" -> selected.add(argument(args, ++i));
+                case "--warmup-seconds" -> warmupSeconds = Double.parseDouble(argument(args, ++i));
+                case "--measurements" -> measurements = Integer.parseInt(argument(args, ++i));
+                case "--calls" -> invocations = Integer.parseInt(argument(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (warmupSeconds < 0 || measurements <= 0 || invocations <= 0) {
+            throw new IllegalArgumentException("Warm-up time must not be negative, and counts must be positive");
+        }
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        var failures = 0;
+
+        for (var options : OPTIONS) {
+            for (var scenario : scenarios(options.options())) {
+                var name = options.name() + "/" + scenario.name();
+
+                if (!selected.isEmpty() && !selected.contains(scenario.name()) && !selected.contains(name)) {
+                    continue;
+                }
+
+                var warmupEnd = System.nanoTime() + (long) (warmupSeconds * 1e9);
+                do {
+                    invoke(scenario, invocations);
+                } while (System.nanoTime() < warmupEnd);
+
+                var best = Long.MAX_VALUE;
+                for (var i = 0; i < measurements; i++) {
+                    var before = threads.getCurrentThreadAllocatedBytes();
+                    invoke(scenario, invocations);
+                    best = Math.min(best, threads.getCurrentThreadAllocatedBytes() - before);
+                }
+
+                var operations = (long) invocations * scenario.operationsPerInvocation();
+                var passed = best == 0;
+                System.out.printf(Locale.ROOT, "%-50s %10d bytes over %10d operations (%.3f bytes/op)  %s%n", name, best, operations, (double) best / operations, passed ? "ok" : "ALLOCATED");
+
+                if (!passed) {
+                    failures++;
+                }
+            }
+        }
+
+        if (failures != 0) {
+            System.out.println(failures + " scenario(s) allocated on the steady-state call path");
+            System.exit(1);
+        }
+    }
+
+    private static @NotNull String argument(@NotNull String @NotNull[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+
+        return args[index];
+    }
+
+    // Kept small and monomorphic in what it does with the handle, so that once compiled the loop itself doesn't
+    // allocate: invokeExact with matching types neither boxes nor spreads.
+    private static int invoke(@NotNull Scenario scenario, int invocations) throws Throwable {
+        var handle = scenario.handle();
+        var instance = scenario.instance();
+        var argument = scenario.operationsPerInvocation() == 1 ? 0 : LOOP_COUNT;
+        var sink = 0;
+
+        for (var i = 0; i < invocations; i++) {
+            sink += (int) handle.invokeExact(argument + (sink & 1), instance);
+        }
+
+        return sink;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    private static @NotNull List<Scenario> scenarios(@NotNull CompilerOptions options) throws Throwable {
+        var builder = new WasmModuleBuilder();
+        var unaryType = builder.type(types(I32), types(I32));
+        var pairType = builder.type(types(I32), types(I32, I32));
+        var hostIncrementId = builder.importFunction("env", "increment", unaryType);
+        builder.memory(1, 1);
+
+        // increment(x) -> x + 1, the callee of every call below
+        var incrementFunction = builder.function("increment", unaryType);
+        incrementFunction.localGet(0).i32Const(1).op(0x6a); // i32.add
+
+        // pair(x) -> (x, x + 1)
+        var pairFunction = builder.function("pair", pairType);
+        pairFunction.localGet(0).localGet(0).i32Const(1).op(0x6a); // i32.add
+
+        var table = builder.table(FUNCREF, 2, 2);
+        builder.activeElements(table, 0, incrementFunction.id(), pairFunction.id());
+
+        var loadsAndStores = loop(builder, "loads_and_stores", unaryType, function -> function
+            // mem[i * 4] = mem[i * 4 + 4] + acc
+            .localGet(1).i32Const(4).op(0x6c) // i32.mul
+            .localGet(1).i32Const(4).op(0x6c).memoryAccess(0x28, 2, 4) // i32.mul, i32.load offset=4
+            .localGet(2).op(0x6a) // i32.add
+            .memoryAccess(0x36, 2, 0) // i32.store
+            .localGet(1).i32Const(4).op(0x6c).memoryAccess(0x28, 2, 0) // i32.mul, i32.load
+            .localGet(2).op(0x6a).localSet(2) // i32.add
+        );
+
+        var directCalls = loop(builder, "direct_calls", unaryType, function -> function
+            .localGet(2).call(incrementFunction.id()).localSet(2)
+        );
+
+        var indirectCalls = loop(builder, "indirect_calls", unaryType, function -> function
+            .localGet(2).i32Const(0).callIndirect(unaryType, table).localSet(2)
+        );
+
+        var hostCalls = loop(builder, "host_calls", unaryType, function -> function
+            .localGet(2).call(hostIncrementId).localSet(2)
+        );
+
+        var bulkMemory = loop(builder, "bulk_memory", unaryType, function -> function
+            // memory.fill(i, acc, 64); memory.copy(i + 1024, i, 64)
+            .localGet(1).localGet(2).i32Const(64).prefixed(0xfc, 11).u32(0)
+            .localGet(1).i32Const(1024).op(0x6a).localGet(1).i32Const(64).prefixed(0xfc, 10).u32(0).u32(0)
+            .localGet(2).i32Const(1).op(0x6a).localSet(2) // i32.add
+        );
+
+        var multiValueCalls = loop(builder, "multi_value_calls", unaryType, function -> function
+            .localGet(1).call(pairFunction.id()).op(0x6a).localGet(2).op(0x6a).localSet(2) // i32.add, i32.add
+        );
+
+        var indirectMultiValueCalls = loop(builder, "indirect_multi_value_calls", unaryType, function -> function
+            .localGet(1).i32Const(1).callIndirect(pairType, table).op(0x6a).localGet(2).op(0x6a).localSet(2) // i32.add, i32.add
+        );
+
+        builder.exportFunction("increment", incrementFunction.id());
+
+        var module = builder.compile(options);
+        module.precompileFunctions();
+
+        var hostIncrement = MethodHandles.lookup().findStatic(AllocationBudget.class, "hostIncrement", methodType(int.class, int.class));
+        hostIncrement = MethodHandles.dropArguments(hostIncrement, 1, ModuleInstance.class);
+        var instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of(new QualifiedName("env", "increment"), hostIncrement));
+
+        var scenarios = new ArrayList<Scenario>();
+        for (var function : List.of(loadsAndStores, directCalls, indirectCalls, hostCalls, bulkMemory, multiValueCalls, indirectMultiValueCalls)) {
+            scenarios.add(new Scenario(function, module.exportedFunctionHandle(function), instance, LOOP_COUNT));
+        }
+
+        scenarios.add(new Scenario("exported_calls", module.exportedFunctionHandle("increment"), instance, 1));
+        return scenarios;
+    }
+
+    private static int hostIncrement(int value) {
+        return value + 1;
+    }
+
+    // Exports `name(count) -> i32`, which runs the code produced by body `count` times; local 1 is the loop index and
+    // local 2 an accumulator that is returned at the end.
+    private static @NotNull String loop(
+        @NotNull WasmModuleBuilder builder,
+        @NotNull String name,
+        int typeId,
+        @NotNull Consumer<WasmModuleBuilder.Function> body
+    ) {
+        var function = builder.function(name, typeId);
+        function.locals(2, I32);
+        function.countedLoop(1, 0, 0, () -> body.accept(function));
+        function.localGet(2);
+        builder.exportFunction(name, function.id());
+        return name;
+    }
+}
@@ -0,0 +1,306 @@
+package org.wastastic.bench.compiler;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.Module;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Measures how fast the compiler gets through code, stage by stage: parsing and indexing the module, translating
+// function bodies to bytecode, and defining the resulting classes. Each grade of SyntheticModules is compiled eagerly
+// (Module.compile followed by precompileFunctions) over and over, first on one thread and then on one thread per
+// processor, each compiling its own copy. Time per stage comes from the ModuleParse, FunctionTranslate and
+// ClassDefinition Flight Recorder events, which bracket exactly those stages; throughput is in MB of code section and
+// in functions per second, scaled by the thread count for parallel runs, alongside the wall-clock rate for the whole
+// pipeline.
+//
+// Usage: CompilerThroughput [--grade NAME]... [--rounds N] [--seconds S] [--warmup-rounds N] [--warmup-seconds S]
+//                           [--threads N] [--write-baseline FILE] [--baseline FILE [--threshold FRACTION]]
+//
+// Warm-up and measurement each run for at least the given number of rounds and at least the given time, so that small
+// grades get as much JIT warm-up and as many samples as large ones.
+//
+// --write-baseline records the results; --baseline compares them against recorded ones, exiting with status 1 if any
+// stage's MB/s has dropped by more than the threshold (0.15 by default). Baselines are only comparable on the machine
+// they were recorded on.
+public final class CompilerThroughput {
+    private CompilerThroughput() {}
+
+    private static final String PARSE_EVENT = "org.wastastic.ModuleParse";
+    private static final String TRANSLATE_EVENT = "org.wastastic.FunctionTranslate";
+    private static final String DEFINE_EVENT = "org.wastastic.ClassDefinition";
+
+    private static final List<String> STAGES = List.of("parse", "translate", "define", "total");
+
+    public static void main(String[] args) throws Exception {
+        var grades = new ArrayList<SyntheticModules.Grade>();
+        var rounds = 5;
+        var seconds = 3.0;
+        var warmupRounds = 3;
+        var warmupSeconds = 5.0;
+        var parallelThreads = Runtime.getRuntime().availableProcessors();
+        var baseline = (Path) null;
+        var writeBaseline = (Path) null;
+        var threshold = 0.15;
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--grade" -> grades.add(SyntheticModules.Grade.valueOf(argument(args, ++i).toUpperCase().replace('-', '_')));
+                case "--rounds" -> rounds = Integer.parseInt(argument(args, ++i));
+                case "--seconds" -> seconds = Double.parseDouble(argument(args, ++i));
+                case "--warmup-rounds" -> warmupRounds = Integer.parseInt(argument(args, ++i));
+                case "--warmup-seconds" -> warmupSeconds = Double.parseDouble(argument(args, ++i));
+                case "--threads" -> parallelThreads = Integer.parseInt(argument(args, ++i));
+                case "--baseline" -> baseline = Path.of(argument(args, ++i));
+                case "--write-baseline" -> writeBaseline = Path.of(argument(args, ++i));
+                case "--threshold" -> threshold = Double.parseDouble(argument(args, ++i));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (rounds <= 0 || warmupRounds < 0 || parallelThreads <= 0 || seconds < 0 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("Round, thread and time limits must be positive");
+        }
+
+        if (grades.isEmpty()) {
+            Collections.addAll(grades, SyntheticModules.Grade.values());
+        }
+
+        var threadCounts = parallelThreads > 1 ? List.of(1, parallelThreads) : List.of(1);
+        var results = new TreeMap<String, Double>();
+
+        System.out.printf("%-16s %8s %-10s %12s %14s%n", "grade", "threads", "stage", "MB/s", "functions/s");
+        for (var grade : grades) {
+            var bytes = grade.module();
+            var codeBytes = codeSectionSize(bytes);
+
+            try (var scope = ResourceScope.newSharedScope()) {
+                var segment = MemorySegment.allocateNative(bytes.length, scope);
+                segment.copyFrom(MemorySegment.ofArray(bytes));
+
+                for (var threads : threadCounts) {
+                    warmUp(segment, threads, warmupRounds, warmupSeconds);
+                    var measurement = measure(segment, threads, rounds, seconds);
+                    var stageNanos = measurement.stageNanos();
+                    var compilations = (double) measurement.compilations();
+
+                    for (var stage : STAGES) {
+                        // Stage time is summed across threads, so dividing by the thread count gives the time the stage
+                        // would have taken spread evenly over them. The total is wall-clock time already.
+                        var stageSeconds = stage.equals("total") ? stageNanos.get(stage) / 1e9 : stageNanos.get(stage) / 1e9 / threads;
+                        var megabytesPerSecond = compilations * codeBytes / 1e6 / stageSeconds;
+                        var functionsPerSecond = compilations * grade.functionCount / stageSeconds;
+
+                        var key = grade.label() + "." + (threads == 1 ? "single" : "parallel") + "." + stage;
+                        results.put(key + ".mbPerSecond", megabytesPerSecond);
+                        results.put(key + ".functionsPerSecond", functionsPerSecond);
+                        System.out.printf("%-16s %8d %-10s %12.2f %14.0f%n", grade.label(), threads, stage, megabytesPerSecond, functionsPerSecond);
+                    }
+                }
+            }
+        }
+
+        if (writeBaseline != null) {
+            writeProperties(writeBaseline, results);
+            System.out.println("Wrote baseline to " + writeBaseline);
+        }
+
+        if (baseline != null && !compare(readProperties(baseline), results, threshold)) {
+            System.exit(1);
+        }
+    }
+
+    private static @NotNull String argument(@NotNull String @NotNull[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+
+        return args[index];
+    }
+
+    private record Measurement(long compilations, @NotNull Map<String, Long> stageNanos) {}
+
+    private static void warmUp(@NotNull MemorySegment segment, int threads, int minimumRounds, double minimumSeconds) throws Exception {
+        var executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            var deadline = System.nanoTime() + (long) (minimumSeconds * 1e9);
+            for (var round = 0; round < minimumRounds || System.nanoTime() < deadline; round++) {
+                compileConcurrently(executor, segment, threads);
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    // Compiles the module on each of threads threads, round after round, returning the number of compilations and the
+    // nanoseconds spent in each stage summed over all of them, with the wall-clock time of the rounds as "total".
+    private static @NotNull Measurement measure(@NotNull MemorySegment segment, int threads, int minimumRounds, double minimumSeconds) throws Exception {
+        var executor = Executors.newFixedThreadPool(threads);
+        var recordingFile = Files.createTempFile("compiler-throughput", ".jfr");
+
+        try (var recording = new Recording()) {
+            for (var event : List.of(PARSE_EVENT, TRANSLATE_EVENT, DEFINE_EVENT)) {
+                recording.enable(event).withThreshold(Duration.ZERO).withoutStackTrace();
+            }
+
+            recording.setToDisk(true);
+            recording.start();
+
+            var start = System.nanoTime();
+            var deadline = start + (long) (minimumSeconds * 1e9);
+            var rounds = 0;
+
+            while (rounds < minimumRounds || System.nanoTime() < deadline) {
+                compileConcurrently(executor, segment, threads);
+                rounds++;
+            }
+
+            var wallNanos = System.nanoTime() - start;
+            recording.stop();
+            recording.dump(recordingFile);
+
+            var stageNanos = new HashMap<String, Long>();
+            stageNanos.put("total", wallNanos);
+
+            for (var event : RecordingFile.readAllEvents(recordingFile)) {
+                var stage = switch (event.getEventType().getName()) {
+                    case PARSE_EVENT -> "parse";
+                    case TRANSLATE_EVENT -> "translate";
+                    case DEFINE_EVENT -> "define";
+                    default -> null;
+                };
+
+                if (stage != null) {
+                    stageNanos.merge(stage, event.getDuration().toNanos(), Long::sum);
+                }
+            }
+
+            return new Measurement((long) rounds * threads, stageNanos);
+        }
+        finally {
+            executor.shutdown();
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
+    private static void compileConcurrently(@NotNull ExecutorService executor, @NotNull MemorySegment segment, int threads) throws Exception {
+        var tasks = new ArrayList<Callable<Void>>();
+        for (var i = 0; i < threads; i++) {
+            tasks.add(() -> {
+                Module.compile(segment).precompileFunctions();
+                return null;
+            });
+        }
+
+        for (var future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+
+    // The size of the code section's contents, found by walking the module's section headers.
+    private static long codeSectionSize(byte @NotNull[] module) {
+        var offset = 8;
+
+        while (offset < module.length) {
+            var id = module[offset++];
+            var size = 0L;
+            var shift = 0;
+            byte b;
+
+            do {
+                b = module[offset++];
+                size |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            if (id == 10) {
+                return size;
+            }
+
+            offset += size;
+        }
+
+        throw new IllegalArgumentException("Module has no code section");
+    }
+
+    private static boolean compare(@NotNull Map<String, Double> baseline, @NotNull Map<String, Double> results, double threshold) {
+        var passed = true;
+        var unmeasured = 0;
+
+        for (var entry : baseline.entrySet()) {
+            if (!entry.getKey().endsWith(".mbPerSecond")) {
+                continue;
+            }
+
+            var current = results.get(entry.getKey());
+            if (current == null) {
+                unmeasured++;
+                continue;
+            }
+
+            var change = current / entry.getValue() - 1;
+            if (change < -threshold) {
+                System.out.printf("REGRESSION %s: %.2f MB/s, baseline %.2f MB/s (%+.1f%%)%n", entry.getKey(), current, entry.getValue(), change * 100);
+                passed = false;
+            }
+        }
+
+        if (unmeasured != 0) {
+            System.out.println(unmeasured + " baseline entries weren't measured this run");
+        }
+
+        System.out.println(passed ? "Throughput is within " + (int) (threshold * 100) + "% of the baseline" : "Throughput has regressed");
+        return passed;
+    }
+
+    private static @NotNull Map<String, Double> readProperties(@NotNull Path path) throws IOException {
+        var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+
+        var values = new TreeMap<String, Double>();
+        for (var name : properties.stringPropertyNames()) {
+            values.put(name, Double.parseDouble(properties.getProperty(name)));
+        }
+
+        return values;
+    }
+
+    private static void writeProperties(@NotNull Path path, @NotNull Map<String, Double> values) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writer.write("# Compiler throughput baseline, written by CompilerThroughput --write-baseline on "
+                + System.getProperty("os.name") + " " + System.getProperty("os.arch") + ", Java " + Runtime.version()
+                + ", " + Runtime.getRuntime().availableProcessors() + " processors\n");
+
+            for (var entry : values.entrySet()) {
+                writer.write(entry.getKey() + "=" + String.format(Locale.ROOT, "%.3f", entry.getValue()) + "\n");
+            }
+        }
+    }
+}
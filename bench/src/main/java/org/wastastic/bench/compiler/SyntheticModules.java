@@ -0,0 +1,238 @@
+package org.wastastic.bench.compiler;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.wastastic.bench.WasmModuleBuilder.EMPTY_BLOCK;
+import static org.wastastic.bench.WasmModuleBuilder.F64;
+import static org.wastastic.bench.WasmModuleBuilder.FUNCREF;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// Randomly generated modules for measuring the compiler, which only has to translate them, never run them. Bodies mix
+// integer and floating point arithmetic, loads and stores, nested ifs and loops, and direct and indirect calls in
+// roughly the proportions compiled C does. Generation is seeded, so a grade is the same module on every run.
+final class SyntheticModules {
+    private SyntheticModules() {}
+
+    // Locals of every generated function: two i32 parameters, then three more i32s, two i64s and two f64s.
+    private static final int[] I32_LOCALS = {0, 1, 2, 3, 4};
+    private static final int[] I64_LOCALS = {5, 6};
+    private static final int[] F64_LOCALS = {7, 8};
+
+    private static final int MAX_NESTING = 3;
+    private static final int MAX_EXPRESSION_DEPTH = 2;
+
+    // From about 10 KB of code to about 4 MB, plus a few long functions, each of which stays a little under the JVM's
+    // limit on the size of a method once translated.
+    enum Grade {
+        TINY(16, 12),
+        SMALL(128, 16),
+        MEDIUM(512, 40),
+        LARGE(2048, 40),
+        LONG_FUNCTIONS(16, 400);
+
+        final int functionCount;
+        final int statementsPerFunction;
+
+        Grade(int functionCount, int statementsPerFunction) {
+            this.functionCount = functionCount;
+            this.statementsPerFunction = statementsPerFunction;
+        }
+
+        @NotNull String label() {
+            return name().toLowerCase().replace('_', '-');
+        }
+
+        byte @NotNull[] module() {
+            return generate(this);
+        }
+    }
+
+    private static byte @NotNull[] generate(@NotNull Grade grade) {
+        var builder = new WasmModuleBuilder();
+        var typeId = builder.type(types(I32, I32), types(I32));
+        builder.memory(1, 1);
+
+        var functions = new ArrayList<WasmModuleBuilder.Function>();
+        for (var i = 0; i < grade.functionCount; i++) {
+            functions.add(builder.function("f" + i, typeId));
+        }
+
+        var tableId = builder.table(FUNCREF, grade.functionCount, grade.functionCount);
+        builder.activeElements(tableId, 0, functions.stream().mapToInt(WasmModuleBuilder.Function::id).toArray());
+
+        var random = new Random(grade.ordinal());
+        for (var function : functions) {
+            function.locals(3, I32).locals(2, I64).locals(2, F64);
+            new BodyGenerator(function, random, typeId, tableId, grade.functionCount).statements(grade.statementsPerFunction, 0);
+            function.localGet(2);
+        }
+
+        return builder.build();
+    }
+
+    private record BodyGenerator(@NotNull WasmModuleBuilder.Function function, @NotNull Random random, int typeId, int tableId, int functionCount) {
+        void statements(int count, int nesting) {
+            for (var i = 0; i < count; i++) {
+                statement(nesting);
+            }
+        }
+
+        void statement(int nesting) {
+            switch (random.nextInt(12)) {
+                case 0, 1, 2 -> {
+                    i32(MAX_EXPRESSION_DEPTH);
+                    function.localSet(pick(I32_LOCALS));
+                }
+                case 3 -> {
+                    i64(MAX_EXPRESSION_DEPTH);
+                    function.localSet(pick(I64_LOCALS));
+                }
+                case 4 -> {
+                    f64(MAX_EXPRESSION_DEPTH);
+                    function.localSet(pick(F64_LOCALS));
+                }
+                case 5 -> {
+                    address();
+                    switch (random.nextInt(3)) {
+                        case 0 -> i32(MAX_EXPRESSION_DEPTH - 1).memoryAccess(0x36, 2, random.nextInt(64)); // i32.store
+                        case 1 -> i64(MAX_EXPRESSION_DEPTH - 1).memoryAccess(0x37, 3, random.nextInt(64)); // i64.store
+                        default -> f64(MAX_EXPRESSION_DEPTH - 1).memoryAccess(0x39, 3, random.nextInt(64)); // f64.store
+                    }
+                }
+                case 6, 7 -> {
+                    if (nesting >= MAX_NESTING) {
+                        statement(nesting);
+                        return;
+                    }
+
+                    i32(MAX_EXPRESSION_DEPTH - 1);
+                    function.ifThen(EMPTY_BLOCK);
+                    statements(1 + random.nextInt(3), nesting + 1);
+                    if (random.nextBoolean()) {
+                        function.otherwise();
+                        statements(1 + random.nextInt(3), nesting + 1);
+                    }
+                    function.end();
+                }
+                case 8 -> {
+                    if (nesting >= MAX_NESTING) {
+                        statement(nesting);
+                        return;
+                    }
+
+                    function.block(EMPTY_BLOCK).loop(EMPTY_BLOCK);
+                    statements(1 + random.nextInt(3), nesting + 1);
+                    i32(1);
+                    function.brIf(random.nextInt(2));
+                    function.end().end();
+                }
+                case 9, 10 -> {
+                    i32(1);
+                    i32(1);
+                    function.call(random.nextInt(functionCount));
+                    function.localSet(pick(I32_LOCALS));
+                }
+                default -> {
+                    i32(1);
+                    i32(1);
+                    i32(1);
+                    function.callIndirect(typeId, tableId);
+                    function.localSet(pick(I32_LOCALS));
+                }
+            }
+        }
+
+        @NotNull WasmModuleBuilder.Function i32(int depth) {
+            if (depth <= 0) {
+                return random.nextBoolean() ? function.i32Const(random.nextInt(1000)) : function.localGet(pick(I32_LOCALS));
+            }
+
+            switch (random.nextInt(8)) {
+                case 0, 1, 2 -> {
+                    i32(depth - 1);
+                    i32(depth - 1);
+                    function.op(pick(new int[] {0x6a, 0x6b, 0x6c, 0x71, 0x72, 0x73, 0x74, 0x76, 0x77})); // i32 add, sub, mul, and, or, xor, shl, shr_u, rotl
+                }
+                case 3 -> {
+                    i32(depth - 1);
+                    i32(depth - 1);
+                    function.op(pick(new int[] {0x46, 0x48, 0x4b, 0x4d})); // i32 eq, lt_s, gt_u, le_u
+                }
+                case 4 -> {
+                    address();
+                    switch (random.nextInt(3)) {
+                        case 0 -> function.memoryAccess(0x28, 2, random.nextInt(64)); // i32.load
+                        case 1 -> function.memoryAccess(0x2d, 0, random.nextInt(64)); // i32.load8_u
+                        default -> function.memoryAccess(0x2e, 1, random.nextInt(64)); // i32.load16_s
+                    }
+                }
+                case 5 -> i64(depth - 1).op(0xa7); // i32.wrap_i64
+                case 6 -> {
+                    f64(depth - 1);
+                    f64(depth - 1);
+                    function.op(0x63); // f64.lt
+                }
+                default -> {
+                    i32(depth - 1);
+                    i32(depth - 1);
+                    i32(depth - 1);
+                    function.op(0x1b); // select
+                }
+            }
+
+            return function;
+        }
+
+        @NotNull WasmModuleBuilder.Function i64(int depth) {
+            if (depth <= 0) {
+                return random.nextBoolean() ? function.i64Const(random.nextLong()) : function.localGet(pick(I64_LOCALS));
+            }
+
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    i64(depth - 1);
+                    i64(depth - 1);
+                    function.op(pick(new int[] {0x7c, 0x7e, 0x85, 0x86})); // i64 add, mul, xor, shl
+                }
+                case 2 -> i32(depth - 1).op(0xad); // i64.extend_i32_u
+                default -> address().memoryAccess(0x29, 3, random.nextInt(64)); // i64.load
+            }
+
+            return function;
+        }
+
+        @NotNull WasmModuleBuilder.Function f64(int depth) {
+            if (depth <= 0) {
+                return random.nextBoolean() ? function.f64Const(random.nextDouble()) : function.localGet(pick(F64_LOCALS));
+            }
+
+            switch (random.nextInt(5)) {
+                case 0, 1 -> {
+                    f64(depth - 1);
+                    f64(depth - 1);
+                    function.op(pick(new int[] {0xa0, 0xa1, 0xa2})); // f64 add, sub, mul
+                }
+                case 2 -> i32(depth - 1).op(0xb7); // f64.convert_i32_s
+                case 3 -> f64(depth - 1).op(0x9f); // f64.sqrt
+                default -> address().memoryAccess(0x2b, 3, random.nextInt(64)); // f64.load
+            }
+
+            return function;
+        }
+
+        // An address within the first page, leaving room for the largest static offset and access.
+        @NotNull WasmModuleBuilder.Function address() {
+            return i32(1).i32Const(0xff80).op(0x71); // i32.and
+        }
+
+        int pick(int @NotNull[] choices) {
+            return choices[random.nextInt(choices.length)];
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import static org.wastastic.bench.WasmModuleBuilder.F64;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// PolyBench's gemm, C = alpha * A * B + beta * C over square f64 matrices, with PolyBench's initial values. The
+// checksum is the bits of the sum of C.
+public final class Gemm implements Workload {
+    private static final int N = 96;
+    private static final int MATRIX_SIZE = N * N * 8;
+    private static final int A = 0;
+    private static final int B = MATRIX_SIZE;
+    private static final int C = 2 * MATRIX_SIZE;
+
+    @Override public @NotNull String name() {
+        return "polybench-gemm";
+    }
+
+    @Override public byte @NotNull[] module() {
+        var builder = new WasmModuleBuilder();
+        builder.memory(4, 4);
+
+        var run = builder.function("run", builder.type(types(), types(I64)));
+        run.locals(4, I32).locals(2, F64); // 0: i, 1: j, 2: k, 3: n, 4: sum, 5: alpha * A[i][k]
+        run.i32Const(N).localSet(3);
+
+        // A[i][k] = (i * (k + 1) % n) / n
+        run.countedLoop(0, 0, 3, () -> run.countedLoop(2, 0, 3, () -> {
+            elementAddress(run, 0, 2);
+            run.localGet(0).localGet(2).i32Const(1).op(0x6a).op(0x6c); // i32.add, i32.mul
+            ratio(run);
+            run.memoryAccess(0x39, 3, A); // f64.store
+        }));
+
+        // B[k][j] = (k * (j + 2) % n) / n
+        run.countedLoop(2, 0, 3, () -> run.countedLoop(1, 0, 3, () -> {
+            elementAddress(run, 2, 1);
+            run.localGet(2).localGet(1).i32Const(2).op(0x6a).op(0x6c); // i32.add, i32.mul
+            ratio(run);
+            run.memoryAccess(0x39, 3, B); // f64.store
+        }));
+
+        // C[i][j] = ((i * j + 1) % n) / n
+        run.countedLoop(0, 0, 3, () -> run.countedLoop(1, 0, 3, () -> {
+            elementAddress(run, 0, 1);
+            run.localGet(0).localGet(1).op(0x6c).i32Const(1).op(0x6a); // i32.mul, i32.add
+            ratio(run);
+            run.memoryAccess(0x39, 3, C); // f64.store
+        }));
+
+        run.countedLoop(0, 0, 3, () -> {
+            // C[i][j] *= beta
+            run.countedLoop(1, 0, 3, () -> {
+                elementAddress(run, 0, 1);
+                elementAddress(run, 0, 1);
+                run.memoryAccess(0x2b, 3, C); // f64.load
+                run.f64Const(1.2).op(0xa2); // f64.mul
+                run.memoryAccess(0x39, 3, C); // f64.store
+            });
+
+            // C[i][j] += alpha * A[i][k] * B[k][j]
+            run.countedLoop(2, 0, 3, () -> {
+                run.f64Const(1.5);
+                elementAddress(run, 0, 2);
+                run.memoryAccess(0x2b, 3, A); // f64.load
+                run.op(0xa2).localSet(5); // f64.mul
+
+                run.countedLoop(1, 0, 3, () -> {
+                    elementAddress(run, 0, 1);
+                    elementAddress(run, 0, 1);
+                    run.memoryAccess(0x2b, 3, C); // f64.load
+                    run.localGet(5);
+                    elementAddress(run, 2, 1);
+                    run.memoryAccess(0x2b, 3, B); // f64.load
+                    run.op(0xa2).op(0xa0); // f64.mul, f64.add
+                    run.memoryAccess(0x39, 3, C); // f64.store
+                });
+            });
+        });
+
+        run.countedLoop(0, 0, 3, () -> run.countedLoop(1, 0, 3, () -> {
+            run.localGet(4);
+            elementAddress(run, 0, 1);
+            run.memoryAccess(0x2b, 3, C); // f64.load
+            run.op(0xa0).localSet(4); // f64.add
+        }));
+
+        run.localGet(4).op(0xbd); // i64.reinterpret_f64
+
+        builder.exportFunction("run", run.id());
+        return builder.build();
+    }
+
+    // Pushes the byte offset of element [row][column] within a matrix.
+    private static void elementAddress(@NotNull WasmModuleBuilder.Function function, int rowLocal, int columnLocal) {
+        function.localGet(rowLocal).i32Const(N).op(0x6c); // i32.mul
+        function.localGet(columnLocal).op(0x6a); // i32.add
+        function.i32Const(3).op(0x74); // i32.shl
+    }
+
+    // Replaces the i32 x on top of the stack with (x % n) / n as an f64.
+    private static void ratio(@NotNull WasmModuleBuilder.Function function) {
+        function.i32Const(N).op(0x6f).op(0xb7); // i32.rem_s, f64.convert_i32_s
+        function.f64Const(N).op(0xa3); // f64.div
+    }
+}
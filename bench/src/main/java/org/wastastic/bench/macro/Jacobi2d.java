@@ -0,0 +1,98 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import static org.wastastic.bench.WasmModuleBuilder.F64;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// PolyBench's jacobi-2d, a five-point stencil alternating between two f64 grids, with PolyBench's initial values. The
+// checksum is the bits of the sum of A.
+public final class Jacobi2d implements Workload {
+    private static final int N = 100;
+    private static final int STEPS = 20;
+    private static final int ROW_SIZE = N * 8;
+
+    // A starts a row in so that its [i - 1][j] neighbour can be addressed with an unsigned offset.
+    private static final int A = ROW_SIZE;
+    private static final int B = A + N * ROW_SIZE;
+
+    @Override public @NotNull String name() {
+        return "polybench-jacobi-2d";
+    }
+
+    @Override public byte @NotNull[] module() {
+        var builder = new WasmModuleBuilder();
+        builder.memory(3, 3);
+
+        var run = builder.function("run", builder.type(types(), types(I64)));
+        run.locals(6, I32).locals(1, F64); // 0: t, 1: i, 2: j, 3: n, 4: n - 1, 5: steps, 6: sum
+        run.i32Const(N).localSet(3);
+        run.i32Const(N - 1).localSet(4);
+        run.i32Const(STEPS).localSet(5);
+
+        // A[i][j] = (i * (j + 2) + 2) / n, B[i][j] = (i * (j + 3) + 3) / n
+        run.countedLoop(1, 0, 3, () -> run.countedLoop(2, 0, 3, () -> {
+            elementAddress(run);
+            initialValue(run, 2);
+            run.memoryAccess(0x39, 3, A); // f64.store
+            elementAddress(run);
+            initialValue(run, 3);
+            run.memoryAccess(0x39, 3, B); // f64.store
+        }));
+
+        run.countedLoop(0, 0, 5, () -> {
+            run.countedLoop(1, 1, 4, () -> run.countedLoop(2, 1, 4, () -> stencil(run, A, B)));
+            run.countedLoop(1, 1, 4, () -> run.countedLoop(2, 1, 4, () -> stencil(run, B, A)));
+        });
+
+        run.countedLoop(1, 0, 3, () -> run.countedLoop(2, 0, 3, () -> {
+            run.localGet(6);
+            elementAddress(run);
+            run.memoryAccess(0x2b, 3, A); // f64.load
+            run.op(0xa0).localSet(6); // f64.add
+        }));
+
+        run.localGet(6).op(0xbd); // i64.reinterpret_f64
+
+        builder.exportFunction("run", run.id());
+        return builder.build();
+    }
+
+    // Pushes the byte offset of element [i][j] within a grid.
+    private static void elementAddress(@NotNull WasmModuleBuilder.Function function) {
+        function.localGet(1).i32Const(N).op(0x6c); // i32.mul
+        function.localGet(2).op(0x6a); // i32.add
+        function.i32Const(3).op(0x74); // i32.shl
+    }
+
+    // Pushes (i * (j + k) + k) / n.
+    private static void initialValue(@NotNull WasmModuleBuilder.Function function, int k) {
+        function.localGet(1).localGet(2).i32Const(k).op(0x6a).op(0x6c); // i32.add, i32.mul
+        function.i32Const(k).op(0x6a).op(0xb7); // i32.add, f64.convert_i32_s
+        function.f64Const(N).op(0xa3); // f64.div
+    }
+
+    // to[i][j] = 0.2 * (from[i][j] + from[i][j - 1] + from[i][j + 1] + from[i + 1][j] + from[i - 1][j])
+    private static void stencil(@NotNull WasmModuleBuilder.Function function, int from, int to) {
+        elementAddress(function);
+        function.f64Const(0.2);
+        elementAddress(function);
+        function.memoryAccess(0x2b, 3, from); // f64.load
+        elementAddress(function);
+        function.memoryAccess(0x2b, 3, from - 8); // f64.load
+        function.op(0xa0); // f64.add
+        elementAddress(function);
+        function.memoryAccess(0x2b, 3, from + 8); // f64.load
+        function.op(0xa0); // f64.add
+        elementAddress(function);
+        function.memoryAccess(0x2b, 3, from + ROW_SIZE); // f64.load
+        function.op(0xa0); // f64.add
+        elementAddress(function);
+        function.memoryAccess(0x2b, 3, from - ROW_SIZE); // f64.load
+        function.op(0xa0).op(0xa2); // f64.add, f64.mul
+        function.memoryAccess(0x39, 3, to); // f64.store
+    }
+}
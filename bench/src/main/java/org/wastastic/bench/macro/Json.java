@@ -0,0 +1,215 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.wastastic.bench.WasmModuleBuilder.EMPTY_BLOCK;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// A single-pass JSON tokenizer and validator over about 48 KB of generated records, dispatching on a character class
+// table with br_table the way a compiled switch would. It checks bracket nesting and literals, and scans strings
+// (including escapes) and numbers. The checksum folds the token counts, a hash of the string contents, and the sum of
+// the numbers with their decimal points dropped; it's -1 if the document is malformed.
+public final class Json implements Workload {
+    private static final int CLASSES = 0;
+    private static final int STACK = 256;
+    private static final int STACK_SIZE = 256;
+    private static final int INPUT = 1024;
+
+    private static final int WHITESPACE = 0;
+    private static final int STRING = 1;
+    private static final int NUMBER = 2;
+    private static final int OPEN = 3;
+    private static final int CLOSE = 4;
+    private static final int PUNCTUATION = 5;
+    private static final int LITERAL = 6;
+    private static final int ERROR = 7;
+
+    private static final String[] NAMES = {
+        "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliett", "kilo", "lima",
+    };
+
+    @Override public @NotNull String name() {
+        return "json";
+    }
+
+    @Override public byte @NotNull[] module() {
+        var input = input();
+
+        var classes = new byte[256];
+        Arrays.fill(classes, (byte) ERROR);
+        for (var c : " \t\n\r".toCharArray()) classes[c] = WHITESPACE;
+        for (var c : "-0123456789".toCharArray()) classes[c] = NUMBER;
+        for (var c : "tfn".toCharArray()) classes[c] = LITERAL;
+        classes['"'] = STRING;
+        classes['['] = OPEN;
+        classes['{'] = OPEN;
+        classes[']'] = CLOSE;
+        classes['}'] = CLOSE;
+        classes[','] = PUNCTUATION;
+        classes[':'] = PUNCTUATION;
+
+        var builder = new WasmModuleBuilder();
+        builder.memory(2, 2);
+        builder.activeData(0, CLASSES, classes);
+        builder.activeData(0, INPUT, input);
+
+        var run = builder.function("run", builder.type(types(), types(I64)));
+        run.locals(9, I32); // 0: pos, 1: character, 2: depth, 3: strings, 4: numbers, 5: containers, 6: literals, 7: string hash, 8: negative
+        run.locals(2, I64); // 9: number sum, 10: number
+
+        run.block(EMPTY_BLOCK).loop(EMPTY_BLOCK);
+        run.localGet(0).i32Const(input.length).op(0x4e).brIf(1); // i32.ge_s
+        run.localGet(0).memoryAccess(0x2d, 0, INPUT).localSet(1); // i32.load8_u
+
+        // One block per class, innermost first, so that the code for class k follows the end of block k and can reach
+        // the loop with a branch of depth 7 - k.
+        for (var i = 0; i <= ERROR; i++) {
+            run.block(EMPTY_BLOCK);
+        }
+
+        run.localGet(1).memoryAccess(0x2d, 0, CLASSES); // i32.load8_u
+        run.op(0x0e, ERROR + 1); // br_table
+        for (var i = 0; i <= ERROR; i++) {
+            run.u32(i);
+        }
+        run.u32(ERROR);
+        run.end();
+
+        // Whitespace.
+        run.localGet(0).i32Const(1).op(0x6a).localSet(0); // i32.add
+        run.br(ERROR - WHITESPACE);
+        run.end();
+
+        // Strings, up to the closing quote, skipping over whatever follows a backslash.
+        run.localGet(3).i32Const(1).op(0x6a).localSet(3); // i32.add
+        run.localGet(0).i32Const(1).op(0x6a).localSet(0); // i32.add
+        run.block(EMPTY_BLOCK).loop(EMPTY_BLOCK);
+        run.localGet(0).i32Const(input.length).op(0x4e); // i32.ge_s
+        run.ifThen(EMPTY_BLOCK).i64Const(-1).op(0x0f).end(); // return
+        run.localGet(0).memoryAccess(0x2d, 0, INPUT).localTee(1); // i32.load8_u
+        run.i32Const('"').op(0x46).brIf(1); // i32.eq
+        run.localGet(7).i32Const(31).op(0x6c).localGet(1).op(0x6a).localSet(7); // i32.mul, i32.add
+        run.localGet(0).i32Const(1).op(0x6a).localGet(1).i32Const('\\').op(0x46).op(0x6a).localSet(0); // i32.add, i32.eq, i32.add
+        run.br(0);
+        run.end().end();
+        run.localGet(0).i32Const(1).op(0x6a).localSet(0); // i32.add
+        run.br(ERROR - STRING);
+        run.end();
+
+        // Numbers, as their digits with any decimal point dropped.
+        run.localGet(4).i32Const(1).op(0x6a).localSet(4); // i32.add
+        run.localGet(1).i32Const('-').op(0x46).localTee(8); // i32.eq
+        run.localGet(0).op(0x6a).localSet(0); // i32.add
+        run.i64Const(0).localSet(10);
+        run.block(EMPTY_BLOCK).loop(EMPTY_BLOCK);
+        run.localGet(0).i32Const(input.length).op(0x4e).brIf(1); // i32.ge_s
+        run.localGet(0).memoryAccess(0x2d, 0, INPUT).localTee(1); // i32.load8_u
+        run.i32Const('.').op(0x46).ifThen(EMPTY_BLOCK); // i32.eq
+        run.localGet(0).i32Const(1).op(0x6a).localSet(0).br(1); // i32.add
+        run.end();
+        run.localGet(1).i32Const('0').op(0x6b).localTee(1).i32Const(9).op(0x4b).brIf(1); // i32.sub, i32.gt_u
+        run.localGet(10).i64Const(10).op(0x7e).localGet(1).op(0xad).op(0x7c).localSet(10); // i64.mul, i64.extend_i32_u, i64.add
+        run.localGet(0).i32Const(1).op(0x6a).localSet(0).br(0); // i32.add
+        run.end().end();
+        run.localGet(9);
+        run.i64Const(0).localGet(10).op(0x7d).localGet(10).localGet(8).op(0x1b); // i64.sub, select
+        run.op(0x7c).localSet(9); // i64.add
+        run.br(ERROR - NUMBER);
+        run.end();
+
+        // Opening brackets, pushed on the stack.
+        run.localGet(2).i32Const(STACK_SIZE).op(0x4e); // i32.ge_s
+        run.ifThen(EMPTY_BLOCK).i64Const(-1).op(0x0f).end(); // return
+        run.localGet(2).localGet(1).memoryAccess(0x3a, 0, STACK); // i32.store8
+        run.localGet(2).i32Const(1).op(0x6a).localSet(2); // i32.add
+        run.localGet(5).i32Const(1).op(0x6a).localSet(5); // i32.add
+        run.localGet(0).i32Const(1).op(0x6a).localSet(0); // i32.add
+        run.br(ERROR - OPEN);
+        run.end();
+
+        // Closing brackets, which must match the top of the stack; ']' and '}' are both two past their opener.
+        run.localGet(2).op(0x45); // i32.eqz
+        run.ifThen(EMPTY_BLOCK).i64Const(-1).op(0x0f).end(); // return
+        run.localGet(2).i32Const(1).op(0x6b).localTee(2); // i32.sub
+        run.memoryAccess(0x2d, 0, STACK).localGet(1).op(0x6b).i32Const(-2).op(0x47); // i32.load8_u, i32.sub, i32.ne
+        run.ifThen(EMPTY_BLOCK).i64Const(-1).op(0x0f).end(); // return
+        run.localGet(0).i32Const(1).op(0x6a).localSet(0); // i32.add
+        run.br(ERROR - CLOSE);
+        run.end();
+
+        // Commas and colons.
+        run.localGet(0).i32Const(1).op(0x6a).localSet(0); // i32.add
+        run.br(ERROR - PUNCTUATION);
+        run.end();
+
+        // true, false and null, compared a word at a time; anything else falls through to the error case.
+        run.localGet(0).memoryAccess(0x28, 0, INPUT).localTee(1); // i32.load
+        run.i32Const(0x65757274).op(0x46); // i32.eq
+        run.localGet(1).i32Const(0x6c6c756e).op(0x46); // i32.eq
+        run.op(0x72).ifThen(EMPTY_BLOCK); // i32.or
+        run.localGet(6).i32Const(1).op(0x6a).localSet(6); // i32.add
+        run.localGet(0).i32Const(4).op(0x6a).localSet(0); // i32.add
+        run.br(ERROR - LITERAL + 1);
+        run.end();
+        run.localGet(1).i32Const(0x736c6166).op(0x46); // i32.eq
+        run.localGet(0).memoryAccess(0x2d, 0, INPUT + 4).i32Const('e').op(0x46); // i32.load8_u, i32.eq
+        run.op(0x71).ifThen(EMPTY_BLOCK); // i32.and
+        run.localGet(6).i32Const(1).op(0x6a).localSet(6); // i32.add
+        run.localGet(0).i32Const(5).op(0x6a).localSet(0); // i32.add
+        run.br(ERROR - LITERAL + 1);
+        run.end();
+        run.end();
+
+        run.i64Const(-1).op(0x0f); // return
+        run.end().end();
+
+        run.localGet(2);
+        run.ifThen(EMPTY_BLOCK).i64Const(-1).op(0x0f).end(); // return
+
+        run.localGet(9);
+        for (var local = 3; local <= 7; local++) {
+            run.i64Const(31).op(0x7e).localGet(local).op(0xad).op(0x7c); // i64.mul, i64.extend_i32_u, i64.add
+        }
+
+        builder.exportFunction("run", run.id());
+        return builder.build();
+    }
+
+    // An array of records with strings (some escaped), integers, decimals, literals, and nested arrays and objects,
+    // pretty-printed the way a typical API response is.
+    private static byte @NotNull[] input() {
+        var random = new Random(1234);
+        var text = new StringBuilder("[\n");
+
+        for (var id = 0; text.length() < 48000; id++) {
+            if (id != 0) {
+                text.append(",\n");
+            }
+
+            var name = NAMES[random.nextInt(NAMES.length)];
+            text.append("  {\n");
+            text.append("    \"id\": ").append(id).append(",\n");
+            text.append("    \"name\": \"").append(name).append(random.nextInt(4) == 0 ? " \\\"the\\\" " : " ").append(NAMES[random.nextInt(NAMES.length)]).append("\",\n");
+            text.append("    \"score\": ").append(random.nextInt(2001) - 1000).append('.').append(random.nextInt(100)).append(",\n");
+            text.append("    \"active\": ").append(random.nextBoolean()).append(",\n");
+            text.append("    \"parent\": ").append(random.nextInt(3) == 0 ? "null" : Integer.toString(random.nextInt(id + 1))).append(",\n");
+            text.append("    \"tags\": [");
+            for (var i = random.nextInt(4); i > 0; i--) {
+                text.append('"').append(NAMES[random.nextInt(NAMES.length)]).append(i == 1 ? "\"" : "\", ");
+            }
+            text.append("],\n");
+            text.append("    \"position\": {\"x\": ").append(random.nextInt(10000)).append(", \"y\": -").append(random.nextInt(10000)).append(", \"path\": [[1, 2], [3, 4]]}\n");
+            text.append("  }");
+        }
+
+        text.append("\n]\n");
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
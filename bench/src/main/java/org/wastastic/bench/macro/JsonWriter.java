@@ -0,0 +1,140 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+
+// Just enough of a JSON writer for benchmark reports: compact output, with commas placed automatically.
+final class JsonWriter {
+    private final StringBuilder output = new StringBuilder();
+    private final ArrayDeque<Boolean> firstInScope = new ArrayDeque<>();
+    private boolean afterName;
+
+    @NotNull JsonWriter beginObject() {
+        separate();
+        output.append('{');
+        firstInScope.push(true);
+        return this;
+    }
+
+    @NotNull JsonWriter endObject() {
+        firstInScope.pop();
+        output.append('}');
+        return this;
+    }
+
+    @NotNull JsonWriter beginArray() {
+        separate();
+        output.append('[');
+        firstInScope.push(true);
+        return this;
+    }
+
+    @NotNull JsonWriter endArray() {
+        firstInScope.pop();
+        output.append(']');
+        return this;
+    }
+
+    @NotNull JsonWriter name(@NotNull String name) {
+        separate();
+        appendString(name);
+        output.append(':');
+        afterName = true;
+        return this;
+    }
+
+    @NotNull JsonWriter value(@NotNull String value) {
+        separate();
+        appendString(value);
+        return this;
+    }
+
+    @NotNull JsonWriter value(long value) {
+        separate();
+        output.append(value);
+        return this;
+    }
+
+    @NotNull JsonWriter value(double value) {
+        separate();
+        output.append(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+
+    @NotNull JsonWriter value(boolean value) {
+        separate();
+        output.append(value);
+        return this;
+    }
+
+    @NotNull JsonWriter values(long @NotNull[] values) {
+        beginArray();
+        for (var value : values) {
+            value(value);
+        }
+        return endArray();
+    }
+
+    // Splices in an already-serialized value, such as a forked child's result.
+    @NotNull JsonWriter rawValue(@NotNull String json) {
+        separate();
+        output.append(json);
+        return this;
+    }
+
+    @NotNull JsonWriter field(@NotNull String name, @NotNull String value) {
+        return name(name).value(value);
+    }
+
+    @NotNull JsonWriter field(@NotNull String name, long value) {
+        return name(name).value(value);
+    }
+
+    @NotNull JsonWriter field(@NotNull String name, double value) {
+        return name(name).value(value);
+    }
+
+    @NotNull JsonWriter field(@NotNull String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    @Override public @NotNull String toString() {
+        return output.toString();
+    }
+
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+        } else if (!firstInScope.isEmpty()) {
+            if (!firstInScope.pop()) {
+                output.append(',');
+            }
+            firstInScope.push(false);
+        }
+    }
+
+    private void appendString(@NotNull String value) {
+        output.append('"');
+
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> output.append("\\\"");
+                case '\\' -> output.append("\\\\");
+                case '\n' -> output.append("\\n");
+                case '\r' -> output.append("\\r");
+                case '\t' -> output.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        output.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        output.append(c);
+                    }
+                }
+            }
+        }
+
+        output.append('"');
+    }
+}
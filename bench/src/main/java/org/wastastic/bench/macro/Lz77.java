@@ -0,0 +1,237 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.wastastic.bench.WasmModuleBuilder.EMPTY_BLOCK;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// An LZ77 codec in the style of LZ4: a greedy compressor with a hash table of 4-byte sequences, and a decompressor,
+// round-tripping about 60 KB of generated text. The compressed form is LZ4's block format: each sequence is a token
+// byte with the literal and match lengths in its nibbles, the literals, a little-endian u16 match offset, with lengths
+// that don't fit in a nibble continued in extra bytes; the last sequence has literals only. The checksum is the compressed size in the high half and an
+// FNV-1a hash of the decompressed text in the low half, or -1 if it doesn't match the input.
+public final class Lz77 implements Workload {
+    private static final int INPUT = 0;
+    private static final int TABLE = 65536;
+    private static final int TABLE_SIZE = 4096 * 4;
+    private static final int COMPRESSED = TABLE + TABLE_SIZE;
+    private static final int OUTPUT = COMPRESSED + 2 * 65536;
+
+    private static final String[] SUBJECTS = {
+        "the compiler", "a module", "the runtime", "every function", "the table", "this memory", "the host",
+        "an instance", "the validator", "each thread", "the linker", "a trap handler",
+    };
+
+    private static final String[] VERBS = {
+        "reads", "writes", "grows", "calls", "checks", "links", "exports", "imports", "translates", "unwinds",
+        "verifies", "drops",
+    };
+
+    private static final String[] OBJECTS = {
+        "the data segment", "a global", "every element", "its locals", "the stack", "a reference", "the result",
+        "each page", "the operand", "an exception", "the import table", "the code section",
+    };
+
+    private static final String[] TAILS = {
+        "", " before it returns", " after the call", " at the start of each loop", " on every thread",
+        " unless it traps", " as late as possible",
+    };
+
+    @Override public @NotNull String name() {
+        return "lz77";
+    }
+
+    @Override public byte @NotNull[] module() {
+        var input = input();
+
+        var builder = new WasmModuleBuilder();
+        builder.memory(5, 5);
+        builder.activeData(0, INPUT, input);
+
+        var compress = builder.function("compress", builder.type(types(), types(I32)));
+        compress.locals(10, I32); // 0: ip, 1: op, 2: anchor, 3: sequence, 4: hash slot, 5: match, 6: match length, 7: limit, 8: literal count, 9: length tail
+        compress.i32Const(TABLE).i32Const(0).i32Const(TABLE_SIZE).prefixed(0xfc, 11).u32(0); // memory.fill
+        compress.i32Const(input.length - 4).localSet(7);
+
+        compress.block(EMPTY_BLOCK).loop(EMPTY_BLOCK);
+        compress.localGet(0).localGet(7).op(0x4e).brIf(1); // i32.ge_s
+
+        // Look the sequence at ip up in the table, replacing it with ip + 1 (zero marks an empty slot).
+        compress.localGet(0).memoryAccess(0x28, 0, INPUT).localSet(3); // i32.load
+        compress.localGet(3).i32Const(0x9e3779b1).op(0x6c).i32Const(20).op(0x76).i32Const(2).op(0x74).localSet(4); // i32.mul, i32.shr_u, i32.shl
+        compress.localGet(4).memoryAccess(0x28, 2, TABLE).localSet(5); // i32.load
+        compress.localGet(4).localGet(0).i32Const(1).op(0x6a).memoryAccess(0x36, 2, TABLE); // i32.add, i32.store
+
+        compress.localGet(5).ifThen(EMPTY_BLOCK);
+        compress.localGet(5).i32Const(1).op(0x6b).localSet(5); // i32.sub
+
+        compress.localGet(0).localGet(5).op(0x6b).i32Const(0xffff).op(0x4d); // i32.sub, i32.le_u
+        compress.localGet(5).memoryAccess(0x28, 0, INPUT).localGet(3).op(0x46); // i32.load, i32.eq
+        compress.op(0x71).ifThen(EMPTY_BLOCK); // i32.and
+
+        // Extend the match as far as it goes.
+        compress.i32Const(4).localSet(6);
+        compress.block(EMPTY_BLOCK).loop(EMPTY_BLOCK);
+        compress.localGet(0).localGet(6).op(0x6a).i32Const(input.length).op(0x4e).brIf(1); // i32.add, i32.ge_s
+        compress.localGet(5).localGet(6).op(0x6a).memoryAccess(0x2d, 0, INPUT); // i32.add, i32.load8_u
+        compress.localGet(0).localGet(6).op(0x6a).memoryAccess(0x2d, 0, INPUT); // i32.add, i32.load8_u
+        compress.op(0x47).brIf(1); // i32.ne
+        compress.localGet(6).i32Const(1).op(0x6a).localSet(6).br(0); // i32.add
+        compress.end().end();
+
+        emitSequence(compress, true);
+        compress.localGet(0).localGet(6).op(0x6a).localTee(0).localSet(2); // i32.add
+        compress.br(2);
+
+        compress.end();
+        compress.end();
+
+        compress.localGet(0).i32Const(1).op(0x6a).localSet(0).br(0); // i32.add
+        compress.end().end();
+
+        compress.i32Const(input.length).localSet(0);
+        emitSequence(compress, false);
+        compress.localGet(1);
+
+        var decompress = builder.function("decompress", builder.type(types(I32), types(I32)));
+        decompress.locals(7, I32); // 0: compressed size, 1: ip, 2: op, 3: literal count, 4: match offset, 5: match length, 6: index, 7: token
+
+        decompress.block(EMPTY_BLOCK).loop(EMPTY_BLOCK);
+        decompress.localGet(1).memoryAccess(0x2d, 0, COMPRESSED).localSet(7); // i32.load8_u
+        decompress.localGet(1).i32Const(1).op(0x6a).localSet(1); // i32.add
+        decompress.localGet(7).i32Const(4).op(0x76).localSet(3); // i32.shr_u
+        emitReadLength(decompress, 3);
+
+        decompress.localGet(2).i32Const(OUTPUT).op(0x6a); // i32.add
+        decompress.localGet(1).i32Const(COMPRESSED).op(0x6a); // i32.add
+        decompress.localGet(3).prefixed(0xfc, 10).u32(0).u32(0); // memory.copy
+        decompress.localGet(1).localGet(3).op(0x6a).localSet(1); // i32.add
+        decompress.localGet(2).localGet(3).op(0x6a).localSet(2); // i32.add
+        decompress.localGet(1).localGet(0).op(0x4e).brIf(1); // i32.ge_s
+
+        decompress.localGet(1).memoryAccess(0x2f, 0, COMPRESSED).localSet(4); // i32.load16_u
+        decompress.localGet(1).i32Const(2).op(0x6a).localSet(1); // i32.add
+        decompress.localGet(7).i32Const(15).op(0x71).localSet(5); // i32.and
+        emitReadLength(decompress, 5);
+        decompress.localGet(5).i32Const(4).op(0x6a).localSet(5); // i32.add
+
+        // Matches may overlap their own output, so they're copied a byte at a time.
+        decompress.countedLoop(6, 0, 5, () -> {
+            decompress.localGet(2).localGet(6).op(0x6a); // i32.add
+            decompress.localGet(2).localGet(4).op(0x6b).localGet(6).op(0x6a).memoryAccess(0x2d, 0, OUTPUT); // i32.sub, i32.add, i32.load8_u
+            decompress.memoryAccess(0x3a, 0, OUTPUT); // i32.store8
+        });
+
+        decompress.localGet(2).localGet(5).op(0x6a).localSet(2); // i32.add
+        decompress.br(0);
+        decompress.end().end();
+        decompress.localGet(2);
+
+        var run = builder.function("run", builder.type(types(), types(I64)));
+        run.locals(4, I32); // 0: compressed size, 1: decompressed size, 2: index, 3: hash
+        run.call(compress.id()).localTee(0).call(decompress.id()).localSet(1);
+
+        run.localGet(1).i32Const(input.length).op(0x47); // i32.ne
+        run.ifThen(EMPTY_BLOCK).i64Const(-1).op(0x0f).end(); // return
+
+        run.i32Const(0x811c9dc5).localSet(3);
+        run.countedLoop(2, 0, 1, () -> {
+            run.localGet(2).memoryAccess(0x2d, 0, OUTPUT).localGet(2).memoryAccess(0x2d, 0, INPUT).op(0x47); // i32.load8_u, i32.ne
+            run.ifThen(EMPTY_BLOCK).i64Const(-1).op(0x0f).end(); // return
+            run.localGet(3).localGet(2).memoryAccess(0x2d, 0, OUTPUT).op(0x73); // i32.load8_u, i32.xor
+            run.i32Const(0x01000193).op(0x6c).localSet(3); // i32.mul
+        });
+
+        run.localGet(0).op(0xad).i64Const(32).op(0x86); // i64.extend_i32_u, i64.shl
+        run.localGet(3).op(0xad).op(0x84); // i64.extend_i32_u, i64.or
+
+        builder.exportFunction("run", run.id());
+        return builder.build();
+    }
+
+    // Writes the sequence for the literals from anchor up to ip, followed by the match at ip if there is one: a token
+    // byte holding both lengths in its nibbles, the rest of the literal count, the literals, then the match offset and
+    // the rest of the match length.
+    private static void emitSequence(@NotNull WasmModuleBuilder.Function compress, boolean match) {
+        compress.localGet(0).localGet(2).op(0x6b).localSet(8); // i32.sub
+
+        compress.localGet(1);
+        compress.localGet(8).i32Const(15).localGet(8).i32Const(15).op(0x49).op(0x1b); // i32.lt_u, select
+        compress.i32Const(4).op(0x74); // i32.shl
+        if (match) {
+            compress.localGet(6).i32Const(4).op(0x6b).localTee(9); // i32.sub
+            compress.i32Const(15).localGet(9).i32Const(15).op(0x49).op(0x1b); // i32.lt_u, select
+            compress.op(0x72); // i32.or
+        }
+        compress.memoryAccess(0x3a, 0, COMPRESSED); // i32.store8
+        compress.localGet(1).i32Const(1).op(0x6a).localSet(1); // i32.add
+        emitLengthTail(compress, 8);
+
+        compress.localGet(1).i32Const(COMPRESSED).op(0x6a); // i32.add
+        compress.localGet(2).i32Const(INPUT).op(0x6a); // i32.add
+        compress.localGet(8).prefixed(0xfc, 10).u32(0).u32(0); // memory.copy
+        compress.localGet(1).localGet(8).op(0x6a).localSet(1); // i32.add
+
+        if (match) {
+            compress.localGet(1).localGet(0).localGet(5).op(0x6b).memoryAccess(0x3b, 0, COMPRESSED); // i32.sub, i32.store16
+            compress.localGet(1).i32Const(2).op(0x6a).localSet(1); // i32.add
+            compress.localGet(6).i32Const(4).op(0x6b).localSet(9); // i32.sub
+            emitLengthTail(compress, 9);
+        }
+    }
+
+    // Writes what's left of a length over the 15 that fits in its nibble, as a run of 255s and a final byte below 255.
+    private static void emitLengthTail(@NotNull WasmModuleBuilder.Function compress, int lengthLocal) {
+        compress.localGet(lengthLocal).i32Const(15).op(0x4f).ifThen(EMPTY_BLOCK); // i32.ge_u
+        compress.localGet(lengthLocal).i32Const(15).op(0x6b).localSet(9); // i32.sub
+
+        compress.block(EMPTY_BLOCK).loop(EMPTY_BLOCK);
+        compress.localGet(9).i32Const(255).op(0x49).brIf(1); // i32.lt_u
+        compress.localGet(1).i32Const(255).memoryAccess(0x3a, 0, COMPRESSED); // i32.store8
+        compress.localGet(1).i32Const(1).op(0x6a).localSet(1); // i32.add
+        compress.localGet(9).i32Const(255).op(0x6b).localSet(9).br(0); // i32.sub
+        compress.end().end();
+
+        compress.localGet(1).localGet(9).memoryAccess(0x3a, 0, COMPRESSED); // i32.store8
+        compress.localGet(1).i32Const(1).op(0x6a).localSet(1); // i32.add
+        compress.end();
+    }
+
+    // Adds the bytes that follow a length nibble of 15 onto the length, up to and including the first byte below 255.
+    private static void emitReadLength(@NotNull WasmModuleBuilder.Function decompress, int lengthLocal) {
+        decompress.localGet(lengthLocal).i32Const(15).op(0x46).ifThen(EMPTY_BLOCK); // i32.eq
+        decompress.loop(EMPTY_BLOCK);
+        decompress.localGet(1).memoryAccess(0x2d, 0, COMPRESSED); // i32.load8_u
+        decompress.localGet(1).i32Const(1).op(0x6a).localSet(1); // i32.add
+        decompress.localTee(6).localGet(lengthLocal).op(0x6a).localSet(lengthLocal); // i32.add
+        decompress.localGet(6).i32Const(255).op(0x46).brIf(0); // i32.eq
+        decompress.end();
+        decompress.end();
+    }
+
+    // Sentences put together from a few lists of phrases, drawn with a skew towards the front of each, so that the
+    // text repeats itself at about the rate prose does.
+    private static byte @NotNull[] input() {
+        var random = new Random(77);
+        var text = new StringBuilder();
+
+        while (text.length() < 60000) {
+            var sentence = pick(random, SUBJECTS) + " " + pick(random, VERBS) + " " + pick(random, OBJECTS) + pick(random, TAILS);
+            text.append(Character.toUpperCase(sentence.charAt(0))).append(sentence, 1, sentence.length());
+            text.append(random.nextInt(8) == 0 ? ".\n" : ". ");
+        }
+
+        text.setLength(60000);
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static @NotNull String pick(@NotNull Random random, @NotNull String @NotNull[] choices) {
+        return choices[(int) (choices.length * Math.pow(random.nextDouble(), 2))];
+    }
+}
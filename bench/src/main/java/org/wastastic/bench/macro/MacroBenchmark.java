@@ -0,0 +1,330 @@
+package org.wastastic.bench.macro;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.wastastic.Module;
+import org.wastastic.ModuleInstance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+import static java.lang.invoke.MethodType.methodType;
+
+// Runs whole programs end to end and reports, for each, how long it takes to compile, instantiate and make its first
+// call, how the time per call falls as the JIT warms up, and where it settles. Unlike the JMH benchmarks, the point is
+// the cold path as much as the steady state, so by default every workload runs in a JVM of its own, forked with the
+// same options as this one, so that no workload starts with the compiler already warmed up by another.
+//
+// Usage: MacroBenchmark [--corpus DIR] [--output report.json] [--warmup-iterations N] [--iterations N]
+//                       [--workload NAME]... [--module NAME=PATH]... [--no-fork]
+//
+// The corpus is the directory of checked-in modules listed in its MANIFEST (bench/corpus, by default the corpus
+// directory under the working directory), each with the checksum its run export has to return. Without --workload or
+// --module, the whole corpus is run. The report is a single JSON object, written to --output or standard output.
+public final class MacroBenchmark {
+    private MacroBenchmark() {}
+
+    private static final int SCHEMA_VERSION = 1;
+
+    private static final String CHILD_OPTION = "--child";
+
+    public static void main(String[] args) throws Throwable {
+        var corpus = Path.of("corpus");
+        var output = (Path) null;
+        var warmupIterations = 50;
+        var iterations = 30;
+        var fork = true;
+        var child = false;
+        var workloadArgs = new ArrayList<List<String>>();
+
+        for (var i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--corpus" -> corpus = Path.of(argument(args, ++i));
+                case "--output" -> output = Path.of(argument(args, ++i));
+                case "--warmup-iterations" -> warmupIterations = Integer.parseInt(argument(args, ++i));
+                case "--iterations" -> iterations = Integer.parseInt(argument(args, ++i));
+                case "--no-fork" -> fork = false;
+                case CHILD_OPTION -> child = true;
+                case "--workload", "--module" -> workloadArgs.add(List.of(args[i], argument(args, ++i)));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (iterations <= 0 || warmupIterations < 0) {
+            throw new IllegalArgumentException("Iteration counts must be positive");
+        }
+
+        // Resolved once all the options are in, so that --corpus can come after --workload.
+        var manifest = readManifest(corpus);
+        if (workloadArgs.isEmpty()) {
+            for (var workload : manifest) {
+                workloadArgs.add(List.of("--workload", workload.name()));
+            }
+        }
+
+        var workloads = new ArrayList<Workload>();
+        for (var workloadArg : workloadArgs) {
+            var value = workloadArg.get(1);
+            if (workloadArg.get(0).equals("--workload")) {
+                workloads.add(manifest.stream()
+                    .filter(workload -> workload.name().equals(value))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown workload " + value)));
+            } else {
+                var separator = value.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Expected NAME=PATH, got " + value);
+                }
+                workloads.add(new ModuleFile(value.substring(0, separator), Path.of(value.substring(separator + 1)), OptionalLong.empty()));
+            }
+        }
+
+        if (child) {
+            if (workloads.size() != 1) {
+                throw new IllegalArgumentException("A child runs exactly one workload");
+            }
+
+            System.out.println(measure(workloads.get(0), warmupIterations, iterations));
+            return;
+        }
+
+        var report = new JsonWriter().beginObject();
+        report.field("schemaVersion", SCHEMA_VERSION);
+        report.field("startedAt", Instant.now().toString());
+        report.name("java").beginObject()
+            .field("version", Runtime.version().toString())
+            .field("vm", System.getProperty("java.vm.name"))
+            .field("vendor", System.getProperty("java.vm.vendor"))
+            .field("arguments", String.join(" ", ManagementFactory.getRuntimeMXBean().getInputArguments()))
+            .endObject();
+        report.name("os").beginObject()
+            .field("name", System.getProperty("os.name"))
+            .field("version", System.getProperty("os.version"))
+            .field("arch", System.getProperty("os.arch"))
+            .endObject();
+        report.field("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.name("settings").beginObject()
+            .field("corpus", corpus.toAbsolutePath().toString())
+            .field("warmupIterations", warmupIterations)
+            .field("iterations", iterations)
+            .field("fork", fork)
+            .endObject();
+
+        var failed = false;
+        report.name("workloads").beginArray();
+        for (var i = 0; i < workloads.size(); i++) {
+            var workload = workloads.get(i);
+            System.err.println("Running " + workload.name());
+
+            String result;
+            if (fork) {
+                result = forkChild(corpus, workloadArgs.get(i), warmupIterations, iterations);
+            } else {
+                result = measure(workload, warmupIterations, iterations);
+            }
+
+            if (result == null) {
+                failed = true;
+                result = new JsonWriter().beginObject()
+                    .field("name", workload.name())
+                    .field("error", "child JVM failed")
+                    .endObject()
+                    .toString();
+            } else if (result.contains("\"error\":")) {
+                failed = true;
+            }
+
+            report.rawValue(result);
+        }
+        report.endArray();
+        report.endObject();
+
+        if (output == null) {
+            System.out.println(report);
+        } else {
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Files.writeString(output, report + "\n");
+            System.err.println("Wrote " + output);
+        }
+
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static @NotNull String argument(@NotNull String @NotNull[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+
+        return args[index];
+    }
+
+    // The corpus listed in a directory's MANIFEST: a line per workload, as its name, its module relative to the directory,
+    // and the checksum of its run export in hex, with lines starting with # ignored.
+    private static @NotNull List<ModuleFile> readManifest(@NotNull Path corpus) throws IOException {
+        var workloads = new ArrayList<ModuleFile>();
+
+        for (var line : Files.readAllLines(corpus.resolve("MANIFEST"))) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+
+            var fields = line.trim().split("\\s+");
+            if (fields.length != 3) {
+                throw new IllegalArgumentException("Expected NAME MODULE CHECKSUM in " + corpus.resolve("MANIFEST") + ", got " + line);
+            }
+
+            workloads.add(new ModuleFile(fields[0], corpus.resolve(fields[1]), OptionalLong.of(Long.parseUnsignedLong(fields[2], 16))));
+        }
+
+        return workloads;
+    }
+
+    // Runs one workload in a JVM launched the same way as this one, returning the JSON it prints, or null if it fails.
+    private static @Nullable String forkChild(@NotNull Path corpus, @NotNull List<String> workloadArgs, int warmupIterations, int iterations)
+        throws IOException, InterruptedException
+    {
+        var command = new ArrayList<String>();
+        command.add(ProcessHandle.current().info().command().orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MacroBenchmark.class.getName());
+        command.add(CHILD_OPTION);
+        command.add("--corpus");
+        command.add(corpus.toString());
+        command.add("--warmup-iterations");
+        command.add(Integer.toString(warmupIterations));
+        command.add("--iterations");
+        command.add(Integer.toString(iterations));
+        command.addAll(workloadArgs);
+
+        var process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String stdout;
+        try (InputStream input = process.getInputStream()) {
+            stdout = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        if (process.waitFor() != 0) {
+            return null;
+        }
+
+        var lines = stdout.lines().filter(line -> line.startsWith("{")).toList();
+        return lines.isEmpty() ? null : lines.get(lines.size() - 1);
+    }
+
+    // Measures a workload in this JVM, returning the result as a JSON object. Each phase is timed separately, and
+    // timeToFirstCallNanos covers everything from the module bytes to the first result. Failures are reported in the
+    // result rather than thrown, so that one broken module doesn't cost the rest of the run.
+    static @NotNull String measure(@NotNull Workload workload, int warmupIterations, int iterations) {
+        var result = new JsonWriter().beginObject();
+        result.field("name", workload.name());
+
+        try (var scope = ResourceScope.newConfinedScope()) {
+            var bytes = workload.module();
+            var segment = MemorySegment.allocateNative(bytes.length, scope);
+            segment.copyFrom(MemorySegment.ofArray(bytes));
+            result.field("moduleBytes", bytes.length);
+
+            var start = System.nanoTime();
+            var module = Module.compile(segment);
+            var compiled = System.nanoTime();
+            var instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+            var instantiated = System.nanoTime();
+            var run = runHandle(module);
+            var checksum = (long) run.invokeExact(instance);
+            var firstCalled = System.nanoTime();
+
+            result.field("compileNanos", compiled - start);
+            result.field("instantiateNanos", instantiated - compiled);
+            result.field("firstCallNanos", firstCalled - instantiated);
+            result.field("timeToFirstCallNanos", firstCalled - start);
+
+            var deterministic = true;
+            var warmupNanos = new long[warmupIterations];
+            for (var i = 0; i < warmupIterations; i++) {
+                var iterationStart = System.nanoTime();
+                deterministic &= (long) run.invokeExact(instance) == checksum;
+                warmupNanos[i] = System.nanoTime() - iterationStart;
+            }
+
+            var iterationNanos = new long[iterations];
+            for (var i = 0; i < iterations; i++) {
+                var iterationStart = System.nanoTime();
+                deterministic &= (long) run.invokeExact(instance) == checksum;
+                iterationNanos[i] = System.nanoTime() - iterationStart;
+            }
+
+            // Eager translation of the whole module, timed on a fresh copy now that the translator itself is warm.
+            var precompileStart = System.nanoTime();
+            Module.compile(segment).precompileFunctions();
+            var precompileNanos = System.nanoTime() - precompileStart;
+
+            result.field("precompileNanos", precompileNanos);
+            result.field("checksum", Long.toHexString(checksum));
+            result.field("deterministic", deterministic);
+            result.name("warmupNanos").values(warmupNanos);
+            result.name("iterationNanos").values(iterationNanos);
+            writeStatistics(result.name("steadyState"), iterationNanos);
+
+            if (!deterministic) {
+                result.field("error", "run returned different checksums");
+            } else if (workload.checksum().isPresent() && workload.checksum().getAsLong() != checksum) {
+                result.field("error", "run returned " + Long.toHexString(checksum) + ", expected " + Long.toHexString(workload.checksum().getAsLong()));
+            }
+        } catch (Throwable exception) {
+            result.field("error", exception.toString());
+        }
+
+        return result.endObject().toString();
+    }
+
+    // The run export, adapted to return a long whether it returns i64, i32 or nothing.
+    private static @NotNull MethodHandle runHandle(@NotNull Module module) throws Throwable {
+        var handle = module.exportedFunctionHandle("run");
+        if (handle.type().parameterCount() != 1) {
+            throw new IllegalArgumentException("run must not take any parameters");
+        }
+
+        return MethodHandles.explicitCastArguments(handle, methodType(long.class, ModuleInstance.class));
+    }
+
+    private static void writeStatistics(@NotNull JsonWriter writer, long @NotNull[] nanos) {
+        var sorted = nanos.clone();
+        Arrays.sort(sorted);
+
+        var mean = Arrays.stream(nanos).average().orElseThrow();
+        var variance = Arrays.stream(nanos).mapToDouble(value -> (value - mean) * (value - mean)).sum() / Math.max(1, nanos.length - 1);
+
+        writer.beginObject()
+            .field("meanNanos", mean)
+            .field("medianNanos", percentile(sorted, 0.5))
+            .field("p90Nanos", percentile(sorted, 0.9))
+            .field("minNanos", sorted[0])
+            .field("maxNanos", sorted[sorted.length - 1])
+            .field("stdevNanos", Math.sqrt(variance))
+            .field("opsPerSecond", 1e9 / mean)
+            .endObject();
+    }
+
+    private static long percentile(long @NotNull[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
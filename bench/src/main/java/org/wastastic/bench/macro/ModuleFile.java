@@ -0,0 +1,21 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+
+// A workload from a .wasm file, either one of the checked-in corpus or one given with --module. It has to follow the
+// same convention: an export named run taking no arguments, importing nothing.
+record ModuleFile(@NotNull String name, @NotNull Path path, @NotNull OptionalLong checksum) implements Workload {
+    @Override public byte @NotNull[] module() {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
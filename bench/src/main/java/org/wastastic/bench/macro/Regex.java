@@ -0,0 +1,165 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.wastastic.bench.WasmModuleBuilder.EMPTY_BLOCK;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// The backtracking regular expression matcher from Kernighan and Pike's The Practice of Programming (literals, '.',
+// '*', '^' and '$'), as three mutually recursive functions, run for a dozen patterns against about 40 KB of generated
+// log lines. Patterns and lines are NUL-terminated strings found through tables of their addresses. The checksum folds
+// the number of lines each pattern matches.
+public final class Regex implements Workload {
+    private static final int PATTERN_TABLE = 0;
+    private static final int LINE_TABLE = 256;
+    private static final int STRINGS = 8192;
+
+    private static final String[] PATTERNS = {
+        "ERROR", "^2026-03-1.*WARN", "took 1..ms", "status=5..$", "user.*admin", "a*b*c*d", "worker-1 ", "id=.*7$",
+        ".*o.*r.*d.*e.*r", "^.*timeout", "GET /api/.*s/.*9 ", "q*u*e*u*e",
+    };
+
+    private static final String[] LEVELS = {"DEBUG", "INFO", "INFO", "INFO", "WARN", "ERROR"};
+    private static final String[] METHODS = {"GET", "GET", "GET", "POST", "PUT", "DELETE"};
+    private static final String[] RESOURCES = {"users", "orders", "admin", "queues", "sessions", "timeouts"};
+
+    @Override public @NotNull String name() {
+        return "regex";
+    }
+
+    @Override public byte @NotNull[] module() {
+        var lines = lines();
+        var strings = new ByteArrayOutputStream();
+        var patternTable = ByteBuffer.allocate(PATTERNS.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        var lineTable = ByteBuffer.allocate(lines.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (var pattern : PATTERNS) {
+            patternTable.putInt(STRINGS + strings.size());
+            strings.writeBytes(pattern.getBytes(StandardCharsets.US_ASCII));
+            strings.write(0);
+        }
+
+        for (var line : lines) {
+            lineTable.putInt(STRINGS + strings.size());
+            strings.writeBytes(line.getBytes(StandardCharsets.US_ASCII));
+            strings.write(0);
+        }
+
+        var builder = new WasmModuleBuilder();
+        builder.memory(1, 1);
+        builder.activeData(0, PATTERN_TABLE, patternTable.array());
+        builder.activeData(0, LINE_TABLE, lineTable.array());
+        builder.activeData(0, STRINGS, strings.toByteArray());
+
+        var match = builder.function("match", builder.type(types(I32, I32), types(I32)));
+        var matchHere = builder.function("match_here", builder.type(types(I32, I32), types(I32)));
+        var matchStar = builder.function("match_star", builder.type(types(I32, I32, I32), types(I32)));
+
+        // match(regexp, text): whether regexp matches anywhere in text.
+        match.localGet(0).memoryAccess(0x2d, 0, 0).i32Const('^').op(0x46).ifThen(EMPTY_BLOCK); // i32.load8_u, i32.eq
+        match.localGet(0).i32Const(1).op(0x6a).localGet(1).call(matchHere.id()).op(0x0f); // i32.add, return
+        match.end();
+        match.loop(EMPTY_BLOCK);
+        match.localGet(0).localGet(1).call(matchHere.id());
+        match.ifThen(EMPTY_BLOCK).i32Const(1).op(0x0f).end(); // return
+        match.localGet(1).memoryAccess(0x2d, 0, 0); // i32.load8_u
+        match.localGet(1).i32Const(1).op(0x6a).localSet(1); // i32.add
+        match.brIf(0);
+        match.end();
+        match.i32Const(0);
+
+        // match_here(regexp, text): whether regexp matches at the start of text.
+        matchHere.locals(1, I32); // 2: first regexp character
+        matchHere.localGet(0).memoryAccess(0x2d, 0, 0).localTee(2).op(0x45); // i32.load8_u, i32.eqz
+        matchHere.ifThen(EMPTY_BLOCK).i32Const(1).op(0x0f).end(); // return
+        matchHere.localGet(0).memoryAccess(0x2d, 0, 1).i32Const('*').op(0x46).ifThen(EMPTY_BLOCK); // i32.load8_u, i32.eq
+        matchHere.localGet(2).localGet(0).i32Const(2).op(0x6a).localGet(1).call(matchStar.id()).op(0x0f); // i32.add, return
+        matchHere.end();
+        matchHere.localGet(2).i32Const('$').op(0x46); // i32.eq
+        matchHere.localGet(0).memoryAccess(0x2d, 0, 1).op(0x45); // i32.load8_u, i32.eqz
+        matchHere.op(0x71).ifThen(EMPTY_BLOCK); // i32.and
+        matchHere.localGet(1).memoryAccess(0x2d, 0, 0).op(0x45).op(0x0f); // i32.load8_u, i32.eqz, return
+        matchHere.end();
+        matchHere.localGet(1).memoryAccess(0x2d, 0, 0).op(0x45).ifThen(EMPTY_BLOCK).i32Const(0).op(0x0f).end(); // i32.load8_u, i32.eqz, return
+        matchHere.localGet(2).i32Const('.').op(0x46); // i32.eq
+        matchHere.localGet(2).localGet(1).memoryAccess(0x2d, 0, 0).op(0x46); // i32.load8_u, i32.eq
+        matchHere.op(0x72).ifThen(EMPTY_BLOCK); // i32.or
+        matchHere.localGet(0).i32Const(1).op(0x6a).localGet(1).i32Const(1).op(0x6a).call(matchHere.id()).op(0x0f); // i32.add, i32.add, return
+        matchHere.end();
+        matchHere.i32Const(0);
+
+        // match_star(c, regexp, text): whether c*regexp matches at the start of text, trying the shortest run first.
+        matchStar.locals(1, I32); // 3: text character
+        matchStar.loop(EMPTY_BLOCK);
+        matchStar.localGet(1).localGet(2).call(matchHere.id());
+        matchStar.ifThen(EMPTY_BLOCK).i32Const(1).op(0x0f).end(); // return
+        matchStar.localGet(2).memoryAccess(0x2d, 0, 0).localTee(3).op(0x45); // i32.load8_u, i32.eqz
+        matchStar.ifThen(EMPTY_BLOCK).i32Const(0).op(0x0f).end(); // return
+        matchStar.localGet(2).i32Const(1).op(0x6a).localSet(2); // i32.add
+        matchStar.localGet(3).localGet(0).op(0x46); // i32.eq
+        matchStar.localGet(0).i32Const('.').op(0x46); // i32.eq
+        matchStar.op(0x72).brIf(0); // i32.or
+        matchStar.end();
+        matchStar.i32Const(0);
+
+        var run = builder.function("run", builder.type(types(), types(I64)));
+        run.locals(5, I32); // 0: pattern index, 1: pattern count, 2: line index, 3: line count, 4: matching lines
+        run.locals(1, I64); // 5: total
+        run.i32Const(PATTERNS.length).localSet(1);
+        run.i32Const(lines.length).localSet(3);
+        run.countedLoop(0, 0, 1, () -> {
+            run.i32Const(0).localSet(4);
+            run.countedLoop(2, 0, 3, () -> {
+                run.localGet(0).i32Const(2).op(0x74).memoryAccess(0x28, 2, PATTERN_TABLE); // i32.shl, i32.load
+                run.localGet(2).i32Const(2).op(0x74).memoryAccess(0x28, 2, LINE_TABLE); // i32.shl, i32.load
+                run.call(match.id());
+                run.localGet(4).op(0x6a).localSet(4); // i32.add
+            });
+            run.localGet(5).i64Const(1000003).op(0x7e).localGet(4).op(0xad).op(0x7c).localSet(5); // i64.mul, i64.extend_i32_u, i64.add
+        });
+        run.localGet(5);
+
+        builder.exportFunction("run", run.id());
+        return builder.build();
+    }
+
+    // Access log lines with a timestamp, level, worker, request, timing and status, some with trailing fields.
+    private static @NotNull String @NotNull[] lines() {
+        var random = new Random(4242);
+        var lines = new String[520];
+
+        for (var i = 0; i < lines.length; i++) {
+            var line = String.format(
+                "2026-03-%02d %02d:%02d:%02d %s worker-%d %s /api/%s/%d took %dms status=%d",
+                1 + random.nextInt(28),
+                random.nextInt(24),
+                random.nextInt(60),
+                random.nextInt(60),
+                LEVELS[random.nextInt(LEVELS.length)],
+                random.nextInt(16),
+                METHODS[random.nextInt(METHODS.length)],
+                RESOURCES[random.nextInt(RESOURCES.length)],
+                random.nextInt(100000),
+                random.nextInt(2000),
+                random.nextInt(5) == 0 ? 500 + random.nextInt(4) : 200
+            );
+
+            lines[i] = switch (random.nextInt(4)) {
+                case 0 -> line + " user=" + RESOURCES[random.nextInt(RESOURCES.length)];
+                case 1 -> line + " id=" + random.nextInt(1000);
+                default -> line;
+            };
+        }
+
+        return lines;
+    }
+}
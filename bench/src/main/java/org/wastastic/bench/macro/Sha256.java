@@ -0,0 +1,194 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// SHA-256 (FIPS 180-4) of a 32 KiB xorshift-generated message. The checksum folds the eight words of the digest into
+// two.
+public final class Sha256 implements Workload {
+    private static final int MESSAGE_LENGTH = 32768;
+
+    private static final int K = 0;
+    private static final int H = 256;
+    private static final int W = 512;
+    private static final int MESSAGE = 1024;
+
+    private static final int[] ROUND_CONSTANTS = {
+        0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+        0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+        0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+        0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+        0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+        0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+        0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+        0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2,
+    };
+
+    private static final int[] INITIAL_HASH = {
+        0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19,
+    };
+
+    @Override public @NotNull String name() {
+        return "sha256";
+    }
+
+    @Override public byte @NotNull[] module() {
+        var builder = new WasmModuleBuilder();
+        builder.memory(1, 1);
+
+        var roundConstants = ByteBuffer.allocate(ROUND_CONSTANTS.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        roundConstants.asIntBuffer().put(ROUND_CONSTANTS);
+        builder.activeData(0, K, roundConstants.array());
+
+        // byte_swap(x) -> i32, for reading and writing big-endian words
+        var byteSwap = builder.function("byte_swap", builder.type(types(I32), types(I32)));
+        byteSwap.localGet(0).i32Const(24).op(0x74); // i32.shl
+        byteSwap.localGet(0).i32Const(8).op(0x74).i32Const(0xff0000).op(0x71).op(0x72); // i32.shl, i32.and, i32.or
+        byteSwap.localGet(0).i32Const(8).op(0x76).i32Const(0xff00).op(0x71).op(0x72); // i32.shr_u, i32.and, i32.or
+        byteSwap.localGet(0).i32Const(24).op(0x76).op(0x72); // i32.shr_u, i32.or
+
+        // compress(block): folds one 64-byte block into the hash state
+        var compress = builder.function("compress", builder.type(types(I32), types()));
+        compress.locals(12, I32); // 1: t, 2-9: a-h, 10: t1, 11: t2, 12: limit
+
+        // W[t] = the block's words, for t < 16
+        compress.i32Const(16).localSet(12);
+        compress.countedLoop(1, 0, 12, () -> {
+            compress.localGet(1).i32Const(2).op(0x74); // i32.shl
+            compress.localGet(0).localGet(1).i32Const(2).op(0x74).op(0x6a); // i32.shl, i32.add
+            compress.memoryAccess(0x28, 0, 0).call(byteSwap.id()); // i32.load
+            compress.memoryAccess(0x36, 2, W); // i32.store
+        });
+
+        // W[t] = sigma1(W[t - 2]) + W[t - 7] + sigma0(W[t - 15]) + W[t - 16], for 16 <= t < 64
+        compress.i32Const(64).localSet(12);
+        compress.countedLoop(1, 16, 12, () -> {
+            compress.localGet(1).i32Const(2).op(0x74); // i32.shl
+            scheduleWord(compress, 2);
+            sigma(compress, 17, 19, 10);
+            scheduleWord(compress, 7);
+            compress.op(0x6a); // i32.add
+            scheduleWord(compress, 15);
+            sigma(compress, 7, 18, 3);
+            compress.op(0x6a); // i32.add
+            scheduleWord(compress, 16);
+            compress.op(0x6a); // i32.add
+            compress.memoryAccess(0x36, 2, W); // i32.store
+        });
+
+        for (var i = 0; i < 8; i++) {
+            compress.i32Const(0).memoryAccess(0x28, 2, H + i * 4).localSet(2 + i); // i32.load
+        }
+
+        compress.countedLoop(1, 0, 12, () -> {
+            // t1 = h + Sigma1(e) + Ch(e, f, g) + K[t] + W[t]
+            compress.localGet(9);
+            bigSigma(compress, 6, 6, 11, 25);
+            compress.op(0x6a); // i32.add
+            compress.localGet(8).localGet(6).localGet(7).localGet(8).op(0x73).op(0x71).op(0x73); // g ^ (e & (f ^ g))
+            compress.op(0x6a); // i32.add
+            compress.localGet(1).i32Const(2).op(0x74).memoryAccess(0x28, 2, K).op(0x6a); // i32.shl, i32.load, i32.add
+            compress.localGet(1).i32Const(2).op(0x74).memoryAccess(0x28, 2, W).op(0x6a); // i32.shl, i32.load, i32.add
+            compress.localSet(10);
+
+            // t2 = Sigma0(a) + Maj(a, b, c)
+            bigSigma(compress, 2, 2, 13, 22);
+            compress.localGet(2).localGet(3).op(0x71); // a & b
+            compress.localGet(4).localGet(2).localGet(3).op(0x72).op(0x71).op(0x72); // | (c & (a | b))
+            compress.op(0x6a).localSet(11); // i32.add
+
+            compress.localGet(8).localSet(9);
+            compress.localGet(7).localSet(8);
+            compress.localGet(6).localSet(7);
+            compress.localGet(5).localGet(10).op(0x6a).localSet(6); // i32.add
+            compress.localGet(4).localSet(5);
+            compress.localGet(3).localSet(4);
+            compress.localGet(2).localSet(3);
+            compress.localGet(10).localGet(11).op(0x6a).localSet(2); // i32.add
+        });
+
+        for (var i = 0; i < 8; i++) {
+            compress.i32Const(0);
+            compress.i32Const(0).memoryAccess(0x28, 2, H + i * 4); // i32.load
+            compress.localGet(2 + i).op(0x6a); // i32.add
+            compress.memoryAccess(0x36, 2, H + i * 4); // i32.store
+        }
+
+        var run = builder.function("run", builder.type(types(), types(I64)));
+        run.locals(3, I32); // 0: index, 1: limit, 2: xorshift state
+
+        // The message, one xorshift32 word at a time
+        run.i32Const(0x9e3779b9).localSet(2);
+        run.i32Const(MESSAGE_LENGTH / 4).localSet(1);
+        run.countedLoop(0, 0, 1, () -> {
+            run.localGet(2).localGet(2).i32Const(13).op(0x74).op(0x73).localSet(2); // i32.shl, i32.xor
+            run.localGet(2).localGet(2).i32Const(17).op(0x76).op(0x73).localSet(2); // i32.shr_u, i32.xor
+            run.localGet(2).localGet(2).i32Const(5).op(0x74).op(0x73).localSet(2); // i32.shl, i32.xor
+            run.localGet(0).i32Const(2).op(0x74).localGet(2); // i32.shl
+            run.memoryAccess(0x36, 2, MESSAGE); // i32.store
+        });
+
+        // Padding: a one bit, zeros, then the message length in bits as a big-endian u64, filling one more block
+        run.i32Const(MESSAGE + MESSAGE_LENGTH).i32Const(0).i32Const(64).prefixed(0xfc, 11).u32(0); // memory.fill
+        run.i32Const(0).i32Const(0x80).memoryAccess(0x3a, 0, MESSAGE + MESSAGE_LENGTH); // i32.store8
+        run.i32Const(0).i32Const(MESSAGE_LENGTH * 8).call(byteSwap.id()).memoryAccess(0x36, 2, MESSAGE + MESSAGE_LENGTH + 60); // i32.store
+
+        for (var i = 0; i < 8; i++) {
+            run.i32Const(0).i32Const(INITIAL_HASH[i]).memoryAccess(0x36, 2, H + i * 4); // i32.store
+        }
+
+        run.i32Const(MESSAGE_LENGTH / 64 + 1).localSet(1);
+        run.countedLoop(0, 0, 1, () -> run
+            .localGet(0).i32Const(6).op(0x74).i32Const(MESSAGE).op(0x6a) // i32.shl, i32.add
+            .call(compress.id())
+        );
+
+        // ((H0 ^ H2 ^ H4 ^ H6) << 32) | (H1 ^ H3 ^ H5 ^ H7)
+        for (var half = 0; half < 2; half++) {
+            run.i32Const(0).memoryAccess(0x28, 2, H + half * 4); // i32.load
+
+            for (var i = half + 2; i < 8; i += 2) {
+                run.i32Const(0).memoryAccess(0x28, 2, H + i * 4).op(0x73); // i32.load, i32.xor
+            }
+
+            run.op(0xad); // i64.extend_i32_u
+
+            if (half == 0) {
+                run.i64Const(32).op(0x86); // i64.shl
+            }
+            else {
+                run.op(0x84); // i64.or
+            }
+        }
+
+        builder.exportFunction("run", run.id());
+        return builder.build();
+    }
+
+    // Pushes W[t - distance].
+    private static void scheduleWord(@NotNull WasmModuleBuilder.Function function, int distance) {
+        function.localGet(1).i32Const(2).op(0x74); // i32.shl
+        function.memoryAccess(0x28, 2, W - distance * 4); // i32.load
+    }
+
+    // Replaces x on top of the stack with rotr(x, a) ^ rotr(x, b) ^ (x >>> c), using local 10 as scratch.
+    private static void sigma(@NotNull WasmModuleBuilder.Function function, int a, int b, int c) {
+        function.localTee(10).i32Const(a).op(0x78); // i32.rotr
+        function.localGet(10).i32Const(b).op(0x78).op(0x73); // i32.rotr, i32.xor
+        function.localGet(10).i32Const(c).op(0x76).op(0x73); // i32.shr_u, i32.xor
+    }
+
+    // Pushes rotr(x, a) ^ rotr(x, b) ^ rotr(x, c) for the x in the given local.
+    private static void bigSigma(@NotNull WasmModuleBuilder.Function function, int local, int a, int b, int c) {
+        function.localGet(local).i32Const(a).op(0x78); // i32.rotr
+        function.localGet(local).i32Const(b).op(0x78).op(0x73); // i32.rotr, i32.xor
+        function.localGet(local).i32Const(c).op(0x78).op(0x73); // i32.rotr, i32.xor
+    }
+}
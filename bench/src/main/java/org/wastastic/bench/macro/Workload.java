@@ -0,0 +1,18 @@
+package org.wastastic.bench.macro;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.OptionalLong;
+
+// A guest program run by MacroBenchmark. Its module exports run: [] -> [i64], which does a fixed amount of work over
+// inputs it sets up itself, so that every call does the same work, and returns a checksum of the results.
+public interface Workload {
+    @NotNull String name();
+
+    byte @NotNull[] module();
+
+    // The checksum run has to return, if it's known ahead of time.
+    default @NotNull OptionalLong checksum() {
+        return OptionalLong.empty();
+    }
+}
@@ -0,0 +1,38 @@
+package org.wastastic.bench.macro;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Writes the modules of the generated workloads into the corpus directory that MacroBenchmark runs. The corpus is
+// checked in, so this only needs running when a generator changes, along with its checksum in MANIFEST; the C sources
+// in the corpus directory build modules that stand in for the same files and return the same checksums.
+//
+// Usage: WriteCorpus DIR
+public final class WriteCorpus {
+    private WriteCorpus() {}
+
+    private static final List<Workload> GENERATED = List.of(
+        new Gemm(),
+        new Jacobi2d(),
+        new Lz77(),
+        new Json(),
+        new Regex(),
+        new Sha256()
+    );
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: WriteCorpus DIR");
+        }
+
+        var corpus = Path.of(args[0]);
+        Files.createDirectories(corpus);
+
+        for (var workload : GENERATED) {
+            var path = corpus.resolve(workload.name() + ".wasm");
+            Files.write(path, workload.module());
+            System.err.println("Wrote " + path);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.wastastic.bench.regress;
+
+import org.jetbrains.annotations.NotNull;
+import org.wastastic.CompilerOptions;
+import org.wastastic.FuelCosts;
+import org.wastastic.Instrumentation;
+import org.wastastic.Module;
+import org.wastastic.ModuleInstance;
+import org.wastastic.bench.WasmModuleBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import static org.wastastic.bench.WasmModuleBuilder.EMPTY_BLOCK;
+import static org.wastastic.bench.WasmModuleBuilder.FUNCREF;
+import static org.wastastic.bench.WasmModuleBuilder.I32;
+import static org.wastastic.bench.WasmModuleBuilder.I64;
+import static org.wastastic.bench.WasmModuleBuilder.types;
+
+// Small modules that once failed to compile or ran incorrectly, each compiled eagerly under every set of compiler
+// options and then called with known inputs. Exits with status 1 if any of them fails to compile, instantiate, or
+// return what it should.
+//
+// Usage: RegressionModules [--module NAME]...
+public final class RegressionModules {
+    private RegressionModules() {}
+
+    private record Options(@NotNull String name, @NotNull CompilerOptions options) {}
+
+    private static final List<Options> OPTIONS = List.of(
+        new Options("defaults", CompilerOptions.defaults()),
+        new Options("fuel", CompilerOptions.defaults().withFuelMetering(FuelCosts.defaults())),
+        new Options("fuel-epochs-explicit-bounds-checks", CompilerOptions.defaults().withFuelMetering(FuelCosts.defaults()).withEpochInterruption(true).withBoundsChecks(CompilerOptions.BoundsChecks.EXPLICIT)),
+        new Options("instance-specialization", CompilerOptions.defaults().withInstanceSpecialization(true))
+    );
+
+    private interface Check {
+        void run(@NotNull Module module, @NotNull ModuleInstance instance) throws Throwable;
+    }
+
+    // configure adjusts each set of options, for regressions that need something of their own, such as an
+    // instrumentation, on top of them.
+    private record Regression(
+        @NotNull String name,
+        @NotNull WasmModuleBuilder builder,
+        @NotNull UnaryOperator<CompilerOptions> configure,
+        @NotNull Check check
+    ) {
+        Regression(@NotNull String name, @NotNull WasmModuleBuilder builder, @NotNull Check check) {
+            this(name, builder, UnaryOperator.identity(), check);
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        var selected = new ArrayList<String>();
+
+        for (var i = 0; i < args.length; i++) {
+            if (args[i].equals("--module") && i + 1 < args.length) {
+                selected.add(args[++i]);
+            }
+            else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        var failures = 0;
+
+        for (var regression : regressions()) {
+            if (!selected.isEmpty() && !selected.contains(regression.name())) {
+                continue;
+            }
+
+            for (var options : OPTIONS) {
+                var name = regression.name() + "/" + options.name();
+
+                try {
+                    var module = regression.builder().compile(regression.configure().apply(options.options()));
+                    module.precompileFunctions();
+                    var instance = (ModuleInstance) module.instantiationHandle().invoke(Map.of());
+                    regression.check().run(module, instance);
+                    System.out.println(name + "  ok");
+                }
+                catch (Throwable exception) {
+                    System.out.println(name + "  FAILED: " + exception);
+                    failures++;
+                }
+            }
+        }
+
+        if (failures != 0) {
+            System.out.println(failures + " regression module(s) failed");
+            System.exit(1);
+        }
+    }
+
+    private static void expect(@NotNull String what, int actual, int expected) {
+        if (actual != expected) {
+            throw new AssertionError(what + " returned " + actual + ", expected " + expected);
+        }
+    }
+
+    private static void expect(@NotNull String what, long actual, long expected) {
+        if (actual != expected) {
+            throw new AssertionError(what + " returned " + actual + ", expected " + expected);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    private static @NotNull List<Regression> regressions() {
+        return List.of(nestedTryDelegate(), concurrentTailCalls(), exitHookDuringTailCall());
+    }
+
+    // try/delegate nested in a try, in a function whose i64 parameter and local (and, with fuel metering, fuel locals)
+    // come before the tries' exception slots. The delegate's slot is never stored to, and stack map frames that still
+    // declared it ended up with more locals than max_locals, failing class definition with a ClassFormatError.
+    private static @NotNull Regression nestedTryDelegate() {
+        var builder = new WasmModuleBuilder();
+        var tag = builder.tag(builder.type(types(), types()));
+
+        // thrower(x) throws the tag if x is nonzero
+        var thrower = builder.function("thrower", builder.type(types(I32), types()));
+        thrower.localGet(0).ifThen(EMPTY_BLOCK).op(0x08, tag).end(); // throw
+
+        // run(a: i64, b: i32) -> i32: -1 if thrower(b) threw, else (a + 1) wrapped, plus 1 or 2 depending on b
+        var run = builder.function("run", builder.type(types(I64, I32), types(I32)));
+        run.locals(1, I64); // 2: a + 1
+        run.op(0x06).op(I32); // try (result i32)
+        run.op(0x06).op(I32); // try (result i32)
+        run.localGet(1).call(thrower.id());
+        run.localGet(0).i64Const(1).op(0x7c).localSet(2); // i64.add
+        run.localGet(2).op(0xa7); // i32.wrap_i64
+        run.localGet(1).op(0x45).ifThen(I32).i32Const(2).otherwise().i32Const(1).end(); // i32.eqz
+        run.op(0x6a); // i32.add
+        run.op(0x18, 0); // delegate 0
+        run.op(0x19).i32Const(-1); // catch_all
+        run.end();
+
+        // outer(b) -> i32 calls inner(40, b), whose delegate skips its own catch and goes straight out to outer's
+        // catch_all: 40, or -3 if thrower(b) threw
+        var inner = builder.function("inner", builder.type(types(I64, I32), types(I32)));
+        inner.op(0x06).op(I32); // try (result i32)
+        inner.op(0x06).op(I32); // try (result i32)
+        inner.localGet(1).call(thrower.id()).localGet(0).op(0xa7); // i32.wrap_i64
+        inner.op(0x18, 1); // delegate 1 (to the caller)
+        inner.op(0x07, tag).i32Const(-2); // catch
+        inner.end();
+
+        var outer = builder.function("outer", builder.type(types(I32), types(I32)));
+        outer.op(0x06).op(I32); // try (result i32)
+        outer.i64Const(40).localGet(0).call(inner.id());
+        outer.op(0x19).i32Const(-3); // catch_all
+        outer.end();
+
+        builder.exportFunction("run", run.id());
+        builder.exportFunction("outer", outer.id());
+
+        return new Regression("nested-try-delegate", builder, (module, instance) -> {
+            var runHandle = module.exportedFunctionHandle("run");
+            expect("run(41, 0)", (int) runHandle.invokeExact(41L, 0, instance), 44);
+            expect("run(41, 1)", (int) runHandle.invokeExact(41L, 1, instance), -1);
+
+            var outerHandle = module.exportedFunctionHandle("outer");
+            expect("outer(0)", (int) outerHandle.invokeExact(0, instance), 40);
+            expect("outer(1)", (int) outerHandle.invokeExact(1, instance), -3);
+        });
+    }
+
+    // Tail calls made by several threads through the same instance. Arguments and targets used to be handed to the
+    // trampoline through a frame shared by the whole instance, so concurrent callers picked up each other's tail calls
+    // and returned the wrong sums.
+    private static @NotNull Regression concurrentTailCalls() {
+        var builder = new WasmModuleBuilder();
+        var sumType = builder.type(types(I32, I64), types(I64));
+
+        // sumA(n, acc) and sumB(n, acc) -> acc + n + (n - 1) + ... + 1, alternating between return_call and
+        // return_call_indirect so that every step goes through the trampoline
+        var sumA = builder.function("sumA", sumType);
+        var sumB = builder.function("sumB", sumType);
+        var table = builder.table(FUNCREF, 1, 1);
+        builder.activeElements(table, 0, sumA.id());
+
+        sumA.localGet(0).op(0x45).ifThen(EMPTY_BLOCK).localGet(1).op(0x0f).end(); // i32.eqz, return
+        sumA.localGet(0).i32Const(1).op(0x6b); // i32.sub
+        sumA.localGet(1).localGet(0).op(0xad).op(0x7c); // i64.extend_i32_u, i64.add
+        sumA.returnCall(sumB.id());
+
+        sumB.localGet(0).op(0x45).ifThen(EMPTY_BLOCK).localGet(1).op(0x0f).end(); // i32.eqz, return
+        sumB.localGet(0).i32Const(1).op(0x6b); // i32.sub
+        sumB.localGet(1).localGet(0).op(0xad).op(0x7c); // i64.extend_i32_u, i64.add
+        sumB.i32Const(0).returnCallIndirect(sumType, table);
+
+        builder.exportFunction("sum", sumA.id());
+
+        return new Regression("concurrent-tail-calls", builder, (module, instance) -> {
+            var sumHandle = module.exportedFunctionHandle("sum");
+            var threads = new Thread[4];
+            var failures = new Throwable[threads.length];
+
+            for (var i = 0; i < threads.length; i++) {
+                var threadIndex = i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        var n = 1000 + threadIndex;
+                        var acc = (long) threadIndex << 32;
+                        for (var call = 0; call < 2000; call++) {
+                            expect("sum(" + n + ", " + acc + ")", (long) sumHandle.invokeExact(n, acc, instance), acc + (long) n * (n + 1) / 2);
+                        }
+                    }
+                    catch (Throwable exception) {
+                        failures[threadIndex] = exception;
+                    }
+                });
+                threads[i].start();
+            }
+
+            for (var i = 0; i < threads.length; i++) {
+                threads[i].join();
+                if (failures[i] != null) {
+                    throw failures[i];
+                }
+            }
+        });
+    }
+
+    // A function exit hook that calls back into the guest while the function it runs for is making a tail call. The
+    // hook used to run after the tail call's arguments and target had been handed to the thread's TailCallFrame, so
+    // the nested call's trampoline overwrote or ran them and the outer call returned the wrong value.
+    private static @NotNull Regression exitHookDuringTailCall() {
+        var builder = new WasmModuleBuilder();
+        var unaryType = builder.type(types(I32), types(I32));
+
+        // add(x) -> x + 1000, and outer(x) -> return_call add(x)
+        var add = builder.function("add", unaryType);
+        add.localGet(0).i32Const(1000).op(0x6a); // i32.add
+
+        var outer = builder.function("outer", unaryType);
+        outer.localGet(0).returnCall(add.id());
+
+        // probe(x) -> return_call increment(x), so that the hook's call goes through a trampoline of its own
+        var increment = builder.function("increment", unaryType);
+        increment.localGet(0).i32Const(1).op(0x6a); // i32.add
+
+        var probe = builder.function("probe", unaryType);
+        probe.localGet(0).returnCall(increment.id());
+
+        builder.exportFunction("outer", outer.id());
+        builder.exportFunction("probe", probe.id());
+
+        var hook = new ProbingExitHook(outer.id());
+
+        return new Regression("exit-hook-during-tail-call", builder, options -> options.withInstrumentation(hook), (module, instance) -> {
+            hook.probe = module.exportedFunctionHandle("probe");
+            hook.instance = instance;
+
+            var outerHandle = module.exportedFunctionHandle("outer");
+            for (var x = 0; x < 100; x++) {
+                hook.argument = x;
+                hook.probed = 0;
+                expect("outer(" + x + ")", (int) outerHandle.invokeExact(x, instance), x + 1000);
+                expect("probe(" + x + ") from the exit hook", hook.probed, x + 1);
+            }
+        });
+    }
+
+    // Calls probe(argument) on exit from the function with the given id, and keeps what it returned.
+    private static final class ProbingExitHook implements Instrumentation {
+        private final int functionId;
+        int argument;
+        int probed;
+        MethodHandle probe;
+        ModuleInstance instance;
+
+        ProbingExitHook(int functionId) {
+            this.functionId = functionId;
+        }
+
+        @Override public @NotNull Set<@NotNull Point> points() {
+            return Set.of(Point.FUNCTION_EXIT);
+        }
+
+        @Override public void functionExit(int functionId) {
+            if (functionId != this.functionId) {
+                return;
+            }
+
+            try {
+                probed = (int) probe.invokeExact(argument, instance);
+            }
+            catch (RuntimeException | Error exception) {
+                throw exception;
+            }
+            catch (Throwable exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+    }
+}
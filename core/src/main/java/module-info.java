@@ -1,4 +1,5 @@
 module wastastic.core {
+    requires jdk.jfr;
     requires org.objectweb.asm;
     requires transitive jdk.incubator.foreign;
     requires static org.jetbrains.annotations;
@@ -0,0 +1,17 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+// supertypeId is -1 for array types that don't declare a supertype.
+record ArrayType(@NotNull FieldType elementType, int supertypeId) implements DefinedType {
+    ArrayType {
+        requireNonNull(elementType);
+    }
+
+    // Arrays are plain JVM arrays, so array types with the same element storage share a class.
+    @NotNull String jvmDescriptor() {
+        return "[" + elementType.jvmDescriptor();
+    }
+}
@@ -2,13 +2,16 @@ package org.wastastic;
 
 import org.jetbrains.annotations.NotNull;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
 
 import static org.objectweb.asm.Opcodes.BIPUSH;
 import static org.objectweb.asm.Opcodes.DCONST_0;
 import static org.objectweb.asm.Opcodes.DCONST_1;
+import static org.objectweb.asm.Opcodes.DOUBLE;
 import static org.objectweb.asm.Opcodes.FCONST_0;
 import static org.objectweb.asm.Opcodes.FCONST_1;
 import static org.objectweb.asm.Opcodes.FCONST_2;
+import static org.objectweb.asm.Opcodes.FLOAT;
 import static org.objectweb.asm.Opcodes.I2D;
 import static org.objectweb.asm.Opcodes.I2F;
 import static org.objectweb.asm.Opcodes.I2L;
@@ -34,12 +37,36 @@ import static org.objectweb.asm.Opcodes.IF_ICMPGT;
 import static org.objectweb.asm.Opcodes.IF_ICMPLE;
 import static org.objectweb.asm.Opcodes.IF_ICMPLT;
 import static org.objectweb.asm.Opcodes.IF_ICMPNE;
+import static org.objectweb.asm.Opcodes.INTEGER;
 import static org.objectweb.asm.Opcodes.LCONST_0;
+import static org.objectweb.asm.Opcodes.LONG;
 import static org.objectweb.asm.Opcodes.SIPUSH;
 
 final class CodegenUtils {
     private CodegenUtils() {}
 
+    // The verification type of a JVM type, in the form MethodVisitor.visitFrame takes.
+    static @NotNull Object frameType(@NotNull Type type) {
+        return switch (type.getSort()) {
+            case Type.BOOLEAN, Type.CHAR, Type.BYTE, Type.SHORT, Type.INT -> INTEGER;
+            case Type.LONG -> LONG;
+            case Type.FLOAT -> FLOAT;
+            case Type.DOUBLE -> DOUBLE;
+            default -> type.getInternalName();
+        };
+    }
+
+    static @NotNull Object @NotNull[] argumentFrameTypes(@NotNull String methodDescriptor) {
+        var argumentTypes = Type.getArgumentTypes(methodDescriptor);
+        var frameTypes = new Object[argumentTypes.length];
+
+        for (var i = 0; i < argumentTypes.length; i++) {
+            frameTypes[i] = frameType(argumentTypes[i]);
+        }
+
+        return frameTypes;
+    }
+
     static int oppositeBranchOpcode(int opcode) {
         return switch (opcode) {
             case IFEQ -> IFNE;
@@ -0,0 +1,99 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static java.util.Objects.requireNonNull;
+
+public final class CompilerOptions {
+    private final @NotNull BoundsChecks boundsChecks;
+    private final @Nullable FuelCosts fuelCosts;
+    private final boolean epochInterruption;
+    private final boolean instanceSpecialization;
+    private final boolean dwarfLineNumbers;
+    private final @Nullable Instrumentation instrumentation;
+
+    private static final CompilerOptions DEFAULTS = new CompilerOptions(BoundsChecks.IMPLICIT, null, false, false, false, null);
+
+    private CompilerOptions(
+        @NotNull BoundsChecks boundsChecks,
+        @Nullable FuelCosts fuelCosts,
+        boolean epochInterruption,
+        boolean instanceSpecialization,
+        boolean dwarfLineNumbers,
+        @Nullable Instrumentation instrumentation
+    ) {
+        this.boundsChecks = requireNonNull(boundsChecks);
+        this.fuelCosts = fuelCosts;
+        this.epochInterruption = epochInterruption;
+        this.instanceSpecialization = instanceSpecialization;
+        this.dwarfLineNumbers = dwarfLineNumbers;
+        this.instrumentation = instrumentation;
+    }
+
+    public static @NotNull CompilerOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public @NotNull BoundsChecks boundsChecks() {
+        return boundsChecks;
+    }
+
+    public @NotNull CompilerOptions withBoundsChecks(@NotNull BoundsChecks boundsChecks) {
+        return new CompilerOptions(boundsChecks, fuelCosts, epochInterruption, instanceSpecialization, dwarfLineNumbers, instrumentation);
+    }
+
+    // Null when fuel metering is disabled.
+    public @Nullable FuelCosts fuelCosts() {
+        return fuelCosts;
+    }
+
+    public @NotNull CompilerOptions withFuelMetering(@Nullable FuelCosts fuelCosts) {
+        return new CompilerOptions(boundsChecks, fuelCosts, epochInterruption, instanceSpecialization, dwarfLineNumbers, instrumentation);
+    }
+
+    public boolean epochInterruption() {
+        return epochInterruption;
+    }
+
+    public @NotNull CompilerOptions withEpochInterruption(boolean epochInterruption) {
+        return new CompilerOptions(boundsChecks, fuelCosts, epochInterruption, instanceSpecialization, dwarfLineNumbers, instrumentation);
+    }
+
+    // When set, the module can be instantiated only once and its code is bound to that instance: memories, tables and
+    // immutable globals become constants, and functions no longer take the instance as a trailing argument internally.
+    public boolean instanceSpecialization() {
+        return instanceSpecialization;
+    }
+
+    public @NotNull CompilerOptions withInstanceSpecialization(boolean instanceSpecialization) {
+        return new CompilerOptions(boundsChecks, fuelCosts, epochInterruption, instanceSpecialization, dwarfLineNumbers, instrumentation);
+    }
+
+    // Generated functions always carry a line number table, with each instruction's offset within its function body as
+    // the line. When set, modules with a DWARF .debug_line section get their source files and lines from it instead.
+    public boolean dwarfLineNumbers() {
+        return dwarfLineNumbers;
+    }
+
+    public @NotNull CompilerOptions withDwarfLineNumbers(boolean dwarfLineNumbers) {
+        return new CompilerOptions(boundsChecks, fuelCosts, epochInterruption, instanceSpecialization, dwarfLineNumbers, instrumentation);
+    }
+
+    // Null when generated code isn't instrumented.
+    public @Nullable Instrumentation instrumentation() {
+        return instrumentation;
+    }
+
+    public @NotNull CompilerOptions withInstrumentation(@Nullable Instrumentation instrumentation) {
+        return new CompilerOptions(boundsChecks, fuelCosts, epochInterruption, instanceSpecialization, dwarfLineNumbers, instrumentation);
+    }
+
+    public enum BoundsChecks {
+        // Let the JDK's own bounds checks throw IndexOutOfBoundsException and translate it into a trap.
+        IMPLICIT,
+
+        // Compare against the cached memory/table size up front and branch to a cold trap path.
+        EXPLICIT,
+    }
+}
@@ -4,6 +4,7 @@ sealed interface Constant permits
     F32Constant,
     F64Constant,
     FunctionRefConstant,
+    GlobalGetConstant,
     I32Constant,
     I64Constant,
     NullConstant
@@ -7,7 +7,7 @@ import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 
-sealed abstract class ControlScope permits BlockScope, IfScope, LoopScope {
+sealed abstract class ControlScope permits BlockScope, IfScope, LoopScope, TryScope {
     private final @NotNull FunctionType type;
     private final int baseOperandStackSize;
     private boolean unreachable = false;
@@ -36,4 +36,9 @@ sealed abstract class ControlScope permits BlockScope, IfScope, LoopScope {
     final void markRestUnreachable() {
         unreachable = true;
     }
+
+    // Only for scopes that start a new arm without being replaced on the control stack (i.e. catch clauses).
+    final void markRestReachable() {
+        unreachable = false;
+    }
 }
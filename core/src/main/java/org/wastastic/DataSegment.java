@@ -5,10 +5,11 @@ import org.jetbrains.annotations.NotNull;
 
 import static java.util.Objects.requireNonNull;
 
-record DataSegment(@NotNull MemorySegment contents, @NotNull Mode mode, int memoryIndex, int memoryOffset) {
+record DataSegment(@NotNull MemorySegment contents, @NotNull Mode mode, int memoryIndex, @NotNull Constant memoryOffset) {
     DataSegment {
         requireNonNull(contents);
         requireNonNull(mode);
+        requireNonNull(memoryOffset);
     }
 
     enum Mode {
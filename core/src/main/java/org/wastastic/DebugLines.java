@@ -0,0 +1,432 @@
+package org.wastastic;
+
+import jdk.incubator.foreign.MemorySegment;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+// The line table from a module's DWARF .debug_line custom section (versions 2 through 5), decoded on first use. Rows
+// map code addresses, which for Wasm are offsets from the start of the code section's contents, to a source file and
+// line; rows from every sequence of every unit end up in one table sorted by address. Debug info is only ever a nicety,
+// so a malformed unit ends decoding instead of failing the compile, with whatever rows were decoded before it kept.
+final class DebugLines {
+    private final @NotNull MemorySegment debugLine;
+    private final @Nullable MemorySegment debugLineStr;
+    private final @Nullable MemorySegment debugStr;
+
+    private @Nullable Table table;
+
+    DebugLines(@NotNull MemorySegment debugLine, @Nullable MemorySegment debugLineStr, @Nullable MemorySegment debugStr) {
+        this.debugLine = requireNonNull(debugLine);
+        this.debugLineStr = debugLineStr;
+        this.debugStr = debugStr;
+    }
+
+    // File is -1 for rows that end a sequence, i.e. the addresses from there on aren't covered by it.
+    record Table(long @NotNull[] addresses, int @NotNull[] files, int @NotNull[] lines, @NotNull String @NotNull[] fileNames) {
+        int size() {
+            return addresses.length;
+        }
+
+        // Index of the last row at or before address, or -1 if there is none.
+        int rowAtOrBefore(long address) {
+            var index = Arrays.binarySearch(addresses, address);
+
+            if (index < 0) {
+                return -index - 2;
+            }
+
+            // Several rows can share an address; the last of them is the one that applies.
+            while (index + 1 < addresses.length && addresses[index + 1] == address) {
+                index++;
+            }
+
+            return index;
+        }
+    }
+
+    synchronized @NotNull Table table() {
+        if (table == null) {
+            table = new Decoder().decode();
+        }
+
+        return table;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    private static final int DW_LNS_COPY = 1;
+    private static final int DW_LNS_ADVANCE_PC = 2;
+    private static final int DW_LNS_ADVANCE_LINE = 3;
+    private static final int DW_LNS_SET_FILE = 4;
+    private static final int DW_LNS_CONST_ADD_PC = 8;
+    private static final int DW_LNS_FIXED_ADVANCE_PC = 9;
+
+    private static final int DW_LNE_END_SEQUENCE = 1;
+    private static final int DW_LNE_SET_ADDRESS = 2;
+    private static final int DW_LNE_DEFINE_FILE = 3;
+
+    private static final int DW_LNCT_PATH = 1;
+    private static final int DW_LNCT_DIRECTORY_INDEX = 2;
+
+    private static final int DW_FORM_BLOCK = 0x09;
+    private static final int DW_FORM_DATA1 = 0x0b;
+    private static final int DW_FORM_DATA2 = 0x05;
+    private static final int DW_FORM_DATA4 = 0x06;
+    private static final int DW_FORM_DATA8 = 0x07;
+    private static final int DW_FORM_DATA16 = 0x1e;
+    private static final int DW_FORM_STRING = 0x08;
+    private static final int DW_FORM_STRP = 0x0e;
+    private static final int DW_FORM_LINE_STRP = 0x1f;
+    private static final int DW_FORM_UDATA = 0x0f;
+
+    private final class Decoder {
+        private long position;
+        private boolean offsets64;
+
+        private final List<long[]> rows = new ArrayList<>();
+        private final List<String> fileNames = new ArrayList<>();
+        private final HashMap<String, Integer> fileIds = new HashMap<>();
+
+        @NotNull Table decode() {
+            try {
+                while (position < debugLine.byteSize()) {
+                    decodeUnit();
+                }
+            }
+            catch (RuntimeException | TranslationException ignored) {
+                // Keep what was decoded so far.
+            }
+
+            rows.sort((a, b) -> Long.compare(a[0], b[0]));
+
+            var addresses = new long[rows.size()];
+            var files = new int[rows.size()];
+            var lines = new int[rows.size()];
+
+            for (var i = 0; i < rows.size(); i++) {
+                addresses[i] = rows.get(i)[0];
+                files[i] = (int) rows.get(i)[1];
+                lines[i] = (int) rows.get(i)[2];
+            }
+
+            return new Table(addresses, files, lines, fileNames.toArray(String[]::new));
+        }
+
+        private void decodeUnit() throws TranslationException {
+            var unitLength = Integer.toUnsignedLong(nextU32());
+            offsets64 = unitLength == 0xffff_ffffL;
+
+            if (offsets64) {
+                unitLength = nextU64();
+            }
+
+            var unitEnd = position + unitLength;
+            var version = nextU16();
+
+            if (version < 2 || version > 5) {
+                throw new TranslationException("Unsupported .debug_line version: " + version);
+            }
+
+            var addressSize = 4;
+            if (version >= 5) {
+                addressSize = nextU8();
+                nextU8(); // segment selector size
+            }
+
+            var headerLength = nextOffset();
+            var programStart = position + headerLength;
+
+            var minimumInstructionLength = nextU8();
+            if (version >= 4) {
+                nextU8(); // maximum operations per instruction, only meaningful for VLIW
+            }
+
+            nextU8(); // default is_stmt; every row is kept whether or not it's a statement boundary
+            var lineBase = (byte) nextU8();
+            var lineRange = nextU8();
+            var opcodeBase = nextU8();
+
+            if (lineRange == 0) {
+                throw new TranslationException("Invalid .debug_line line range");
+            }
+
+            var standardOpcodeLengths = new int[opcodeBase];
+            for (var i = 1; i < opcodeBase; i++) {
+                standardOpcodeLengths[i] = nextU8();
+            }
+
+            // Unit file indices, mapped to ids in fileNames. Before version 5 the list is 1-based.
+            var files = new ArrayList<Integer>();
+
+            if (version >= 5) {
+                var directories = nextEntries(null);
+                for (var entry : nextEntries(directories)) {
+                    files.add(fileId(entry));
+                }
+            }
+            else {
+                files.add(-1);
+
+                var directories = new ArrayList<String>();
+                directories.add("");
+
+                String directory;
+                while (!(directory = nextCString()).isEmpty()) {
+                    directories.add(directory);
+                }
+
+                String name;
+                while (!(name = nextCString()).isEmpty()) {
+                    files.add(fileId(join(directories, (int) nextUnsignedLeb(), name)));
+                    nextUnsignedLeb(); // modification time
+                    nextUnsignedLeb(); // length
+                }
+            }
+
+            position = programStart;
+
+            var address = 0L;
+            var file = 1;
+            var line = 1L;
+
+            while (position < unitEnd) {
+                var opcode = nextU8();
+
+                if (opcode >= opcodeBase) {
+                    var adjusted = opcode - opcodeBase;
+                    address += (long) (adjusted / lineRange) * minimumInstructionLength;
+                    line += lineBase + adjusted % lineRange;
+                    addRow(address, files, file, line);
+                    continue;
+                }
+
+                switch (opcode) {
+                    case 0 -> {
+                        var length = nextUnsignedLeb();
+                        var end = position + length;
+
+                        if (length == 0) {
+                            break;
+                        }
+
+                        switch (nextU8()) {
+                            case DW_LNE_END_SEQUENCE -> {
+                                rows.add(new long[]{address, -1, 0});
+                                address = 0;
+                                file = 1;
+                                line = 1;
+                            }
+
+                            case DW_LNE_SET_ADDRESS -> address = addressSize == 8 ? nextU64() : Integer.toUnsignedLong(nextU32());
+                            case DW_LNE_DEFINE_FILE -> files.add(fileId(nextCString()));
+                        }
+
+                        position = end;
+                    }
+
+                    case DW_LNS_COPY -> addRow(address, files, file, line);
+                    case DW_LNS_ADVANCE_PC -> address += nextUnsignedLeb() * minimumInstructionLength;
+                    case DW_LNS_ADVANCE_LINE -> line += nextSignedLeb();
+                    case DW_LNS_SET_FILE -> file = (int) nextUnsignedLeb();
+                    case DW_LNS_CONST_ADD_PC -> address += (long) ((255 - opcodeBase) / lineRange) * minimumInstructionLength;
+                    case DW_LNS_FIXED_ADVANCE_PC -> address += nextU16();
+
+                    default -> {
+                        for (var i = 0; i < standardOpcodeLengths[opcode]; i++) {
+                            nextUnsignedLeb();
+                        }
+                    }
+                }
+            }
+
+            position = unitEnd;
+        }
+
+        private void addRow(long address, @NotNull List<Integer> files, int file, long line) {
+            if (file >= 0 && file < files.size() && files.get(file) != -1) {
+                rows.add(new long[]{address, files.get(file), Long.min(line, Integer.MAX_VALUE)});
+            }
+        }
+
+        private int fileId(@NotNull String name) {
+            var id = fileIds.get(name);
+
+            if (id == null) {
+                id = fileNames.size();
+                fileIds.put(name, id);
+                fileNames.add(name);
+            }
+
+            return id;
+        }
+
+        // Version 5 directory and file lists, described by a format of (content type, form) pairs. Files are joined
+        // with their directory; directories are returned as is.
+        private @NotNull List<String> nextEntries(@Nullable List<String> directories) throws TranslationException {
+            var formatCount = nextU8();
+            var contentTypes = new long[formatCount];
+            var forms = new long[formatCount];
+
+            for (var i = 0; i < formatCount; i++) {
+                contentTypes[i] = nextUnsignedLeb();
+                forms[i] = nextUnsignedLeb();
+            }
+
+            var count = nextUnsignedLeb();
+            var entries = new ArrayList<String>();
+
+            for (var i = 0L; i < count; i++) {
+                String path = "";
+                var directoryIndex = 0L;
+
+                for (var j = 0; j < formatCount; j++) {
+                    var value = nextFormValue((int) forms[j]);
+
+                    if (contentTypes[j] == DW_LNCT_PATH && value instanceof String string) {
+                        path = string;
+                    }
+                    else if (contentTypes[j] == DW_LNCT_DIRECTORY_INDEX && value instanceof Long index) {
+                        directoryIndex = index;
+                    }
+                }
+
+                entries.add(directories == null ? path : join(directories, (int) directoryIndex, path));
+            }
+
+            return entries;
+        }
+
+        private @Nullable Object nextFormValue(int form) throws TranslationException {
+            return switch (form) {
+                case DW_FORM_STRING -> nextCString();
+                case DW_FORM_LINE_STRP -> stringAt(debugLineStr, nextOffset());
+                case DW_FORM_STRP -> stringAt(debugStr, nextOffset());
+                case DW_FORM_UDATA -> nextUnsignedLeb();
+                case DW_FORM_DATA1 -> (long) nextU8();
+                case DW_FORM_DATA2 -> (long) nextU16();
+                case DW_FORM_DATA4 -> Integer.toUnsignedLong(nextU32());
+                case DW_FORM_DATA8 -> nextU64();
+
+                case DW_FORM_DATA16 -> {
+                    position += 16;
+                    yield null;
+                }
+
+                case DW_FORM_BLOCK -> {
+                    position += nextUnsignedLeb();
+                    yield null;
+                }
+
+                default -> throw new TranslationException("Unsupported .debug_line form: " + form);
+            };
+        }
+
+        //--------------------------------------------------------------------------------------------------------------
+        private int nextU8() {
+            return Byte.toUnsignedInt((byte) Memory.VH_BYTE.get(debugLine, position++));
+        }
+
+        private int nextU16() {
+            var value = Short.toUnsignedInt((short) Memory.VH_SHORT.get(debugLine, position));
+            position += 2;
+            return value;
+        }
+
+        private int nextU32() {
+            var value = (int) Memory.VH_INT.get(debugLine, position);
+            position += 4;
+            return value;
+        }
+
+        private long nextU64() {
+            var value = (long) Memory.VH_LONG.get(debugLine, position);
+            position += 8;
+            return value;
+        }
+
+        private long nextOffset() {
+            return offsets64 ? nextU64() : Integer.toUnsignedLong(nextU32());
+        }
+
+        private long nextUnsignedLeb() {
+            var value = 0L;
+
+            for (var shift = 0; ; shift += 7) {
+                var b = nextU8();
+
+                if (shift < 64) {
+                    value |= (long) (b & 0x7f) << shift;
+                }
+
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        private long nextSignedLeb() {
+            var value = 0L;
+            var shift = 0;
+            int b;
+
+            do {
+                b = nextU8();
+
+                if (shift < 64) {
+                    value |= (long) (b & 0x7f) << shift;
+                }
+
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            if (shift < 64 && (b & 0x40) != 0) {
+                value |= -1L << shift;
+            }
+
+            return value;
+        }
+
+        private @NotNull String nextCString() {
+            var end = stringEnd(debugLine, position);
+            var string = new String(debugLine.asSlice(position, end - position).toByteArray(), StandardCharsets.UTF_8);
+            position = end + 1;
+            return string;
+        }
+    }
+
+    private static @NotNull String stringAt(@Nullable MemorySegment section, long offset) {
+        if (section == null) {
+            return "";
+        }
+
+        var end = stringEnd(section, offset);
+        return new String(section.asSlice(offset, end - offset).toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Offset of the terminating zero byte.
+    private static long stringEnd(@NotNull MemorySegment section, long offset) {
+        var end = offset;
+
+        while ((byte) Memory.VH_BYTE.get(section, end) != 0) {
+            end++;
+        }
+
+        return end;
+    }
+
+    private static @NotNull String join(@NotNull List<String> directories, int directoryIndex, @NotNull String path) {
+        if (path.startsWith("/") || directoryIndex < 0 || directoryIndex >= directories.size()) {
+            return path;
+        }
+
+        var directory = directories.get(directoryIndex);
+        return directory.isEmpty() ? path : directory + "/" + path;
+    }
+}
@@ -0,0 +1,3 @@
+package org.wastastic;
+
+sealed interface DefinedType permits FunctionType, StructType, ArrayType {}
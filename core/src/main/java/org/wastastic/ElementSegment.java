@@ -11,11 +11,12 @@ record ElementSegment(
     @NotNull @Unmodifiable List<Constant> values,
     @NotNull Mode mode,
     int tableIndex,
-    int tableOffset
+    @NotNull Constant tableOffset
 ) {
     ElementSegment {
         requireNonNull(values);
         requireNonNull(mode);
+        requireNonNull(tableOffset);
     }
 
     enum Mode {
@@ -0,0 +1,66 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+public final class Epoch {
+    private Epoch() {}
+
+    // Read by generated code at every function entry and loop header when epoch interruption is enabled.
+    static volatile long current;
+
+    private static final VarHandle CURRENT;
+
+    static {
+        try {
+            CURRENT = MethodHandles.lookup().findStaticVarHandle(Epoch.class, "current", long.class);
+        }
+        catch (NoSuchFieldException | IllegalAccessException exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
+    }
+
+    public static long current() {
+        return current;
+    }
+
+    public static long increment() {
+        return (long) CURRENT.getAndAdd(1L) + 1;
+    }
+
+    public static @NotNull Ticker startTicker(@NotNull Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("ticker interval must be positive");
+        }
+
+        return new Ticker(interval.toNanos());
+    }
+
+    public static final class Ticker implements AutoCloseable {
+        private final @NotNull Thread thread;
+        private volatile boolean closed;
+
+        private Ticker(long intervalNanos) {
+            thread = new Thread(() -> {
+                while (!closed) {
+                    LockSupport.parkNanos(intervalNanos);
+                    increment();
+                }
+            }, "wastastic-epoch-ticker");
+
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override public void close() {
+            closed = true;
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static org.objectweb.asm.Type.getDescriptor;
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+public final class EpochDeadline {
+    private long deadline = Long.MAX_VALUE;
+    private @Nullable ExpirationHandler expirationHandler;
+
+    static final String INTERNAL_NAME = getInternalName(EpochDeadline.class);
+    static final String DESCRIPTOR = getDescriptor(EpochDeadline.class);
+    static final String FIELD_GETTER_DESCRIPTOR = methodDescriptor(EpochDeadline.class, ModuleInstance.class);
+
+    EpochDeadline() {}
+
+    @FunctionalInterface
+    public interface ExpirationHandler {
+        // Returns the number of epochs past the current one to extend the deadline by; anything less than one traps.
+        // Implementations may block or yield the current thread (e.g. to timeslice virtual threads) before returning.
+        long extend(@NotNull EpochDeadline deadline);
+    }
+
+    public long deadline() {
+        return deadline;
+    }
+
+    public void set(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public void setRelative(long epochs) {
+        deadline = Epoch.current() + epochs;
+    }
+
+    public void setExpirationHandler(@Nullable ExpirationHandler expirationHandler) {
+        this.expirationHandler = expirationHandler;
+    }
+
+    static final String CHECK_NAME = "check";
+    static final String CHECK_DESCRIPTOR = methodDescriptor(void.class, EpochDeadline.class);
+
+    @SuppressWarnings("unused")
+    static void check(@NotNull EpochDeadline self) throws TrapException {
+        if (Epoch.current >= self.deadline) {
+            self.expired();
+        }
+    }
+
+    private void expired() throws TrapException {
+        var handler = expirationHandler;
+
+        if (handler != null) {
+            var epochs = handler.extend(this);
+
+            if (epochs > 0) {
+                setRelative(epochs);
+                return;
+            }
+        }
+
+        throw new TrapException(TrapException.Kind.EPOCH_DEADLINE_EXCEEDED, "epoch deadline exceeded");
+    }
+}
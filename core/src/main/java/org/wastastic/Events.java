@@ -0,0 +1,142 @@
+package org.wastastic;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+// Flight Recorder events covering where compile, link and startup time goes, plus memory and table growth. Events that
+// aren't enabled in the running recording cost about as much as the allocation of the event object, which escape
+// analysis usually removes; fields that take work to fill in are only filled in once shouldCommit() says so.
+final class Events {
+    private Events() {}
+
+    static final String INTERNAL_NAME = getInternalName(Events.class);
+
+    @Name("org.wastastic.ModuleParse")
+    @Label("Module Parse")
+    @Category({"Wastastic", "Compilation"})
+    static final class ModuleParseEvent extends Event {
+        @Label("Module Name") @Nullable String moduleName;
+        @Label("Module Size") @DataAmount long moduleSize;
+        @Label("Function Count") int functionCount;
+        @Label("Streaming") @Description("Whether the module was compiled as it was read, in which case the event also covers translating the functions that finished before the end of the input") boolean streaming;
+    }
+
+    @Name("org.wastastic.FunctionTranslate")
+    @Label("Function Translate")
+    @Category({"Wastastic", "Compilation"})
+    static final class FunctionTranslateEvent extends Event {
+        @Label("Module Name") @Nullable String moduleName;
+        @Label("Function Index") int functionIndex;
+        @Label("Function Name") @Nullable String functionName;
+        @Label("Body Size") @DataAmount long bodySize;
+        @Label("Bytecode Size") @DataAmount long bytecodeSize;
+        @Label("Has Trampoline") @Description("Whether the function was translated a second time to add a tail call trampoline") boolean hasTrampoline;
+    }
+
+    @Name("org.wastastic.ClassDefinition")
+    @Label("Class Definition")
+    @Category({"Wastastic", "Linking"})
+    static final class ClassDefinitionEvent extends Event {
+        @Label("Kind") @NotNull String kind = "";
+        @Label("Defined Class") @Nullable Class<?> definedClass;
+        @Label("Class Size") @DataAmount long classSize;
+    }
+
+    @Name("org.wastastic.CallSiteBootstrap")
+    @Label("Call Site Bootstrap")
+    @Description("Linking of an invokedynamic call site or a dynamic constant in generated code")
+    @Category({"Wastastic", "Linking"})
+    static final class CallSiteBootstrapEvent extends Event {
+        @Label("Bootstrap") @NotNull String bootstrap = "";
+        @Label("Caller") @Nullable Class<?> caller;
+    }
+
+    @Name("org.wastastic.InstantiationPhase")
+    @Label("Instantiation Phase")
+    @Category({"Wastastic", "Instantiation"})
+    static final class InstantiationPhaseEvent extends Event {
+        @Label("Module Name") @Nullable String moduleName;
+        @Label("Phase") @NotNull String phase = "";
+    }
+
+    @Name("org.wastastic.MemoryGrow")
+    @Label("Memory Grow")
+    @Category({"Wastastic", "Runtime"})
+    static final class MemoryGrowEvent extends Event {
+        @Label("Old Size") @DataAmount long oldSize;
+        @Label("New Size") @DataAmount long newSize;
+        @Label("Copy Time") @Timespan long copyTime;
+    }
+
+    @Name("org.wastastic.TableGrow")
+    @Label("Table Grow")
+    @Category({"Wastastic", "Runtime"})
+    static final class TableGrowEvent extends Event {
+        @Label("Old Size") long oldSize;
+        @Label("New Size") long newSize;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Bootstraps start their event on entry and hand their result through endBootstrap, so that a failed bootstrap
+    // records nothing.
+    static @NotNull CallSiteBootstrapEvent beginBootstrap(@NotNull String bootstrap, @NotNull MethodHandles.Lookup lookup) {
+        var event = new CallSiteBootstrapEvent();
+        event.bootstrap = bootstrap;
+        event.caller = lookup.lookupClass();
+        event.begin();
+        return event;
+    }
+
+    static <T> T endBootstrap(@NotNull CallSiteBootstrapEvent event, T result) {
+        event.commit();
+        return result;
+    }
+
+    static @NotNull MethodHandles.Lookup defineClass(@NotNull MethodHandles.Lookup lookup, @NotNull String kind, byte @NotNull[] bytes, @NotNull Object classData) throws IllegalAccessException {
+        var event = new ClassDefinitionEvent();
+        event.begin();
+        var definedLookup = lookup.defineHiddenClassWithClassData(bytes, classData, false);
+
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.definedClass = definedLookup.lookupClass();
+            event.classSize = bytes.length;
+            event.commit();
+        }
+
+        return definedLookup;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Called from generated instance constructors, which keep the running event in a local between the two.
+    static final String BEGIN_INSTANTIATION_PHASE_NAME = "beginInstantiationPhase";
+    static final String BEGIN_INSTANTIATION_PHASE_DESCRIPTOR = methodDescriptor(InstantiationPhaseEvent.class, String.class, String.class);
+    static final String END_INSTANTIATION_PHASE_NAME = "endInstantiationPhase";
+    static final String END_INSTANTIATION_PHASE_DESCRIPTOR = methodDescriptor(void.class, InstantiationPhaseEvent.class);
+
+    @SuppressWarnings("unused")
+    static @NotNull InstantiationPhaseEvent beginInstantiationPhase(@Nullable String moduleName, @NotNull String phase) {
+        var event = new InstantiationPhaseEvent();
+        event.moduleName = moduleName;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    @SuppressWarnings("unused")
+    static void endInstantiationPhase(@NotNull InstantiationPhaseEvent event) {
+        event.commit();
+    }
+}
@@ -0,0 +1,57 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+import static org.wastastic.Names.OBJECT_DESCRIPTOR;
+
+record FieldType(@NotNull ValueType valueType, @NotNull Packing packing, @NotNull Mutability mutability) {
+    FieldType {
+        requireNonNull(valueType);
+        requireNonNull(packing);
+        requireNonNull(mutability);
+    }
+
+    enum Packing {
+        NONE,
+        I8,
+        I16,
+    }
+
+    // References are stored erased to Object so that fields never need a cast on the way in.
+    @NotNull Class<?> jvmType() {
+        return switch (packing) {
+            case I8 -> byte.class;
+            case I16 -> short.class;
+            case NONE -> valueType.isReference() ? Object.class : valueType.jvmType();
+        };
+    }
+
+    // Suffix of the GcInstructionImpls array accessors for this element type.
+    @NotNull String arrayAccessorSuffix() {
+        return switch (packing) {
+            case I8 -> "I8";
+            case I16 -> "I16";
+            case NONE -> switch (valueType) {
+                case I32 -> "I32";
+                case I64 -> "I64";
+                case F32 -> "F32";
+                case F64 -> "F64";
+                case FUNCREF, EXTERNREF, ANYREF -> "Ref";
+            };
+        };
+    }
+
+    // How values of this field travel on the operand stack: packed fields as i32s, references as Object.
+    @NotNull String erasedValueDescriptor() {
+        return valueType.isReference() ? OBJECT_DESCRIPTOR : valueType.descriptor();
+    }
+
+    @NotNull String jvmDescriptor() {
+        return switch (packing) {
+            case I8 -> "B";
+            case I16 -> "S";
+            case NONE -> valueType.isReference() ? OBJECT_DESCRIPTOR : valueType.descriptor();
+        };
+    }
+}
@@ -0,0 +1,208 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.Arrays;
+
+import static org.objectweb.asm.Opcodes.ASM9;
+import static org.objectweb.asm.Opcodes.ATHROW;
+import static org.objectweb.asm.Opcodes.F_NEW;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.NOP;
+import static org.objectweb.asm.Opcodes.RETURN;
+
+// Sits between the translator and the MethodWriter so that stack map frames can be written by hand instead of
+// having ASM recompute them with COMPUTE_FRAMES, which means a full data flow pass plus class loading to merge
+// reference types. Instructions that can't be reached are dropped rather than emitted (the JVM would otherwise want a
+// frame for them too), jump and handler targets are remembered, and a label only gets its frame if code can actually
+// get there.
+final class FrameWriter extends MethodVisitor {
+    // Stored in Label.info, which is otherwise unused outside of the tree API.
+    private static final Object TARGETED = new Object();
+
+    private boolean reachable = true;
+    private boolean codeSinceLastFrame = true;
+    private Object[] lastFrameLocals;
+    private Object[] lastFrameStack;
+
+    // Line numbers are attached to the next instruction that's actually emitted, at the label already placed at its
+    // offset if there is one, so an offset never gets more than one label or line number entry.
+    private int pendingLineNumber = -1;
+    private int lastLineNumber = -1;
+    private Label labelAtOffset;
+
+    FrameWriter(@NotNull MethodVisitor methodVisitor) {
+        super(ASM9, methodVisitor);
+    }
+
+    boolean isReachable() {
+        return reachable;
+    }
+
+    // For handlers whose exception table entry is only added after the handler itself has been placed.
+    void markTargeted(@NotNull Label label) {
+        label.info = TARGETED;
+    }
+
+    void setLineNumber(int line) {
+        pendingLineNumber = line;
+    }
+
+    @Override public void visitLabel(Label label) {
+        super.visitLabel(label);
+        labelAtOffset = label;
+    }
+
+    void visitLabel(@NotNull Label label, @NotNull Object @NotNull[] locals, @NotNull Object @NotNull[] stack) {
+        visitLabel(label);
+
+        if (!reachable && label.info != TARGETED) {
+            return;
+        }
+
+        reachable = true;
+
+        if (!codeSinceLastFrame) {
+            if (Arrays.equals(locals, lastFrameLocals) && Arrays.equals(stack, lastFrameStack)) {
+                return;
+            }
+
+            // Two frames can't share an offset. This only happens when an enclosing label sees fewer locals than the
+            // one just placed, so padding with a nop and falling through to the narrower frame is always valid.
+            super.visitInsn(NOP);
+        }
+
+        super.visitFrame(F_NEW, locals.length, locals, stack.length, stack);
+        lastFrameLocals = locals;
+        lastFrameStack = stack;
+        codeSinceLastFrame = false;
+    }
+
+    private boolean beginInstruction() {
+        if (!reachable) {
+            return false;
+        }
+
+        codeSinceLastFrame = true;
+
+        if (pendingLineNumber != lastLineNumber) {
+            if (labelAtOffset == null) {
+                visitLabel(new Label());
+            }
+
+            super.visitLineNumber(pendingLineNumber, labelAtOffset);
+            lastLineNumber = pendingLineNumber;
+        }
+
+        labelAtOffset = null;
+        return true;
+    }
+
+    @Override public void visitInsn(int opcode) {
+        if (beginInstruction()) {
+            super.visitInsn(opcode);
+
+            if (opcode == ATHROW || (opcode >= IRETURN && opcode <= RETURN)) {
+                reachable = false;
+            }
+        }
+    }
+
+    @Override public void visitIntInsn(int opcode, int operand) {
+        if (beginInstruction()) {
+            super.visitIntInsn(opcode, operand);
+        }
+    }
+
+    @Override public void visitVarInsn(int opcode, int varIndex) {
+        if (beginInstruction()) {
+            super.visitVarInsn(opcode, varIndex);
+        }
+    }
+
+    @Override public void visitTypeInsn(int opcode, String type) {
+        if (beginInstruction()) {
+            super.visitTypeInsn(opcode, type);
+        }
+    }
+
+    @Override public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+        if (beginInstruction()) {
+            super.visitFieldInsn(opcode, owner, name, descriptor);
+        }
+    }
+
+    @Override public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+        if (beginInstruction()) {
+            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+        }
+    }
+
+    @Override public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+        if (beginInstruction()) {
+            super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+        }
+    }
+
+    @Override public void visitJumpInsn(int opcode, Label label) {
+        if (beginInstruction()) {
+            super.visitJumpInsn(opcode, label);
+            markTargeted(label);
+
+            if (opcode == GOTO) {
+                reachable = false;
+            }
+        }
+    }
+
+    @Override public void visitLdcInsn(Object value) {
+        if (beginInstruction()) {
+            super.visitLdcInsn(value);
+        }
+    }
+
+    @Override public void visitIincInsn(int varIndex, int increment) {
+        if (beginInstruction()) {
+            super.visitIincInsn(varIndex, increment);
+        }
+    }
+
+    @Override public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+        if (beginInstruction()) {
+            super.visitTableSwitchInsn(min, max, dflt, labels);
+            markTargeted(dflt, labels);
+            reachable = false;
+        }
+    }
+
+    @Override public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+        if (beginInstruction()) {
+            super.visitLookupSwitchInsn(dflt, keys, labels);
+            markTargeted(dflt, labels);
+            reachable = false;
+        }
+    }
+
+    @Override public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+        if (beginInstruction()) {
+            super.visitMultiANewArrayInsn(descriptor, numDimensions);
+        }
+    }
+
+    @Override public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+        super.visitTryCatchBlock(start, end, handler, type);
+        markTargeted(handler);
+    }
+
+    private static void markTargeted(@NotNull Label dflt, @NotNull Label @NotNull[] labels) {
+        dflt.info = TARGETED;
+
+        for (var label : labels) {
+            label.info = TARGETED;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static org.objectweb.asm.Type.getDescriptor;
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+public final class Fuel {
+    private long remaining = Long.MAX_VALUE;
+    private @Nullable ExhaustionHandler exhaustionHandler;
+
+    static final String INTERNAL_NAME = getInternalName(Fuel.class);
+    static final String DESCRIPTOR = getDescriptor(Fuel.class);
+    static final String FIELD_GETTER_DESCRIPTOR = methodDescriptor(Fuel.class, ModuleInstance.class);
+
+    Fuel() {}
+
+    @FunctionalInterface
+    public interface ExhaustionHandler {
+        // Returns the amount of fuel to add before resuming; anything that leaves the budget negative traps instead.
+        // Implementations may block or yield the current thread before returning.
+        long refuel(@NotNull Fuel fuel);
+    }
+
+    public long remaining() {
+        return remaining;
+    }
+
+    public void set(long remaining) {
+        this.remaining = remaining;
+    }
+
+    public void add(long amount) {
+        remaining += amount;
+    }
+
+    public void setExhaustionHandler(@Nullable ExhaustionHandler exhaustionHandler) {
+        this.exhaustionHandler = exhaustionHandler;
+    }
+
+    // Generated code keeps the remaining fuel in a local and only syncs it with the Fuel around calls and returns.
+    static final String LOAD_NAME = "load";
+    static final String LOAD_DESCRIPTOR = methodDescriptor(long.class, Fuel.class);
+
+    @SuppressWarnings("unused")
+    static long load(@NotNull Fuel self) {
+        return self.remaining;
+    }
+
+    static final String STORE_NAME = "store";
+    static final String STORE_DESCRIPTOR = methodDescriptor(void.class, long.class, Fuel.class);
+
+    @SuppressWarnings("unused")
+    static void store(long remaining, @NotNull Fuel self) {
+        self.remaining = remaining;
+    }
+
+    static final String REFUEL_NAME = "refuel";
+    static final String REFUEL_DESCRIPTOR = methodDescriptor(long.class, long.class, Fuel.class);
+
+    @SuppressWarnings("unused")
+    static long refuel(long remaining, @NotNull Fuel self) throws TrapException {
+        self.remaining = remaining;
+        self.exhausted();
+        return self.remaining;
+    }
+
+    private void exhausted() throws TrapException {
+        var handler = exhaustionHandler;
+
+        if (handler != null) {
+            remaining += handler.refuel(this);
+
+            if (remaining >= 0) {
+                return;
+            }
+        }
+
+        throw new TrapException(TrapException.Kind.FUEL_EXHAUSTED, "fuel exhausted");
+    }
+}
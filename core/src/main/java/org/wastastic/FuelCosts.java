@@ -0,0 +1,62 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+import static org.wastastic.WasmOpcodes.OP_BLOCK;
+import static org.wastastic.WasmOpcodes.OP_DROP;
+import static org.wastastic.WasmOpcodes.OP_ELSE;
+import static org.wastastic.WasmOpcodes.OP_END;
+import static org.wastastic.WasmOpcodes.OP_LOOP;
+import static org.wastastic.WasmOpcodes.OP_NOP;
+
+public final class FuelCosts {
+    // Indexed by the first byte of the instruction; prefixed instructions are charged the cost of their prefix byte.
+    private final int @NotNull[] costs;
+
+    private static final FuelCosts DEFAULTS;
+
+    static {
+        var costs = new int[256];
+        Arrays.fill(costs, 1);
+
+        for (var opcode : new byte[]{OP_NOP, OP_BLOCK, OP_LOOP, OP_ELSE, OP_END, OP_DROP}) {
+            costs[Byte.toUnsignedInt(opcode)] = 0;
+        }
+
+        DEFAULTS = new FuelCosts(costs);
+    }
+
+    private FuelCosts(int @NotNull[] costs) {
+        this.costs = costs;
+    }
+
+    public static @NotNull FuelCosts defaults() {
+        return DEFAULTS;
+    }
+
+    public static @NotNull FuelCosts uniform(int cost) {
+        checkCost(cost);
+        var costs = new int[256];
+        Arrays.fill(costs, cost);
+        return new FuelCosts(costs);
+    }
+
+    public int cost(int opcode) {
+        return costs[opcode & 0xff];
+    }
+
+    public @NotNull FuelCosts withCost(int opcode, int cost) {
+        checkCost(cost);
+        var newCosts = costs.clone();
+        newCosts[opcode & 0xff] = cost;
+        return new FuelCosts(newCosts);
+    }
+
+    private static void checkCost(int cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("fuel cost must not be negative");
+        }
+    }
+}
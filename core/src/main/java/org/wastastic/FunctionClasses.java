@@ -0,0 +1,52 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps the names of generated function classes back to the Wasm functions they were translated from. Stack traces
+// taken of other threads only carry class names, so unlike TrapException, which walks its own thread with the classes
+// at hand, the profiler has no annotations to go on. Entries only weakly refer to their classes and are dropped once
+// the class has been unloaded.
+final class FunctionClasses {
+    private FunctionClasses() {}
+
+    private static final ConcurrentHashMap<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Class<?>> UNLOADED = new ReferenceQueue<>();
+
+    private static final class Entry extends WeakReference<Class<?>> {
+        final @NotNull String className;
+        final @NotNull String label;
+
+        Entry(@NotNull Class<?> clazz, @NotNull String label) {
+            super(clazz, UNLOADED);
+            this.className = clazz.getName();
+            this.label = label;
+        }
+    }
+
+    static void register(@NotNull Class<?> clazz, @Nullable String moduleName, @Nullable String functionName, int functionId) {
+        Object unloaded;
+        while ((unloaded = UNLOADED.poll()) != null) {
+            var entry = (Entry) unloaded;
+            ENTRIES.remove(entry.className, entry);
+        }
+
+        var entry = new Entry(clazz, label(moduleName, functionName, functionId));
+        ENTRIES.put(entry.className, entry);
+    }
+
+    // The function's label for a class name as given by StackTraceElement, or null if it isn't a function class.
+    static @Nullable String label(@NotNull String className) {
+        var entry = ENTRIES.get(className);
+        return entry != null ? entry.label : null;
+    }
+
+    private static @NotNull String label(@Nullable String moduleName, @Nullable String functionName, int functionId) {
+        var name = functionName != null ? functionName : "function[" + functionId + "]";
+        return moduleName != null ? moduleName + "!" + name : name;
+    }
+}
@@ -1,24 +1,39 @@
 package org.wastastic;
 
+import jdk.incubator.foreign.MemorySegment;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 
+import static org.objectweb.asm.Opcodes.AASTORE;
 import static org.objectweb.asm.Opcodes.ACC_FINAL;
 import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
 import static org.objectweb.asm.Opcodes.ACC_STATIC;
 import static org.objectweb.asm.Opcodes.ACONST_NULL;
 import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ANEWARRAY;
+import static org.objectweb.asm.Opcodes.ASM9;
+import static org.objectweb.asm.Opcodes.ASTORE;
 import static org.objectweb.asm.Opcodes.ATHROW;
+import static org.objectweb.asm.Opcodes.BASTORE;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
 import static org.objectweb.asm.Opcodes.D2F;
 import static org.objectweb.asm.Opcodes.D2I;
 import static org.objectweb.asm.Opcodes.D2L;
 import static org.objectweb.asm.Opcodes.DADD;
+import static org.objectweb.asm.Opcodes.DASTORE;
 import static org.objectweb.asm.Opcodes.DCMPG;
 import static org.objectweb.asm.Opcodes.DCMPL;
 import static org.objectweb.asm.Opcodes.DDIV;
@@ -27,17 +42,22 @@ import static org.objectweb.asm.Opcodes.DNEG;
 import static org.objectweb.asm.Opcodes.DSUB;
 import static org.objectweb.asm.Opcodes.DUP;
 import static org.objectweb.asm.Opcodes.DUP2;
+import static org.objectweb.asm.Opcodes.DUP2_X1;
 import static org.objectweb.asm.Opcodes.DUP2_X2;
+import static org.objectweb.asm.Opcodes.DUP_X1;
+import static org.objectweb.asm.Opcodes.DUP_X2;
 import static org.objectweb.asm.Opcodes.F2D;
 import static org.objectweb.asm.Opcodes.F2I;
 import static org.objectweb.asm.Opcodes.F2L;
 import static org.objectweb.asm.Opcodes.FADD;
+import static org.objectweb.asm.Opcodes.FASTORE;
 import static org.objectweb.asm.Opcodes.FCMPG;
 import static org.objectweb.asm.Opcodes.FCMPL;
 import static org.objectweb.asm.Opcodes.FDIV;
 import static org.objectweb.asm.Opcodes.FMUL;
 import static org.objectweb.asm.Opcodes.FNEG;
 import static org.objectweb.asm.Opcodes.FSUB;
+import static org.objectweb.asm.Opcodes.F_NEW;
 import static org.objectweb.asm.Opcodes.GOTO;
 import static org.objectweb.asm.Opcodes.I2B;
 import static org.objectweb.asm.Opcodes.I2D;
@@ -46,6 +66,7 @@ import static org.objectweb.asm.Opcodes.I2L;
 import static org.objectweb.asm.Opcodes.I2S;
 import static org.objectweb.asm.Opcodes.IADD;
 import static org.objectweb.asm.Opcodes.IAND;
+import static org.objectweb.asm.Opcodes.IASTORE;
 import static org.objectweb.asm.Opcodes.ICONST_0;
 import static org.objectweb.asm.Opcodes.ICONST_1;
 import static org.objectweb.asm.Opcodes.IFEQ;
@@ -54,19 +75,26 @@ import static org.objectweb.asm.Opcodes.IFGT;
 import static org.objectweb.asm.Opcodes.IFLE;
 import static org.objectweb.asm.Opcodes.IFLT;
 import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.IFNONNULL;
 import static org.objectweb.asm.Opcodes.IFNULL;
+import static org.objectweb.asm.Opcodes.IF_ACMPEQ;
 import static org.objectweb.asm.Opcodes.IF_ICMPEQ;
 import static org.objectweb.asm.Opcodes.IF_ICMPGE;
 import static org.objectweb.asm.Opcodes.IF_ICMPGT;
 import static org.objectweb.asm.Opcodes.IF_ICMPLE;
 import static org.objectweb.asm.Opcodes.IF_ICMPLT;
 import static org.objectweb.asm.Opcodes.IF_ICMPNE;
+import static org.objectweb.asm.Opcodes.ILOAD;
 import static org.objectweb.asm.Opcodes.IMUL;
+import static org.objectweb.asm.Opcodes.INSTANCEOF;
+import static org.objectweb.asm.Opcodes.INTEGER;
 import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
 import static org.objectweb.asm.Opcodes.IOR;
 import static org.objectweb.asm.Opcodes.IREM;
 import static org.objectweb.asm.Opcodes.ISHL;
 import static org.objectweb.asm.Opcodes.ISHR;
+import static org.objectweb.asm.Opcodes.ISTORE;
 import static org.objectweb.asm.Opcodes.ISUB;
 import static org.objectweb.asm.Opcodes.IUSHR;
 import static org.objectweb.asm.Opcodes.IXOR;
@@ -75,20 +103,34 @@ import static org.objectweb.asm.Opcodes.L2F;
 import static org.objectweb.asm.Opcodes.L2I;
 import static org.objectweb.asm.Opcodes.LADD;
 import static org.objectweb.asm.Opcodes.LAND;
+import static org.objectweb.asm.Opcodes.LASTORE;
 import static org.objectweb.asm.Opcodes.LCMP;
 import static org.objectweb.asm.Opcodes.LCONST_0;
+import static org.objectweb.asm.Opcodes.LLOAD;
 import static org.objectweb.asm.Opcodes.LMUL;
+import static org.objectweb.asm.Opcodes.LONG;
 import static org.objectweb.asm.Opcodes.LOR;
 import static org.objectweb.asm.Opcodes.LREM;
 import static org.objectweb.asm.Opcodes.LSHL;
 import static org.objectweb.asm.Opcodes.LSHR;
+import static org.objectweb.asm.Opcodes.LSTORE;
 import static org.objectweb.asm.Opcodes.LSUB;
 import static org.objectweb.asm.Opcodes.LUSHR;
 import static org.objectweb.asm.Opcodes.LXOR;
+import static org.objectweb.asm.Opcodes.NEWARRAY;
 import static org.objectweb.asm.Opcodes.POP;
 import static org.objectweb.asm.Opcodes.POP2;
+import static org.objectweb.asm.Opcodes.SASTORE;
 import static org.objectweb.asm.Opcodes.SWAP;
+import static org.objectweb.asm.Opcodes.TOP;
+import static org.objectweb.asm.Opcodes.T_BYTE;
+import static org.objectweb.asm.Opcodes.T_DOUBLE;
+import static org.objectweb.asm.Opcodes.T_FLOAT;
+import static org.objectweb.asm.Opcodes.T_INT;
+import static org.objectweb.asm.Opcodes.T_LONG;
+import static org.objectweb.asm.Opcodes.T_SHORT;
 import static org.objectweb.asm.Opcodes.V17;
+import static org.objectweb.asm.Type.getMethodType;
 import static org.wastastic.CodegenUtils.oppositeBranchOpcode;
 import static org.wastastic.CodegenUtils.pushF32Constant;
 import static org.wastastic.CodegenUtils.pushF64Constant;
@@ -132,25 +174,37 @@ import static org.wastastic.InstructionImpls.I64_TRUNC_SAT_F64_U_DESCRIPTOR;
 import static org.wastastic.InstructionImpls.I64_TRUNC_SAT_F64_U_NAME;
 import static org.wastastic.Lists.first;
 import static org.wastastic.Lists.last;
+import static org.wastastic.Lists.append;
 import static org.wastastic.Lists.removeLast;
+import static org.wastastic.Lists.tailEquals;
+import static org.wastastic.Lists.truncate;
 import static org.wastastic.Names.DOUBLE_INTERNAL_NAME;
 import static org.wastastic.Names.FLOAT_INTERNAL_NAME;
+import static org.wastastic.Names.FUNCTION_CLASS_BODY_NAME;
 import static org.wastastic.Names.FUNCTION_CLASS_ENTRY_NAME;
 import static org.wastastic.Names.GENERATED_FUNCTION_INTERNAL_NAME;
 import static org.wastastic.Names.INTEGER_INTERNAL_NAME;
 import static org.wastastic.Names.LONG_INTERNAL_NAME;
 import static org.wastastic.Names.MATH_INTERNAL_NAME;
 import static org.wastastic.Names.METHOD_HANDLE_DESCRIPTOR;
+import static org.wastastic.Names.METHOD_HANDLE_INTERNAL_NAME;
 import static org.wastastic.Names.MODULE_INSTANCE_DESCRIPTOR;
 import static org.wastastic.Names.MODULE_INSTANCE_INTERNAL_NAME;
 import static org.wastastic.Names.OBJECT_ARRAY_DESCRIPTOR;
+import static org.wastastic.Names.OBJECT_DESCRIPTOR;
 import static org.wastastic.Names.OBJECT_INTERNAL_NAME;
+import static org.wastastic.WasmOpcodes.MEMARG_MEMORY_INDEX_FLAG;
 import static org.wastastic.WasmOpcodes.OP_BLOCK;
 import static org.wastastic.WasmOpcodes.OP_BR;
 import static org.wastastic.WasmOpcodes.OP_BR_IF;
+import static org.wastastic.WasmOpcodes.OP_BR_ON_NON_NULL;
+import static org.wastastic.WasmOpcodes.OP_BR_ON_NULL;
 import static org.wastastic.WasmOpcodes.OP_BR_TABLE;
 import static org.wastastic.WasmOpcodes.OP_CALL;
 import static org.wastastic.WasmOpcodes.OP_CALL_INDIRECT;
+import static org.wastastic.WasmOpcodes.OP_CALL_REF;
+import static org.wastastic.WasmOpcodes.OP_CATCH;
+import static org.wastastic.WasmOpcodes.OP_CATCH_ALL;
 import static org.wastastic.WasmOpcodes.OP_CONT_DATA_DROP;
 import static org.wastastic.WasmOpcodes.OP_CONT_ELEM_DROP;
 import static org.wastastic.WasmOpcodes.OP_CONT_I32_TRUNC_SAT_F32_S;
@@ -170,6 +224,7 @@ import static org.wastastic.WasmOpcodes.OP_CONT_TABLE_FILL;
 import static org.wastastic.WasmOpcodes.OP_CONT_TABLE_GROW;
 import static org.wastastic.WasmOpcodes.OP_CONT_TABLE_INIT;
 import static org.wastastic.WasmOpcodes.OP_CONT_TABLE_SIZE;
+import static org.wastastic.WasmOpcodes.OP_DELEGATE;
 import static org.wastastic.WasmOpcodes.OP_DROP;
 import static org.wastastic.WasmOpcodes.OP_ELSE;
 import static org.wastastic.WasmOpcodes.OP_END;
@@ -231,6 +286,32 @@ import static org.wastastic.WasmOpcodes.OP_F64_SQRT;
 import static org.wastastic.WasmOpcodes.OP_F64_STORE;
 import static org.wastastic.WasmOpcodes.OP_F64_SUB;
 import static org.wastastic.WasmOpcodes.OP_F64_TRUNC;
+import static org.wastastic.WasmOpcodes.OP_GC_ANY_CONVERT_EXTERN;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_COPY;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_FILL;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_GET;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_GET_S;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_GET_U;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_LEN;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_NEW;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_NEW_DEFAULT;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_NEW_FIXED;
+import static org.wastastic.WasmOpcodes.OP_GC_ARRAY_SET;
+import static org.wastastic.WasmOpcodes.OP_GC_EXTERN_CONVERT_ANY;
+import static org.wastastic.WasmOpcodes.OP_GC_I31_GET_S;
+import static org.wastastic.WasmOpcodes.OP_GC_I31_GET_U;
+import static org.wastastic.WasmOpcodes.OP_GC_PREFIX;
+import static org.wastastic.WasmOpcodes.OP_GC_REF_CAST;
+import static org.wastastic.WasmOpcodes.OP_GC_REF_CAST_NULL;
+import static org.wastastic.WasmOpcodes.OP_GC_REF_I31;
+import static org.wastastic.WasmOpcodes.OP_GC_REF_TEST;
+import static org.wastastic.WasmOpcodes.OP_GC_REF_TEST_NULL;
+import static org.wastastic.WasmOpcodes.OP_GC_STRUCT_GET;
+import static org.wastastic.WasmOpcodes.OP_GC_STRUCT_GET_S;
+import static org.wastastic.WasmOpcodes.OP_GC_STRUCT_GET_U;
+import static org.wastastic.WasmOpcodes.OP_GC_STRUCT_NEW;
+import static org.wastastic.WasmOpcodes.OP_GC_STRUCT_NEW_DEFAULT;
+import static org.wastastic.WasmOpcodes.OP_GC_STRUCT_SET;
 import static org.wastastic.WasmOpcodes.OP_GLOBAL_GET;
 import static org.wastastic.WasmOpcodes.OP_GLOBAL_SET;
 import static org.wastastic.WasmOpcodes.OP_I32_ADD;
@@ -338,80 +419,296 @@ import static org.wastastic.WasmOpcodes.OP_LOOP;
 import static org.wastastic.WasmOpcodes.OP_MEMORY_GROW;
 import static org.wastastic.WasmOpcodes.OP_MEMORY_SIZE;
 import static org.wastastic.WasmOpcodes.OP_NOP;
+import static org.wastastic.WasmOpcodes.OP_REF_AS_NON_NULL;
+import static org.wastastic.WasmOpcodes.OP_REF_EQ;
 import static org.wastastic.WasmOpcodes.OP_REF_FUNC;
 import static org.wastastic.WasmOpcodes.OP_REF_IS_NULL;
 import static org.wastastic.WasmOpcodes.OP_REF_NULL;
+import static org.wastastic.WasmOpcodes.OP_RETHROW;
 import static org.wastastic.WasmOpcodes.OP_RETURN;
+import static org.wastastic.WasmOpcodes.OP_RETURN_CALL;
+import static org.wastastic.WasmOpcodes.OP_RETURN_CALL_INDIRECT;
+import static org.wastastic.WasmOpcodes.OP_RETURN_CALL_REF;
 import static org.wastastic.WasmOpcodes.OP_SELECT;
 import static org.wastastic.WasmOpcodes.OP_SELECT_VEC;
 import static org.wastastic.WasmOpcodes.OP_TABLE_GET;
 import static org.wastastic.WasmOpcodes.OP_TABLE_SET;
+import static org.wastastic.WasmOpcodes.OP_THROW;
+import static org.wastastic.WasmOpcodes.OP_TRY;
 import static org.wastastic.WasmOpcodes.OP_UNREACHABLE;
+import static org.wastastic.WasmOpcodes.TYPE_ANYREF;
+import static org.wastastic.WasmOpcodes.TYPE_ARRAYREF;
+import static org.wastastic.WasmOpcodes.TYPE_EQREF;
 import static org.wastastic.WasmOpcodes.TYPE_EXTERNREF;
-import static org.wastastic.WasmOpcodes.TYPE_F32;
-import static org.wastastic.WasmOpcodes.TYPE_F64;
 import static org.wastastic.WasmOpcodes.TYPE_FUNCREF;
-import static org.wastastic.WasmOpcodes.TYPE_I32;
-import static org.wastastic.WasmOpcodes.TYPE_I64;
+import static org.wastastic.WasmOpcodes.TYPE_I31REF;
+import static org.wastastic.WasmOpcodes.TYPE_NULLEXTERNREF;
+import static org.wastastic.WasmOpcodes.TYPE_NULLFUNCREF;
+import static org.wastastic.WasmOpcodes.TYPE_NULLREF;
+import static org.wastastic.WasmOpcodes.TYPE_STRUCTREF;
 
 final class FunctionTranslator {
+    // Translators keep their stacks, and whatever capacity those have grown to, from one function to the next, so each
+    // thread holds on to one rather than allocating a fresh translator per function.
+    private static final ThreadLocal<FunctionTranslator> THREAD_TRANSLATOR = ThreadLocal.withInitial(FunctionTranslator::new);
+
+    // Stands in for the ClassWriter when only validating, so that everything the translator emits goes nowhere.
+    private static final ClassVisitor DISCARDING_CLASS_VISITOR = new ClassVisitor(ASM9) {
+        private final AnnotationVisitor annotationVisitor = new AnnotationVisitor(ASM9) {};
+        private final MethodVisitor methodVisitor = new MethodVisitor(ASM9) {};
+
+        @Override public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return annotationVisitor;
+        }
+
+        @Override public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return methodVisitor;
+        }
+    };
+
+    private static final Object[] EMPTY_FRAME = {};
+    private static final Object[] WASM_EXCEPTION_FRAME = {WasmException.INTERNAL_NAME};
+    private static final Object[] TRAP_EXCEPTION_FRAME = {TrapException.INTERNAL_NAME};
+
+    // Load call site descriptors by result type, so that loads don't each build their own.
+    private static final String[] MEMORY_LOAD_DESCRIPTORS = Arrays.stream(ValueType.values())
+        .map(type -> "(I" + MODULE_INSTANCE_DESCRIPTOR + ")" + type.descriptor())
+        .toArray(String[]::new);
+
     private final List<ControlScope> controlStack = new ArrayList<>();
     private final List<ValueType> operandStack = new ArrayList<>();
     private final List<Local> locals = new ArrayList<>();
 
+    // Verification types of every local that's live for the whole body, in the form visitFrame takes.
+    private final List<Object> bodyFrameLocals = new ArrayList<>();
+    private Object[] cachedFrameLocals;
+
     private ModuleIndex index;
+    private CompilerOptions options;
+    private MemorySegment body;
     private WasmReader reader;
-    private MethodVisitor function;
+    private FrameWriter function;
+
+    private int functionId;
+    private FunctionType functionType;
+    private Label selfTailCallLabel;
+
+    // The points options.instrumentation() asked for, or null without an instrumentation.
+    private @Nullable EnumSet<Instrumentation.Point> instrumentedPoints;
+
+    // Handler for exceptions delegated straight to the caller; emitted after the function body, outside of every
+    // exception table range.
+    private Label delegateToCallerLabel;
+
+    // Set once a tail call to any function other than this one is seen; the function is then retranslated into a body
+    // method plus an entry trampoline.
+    private boolean hasTrampoline;
+    private boolean needsTrampoline;
 
     private int instanceArgumentLocalIndex;
     private int firstScratchLocalIndex;
+    private int fuelLocalIndex;
+    private int fuelRemainingLocalIndex;
+    private int epochDeadlineLocalIndex;
+    private long pendingFuel;
+
+    // Offset of the instruction being translated, relative to the start of the body.
+    private long instructionOffset;
+
+    // Rows of the module's DWARF line table, when this function's lines come from there rather than from instruction
+    // offsets, along with the row that applies to the current instruction and the one source file whose rows are used.
+    private DebugLines.Table debugLines;
+    private long bodyCodeOffset;
+    private int debugLineRow;
+    private int debugLineFile;
+
+    static @NotNull FunctionTranslator forCurrentThread() {
+        return THREAD_TRANSLATOR.get();
+    }
+
+    byte @NotNull[] translate(@NotNull ModuleIndex index, @NotNull CompilerOptions options, int functionId) throws TranslationException {
+        return translate(index, options, functionId, index.functionBodies().get(functionId - index.importedFunctions().size()));
+    }
 
-    byte @NotNull[] translate(@NotNull ModuleIndex index, int functionId) throws TranslationException {
+    // For bodies that aren't in the index yet, as when a module is compiled while it's still being read.
+    byte @NotNull[] translate(@NotNull ModuleIndex index, @NotNull CompilerOptions options, int functionId, @NotNull MemorySegment body) throws TranslationException {
         this.index = index;
+        this.options = options;
+        this.functionId = functionId;
+        this.body = body;
+        hasTrampoline = false;
+        needsTrampoline = false;
+
+        var event = new Events.FunctionTranslateEvent();
+        event.begin();
+
+        try {
+            var bytes = translateClass();
+
+            if (needsTrampoline) {
+                reset();
+                hasTrampoline = true;
+                bytes = translateClass();
+            }
 
-        reader = new WasmReader(index.functionBodies().get(functionId - index.importedFunctions().size()));
+            if (event.shouldCommit()) {
+                event.moduleName = index.moduleName();
+                event.functionIndex = functionId;
+                event.functionName = index.functionNames().get(functionId);
+                event.bodySize = body.byteSize();
+                event.bytecodeSize = bytes.length;
+                event.hasTrampoline = hasTrampoline;
+                event.commit();
+            }
 
-        var classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-        classWriter.visit(V17, ACC_FINAL, GENERATED_FUNCTION_INTERNAL_NAME, null, OBJECT_INTERNAL_NAME, new String[]{GeneratedFunction.INTERNAL_NAME});
+            return bytes;
+        }
+        finally {
+            // Also drops everything that refers back to the module, which the thread would otherwise keep alive.
+            reset();
+            this.index = null;
+            this.options = null;
+            this.body = null;
+        }
+    }
 
-        if (index.moduleName() != null) {
-            var nameAnnotation = classWriter.visitAnnotation(GeneratedFunction.ModuleName.DESCRIPTOR, true);
-            nameAnnotation.visit("value", index.moduleName());
-            nameAnnotation.visitEnd();
+    private void reset() {
+        controlStack.clear();
+        operandStack.clear();
+        locals.clear();
+        bodyFrameLocals.clear();
+        cachedFrameLocals = null;
+        reader = null;
+        function = null;
+        functionType = null;
+        selfTailCallLabel = null;
+        delegateToCallerLabel = null;
+        pendingFuel = 0;
+        debugLines = null;
+    }
+
+    boolean hasTrampoline() {
+        return hasTrampoline;
+    }
+
+    // Runs all of translation's checks on a function body without generating anything. On failure, instructionOffset()
+    // is the offset within the body of the instruction that was rejected.
+    void validate(@NotNull ModuleIndex index, int functionId) throws TranslationException {
+        this.index = index;
+        this.options = CompilerOptions.defaults();
+        this.functionId = functionId;
+        this.body = index.functionBodies().get(functionId - index.importedFunctions().size());
+        hasTrampoline = false;
+        needsTrampoline = false;
+        instructionOffset = 0;
+
+        try {
+            // The first pass already checks everything; a trampoline would only change how tail calls are emitted.
+            emitClass(DISCARDING_CLASS_VISITOR);
+        }
+        finally {
+            reset();
+            this.index = null;
+            this.options = null;
+            this.body = null;
         }
+    }
 
-        if (index.functionNames().get(functionId) != null) {
-            var nameAnnotation = classWriter.visitAnnotation(GeneratedFunction.FunctionName.DESCRIPTOR, true);
-            nameAnnotation.visit("value", index.functionNames().get(functionId));
-            nameAnnotation.visitEnd();
+    long instructionOffset() {
+        return instructionOffset;
+    }
+
+    private byte @NotNull[] translateClass() throws TranslationException {
+        var classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        emitClass(classWriter);
+        return classWriter.toByteArray();
+    }
+
+    private void emitClass(@NotNull ClassVisitor classWriter) throws TranslationException {
+        reader = new WasmReader(body);
+
+        if (options.instrumentation() != null) {
+            instrumentedPoints = EnumSet.noneOf(Instrumentation.Point.class);
+            instrumentedPoints.addAll(options.instrumentation().points());
+        }
+        else {
+            instrumentedPoints = null;
         }
 
-        function = classWriter.visitMethod(
+        classWriter.visit(V17, ACC_FINAL, GENERATED_FUNCTION_INTERNAL_NAME, null, OBJECT_INTERNAL_NAME, new String[]{GeneratedFunction.INTERNAL_NAME});
+
+        visitNameAnnotations(classWriter, index.moduleName(), index.functionNames().get(functionId));
+        classWriter.visitSource(beginLineNumbers(), null);
+
+        function = new FrameWriter(classWriter.visitMethod(
             ACC_PRIVATE | ACC_STATIC,
-            FUNCTION_CLASS_ENTRY_NAME,
-            index.functionType(functionId).descriptor(),
+            hasTrampoline ? FUNCTION_CLASS_BODY_NAME : FUNCTION_CLASS_ENTRY_NAME,
+            ownDescriptor(index.functionType(functionId)),
             null,
             null
-        );
+        ));
 
         function.visitCode();
 
+        // Traps are counted against the innermost function they unwind through, by a handler covering the whole body.
+        var trapCountStartLabel = new Label();
+        var trapCountEndLabel = new Label();
+        var trapCountHandlerLabel = new Label();
+        function.visitTryCatchBlock(trapCountStartLabel, trapCountEndLabel, trapCountHandlerLabel, TrapException.INTERNAL_NAME);
+        function.visitLabel(trapCountStartLabel);
+
         var type = index.functionType(functionId);
         var nextLocalIndex = 0;
+        functionType = type;
 
         for (var parameterType : type.parameterTypes()) {
             locals.add(new Local(parameterType, nextLocalIndex));
+            bodyFrameLocals.add(parameterType.frameType());
             nextLocalIndex += parameterType.width();
         }
 
-        instanceArgumentLocalIndex = nextLocalIndex;
-        nextLocalIndex += 1;
+        if (!options.instanceSpecialization()) {
+            instanceArgumentLocalIndex = nextLocalIndex;
+            bodyFrameLocals.add(MODULE_INSTANCE_INTERNAL_NAME);
+            nextLocalIndex += 1;
+        }
+
+        if (options.fuelCosts() != null) {
+            fuelLocalIndex = nextLocalIndex;
+            fuelRemainingLocalIndex = nextLocalIndex + 1;
+            bodyFrameLocals.add(Fuel.INTERNAL_NAME);
+            bodyFrameLocals.add(LONG);
+            nextLocalIndex += 3;
+
+            emitInstanceSite("_", Fuel.FIELD_GETTER_DESCRIPTOR, ModuleImpl.FUEL_FIELD_BOOTSTRAP);
+            function.visitVarInsn(ASTORE, fuelLocalIndex);
+            emitFuelReload();
+        }
+
+        if (options.epochInterruption()) {
+            epochDeadlineLocalIndex = nextLocalIndex;
+            bodyFrameLocals.add(EpochDeadline.INTERNAL_NAME);
+            nextLocalIndex += 1;
+
+            emitInstanceSite("_", EpochDeadline.FIELD_GETTER_DESCRIPTOR, ModuleImpl.EPOCH_DEADLINE_FIELD_BOOTSTRAP);
+            function.visitVarInsn(ASTORE, epochDeadlineLocalIndex);
+        }
+
+        if (instruments(Instrumentation.Point.FUNCTION_ENTRY)) {
+            emitInstrumentationHook("functionEntry", "()V", functionId);
+        }
+
+        // Self tail calls store their arguments over the parameters and jump back here.
+        selfTailCallLabel = new Label();
+        function.visitLabel(selfTailCallLabel, bodyFrameLocals.toArray(), EMPTY_FRAME);
+        emitEpochCheck();
 
         for (var i = reader.nextUnsigned32(); i != 0; i--) {
             var fieldsRemaining = reader.nextUnsigned32();
             var fieldType = reader.nextValueType();
             for (; fieldsRemaining != 0; fieldsRemaining--) {
                 locals.add(new Local(fieldType, nextLocalIndex));
+                bodyFrameLocals.add(fieldType.frameType());
                 function.visitInsn(fieldType.zeroConstantOpcode());
                 function.visitVarInsn(fieldType.localStoreOpcode(), nextLocalIndex);
                 nextLocalIndex += fieldType.width();
@@ -428,19 +725,236 @@ final class FunctionTranslator {
             translateInstruction();
         }
 
-        if (!functionScope.restUnreachable()) {
+        if (reader.hasRemaining()) {
+            instructionOffset = reader.offset();
+            throw new TranslationException("Unexpected bytes after the end of the function body");
+        }
+
+        if (function.isReachable()) {
+            emitFuelStore();
+            emitFunctionExitHook();
+            emitPackResults();
             function.visitInsn(type.returnOpcode());
         }
 
+        if (delegateToCallerLabel != null) {
+            function.visitLabel(delegateToCallerLabel, EMPTY_FRAME, WASM_EXCEPTION_FRAME);
+            function.visitInsn(ATHROW);
+            delegateToCallerLabel = null;
+        }
+
+        function.visitLabel(trapCountEndLabel);
+        function.visitLabel(trapCountHandlerLabel, EMPTY_FRAME, TRAP_EXCEPTION_FRAME);
+        // A call site rather than a dynamic constant: the JIT won't compile a method with a constant that was never
+        // resolved, and this handler mostly never runs.
+        function.visitInvokeDynamicInsn("_", TrapException.COUNT_SITE_DESCRIPTOR, ModuleImpl.TRAP_COUNT_BOOTSTRAP);
+        function.visitInsn(ATHROW);
+
         function.visitMaxs(0, 0);
         function.visitEnd();
 
+        if (hasTrampoline) {
+            emitTrampoline(classWriter, type);
+        }
+
         classWriter.visitEnd();
+    }
+
+    // Picks where this function's line numbers come from, and returns the class's source file name to match. Without
+    // DWARF, that's the module (JVM stack traces leave out the line of a frame without a source file), and lines are
+    // offsets within the function body, which only run out for bodies of over 64K.
+    private @NotNull String beginLineNumbers() {
+        debugLines = null;
+
+        var debugLineIndex = index.debugLines();
+        var codeSection = index.codeSection();
+
+        if (options.dwarfLineNumbers() && debugLineIndex != null && codeSection != null) {
+            var table = debugLineIndex.table();
+            var start = body.address().segmentOffset(codeSection);
+            var end = start + body.byteSize();
+            var firstRow = table.rowAtOrBefore(start);
+
+            for (var i = Integer.max(firstRow, 0); i < table.size() && table.addresses()[i] < end; i++) {
+                if (table.files()[i] != -1) {
+                    debugLines = table;
+                    bodyCodeOffset = start;
+                    debugLineRow = firstRow;
+                    debugLineFile = table.files()[i];
+                    return table.fileNames()[debugLineFile];
+                }
+            }
+        }
+
+        return index.moduleName() != null ? index.moduleName() + ".wasm" : "wasm";
+    }
+
+    private void emitLineNumber() {
+        if (!function.isReachable()) {
+            return;
+        }
+
+        int line;
+
+        if (debugLines != null) {
+            var address = bodyCodeOffset + instructionOffset;
+            var addresses = debugLines.addresses();
+
+            while (debugLineRow + 1 < addresses.length && addresses[debugLineRow + 1] <= address) {
+                debugLineRow++;
+            }
+
+            // Rows for other files (inlined headers, say) can't be told apart in a JVM line number table.
+            if (debugLineRow < 0 || debugLines.files()[debugLineRow] != debugLineFile) {
+                return;
+            }
+
+            line = debugLines.lines()[debugLineRow];
+        }
+        else {
+            line = (int) instructionOffset;
+        }
+
+        // Line numbers are unsigned 16-bit.
+        function.setLineNumber(Integer.min(line, 0xffff));
+    }
+
+    private static void visitNameAnnotations(@NotNull ClassVisitor classVisitor, @Nullable String moduleName, @Nullable String functionName) {
+        if (moduleName != null) {
+            var nameAnnotation = classVisitor.visitAnnotation(GeneratedFunction.ModuleName.DESCRIPTOR, true);
+            nameAnnotation.visit("value", moduleName);
+            nameAnnotation.visitEnd();
+        }
+
+        if (functionName != null) {
+            var nameAnnotation = classVisitor.visitAnnotation(GeneratedFunction.FunctionName.DESCRIPTOR, true);
+            nameAnnotation.visit("value", functionName);
+            nameAnnotation.visitEnd();
+        }
+    }
+
+    // Adds names to a function class that was translated before the module's name section had been read. The rest of
+    // the class, method bodies included, is copied over as is.
+    static byte @NotNull[] withNames(byte @NotNull[] classBytes, @Nullable String moduleName, @Nullable String functionName) {
+        var classReader = new ClassReader(classBytes);
+        var classWriter = new ClassWriter(classReader, 0);
+
+        classReader.accept(new ClassVisitor(ASM9, classWriter) {
+            @Override public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                super.visit(version, access, name, signature, superName, interfaces);
+                visitNameAnnotations(cv, moduleName, functionName);
+            }
+        }, 0);
+
         return classWriter.toByteArray();
     }
 
+    // entry(args..., instance): runs the body, then keeps running whatever tail calls it leaves behind in the
+    // thread's TailCallFrame until one of them returns normally.
+    private void emitTrampoline(@NotNull ClassVisitor classWriter, @NotNull FunctionType type) {
+        var trampoline = classWriter.visitMethod(ACC_PRIVATE | ACC_STATIC, FUNCTION_CLASS_ENTRY_NAME, ownDescriptor(type), null, null);
+        trampoline.visitCode();
+
+        var nextLocalIndex = 0;
+        for (var parameterType : type.parameterTypes()) {
+            trampoline.visitVarInsn(parameterType.localLoadOpcode(), nextLocalIndex);
+            nextLocalIndex += parameterType.width();
+        }
+
+        var instanceLocalIndex = nextLocalIndex;
+        var specialized = options.instanceSpecialization();
+
+        if (!specialized) {
+            trampoline.visitVarInsn(ALOAD, instanceLocalIndex);
+        }
+
+        trampoline.visitMethodInsn(INVOKESTATIC, GENERATED_FUNCTION_INTERNAL_NAME, FUNCTION_CLASS_BODY_NAME, ownDescriptor(type), false);
+
+        var frameLocalIndex = instanceLocalIndex + 1;
+        var resultLocalIndex = frameLocalIndex + 1;
+        var returnType = type.returnTypes().size() == 1 ? type.returnTypes().get(0) : null;
+        var isVoid = type.returnTypes().isEmpty();
+
+        if (returnType != null) {
+            trampoline.visitVarInsn(returnType.localStoreOpcode(), resultLocalIndex);
+        }
+        else if (!isVoid) {
+            trampoline.visitVarInsn(ASTORE, resultLocalIndex);
+        }
+
+        // The body already made room for the arguments of any tail call it left behind.
+        trampoline.visitInsn(ICONST_0);
+        trampoline.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.CURRENT_NAME, TailCallFrame.CURRENT_DESCRIPTOR, false);
+        trampoline.visitVarInsn(ASTORE, frameLocalIndex);
+
+        var frameLocals = new ArrayList<>();
+        for (var parameterType : type.parameterTypes()) {
+            frameLocals.add(parameterType.frameType());
+        }
+
+        frameLocals.add(specialized ? TOP : MODULE_INSTANCE_INTERNAL_NAME);
+        frameLocals.add(TailCallFrame.INTERNAL_NAME);
+
+        if (returnType != null) {
+            frameLocals.add(returnType.frameType());
+        }
+        else if (!isVoid) {
+            frameLocals.add(MultipleResults.INTERNAL_NAME);
+        }
+
+        var loopLabel = new Label();
+        var doneLabel = new Label();
+
+        trampoline.visitLabel(loopLabel);
+        trampoline.visitFrame(F_NEW, frameLocals.size(), frameLocals.toArray(), 0, EMPTY_FRAME);
+        trampoline.visitVarInsn(ALOAD, frameLocalIndex);
+        trampoline.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.INVOKER_NAME, TailCallFrame.INVOKER_DESCRIPTOR, false);
+        trampoline.visitVarInsn(ALOAD, frameLocalIndex);
+        trampoline.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.TAKE_TARGET_NAME, TailCallFrame.TAKE_TARGET_DESCRIPTOR, false);
+        trampoline.visitInsn(DUP);
+        trampoline.visitJumpInsn(IFNULL, doneLabel);
+        trampoline.visitVarInsn(ALOAD, frameLocalIndex);
+
+        if (specialized) {
+            trampoline.visitLdcInsn(new ConstantDynamic("_", MODULE_INSTANCE_DESCRIPTOR, ModuleImpl.BOUND_INSTANCE_BOOTSTRAP));
+        }
+        else {
+            trampoline.visitVarInsn(ALOAD, instanceLocalIndex);
+        }
+
+        var returnDescriptor = type.descriptor().substring(type.descriptor().indexOf(')') + 1);
+        trampoline.visitMethodInsn(INVOKEVIRTUAL, METHOD_HANDLE_INTERNAL_NAME, "invokeExact", TailCallFrame.INVOKER_DESCRIPTOR_PREFIX + returnDescriptor, false);
+
+        if (returnType != null) {
+            trampoline.visitVarInsn(returnType.localStoreOpcode(), resultLocalIndex);
+        }
+        else if (!isVoid) {
+            trampoline.visitVarInsn(ASTORE, resultLocalIndex);
+        }
+
+        trampoline.visitJumpInsn(GOTO, loopLabel);
+
+        trampoline.visitLabel(doneLabel);
+        trampoline.visitFrame(F_NEW, frameLocals.size(), frameLocals.toArray(), 2, new Object[]{METHOD_HANDLE_INTERNAL_NAME, METHOD_HANDLE_INTERNAL_NAME});
+        trampoline.visitInsn(POP2);
+
+        if (returnType != null) {
+            trampoline.visitVarInsn(returnType.localLoadOpcode(), resultLocalIndex);
+        }
+        else if (!isVoid) {
+            trampoline.visitVarInsn(ALOAD, resultLocalIndex);
+        }
+
+        trampoline.visitInsn(type.returnOpcode());
+        trampoline.visitMaxs(0, 0);
+        trampoline.visitEnd();
+    }
+
     private void translateInstruction() throws TranslationException {
+        instructionOffset = reader.offset();
+        emitLineNumber();
         var opcode = reader.nextByte();
+        addFuelCost(opcode);
         switch (opcode) {
             case OP_UNREACHABLE -> translateUnreachable();
             case OP_NOP -> translateNop();
@@ -455,6 +969,18 @@ final class FunctionTranslator {
             case OP_RETURN -> translateReturn();
             case OP_CALL -> translateCall();
             case OP_CALL_INDIRECT -> translateCallIndirect();
+            case OP_RETURN_CALL -> translateReturnCall();
+            case OP_RETURN_CALL_INDIRECT -> translateReturnCallIndirect();
+            case OP_CALL_REF -> translateCallRef();
+            case OP_RETURN_CALL_REF -> translateReturnCallRef();
+            case OP_BR_ON_NULL -> translateBrOnNull();
+            case OP_BR_ON_NON_NULL -> translateBrOnNonNull();
+            case OP_TRY -> translateTry();
+            case OP_CATCH -> translateCatch();
+            case OP_CATCH_ALL -> translateCatchAll();
+            case OP_DELEGATE -> translateDelegate();
+            case OP_THROW -> translateThrow();
+            case OP_RETHROW -> translateRethrow();
             case OP_DROP -> translateDrop();
             case OP_SELECT -> translateSelect();
             case OP_SELECT_VEC -> translateSelectVec();
@@ -625,6 +1151,9 @@ final class FunctionTranslator {
             case OP_REF_NULL -> translateRefNull();
             case OP_REF_IS_NULL -> translateRefIsNull();
             case OP_REF_FUNC -> translateRefFunc();
+            case OP_REF_EQ -> translateRefEq();
+            case OP_REF_AS_NON_NULL -> translateRefAsNonNull();
+            case OP_GC_PREFIX -> translateGc();
             case OP_CONT_PREFIX -> translateCont();
             default -> throw new TranslationException("Invalid opcode: 0x" + Integer.toHexString(Byte.toUnsignedInt(opcode)));
         }
@@ -651,12 +1180,19 @@ final class FunctionTranslator {
         var type = nextBlockType();
 
         checkTopOperands(type.parameterTypes());
+        emitFuelCharge();
         controlStack.add(new LoopScope(startLabel, type, operandStack.size()));
 
-        function.visitLabel(startLabel);
+        placeLabel(startLabel);
+        emitFuelCheck();
+        emitEpochCheck();
     }
 
     private void translateIf() throws TranslationException {
+        translateFusedIf(IFNE);
+    }
+
+    private void translateFusedIf(int branchOpcode) throws TranslationException {
         popOperand(ValueType.I32);
 
         var elseLabel = new Label();
@@ -664,31 +1200,36 @@ final class FunctionTranslator {
         var type = nextBlockType();
 
         checkTopOperands(type.parameterTypes());
+        emitFuelCharge();
         controlStack.add(new IfScope(elseLabel, endLabel, type, operandStack.size()));
 
-        function.visitJumpInsn(IFEQ, elseLabel);
+        function.visitJumpInsn(oppositeBranchOpcode(branchOpcode), elseLabel);
     }
 
     private @NotNull FunctionType nextBlockType() throws TranslationException {
-        var code = reader.nextSigned33();
-        if (code >= 0) {
-            return index.types().get((int) code);
+        // Type indices are non-negative s33s, so a first byte in 0x40..0x7f can only be the empty type or a value type.
+        if (reader.peekByte() < 0x40) {
+            return index.functionTypeAt((int) reader.nextSigned33());
         }
-        else {
-            return switch ((byte) (code & 0x7F)) {
-                case 0x40 -> FunctionType.RET_NONE;
-                case TYPE_I32 -> FunctionType.RET_I32;
-                case TYPE_I64 -> FunctionType.RET_I64;
-                case TYPE_F32 -> FunctionType.RET_F32;
-                case TYPE_F64 -> FunctionType.RET_F64;
-                case TYPE_EXTERNREF -> FunctionType.RET_EXTERNREF;
-                case TYPE_FUNCREF -> FunctionType.RET_FUNCREF;
-                default -> throw new TranslationException("Invalid block type");
-            };
+
+        if (reader.peekByte() == 0x40) {
+            reader.nextByte();
+            return FunctionType.RET_NONE;
         }
+
+        return switch (reader.nextValueType()) {
+            case I32 -> FunctionType.RET_I32;
+            case I64 -> FunctionType.RET_I64;
+            case F32 -> FunctionType.RET_F32;
+            case F64 -> FunctionType.RET_F64;
+            case EXTERNREF -> FunctionType.RET_EXTERNREF;
+            case FUNCREF -> FunctionType.RET_FUNCREF;
+            case ANYREF -> FunctionType.RET_ANYREF;
+        };
     }
 
     private void translateElse() throws TranslationException {
+        emitFuelCharge();
         var scope = removeLast(controlStack);
 
         if (!(scope instanceof IfScope ifScope)) {
@@ -696,43 +1237,402 @@ final class FunctionTranslator {
         }
 
         if (!ifScope.restUnreachable()) {
-            var actualReturnTypes = operandStack.subList(ifScope.baseOperandStackSize(), operandStack.size());
-            if (!actualReturnTypes.equals(ifScope.type().returnTypes())) {
-                throw new TranslationException("Return types mismatch at end of IfScope: expected " + ifScope.type().returnTypes() + ", found " + actualReturnTypes);
+            if (!tailEquals(operandStack, ifScope.baseOperandStackSize(), ifScope.type().returnTypes())) {
+                throw new TranslationException("Return types mismatch at end of IfScope: expected " + ifScope.type().returnTypes() + ", found " + operandStack.subList(ifScope.baseOperandStackSize(), operandStack.size()));
             }
         }
 
-        operandStack.subList(ifScope.baseOperandStackSize(), operandStack.size()).clear();
-        operandStack.addAll(ifScope.type().parameterTypes());
+        truncate(operandStack, ifScope.baseOperandStackSize());
+        append(operandStack, ifScope.type().parameterTypes());
         controlStack.add(new BlockScope(ifScope.endLabel(), ifScope.type(), operandStack.size()));
 
         function.visitJumpInsn(GOTO, ifScope.endLabel());
-        function.visitLabel(ifScope.elseLabel());
+        placeLabel(ifScope.elseLabel());
     }
 
     private void translateEnd() throws TranslationException {
+        emitFuelCharge();
         var scope = removeLast(controlStack);
 
         if (!scope.restUnreachable()) {
-            var actualReturnTypes = operandStack.subList(scope.baseOperandStackSize(), operandStack.size());
-            if (!actualReturnTypes.equals(scope.type().returnTypes())) {
-                throw new TranslationException("Invalid stack at end of scope: expected " + scope.type().returnTypes() + " at top of stack, found " + actualReturnTypes);
+            if (!tailEquals(operandStack, scope.baseOperandStackSize(), scope.type().returnTypes())) {
+                throw new TranslationException("Invalid stack at end of scope: expected " + scope.type().returnTypes() + " at top of stack, found " + operandStack.subList(scope.baseOperandStackSize(), operandStack.size()));
             }
         }
 
-        operandStack.subList(scope.baseOperandStackSize(), operandStack.size()).clear();
-        operandStack.addAll(scope.type().returnTypes());
+        if (scope instanceof IfScope && !scope.type().parameterTypes().equals(scope.type().returnTypes())) {
+            throw new TranslationException("if without else must have matching parameter and result types");
+        }
+
+        truncate(operandStack, scope.baseOperandStackSize());
+        append(operandStack, scope.type().returnTypes());
 
         if (scope instanceof IfScope ifScope) {
-            function.visitLabel(ifScope.elseLabel());
-            function.visitLabel(ifScope.endLabel());
+            placeLabel(ifScope.elseLabel());
+            placeLabel(ifScope.endLabel());
         }
         else if (scope instanceof BlockScope blockScope) {
-            function.visitLabel(blockScope.endLabel());
+            placeLabel(blockScope.endLabel());
+        }
+        else if (scope instanceof TryScope tryScope) {
+            endTry(tryScope);
+        }
+    }
+
+    // Exception handling maps onto JVM exception tables, so code that doesn't throw pays nothing for being inside a try.
+    // The only up-front cost is at try itself: the JVM empties the operand stack when it enters a handler, so any
+    // operands below the try's parameters are spilled to locals there and reloaded at the start of each catch clause.
+
+    private void translateTry() throws TranslationException {
+        var type = nextBlockType();
+        checkTopOperands(type.parameterTypes());
+
+        var baseOperandStackSize = operandStack.size() - type.parameterTypes().size();
+        var spilledOperands = new ArrayList<Local>(baseOperandStackSize);
+        var nextLocalIndex = firstScratchLocalIndex;
+
+        if (baseOperandStackSize != 0) {
+            var operandLocals = new ArrayList<Local>(operandStack.size());
+            var operandLocalIndex = nextLocalIndex;
+
+            for (var operandType : operandStack) {
+                operandLocals.add(new Local(operandType, operandLocalIndex));
+                operandLocalIndex += operandType.width();
+            }
+
+            for (var i = operandLocals.size() - 1; i >= 0; i--) {
+                function.visitVarInsn(operandLocals.get(i).type().localStoreOpcode(), operandLocals.get(i).index());
+            }
+
+            for (var local : operandLocals) {
+                function.visitVarInsn(local.type().localLoadOpcode(), local.index());
+            }
+
+            // The parameters' slots are only needed for the round trip and get reused by the body.
+            for (var local : operandLocals.subList(0, baseOperandStackSize)) {
+                spilledOperands.add(local);
+                nextLocalIndex += local.type().width();
+            }
+        }
+
+        var scope = new TryScope(new Label(), type, operandStack.size(), spilledOperands, nextLocalIndex, firstScratchLocalIndex);
+        firstScratchLocalIndex = nextLocalIndex + 1;
+
+        controlStack.add(scope);
+        cachedFrameLocals = null;
+        function.visitLabel(scope.startLabel());
+    }
+
+    private void translateCatch() throws TranslationException {
+        var tagId = reader.nextUnsigned32();
+        var scope = beginCatchClause(tagId);
+        var tagType = index.tagType(tagId);
+
+        for (var i = 0; i < tagType.parameterTypes().size(); i++) {
+            var parameterType = tagType.parameterTypes().get(i);
+            pushI32Constant(function, i);
+            function.visitVarInsn(ALOAD, scope.exceptionLocalIndex());
+
+            switch (parameterType) {
+                case I32 -> function.visitMethodInsn(INVOKESTATIC, WasmException.INTERNAL_NAME, WasmException.PAYLOAD_I32_NAME, WasmException.PAYLOAD_I32_DESCRIPTOR, false);
+                case I64 -> function.visitMethodInsn(INVOKESTATIC, WasmException.INTERNAL_NAME, WasmException.PAYLOAD_I64_NAME, WasmException.PAYLOAD_I64_DESCRIPTOR, false);
+                case F32 -> function.visitMethodInsn(INVOKESTATIC, WasmException.INTERNAL_NAME, WasmException.PAYLOAD_F32_NAME, WasmException.PAYLOAD_F32_DESCRIPTOR, false);
+                case F64 -> function.visitMethodInsn(INVOKESTATIC, WasmException.INTERNAL_NAME, WasmException.PAYLOAD_F64_NAME, WasmException.PAYLOAD_F64_DESCRIPTOR, false);
+                case FUNCREF, EXTERNREF, ANYREF -> {
+                    function.visitMethodInsn(INVOKESTATIC, WasmException.INTERNAL_NAME, WasmException.PAYLOAD_REF_NAME, WasmException.PAYLOAD_REF_DESCRIPTOR, false);
+                    emitReferenceCast(parameterType);
+                }
+            }
+
+            operandStack.add(parameterType);
+        }
+    }
+
+    private void translateCatchAll() throws TranslationException {
+        beginCatchClause(TryScope.Clause.CATCH_ALL);
+    }
+
+    private @NotNull TryScope beginCatchClause(int tagId) throws TranslationException {
+        if (!(last(controlStack) instanceof TryScope scope)) {
+            throw new TranslationException("Expected TryScope on top of control stack");
+        }
+
+        if (scope.inCatch() && last(scope.clauses()).tagId() == TryScope.Clause.CATCH_ALL) {
+            throw new TranslationException("catch clause following catch_all");
+        }
+
+        emitFuelCharge();
+
+        if (!scope.restUnreachable()) {
+            if (!tailEquals(operandStack, scope.baseOperandStackSize(), scope.type().returnTypes())) {
+                throw new TranslationException("Invalid stack at end of try: expected " + scope.type().returnTypes() + ", found " + operandStack.subList(scope.baseOperandStackSize(), operandStack.size()));
+            }
+
+            function.visitJumpInsn(GOTO, scope.endLabel());
+        }
+
+        if (!scope.inCatch()) {
+            function.visitLabel(scope.bodyEndLabel());
+        }
+
+        var clauseLabel = new Label();
+        scope.clauses().add(new TryScope.Clause(tagId, clauseLabel));
+        scope.markRestReachable();
+        cachedFrameLocals = null;
+
+        // Clauses are only ever entered from the dispatch code, which is emitted after all of them.
+        if (hasProtectedCode(scope)) {
+            function.markTargeted(clauseLabel);
+        }
+
+        function.visitLabel(clauseLabel, frameLocals(), EMPTY_FRAME);
+
+        truncate(operandStack, scope.baseOperandStackSize());
+
+        for (var local : scope.spilledOperands()) {
+            function.visitVarInsn(local.type().localLoadOpcode(), local.index());
+        }
+
+        return scope;
+    }
+
+    private void endTry(@NotNull TryScope scope) {
+        firstScratchLocalIndex = scope.enclosingScratchLocalIndex();
+        cachedFrameLocals = null;
+
+        if (!scope.inCatch()) {
+            placeLabel(scope.endLabel());
+            return;
+        }
+
+        if (!scope.restUnreachable()) {
+            function.visitJumpInsn(GOTO, scope.endLabel());
+        }
+
+        if (hasProtectedCode(scope)) {
+            function.markTargeted(scope.dispatchLabel());
+        }
+
+        // The exception local isn't assigned anywhere in the body, so the handler can't claim it.
+        var handlerLocals = enclosingTryFrameLocals();
+        addSpilledFrameLocals(handlerLocals, scope);
+        trimUnassignedFrameLocals(handlerLocals);
+
+        function.visitLabel(scope.dispatchLabel(), handlerLocals.toArray(), WASM_EXCEPTION_FRAME);
+        function.visitVarInsn(ASTORE, scope.exceptionLocalIndex());
+        emitFuelReload();
+
+        for (var clause : scope.clauses()) {
+            if (clause.tagId() == TryScope.Clause.CATCH_ALL) {
+                function.visitJumpInsn(GOTO, clause.label());
+            }
+            else {
+                function.visitVarInsn(ALOAD, scope.exceptionLocalIndex());
+                function.visitMethodInsn(INVOKESTATIC, WasmException.INTERNAL_NAME, WasmException.TAG_NAME, WasmException.TAG_DESCRIPTOR, false);
+                emitTagFieldLoad(clause.tagId());
+                function.visitJumpInsn(IF_ACMPEQ, clause.label());
+            }
+        }
+
+        if (last(scope.clauses()).tagId() != TryScope.Clause.CATCH_ALL) {
+            function.visitVarInsn(ALOAD, scope.exceptionLocalIndex());
+            function.visitInsn(ATHROW);
+        }
+
+        placeLabel(scope.endLabel());
+        emitTryCatchBlock(scope, scope.dispatchLabel());
+    }
+
+    private void translateDelegate() throws TranslationException {
+        var depth = reader.nextUnsigned32();
+
+        if (!(last(controlStack) instanceof TryScope scope) || scope.inCatch()) {
+            throw new TranslationException("delegate outside of try");
+        }
+
+        emitFuelCharge();
+
+        if (!scope.restUnreachable()) {
+            if (!tailEquals(operandStack, scope.baseOperandStackSize(), scope.type().returnTypes())) {
+                throw new TranslationException("Invalid stack at end of try: expected " + scope.type().returnTypes() + ", found " + operandStack.subList(scope.baseOperandStackSize(), operandStack.size()));
+            }
+        }
+
+        removeLast(controlStack);
+        cachedFrameLocals = null;
+        truncate(operandStack, scope.baseOperandStackSize());
+        append(operandStack, scope.type().returnTypes());
+
+        if (depth >= controlStack.size()) {
+            throw new TranslationException("Invalid delegate target: " + depth);
+        }
+
+        function.visitLabel(scope.bodyEndLabel());
+        placeLabel(scope.endLabel());
+        firstScratchLocalIndex = scope.enclosingScratchLocalIndex();
+
+        // The exception behaves as if it was thrown inside the target block: it's handled by the nearest enclosing try
+        // whose body contains that block, or goes to the caller if there isn't one.
+        Label handlerLabel = null;
+        for (var i = controlStack.size() - 1 - depth; i >= 0; i--) {
+            if (controlStack.get(i) instanceof TryScope targetScope && !targetScope.inCatch()) {
+                handlerLabel = targetScope.dispatchLabel();
+                break;
+            }
+        }
+
+        if (handlerLabel == null) {
+            if (delegateToCallerLabel == null) {
+                delegateToCallerLabel = new Label();
+            }
+
+            handlerLabel = delegateToCallerLabel;
+        }
+
+        emitTryCatchBlock(scope, handlerLabel);
+    }
+
+    private void emitTryCatchBlock(@NotNull TryScope scope, @NotNull Label handlerLabel) {
+        // The JVM doesn't allow empty exception table ranges.
+        if (hasProtectedCode(scope)) {
+            function.visitTryCatchBlock(scope.startLabel(), scope.bodyEndLabel(), handlerLabel, WasmException.INTERNAL_NAME);
+        }
+    }
+
+    private static boolean hasProtectedCode(@NotNull TryScope scope) {
+        return scope.startLabel().getOffset() != scope.bodyEndLabel().getOffset();
+    }
+
+    private void translateThrow() throws TranslationException {
+        var tagId = reader.nextUnsigned32();
+        var parameterTypes = index.tagType(tagId).parameterTypes();
+
+        checkTopOperands(parameterTypes);
+        removeLast(operandStack, parameterTypes.size());
+        emitFuelStore();
+
+        if (parameterTypes.isEmpty()) {
+            emitTagFieldLoad(tagId);
+            function.visitMethodInsn(INVOKESTATIC, WasmException.INTERNAL_NAME, WasmException.CREATE_NAME, WasmException.CREATE_EMPTY_DESCRIPTOR, false);
+        }
+        else {
+            emitBoxedArray(parameterTypes);
+            emitTagFieldLoad(tagId);
+            function.visitMethodInsn(INVOKESTATIC, WasmException.INTERNAL_NAME, WasmException.CREATE_NAME, WasmException.CREATE_DESCRIPTOR, false);
+        }
+
+        function.visitInsn(ATHROW);
+        last(controlStack).markRestUnreachable();
+    }
+
+    private void translateRethrow() throws TranslationException {
+        var depth = reader.nextUnsigned32();
+
+        if (depth >= controlStack.size() || !(controlStack.get(controlStack.size() - 1 - depth) instanceof TryScope scope) || !scope.inCatch()) {
+            throw new TranslationException("rethrow target is not a catch clause");
+        }
+
+        emitFuelStore();
+        function.visitVarInsn(ALOAD, scope.exceptionLocalIndex());
+        function.visitInsn(ATHROW);
+        last(controlStack).markRestUnreachable();
+    }
+
+    // Replaces the values of the given types on top of the stack with an Object[] holding them, boxed.
+    private void emitBoxedArray(@NotNull List<ValueType> types) {
+        var nextLocalIndex = firstScratchLocalIndex;
+        var valueLocals = new Local[types.size()];
+
+        for (var i = 0; i < types.size(); i++) {
+            valueLocals[i] = new Local(types.get(i), nextLocalIndex);
+            nextLocalIndex += types.get(i).width();
+        }
+
+        for (var i = valueLocals.length - 1; i >= 0; i--) {
+            function.visitVarInsn(valueLocals[i].type().localStoreOpcode(), valueLocals[i].index());
+        }
+
+        pushI32Constant(function, valueLocals.length);
+        function.visitTypeInsn(ANEWARRAY, OBJECT_INTERNAL_NAME);
+
+        for (var i = 0; i < valueLocals.length; i++) {
+            function.visitInsn(DUP);
+            pushI32Constant(function, i);
+            function.visitVarInsn(valueLocals[i].type().localLoadOpcode(), valueLocals[i].index());
+            emitBox(valueLocals[i].type());
+            function.visitInsn(AASTORE);
+        }
+    }
+
+    // Functions with more than one result return them in the thread's MultipleResults carrier; these store them there
+    // before a return, last result first, and read them back after a call. Packing has to come after the function exit
+    // hook, which may call back into the guest and so reuse the carrier.
+    private void emitPackResults() {
+        var resultTypes = functionType.returnTypes();
+
+        if (resultTypes.size() <= 1) {
+            return;
+        }
+
+        pushI32Constant(function, resultTypes.size());
+        function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.CURRENT_NAME, MultipleResults.CURRENT_DESCRIPTOR, false);
+        function.visitVarInsn(ASTORE, firstScratchLocalIndex);
+
+        for (var i = resultTypes.size() - 1; i >= 0; i--) {
+            pushI32Constant(function, i);
+            function.visitVarInsn(ALOAD, firstScratchLocalIndex);
+
+            switch (resultTypes.get(i)) {
+                case I32 -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.PUT_I32_NAME, MultipleResults.PUT_I32_DESCRIPTOR, false);
+                case I64 -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.PUT_I64_NAME, MultipleResults.PUT_I64_DESCRIPTOR, false);
+                case F32 -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.PUT_F32_NAME, MultipleResults.PUT_F32_DESCRIPTOR, false);
+                case F64 -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.PUT_F64_NAME, MultipleResults.PUT_F64_DESCRIPTOR, false);
+                case FUNCREF, EXTERNREF, ANYREF -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.PUT_REF_NAME, MultipleResults.PUT_REF_DESCRIPTOR, false);
+            }
+        }
+
+        function.visitVarInsn(ALOAD, firstScratchLocalIndex);
+    }
+
+    private void emitUnpackResults(@NotNull FunctionType calleeType) {
+        var resultTypes = calleeType.returnTypes();
+
+        if (resultTypes.size() <= 1) {
+            return;
+        }
+
+        function.visitVarInsn(ASTORE, firstScratchLocalIndex);
+
+        for (var i = 0; i < resultTypes.size(); i++) {
+            var resultType = resultTypes.get(i);
+            pushI32Constant(function, i);
+            function.visitVarInsn(ALOAD, firstScratchLocalIndex);
+
+            switch (resultType) {
+                case I32 -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.I32_NAME, MultipleResults.I32_DESCRIPTOR, false);
+                case I64 -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.I64_NAME, MultipleResults.I64_DESCRIPTOR, false);
+                case F32 -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.F32_NAME, MultipleResults.F32_DESCRIPTOR, false);
+                case F64 -> function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.F64_NAME, MultipleResults.F64_DESCRIPTOR, false);
+                case FUNCREF, EXTERNREF, ANYREF -> {
+                    function.visitMethodInsn(INVOKESTATIC, MultipleResults.INTERNAL_NAME, MultipleResults.REF_NAME, MultipleResults.REF_DESCRIPTOR, false);
+                    emitReferenceCast(resultType);
+                }
+            }
+        }
+    }
+
+    private void emitBox(@NotNull ValueType type) {
+        switch (type) {
+            case I32 -> function.visitMethodInsn(INVOKESTATIC, INTEGER_INTERNAL_NAME, "valueOf", "(I)Ljava/lang/Integer;", false);
+            case I64 -> function.visitMethodInsn(INVOKESTATIC, LONG_INTERNAL_NAME, "valueOf", "(J)Ljava/lang/Long;", false);
+            case F32 -> function.visitMethodInsn(INVOKESTATIC, FLOAT_INTERNAL_NAME, "valueOf", "(F)Ljava/lang/Float;", false);
+            case F64 -> function.visitMethodInsn(INVOKESTATIC, DOUBLE_INTERNAL_NAME, "valueOf", "(D)Ljava/lang/Double;", false);
+            case FUNCREF, EXTERNREF, ANYREF -> {}
         }
     }
 
     private void translateBr() throws TranslationException {
+        emitFuelCharge();
         emitBranch(reader.nextUnsigned32());
         last(controlStack).markRestUnreachable();
     }
@@ -740,17 +1640,18 @@ final class FunctionTranslator {
     private void translateFusedBranch(int branchOpcode) throws TranslationException {
         popOperand(ValueType.I32);
         var targetIndex = reader.nextUnsigned32();
-        var targetScope = controlStack.get(controlStack.size() - 1 - targetIndex);
+        var targetScope = branchTarget(targetIndex);
+
+        emitFuelCharge();
 
         if (operandStack.size() == targetScope.baseOperandStackSize() + targetScope.branchTargetParameterTypes().size()) {
-            // FIXME check types on stack yotta yotta
             function.visitJumpInsn(branchOpcode, targetScope.branchTargetLabel());
         }
         else {
             var pastBranchLabel = new Label();
             function.visitJumpInsn(oppositeBranchOpcode(branchOpcode), pastBranchLabel);
             emitBranch(targetIndex);
-            function.visitLabel(pastBranchLabel);
+            placeLabel(pastBranchLabel);
         }
     }
 
@@ -758,6 +1659,39 @@ final class FunctionTranslator {
         translateFusedBranch(IFNE);
     }
 
+    private void translateBrOnNull() throws TranslationException {
+        var referenceType = popReferenceOperand();
+        var targetIndex = reader.nextUnsigned32();
+        var nonNullLabel = new Label();
+
+        emitFuelCharge();
+        function.visitInsn(DUP);
+        function.visitJumpInsn(IFNONNULL, nonNullLabel);
+        function.visitInsn(POP);
+        emitBranch(targetIndex);
+        placeLabel(nonNullLabel, referenceType.frameType());
+
+        operandStack.add(referenceType);
+    }
+
+    private void translateBrOnNonNull() throws TranslationException {
+        var referenceType = popReferenceOperand();
+        var targetIndex = reader.nextUnsigned32();
+        var nullLabel = new Label();
+
+        emitFuelCharge();
+        function.visitInsn(DUP);
+        function.visitJumpInsn(IFNULL, nullLabel);
+
+        // The non-null reference is passed along as the last branch operand.
+        operandStack.add(referenceType);
+        emitBranch(targetIndex);
+        removeLast(operandStack);
+
+        placeLabel(nullLabel, referenceType.frameType());
+        function.visitInsn(POP);
+    }
+
     private void translateBrTable() throws TranslationException {
         popOperand(ValueType.I32);
 
@@ -772,11 +1706,16 @@ final class FunctionTranslator {
 
         var targetLabels = new Label[indexedTargetCount];
         var adapterLabels = new Label[indexedTargetCount];
+        var defaultTargetScope = branchTarget(defaultTarget);
+        var arity = defaultTargetScope.branchTargetParameterTypes().size();
 
         for (var i = 0; i < indexedTargetCount; i++) {
-            var targetScope = controlStack.get(controlStack.size() - 1 - indexedTargets[i]);
-            if (operandStack.size() == targetScope.baseOperandStackSize() + targetScope.branchTargetParameterTypes().size()) {
-                // FIXME: check operand stack types and such
+            var targetScope = branchTarget(indexedTargets[i]);
+            if (targetScope.branchTargetParameterTypes().size() != arity) {
+                throw new TranslationException("br_table targets have different arities: " + targetScope.branchTargetParameterTypes() + " and " + defaultTargetScope.branchTargetParameterTypes());
+            }
+
+            if (operandStack.size() == targetScope.baseOperandStackSize() + arity) {
                 targetLabels[i] = targetScope.branchTargetLabel();
             }
             else {
@@ -785,7 +1724,6 @@ final class FunctionTranslator {
         }
 
         Label defaultTargetLabel, defaultAdapterLabel;
-        var defaultTargetScope = controlStack.get(controlStack.size() - 1 - defaultTarget);
         if (operandStack.size() == defaultTargetScope.baseOperandStackSize() + defaultTargetScope.branchTargetParameterTypes().size()) {
             defaultTargetLabel = defaultTargetScope.branchTargetLabel();
             defaultAdapterLabel = null;
@@ -794,17 +1732,18 @@ final class FunctionTranslator {
             defaultTargetLabel = defaultAdapterLabel = new Label();
         }
 
+        emitFuelCharge();
         function.visitTableSwitchInsn(0, indexedTargetCount - 1, defaultTargetLabel, targetLabels);
 
         for (var i = 0; i < indexedTargetCount; i++) {
             if (adapterLabels[i] != null) {
-                function.visitLabel(adapterLabels[i]);
+                placeLabel(adapterLabels[i]);
                 emitBranch(indexedTargets[i]);
             }
         }
 
         if (defaultAdapterLabel != null) {
-            function.visitLabel(defaultAdapterLabel);
+            placeLabel(defaultAdapterLabel);
             emitBranch(defaultTarget);
         }
 
@@ -814,6 +1753,9 @@ final class FunctionTranslator {
     private void translateReturn() throws TranslationException {
         var functionScope = (BlockScope) first(controlStack);
         checkTopOperands(functionScope.type().returnTypes());
+        emitFuelStore();
+        emitFunctionExitHook();
+        emitPackResults();
         function.visitInsn(functionScope.type().returnOpcode());
         last(controlStack).markRestUnreachable();
     }
@@ -822,29 +1764,228 @@ final class FunctionTranslator {
         var id = reader.nextUnsigned32();
         var type = index.functionType(id);
 
+        checkTopOperands(type.parameterTypes());
+        emitFuelCheck();
+        removeLast(operandStack, type.parameterTypes().size());
+        append(operandStack, type.returnTypes());
+
+        emitFuelStore();
+        emitCallHook(id);
+        emitInstanceSite("_", type.descriptor(), ModuleImpl.DIRECT_CALL_BOOTSTRAP, id);
+        emitFuelReload();
+        emitUnpackResults(type);
+    }
+
+    private void translateCallIndirect() throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        var tableId = reader.nextUnsigned32();
+
+        var type = index.functionTypeAt(typeId);
+        checkTopOperand(ValueType.I32);
+        emitFuelCheck();
+        removeLast(operandStack);
+        checkTopOperands(type.parameterTypes());
+        removeLast(operandStack, type.parameterTypes().size());
+        append(operandStack, type.returnTypes());
+
+        emitFuelStore();
+        emitIndirectCallHook(tableId);
+        emitInstanceLoad();
+        function.visitInvokeDynamicInsn(
+            "_", type.indirectDescriptor(), ModuleImpl.INDIRECT_CALL_BOOTSTRAP,
+            typeId, tableId
+        );
+        emitFuelReload();
+        emitUnpackResults(type);
+    }
+
+    private void translateCallRef() throws TranslationException {
+        var type = index.functionTypeAt(reader.nextUnsigned32());
+
+        checkTopOperand(ValueType.FUNCREF);
+        emitNullCheck();
+        emitFuelCheck();
+        removeLast(operandStack);
+        checkTopOperands(type.parameterTypes());
+        removeLast(operandStack, type.parameterTypes().size());
+        append(operandStack, type.returnTypes());
+
+        emitFuelStore();
+        emitCallHook(-1);
+        emitInstanceLoad();
+        function.visitInvokeDynamicInsn("_", type.referenceCallDescriptor(), ModuleImpl.REFERENCE_CALL_BOOTSTRAP);
+        emitFuelReload();
+        emitUnpackResults(type);
+    }
+
+    private void translateReturnCall() throws TranslationException {
+        var id = reader.nextUnsigned32();
+        var type = index.functionType(id);
+
+        checkTailCallType(type);
+        checkTopOperands(type.parameterTypes());
+        emitCallHook(id);
+
+        if (id == functionId) {
+            emitFuelCheck();
+
+            for (var i = type.parameterTypes().size() - 1; i >= 0; i--) {
+                function.visitVarInsn(locals.get(i).type().localStoreOpcode(), locals.get(i).index());
+            }
+
+            removeLast(operandStack, type.parameterTypes().size());
+            emitPopAllOperands();
+            function.visitJumpInsn(GOTO, selfTailCallLabel);
+        }
+        else {
+            removeLast(operandStack, type.parameterTypes().size());
+            needsTrampoline = true;
+            emitFuelStore();
+            emitTailCallArguments(type);
+            function.visitLdcInsn(new ConstantDynamic("_", METHOD_HANDLE_DESCRIPTOR, ModuleImpl.TAIL_CALL_TARGET_BOOTSTRAP, id));
+            emitTailCallHandoff(type);
+        }
+
+        last(controlStack).markRestUnreachable();
+    }
+
+    private void translateReturnCallIndirect() throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        var tableId = reader.nextUnsigned32();
+        var type = index.functionTypeAt(typeId);
+
+        checkTailCallType(type);
+        popOperand(ValueType.I32);
+        checkTopOperands(type.parameterTypes());
+        removeLast(operandStack, type.parameterTypes().size());
+
+        needsTrampoline = true;
+        emitFuelStore();
+        emitIndirectCallHook(tableId);
+
+        function.visitVarInsn(ISTORE, firstScratchLocalIndex);
+        emitTailCallArguments(type);
+
+        function.visitVarInsn(ILOAD, firstScratchLocalIndex);
+        emitTableFieldLoad(tableId);
+        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, selectAccessor(Table.GET_NAME, Table.GET_EXPLICIT_NAME), Table.GET_DESCRIPTOR, false);
+        function.visitInvokeDynamicInsn(
+            "_", "(" + OBJECT_DESCRIPTOR + ")" + METHOD_HANDLE_DESCRIPTOR, ModuleImpl.INDIRECT_TAIL_CALL_TARGET_BOOTSTRAP,
+            getMethodType(type.descriptor())
+        );
+
+        emitTailCallHandoff(type);
+        last(controlStack).markRestUnreachable();
+    }
+
+    private void translateReturnCallRef() throws TranslationException {
+        var type = index.functionTypeAt(reader.nextUnsigned32());
+
+        checkTailCallType(type);
+        checkTopOperand(ValueType.FUNCREF);
+        emitNullCheck();
+        removeLast(operandStack);
         checkTopOperands(type.parameterTypes());
         removeLast(operandStack, type.parameterTypes().size());
-        operandStack.addAll(type.returnTypes());
 
-        function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
-        function.visitInvokeDynamicInsn("_", type.descriptor(), ModuleImpl.DIRECT_CALL_BOOTSTRAP, id);
+        needsTrampoline = true;
+        emitFuelStore();
+        emitCallHook(-1);
+
+        function.visitVarInsn(ASTORE, firstScratchLocalIndex);
+        emitTailCallArguments(type);
+
+        function.visitVarInsn(ALOAD, firstScratchLocalIndex);
+        function.visitInvokeDynamicInsn("_", "(" + METHOD_HANDLE_DESCRIPTOR + ")" + METHOD_HANDLE_DESCRIPTOR, ModuleImpl.REFERENCE_TAIL_CALL_TARGET_BOOTSTRAP);
+
+        emitTailCallHandoff(type);
+        last(controlStack).markRestUnreachable();
+    }
+
+    private void checkTailCallType(@NotNull FunctionType calleeType) throws TranslationException {
+        if (!calleeType.returnTypes().equals(functionType.returnTypes())) {
+            throw new TranslationException("Tail call result types " + calleeType.returnTypes() + " don't match " + functionType.returnTypes());
+        }
+    }
+
+    // Moves the arguments on top of the stack into the thread's TailCallFrame, last argument first. The frame is kept in
+    // the scratch local after the one that return_call_indirect and return_call_ref keep their callee in, for the handoff.
+    // The function exit hook runs first: once the frame holds arguments, nothing may call back into the guest on this
+    // thread until the trampoline has taken them, or a nested trampoline would run this tail call in its place.
+    private void emitTailCallArguments(@NotNull FunctionType calleeType) {
+        emitFunctionExitHook();
+
+        pushI32Constant(function, calleeType.parameterTypes().size());
+        function.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.CURRENT_NAME, TailCallFrame.CURRENT_DESCRIPTOR, false);
+        function.visitVarInsn(ASTORE, firstScratchLocalIndex + 1);
+
+        for (var i = calleeType.parameterTypes().size() - 1; i >= 0; i--) {
+            pushI32Constant(function, i);
+            function.visitVarInsn(ALOAD, firstScratchLocalIndex + 1);
+
+            switch (calleeType.parameterTypes().get(i)) {
+                case I32 -> function.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.PUT_I32_NAME, TailCallFrame.PUT_I32_DESCRIPTOR, false);
+                case I64 -> function.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.PUT_I64_NAME, TailCallFrame.PUT_I64_DESCRIPTOR, false);
+                case F32 -> function.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.PUT_F32_NAME, TailCallFrame.PUT_F32_DESCRIPTOR, false);
+                case F64 -> function.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.PUT_F64_NAME, TailCallFrame.PUT_F64_DESCRIPTOR, false);
+                case FUNCREF, EXTERNREF, ANYREF -> function.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.PUT_REF_NAME, TailCallFrame.PUT_REF_DESCRIPTOR, false);
+            }
+        }
+    }
+
+    // Expects the callee's handle on top of the stack; leaves it for the trampoline and returns a placeholder result.
+    private void emitTailCallHandoff(@NotNull FunctionType calleeType) {
+        function.visitLdcInsn(new ConstantDynamic("_", METHOD_HANDLE_DESCRIPTOR, ModuleImpl.TAIL_CALL_INVOKER_BOOTSTRAP, getMethodType(calleeType.descriptor())));
+        function.visitVarInsn(ALOAD, firstScratchLocalIndex + 1);
+        function.visitMethodInsn(INVOKESTATIC, TailCallFrame.INTERNAL_NAME, TailCallFrame.SET_TARGET_NAME, TailCallFrame.SET_TARGET_DESCRIPTOR, false);
+
+        if (functionType.returnTypes().size() == 1) {
+            function.visitInsn(functionType.returnTypes().get(0).zeroConstantOpcode());
+        }
+        else if (!functionType.returnTypes().isEmpty()) {
+            function.visitInsn(ACONST_NULL);
+        }
+
+        function.visitInsn(functionType.returnOpcode());
+    }
+
+    private boolean instruments(@NotNull Instrumentation.Point point) {
+        return instrumentedPoints != null && instrumentedPoints.contains(point);
+    }
+
+    private void emitInstrumentationHook(@NotNull String name, @NotNull String descriptor, int @NotNull... constants) {
+        var arguments = new Object[constants.length];
+        for (var i = 0; i < constants.length; i++) {
+            arguments[i] = constants[i];
+        }
+
+        function.visitInvokeDynamicInsn(name, descriptor, ModuleImpl.INSTRUMENTATION_BOOTSTRAP, arguments);
+    }
+
+    private void emitFunctionExitHook() {
+        if (instruments(Instrumentation.Point.FUNCTION_EXIT)) {
+            emitInstrumentationHook("functionExit", "()V", functionId);
+        }
     }
 
-    private void translateCallIndirect() throws TranslationException {
-        var typeId = reader.nextUnsigned32();
-        var tableId = reader.nextUnsigned32();
+    private void emitCallHook(int calleeId) {
+        if (instruments(Instrumentation.Point.CALL)) {
+            emitInstrumentationHook("call", "()V", functionId, calleeId);
+        }
+    }
 
-        var type = index.types().get(typeId);
-        popOperand(ValueType.I32);
-        checkTopOperands(type.parameterTypes());
-        removeLast(operandStack, type.parameterTypes().size());
-        operandStack.addAll(type.returnTypes());
+    // Expects the element index on top of the stack, and leaves it there.
+    private void emitIndirectCallHook(int tableId) {
+        if (instruments(Instrumentation.Point.CALL)) {
+            function.visitInsn(DUP);
+            emitInstrumentationHook("indirectCall", "(I)V", functionId, tableId);
+        }
+    }
 
-        function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
-        function.visitInvokeDynamicInsn(
-            "_", type.indirectDescriptor(), ModuleImpl.INDIRECT_CALL_BOOTSTRAP,
-            typeId, tableId
-        );
+    private void emitPopAllOperands() {
+        for (var i = operandStack.size() - 1; i >= 0; i--) {
+            function.visitInsn(operandStack.get(i).isDoubleWidth() ? POP2 : POP);
+        }
     }
 
     private void translateDrop() throws TranslationException {
@@ -852,22 +1993,26 @@ final class FunctionTranslator {
     }
 
     private void translateSelect() throws TranslationException {
+        translateFusedSelect(IFNE);
+    }
+
+    private void translateFusedSelect(int branchOpcode) throws TranslationException {
         popOperand(ValueType.I32);
         var type = popAnyOperand();
         checkTopOperand(type);
 
         var pastSwapLabel = new Label();
-        function.visitJumpInsn(IFNE, pastSwapLabel);
+        function.visitJumpInsn(branchOpcode, pastSwapLabel);
 
         if (type.isDoubleWidth()) {
             function.visitInsn(DUP2_X2);
             function.visitInsn(POP2);
-            function.visitLabel(pastSwapLabel);
+            placeLabel(pastSwapLabel, type.frameType());
             function.visitInsn(POP2);
         }
         else {
             function.visitInsn(SWAP);
-            function.visitLabel(pastSwapLabel);
+            placeLabel(pastSwapLabel, type.frameType());
             function.visitInsn(POP);
         }
     }
@@ -905,8 +2050,7 @@ final class FunctionTranslator {
 
         operandStack.add(type);
 
-        function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
-        function.visitInvokeDynamicInsn("_", type.globalGetterDescriptor(), ModuleImpl.GLOBAL_GET_BOOTSTRAP, globalId);
+        emitInstanceSite("_", type.globalGetterDescriptor(), ModuleImpl.GLOBAL_GET_BOOTSTRAP, globalId);
     }
 
     private void translateGlobalSet() throws TranslationException {
@@ -915,8 +2059,7 @@ final class FunctionTranslator {
 
         popOperand(type);
 
-        function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
-        function.visitInvokeDynamicInsn("_", type.globalSetterDescriptor(), ModuleImpl.GLOBAL_SET_BOOTSTRAP, globalId);
+        emitInstanceSite("_", type.globalSetterDescriptor(), ModuleImpl.GLOBAL_SET_BOOTSTRAP, globalId);
     }
 
     private void translateTableGet() throws TranslationException {
@@ -925,7 +2068,8 @@ final class FunctionTranslator {
         applyUnaryOp(ValueType.I32, index.tableType(id).elementType());
 
         emitTableFieldLoad(id);
-        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, Table.GET_NAME, Table.GET_DESCRIPTOR, false);
+        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, selectAccessor(Table.GET_NAME, Table.GET_EXPLICIT_NAME), Table.GET_DESCRIPTOR, false);
+        emitReferenceCast(index.tableType(id).elementType());
     }
 
     private void translateTableSet() throws TranslationException {
@@ -933,131 +2077,190 @@ final class FunctionTranslator {
         popOperand(ValueType.I32);
 
         emitTableFieldLoad(reader.nextUnsigned32());
-        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, Table.SET_NAME, Table.SET_DESCRIPTOR, false);
+        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, selectAccessor(Table.SET_NAME, Table.SET_EXPLICIT_NAME), Table.SET_DESCRIPTOR, false);
     }
 
-    private void translateLoad(@NotNull ValueType resultType, @NotNull String name) throws TranslationException {
+    private @NotNull String selectAccessor(@NotNull String implicitName, @NotNull String explicitName) {
+        return switch (options.boundsChecks()) {
+            case IMPLICIT -> implicitName;
+            case EXPLICIT -> explicitName;
+        };
+    }
+
+    private void translateLoad(@NotNull ValueType resultType, int size, @NotNull String name) throws TranslationException {
         applyUnaryOp(ValueType.I32, resultType);
 
-        reader.nextUnsigned32(); // expected alignment (ignored)
+        var memoryId = nextMemargMemoryIndex();
         var offset = reader.nextUnsigned32();
 
-        function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
-        function.visitInvokeDynamicInsn(name, "(I" + MODULE_INSTANCE_DESCRIPTOR + ")" + resultType.descriptor(), ModuleImpl.MEMORY_LOAD_BOOTSTRAP, 0, offset);
+        if (instruments(Instrumentation.Point.MEMORY_ACCESS)) {
+            function.visitInsn(DUP);
+            emitInstrumentationHook("memoryAccess", "(I)V", functionId, memoryId, offset, size, 0);
+        }
+
+        emitInstanceSite(name, MEMORY_LOAD_DESCRIPTORS[resultType.ordinal()], ModuleImpl.MEMORY_LOAD_BOOTSTRAP, memoryId, offset);
+    }
+
+    // Reads the alignment hint (ignored) and, if it's flagged as present, the memory index from a memarg.
+    private int nextMemargMemoryIndex() throws TranslationException {
+        var alignment = reader.nextUnsigned32();
+
+        if ((alignment & MEMARG_MEMORY_INDEX_FLAG) == 0) {
+            checkMemoryIndex(0);
+            return 0;
+        }
+
+        return nextMemoryIndex();
+    }
+
+    private int nextMemoryIndex() throws TranslationException {
+        var memoryId = reader.nextUnsigned32();
+        checkMemoryIndex(memoryId);
+        return memoryId;
+    }
+
+    private void checkMemoryIndex(int memoryId) throws TranslationException {
+        if (Integer.compareUnsigned(memoryId, index.importedMemories().size() + index.definedMemories().size()) >= 0) {
+            throw new TranslationException("Invalid memory index: " + Integer.toUnsignedString(memoryId));
+        }
     }
 
     private void translateI32Load() throws TranslationException {
-        translateLoad(ValueType.I32, Memory.I32_LOAD_NAME);
+        translateLoad(ValueType.I32, 4, selectAccessor(Memory.I32_LOAD_NAME, Memory.I32_LOAD_EXPLICIT_NAME));
     }
 
     private void translateI64Load() throws TranslationException {
-        translateLoad(ValueType.I64, Memory.I64_LOAD_NAME);
+        translateLoad(ValueType.I64, 8, selectAccessor(Memory.I64_LOAD_NAME, Memory.I64_LOAD_EXPLICIT_NAME));
     }
 
     private void translateF32Load() throws TranslationException {
-        translateLoad(ValueType.F32, Memory.F32_LOAD_NAME);
+        translateLoad(ValueType.F32, 4, selectAccessor(Memory.F32_LOAD_NAME, Memory.F32_LOAD_EXPLICIT_NAME));
     }
 
     private void translateF64Load() throws TranslationException {
-        translateLoad(ValueType.F64, Memory.F64_LOAD_NAME);
+        translateLoad(ValueType.F64, 8, selectAccessor(Memory.F64_LOAD_NAME, Memory.F64_LOAD_EXPLICIT_NAME));
     }
 
     private void translateI32Load8S() throws TranslationException {
-        translateLoad(ValueType.I32, Memory.I32_LOAD_8_S_NAME);
+        translateLoad(ValueType.I32, 1, selectAccessor(Memory.I32_LOAD_8_S_NAME, Memory.I32_LOAD_8_S_EXPLICIT_NAME));
     }
 
     private void translateI32Load8U() throws TranslationException {
-        translateLoad(ValueType.I32, Memory.I32_LOAD_8_U_NAME);
+        translateLoad(ValueType.I32, 1, selectAccessor(Memory.I32_LOAD_8_U_NAME, Memory.I32_LOAD_8_U_EXPLICIT_NAME));
     }
 
     private void translateI32Load16S() throws TranslationException {
-        translateLoad(ValueType.I32, Memory.I32_LOAD_16_S_NAME);
+        translateLoad(ValueType.I32, 2, selectAccessor(Memory.I32_LOAD_16_S_NAME, Memory.I32_LOAD_16_S_EXPLICIT_NAME));
     }
 
     private void translateI32Load16U() throws TranslationException {
-        translateLoad(ValueType.I32, Memory.I32_LOAD_16_U_NAME);
+        translateLoad(ValueType.I32, 2, selectAccessor(Memory.I32_LOAD_16_U_NAME, Memory.I32_LOAD_16_U_EXPLICIT_NAME));
     }
 
     private void translateI64Load8S() throws TranslationException {
-        translateLoad(ValueType.I64, Memory.I64_LOAD_8_S_NAME);
+        translateLoad(ValueType.I64, 1, selectAccessor(Memory.I64_LOAD_8_S_NAME, Memory.I64_LOAD_8_S_EXPLICIT_NAME));
     }
 
     private void translateI64Load8U() throws TranslationException {
-        translateLoad(ValueType.I64, Memory.I64_LOAD_8_U_NAME);
+        translateLoad(ValueType.I64, 1, selectAccessor(Memory.I64_LOAD_8_U_NAME, Memory.I64_LOAD_8_U_EXPLICIT_NAME));
     }
 
     private void translateI64Load16S() throws TranslationException {
-        translateLoad(ValueType.I64, Memory.I64_LOAD_16_S_NAME);
+        translateLoad(ValueType.I64, 2, selectAccessor(Memory.I64_LOAD_16_S_NAME, Memory.I64_LOAD_16_S_EXPLICIT_NAME));
     }
 
     private void translateI64Load16U() throws TranslationException {
-        translateLoad(ValueType.I64, Memory.I64_LOAD_16_U_NAME);
+        translateLoad(ValueType.I64, 2, selectAccessor(Memory.I64_LOAD_16_U_NAME, Memory.I64_LOAD_16_U_EXPLICIT_NAME));
     }
 
     private void translateI64Load32S() throws TranslationException {
-        translateLoad(ValueType.I64, Memory.I64_LOAD_32_S_NAME);
+        translateLoad(ValueType.I64, 4, selectAccessor(Memory.I64_LOAD_32_S_NAME, Memory.I64_LOAD_32_S_EXPLICIT_NAME));
     }
 
     private void translateI64Load32U() throws TranslationException {
-        translateLoad(ValueType.I64, Memory.I64_LOAD_32_U_NAME);
+        translateLoad(ValueType.I64, 4, selectAccessor(Memory.I64_LOAD_32_U_NAME, Memory.I64_LOAD_32_U_EXPLICIT_NAME));
     }
 
-    private void translateStore(@NotNull ValueType operandType, @NotNull String name, @NotNull String descriptor) throws TranslationException {
+    private void translateStore(@NotNull ValueType operandType, int size, @NotNull String name, @NotNull String descriptor) throws TranslationException {
         popOperand(operandType);
         popOperand(ValueType.I32);
 
-        reader.nextUnsigned32(); // expected alignment (ignored)
-        pushI32Constant(function, reader.nextUnsigned32()); // offset
+        var memoryId = nextMemargMemoryIndex();
+        var offset = reader.nextUnsigned32();
+
+        if (instruments(Instrumentation.Point.MEMORY_ACCESS)) {
+            // Copy the address from beneath the value.
+            if (operandType.isDoubleWidth()) {
+                function.visitInsn(DUP2_X1);
+                function.visitInsn(POP2);
+                function.visitInsn(DUP_X2);
+            }
+            else {
+                function.visitInsn(SWAP);
+                function.visitInsn(DUP_X1);
+            }
+
+            emitInstrumentationHook("memoryAccess", "(I)V", functionId, memoryId, offset, size, 1);
+        }
+
+        pushI32Constant(function, offset);
 
-        emitMemoryFieldLoad(0);
+        emitMemoryFieldLoad(memoryId);
         function.visitMethodInsn(INVOKESTATIC, Memory.INTERNAL_NAME, name, descriptor, false);
     }
 
     private void translateI32Store() throws TranslationException {
-        translateStore(ValueType.I32, Memory.I32_STORE_NAME, Memory.I32_STORE_DESCRIPTOR);
+        translateStore(ValueType.I32, 4, selectAccessor(Memory.I32_STORE_NAME, Memory.I32_STORE_EXPLICIT_NAME), Memory.I32_STORE_DESCRIPTOR);
     }
 
     private void translateI64Store() throws TranslationException {
-        translateStore(ValueType.I64, Memory.I64_STORE_NAME, Memory.I64_STORE_DESCRIPTOR);
+        translateStore(ValueType.I64, 8, selectAccessor(Memory.I64_STORE_NAME, Memory.I64_STORE_EXPLICIT_NAME), Memory.I64_STORE_DESCRIPTOR);
     }
 
     private void translateF32Store() throws TranslationException {
-        translateStore(ValueType.F32, Memory.F32_STORE_NAME, Memory.F32_STORE_DESCRIPTOR);
+        translateStore(ValueType.F32, 4, selectAccessor(Memory.F32_STORE_NAME, Memory.F32_STORE_EXPLICIT_NAME), Memory.F32_STORE_DESCRIPTOR);
     }
 
     private void translateF64Store() throws TranslationException {
-        translateStore(ValueType.F64, Memory.F64_STORE_NAME, Memory.F64_STORE_DESCRIPTOR);
+        translateStore(ValueType.F64, 8, selectAccessor(Memory.F64_STORE_NAME, Memory.F64_STORE_EXPLICIT_NAME), Memory.F64_STORE_DESCRIPTOR);
     }
 
     private void translateI32Store8() throws TranslationException {
-        translateStore(ValueType.I32, Memory.I32_STORE_8_NAME, Memory.I32_STORE_8_DESCRIPTOR);
+        translateStore(ValueType.I32, 1, selectAccessor(Memory.I32_STORE_8_NAME, Memory.I32_STORE_8_EXPLICIT_NAME), Memory.I32_STORE_8_DESCRIPTOR);
     }
 
     private void translateI32Store16() throws TranslationException {
-        translateStore(ValueType.I32, Memory.I32_STORE_16_NAME, Memory.I32_STORE_16_DESCRIPTOR);
+        translateStore(ValueType.I32, 2, selectAccessor(Memory.I32_STORE_16_NAME, Memory.I32_STORE_16_EXPLICIT_NAME), Memory.I32_STORE_16_DESCRIPTOR);
     }
 
     private void translateI64Store8() throws TranslationException {
-        translateStore(ValueType.I64, Memory.I64_STORE_8_NAME, Memory.I64_STORE_8_DESCRIPTOR);
+        translateStore(ValueType.I64, 1, selectAccessor(Memory.I64_STORE_8_NAME, Memory.I64_STORE_8_EXPLICIT_NAME), Memory.I64_STORE_8_DESCRIPTOR);
     }
 
     private void translateI64Store16() throws TranslationException {
-        translateStore(ValueType.I64, Memory.I64_STORE_16_NAME, Memory.I64_STORE_16_DESCRIPTOR);
+        translateStore(ValueType.I64, 2, selectAccessor(Memory.I64_STORE_16_NAME, Memory.I64_STORE_16_EXPLICIT_NAME), Memory.I64_STORE_16_DESCRIPTOR);
     }
 
     private void translateI64Store32() throws TranslationException {
-        translateStore(ValueType.I64, Memory.I64_STORE_32_NAME, Memory.I64_STORE_32_DESCRIPTOR);
+        translateStore(ValueType.I64, 4, selectAccessor(Memory.I64_STORE_32_NAME, Memory.I64_STORE_32_EXPLICIT_NAME), Memory.I64_STORE_32_DESCRIPTOR);
     }
 
-    private void translateMemorySize() {
+    private void translateMemorySize() throws TranslationException {
         operandStack.add(ValueType.I32);
-        emitMemoryFieldLoad(reader.nextUnsigned32());
+        emitMemoryFieldLoad(nextMemoryIndex());
         function.visitMethodInsn(INVOKESTATIC, Memory.INTERNAL_NAME, Memory.SIZE_METHOD_NAME, Memory.SIZE_METHOD_DESCRIPTOR, false);
     }
 
     private void translateMemoryGrow() throws TranslationException {
         applyUnaryOp(ValueType.I32);
-        emitMemoryFieldLoad(reader.nextUnsigned32());
+        var memoryId = nextMemoryIndex();
+
+        if (instruments(Instrumentation.Point.MEMORY_GROW)) {
+            function.visitInsn(DUP);
+            emitInstrumentationHook("memoryGrow", "(I)V", functionId, memoryId);
+        }
+
+        emitMemoryFieldLoad(memoryId);
         function.visitMethodInsn(INVOKESTATIC, Memory.INTERNAL_NAME, Memory.GROW_METHOD_NAME, Memory.GROW_METHOD_DESCRIPTOR, false);
     }
 
@@ -1081,11 +2284,23 @@ final class FunctionTranslator {
         operandStack.add(ValueType.F64);
     }
 
+    // Expects the operands of branchOpcode on the stack. When the result only feeds a br_if, if or select, that
+    // instruction branches on them directly rather than testing a materialized 0/1 a second time.
     private void translateConditionalBoolean(int branchOpcode) throws TranslationException {
-        if (reader.peekByte() == OP_BR_IF) {
-            reader.nextByte();
+        var nextOpcode = reader.peekByte();
+
+        if (nextOpcode == OP_BR_IF) {
+            addFuelCost(reader.nextByte());
             translateFusedBranch(branchOpcode);
         }
+        else if (nextOpcode == OP_IF) {
+            addFuelCost(reader.nextByte());
+            translateFusedIf(branchOpcode);
+        }
+        else if (nextOpcode == OP_SELECT) {
+            addFuelCost(reader.nextByte());
+            translateFusedSelect(branchOpcode);
+        }
         else {
             var trueLabel = new Label();
             var mergeLabel = new Label();
@@ -1094,10 +2309,10 @@ final class FunctionTranslator {
             function.visitInsn(ICONST_0);
             function.visitJumpInsn(GOTO, mergeLabel);
 
-            function.visitLabel(trueLabel);
+            placeLabel(trueLabel, operandStack.subList(0, operandStack.size() - 1));
             function.visitInsn(ICONST_1);
 
-            function.visitLabel(mergeLabel);
+            placeLabel(mergeLabel);
         }
     }
 
@@ -1111,9 +2326,16 @@ final class FunctionTranslator {
         translateConditionalBoolean(opcode);
     }
 
-    private void translateI32ComparisonU(int opcode) throws TranslationException {
-        function.visitMethodInsn(INVOKESTATIC, INTEGER_INTERNAL_NAME, "compareUnsigned", "(II)I", false);
-        translateI32ComparisonS(opcode);
+    // Flipping the sign bit of both operands turns an unsigned comparison into a signed one. The operands end up
+    // swapped on the stack, so callers pass the signed opcode for the mirrored comparison.
+    private void translateI32ComparisonU(int swappedOpcode) throws TranslationException {
+        applyBinaryOp(ValueType.I32);
+        pushI32Constant(function, Integer.MIN_VALUE);
+        function.visitInsn(IXOR);
+        function.visitInsn(SWAP);
+        pushI32Constant(function, Integer.MIN_VALUE);
+        function.visitInsn(IXOR);
+        translateConditionalBoolean(swappedOpcode);
     }
 
     private void translateI32Eq() throws TranslationException {
@@ -1129,7 +2351,7 @@ final class FunctionTranslator {
     }
 
     private void translateI32LtU() throws TranslationException {
-        translateI32ComparisonU(IFLT);
+        translateI32ComparisonU(IF_ICMPGT);
     }
 
     private void translateI32GtS() throws TranslationException {
@@ -1137,7 +2359,7 @@ final class FunctionTranslator {
     }
 
     private void translateI32GtU() throws TranslationException {
-        translateI32ComparisonU(IFGT);
+        translateI32ComparisonU(IF_ICMPLT);
     }
 
     private void translateI32LeS() throws TranslationException {
@@ -1145,7 +2367,7 @@ final class FunctionTranslator {
     }
 
     private void translateI32LeU() throws TranslationException {
-        translateI32ComparisonU(IFLE);
+        translateI32ComparisonU(IF_ICMPGE);
     }
 
     private void translateI32GeS() throws TranslationException {
@@ -1153,7 +2375,7 @@ final class FunctionTranslator {
     }
 
     private void translateI32GeU() throws TranslationException {
-        translateI32ComparisonU(IFGE);
+        translateI32ComparisonU(IF_ICMPLE);
     }
 
     private void translateI64Eqz() throws TranslationException {
@@ -1258,11 +2480,11 @@ final class FunctionTranslator {
     }
 
     private void translateF64Gt() throws TranslationException {
-        translateFpComparison(ValueType.F64, DCMPL, IFGE);
+        translateFpComparison(ValueType.F64, DCMPL, IFGT);
     }
 
     private void translateF64Le() throws TranslationException {
-        translateFpComparison(ValueType.F64, FCMPG, IFLE);
+        translateFpComparison(ValueType.F64, DCMPG, IFLE);
     }
 
     private void translateF64Ge() throws TranslationException {
@@ -1763,7 +2985,7 @@ final class FunctionTranslator {
     }
 
     private void translateRefNull() throws TranslationException {
-        operandStack.add(reader.nextReferenceType());
+        operandStack.add(reader.nextHeapType());
         function.visitInsn(ACONST_NULL);
     }
 
@@ -1779,6 +3001,383 @@ final class FunctionTranslator {
         function.visitLdcInsn(new ConstantDynamic("_", METHOD_HANDLE_DESCRIPTOR, ModuleImpl.FUNCTION_REF_BOOTSTRAP, id));
     }
 
+    private void translateRefAsNonNull() throws TranslationException {
+        operandStack.add(popReferenceOperand());
+        emitNullCheck();
+    }
+
+    // Traps if the reference on top of the stack is null, leaving it in place.
+    private void emitNullCheck() {
+        var nonNullLabel = new Label();
+        function.visitInsn(DUP);
+        function.visitJumpInsn(IFNONNULL, nonNullLabel);
+        function.visitMethodInsn(INVOKESTATIC, TrapException.INTERNAL_NAME, TrapException.NULL_REFERENCE_NAME, TrapException.NULL_REFERENCE_DESCRIPTOR, false);
+        function.visitInsn(ATHROW);
+        placeLabel(nonNullLabel);
+    }
+
+    private void translateRefEq() throws TranslationException {
+        popReferenceOperand();
+        popReferenceOperand();
+        operandStack.add(ValueType.I32);
+        function.visitMethodInsn(INVOKESTATIC, GcInstructionImpls.INTERNAL_NAME, GcInstructionImpls.REF_EQ_NAME, GcInstructionImpls.REF_EQ_DESCRIPTOR, false);
+    }
+
+    // Funcref values are MethodHandles on the operand stack, but come back from erased storage as Object.
+    private void emitReferenceCast(@NotNull ValueType type) {
+        if (type == ValueType.FUNCREF) {
+            function.visitTypeInsn(CHECKCAST, METHOD_HANDLE_INTERNAL_NAME);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // GC proposal. Structs and arrays are instances of per-type classes (see GcClasses) whose constructors, and struct
+    // field accessors, are linked through invokedynamic; array elements and i31 references go through
+    // GcInstructionImpls. References into the any hierarchy all erase to ANYREF, so the operand stack only tracks which
+    // hierarchy a reference belongs to.
+
+    private void translateGc() throws TranslationException {
+        switch (reader.nextUnsigned32()) {
+            case OP_GC_STRUCT_NEW -> translateStructNew();
+            case OP_GC_STRUCT_NEW_DEFAULT -> translateStructNewDefault();
+            case OP_GC_STRUCT_GET -> translateStructGet(ModuleImpl.STRUCT_GET_PLAIN);
+            case OP_GC_STRUCT_GET_S -> translateStructGet(ModuleImpl.STRUCT_GET_SIGNED);
+            case OP_GC_STRUCT_GET_U -> translateStructGet(ModuleImpl.STRUCT_GET_UNSIGNED);
+            case OP_GC_STRUCT_SET -> translateStructSet();
+            case OP_GC_ARRAY_NEW -> translateArrayNew();
+            case OP_GC_ARRAY_NEW_DEFAULT -> translateArrayNewDefault();
+            case OP_GC_ARRAY_NEW_FIXED -> translateArrayNewFixed();
+            case OP_GC_ARRAY_GET -> translateArrayGet(false, false);
+            case OP_GC_ARRAY_GET_S -> translateArrayGet(true, false);
+            case OP_GC_ARRAY_GET_U -> translateArrayGet(true, true);
+            case OP_GC_ARRAY_SET -> translateArraySet();
+            case OP_GC_ARRAY_LEN -> translateArrayLen();
+            case OP_GC_ARRAY_FILL -> translateArrayFill();
+            case OP_GC_ARRAY_COPY -> translateArrayCopy();
+            case OP_GC_REF_TEST -> translateRefTest(false);
+            case OP_GC_REF_TEST_NULL -> translateRefTest(true);
+            case OP_GC_REF_CAST -> translateRefCast(false);
+            case OP_GC_REF_CAST_NULL -> translateRefCast(true);
+            case OP_GC_ANY_CONVERT_EXTERN -> translateConvertReference(ValueType.EXTERNREF, ValueType.ANYREF);
+            case OP_GC_EXTERN_CONVERT_ANY -> translateConvertReference(ValueType.ANYREF, ValueType.EXTERNREF);
+            case OP_GC_REF_I31 -> translateRefI31();
+            case OP_GC_I31_GET_S -> translateI31Get(GcInstructionImpls.I31_GET_S_NAME, GcInstructionImpls.I31_GET_S_DESCRIPTOR);
+            case OP_GC_I31_GET_U -> translateI31Get(GcInstructionImpls.I31_GET_U_NAME, GcInstructionImpls.I31_GET_U_DESCRIPTOR);
+            default -> throw new TranslationException("Invalid or unsupported GC opcode");
+        }
+    }
+
+    private void translateStructNew() throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        var fields = index.structType(typeId).fields();
+        var descriptor = new StringBuilder("(");
+
+        for (var i = fields.size() - 1; i >= 0; i--) {
+            popOperand(fields.get(i).valueType());
+        }
+
+        for (var field : fields) {
+            descriptor.append(field.erasedValueDescriptor());
+        }
+
+        operandStack.add(ValueType.ANYREF);
+        function.visitInvokeDynamicInsn("_", descriptor.append(")").append(OBJECT_DESCRIPTOR).toString(), ModuleImpl.STRUCT_NEW_BOOTSTRAP, typeId);
+    }
+
+    private void translateStructNewDefault() throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        index.structType(typeId);
+        operandStack.add(ValueType.ANYREF);
+        function.visitInvokeDynamicInsn("_", "()" + OBJECT_DESCRIPTOR, ModuleImpl.STRUCT_NEW_BOOTSTRAP, typeId);
+    }
+
+    private void translateStructGet(int extension) throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        var fieldIndex = reader.nextUnsigned32();
+        var field = structField(typeId, fieldIndex);
+
+        if ((field.packing() == FieldType.Packing.NONE) != (extension == ModuleImpl.STRUCT_GET_PLAIN)) {
+            throw new TranslationException("Packed fields must be read with struct.get_s or struct.get_u");
+        }
+
+        applyUnaryOp(ValueType.ANYREF, field.valueType());
+        function.visitInvokeDynamicInsn("_", "(" + OBJECT_DESCRIPTOR + ")" + field.erasedValueDescriptor(), ModuleImpl.STRUCT_GET_BOOTSTRAP, typeId, fieldIndex, extension);
+        emitReferenceCast(field.valueType());
+    }
+
+    private void translateStructSet() throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        var fieldIndex = reader.nextUnsigned32();
+        var field = structField(typeId, fieldIndex);
+
+        if (field.mutability() != Mutability.VAR) {
+            throw new TranslationException("struct.set of an immutable field");
+        }
+
+        popOperand(field.valueType());
+        popOperand(ValueType.ANYREF);
+        function.visitInvokeDynamicInsn("_", "(" + OBJECT_DESCRIPTOR + field.erasedValueDescriptor() + ")V", ModuleImpl.STRUCT_SET_BOOTSTRAP, typeId, fieldIndex);
+    }
+
+    private @NotNull FieldType structField(int typeId, int fieldIndex) throws TranslationException {
+        var fields = index.structType(typeId).fields();
+
+        if (fieldIndex >= fields.size()) {
+            throw new TranslationException("Invalid field index: " + fieldIndex);
+        }
+
+        return fields.get(fieldIndex);
+    }
+
+    private void translateArrayNew() throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        var arrayType = index.arrayType(typeId);
+        var elementType = arrayType.elementType();
+        popOperand(ValueType.I32);
+        popOperand(elementType.valueType());
+        operandStack.add(ValueType.ANYREF);
+        emitArrayAccessor(GcInstructionImpls.ARRAY_NEW_NAME, elementType, GcInstructionImpls.arrayNewDescriptor(elementType));
+        emitArrayWrap(typeId, arrayType);
+    }
+
+    private void translateArrayNewDefault() throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        var arrayType = index.arrayType(typeId);
+        var elementType = arrayType.elementType();
+        applyUnaryOp(ValueType.I32, ValueType.ANYREF);
+        emitArrayAccessor(GcInstructionImpls.ARRAY_NEW_DEFAULT_NAME, elementType, GcInstructionImpls.arrayNewDefaultDescriptor(elementType));
+        emitArrayWrap(typeId, arrayType);
+    }
+
+    private void translateArrayNewFixed() throws TranslationException {
+        var typeId = reader.nextUnsigned32();
+        var arrayType = index.arrayType(typeId);
+        var elementType = arrayType.elementType();
+        var length = reader.nextUnsigned32();
+
+        var nextLocalIndex = firstScratchLocalIndex;
+        for (var i = 0; i < length; i++) {
+            popOperand(elementType.valueType());
+            function.visitVarInsn(elementType.valueType().localStoreOpcode(), nextLocalIndex);
+            nextLocalIndex += elementType.valueType().width();
+        }
+
+        pushI32Constant(function, length);
+
+        switch (elementType.jvmDescriptor()) {
+            case "B" -> function.visitIntInsn(NEWARRAY, T_BYTE);
+            case "S" -> function.visitIntInsn(NEWARRAY, T_SHORT);
+            case "I" -> function.visitIntInsn(NEWARRAY, T_INT);
+            case "J" -> function.visitIntInsn(NEWARRAY, T_LONG);
+            case "F" -> function.visitIntInsn(NEWARRAY, T_FLOAT);
+            case "D" -> function.visitIntInsn(NEWARRAY, T_DOUBLE);
+            default -> function.visitTypeInsn(ANEWARRAY, OBJECT_INTERNAL_NAME);
+        }
+
+        // The operands were stored last to first, so element i sits i slots below the end of the spill area.
+        for (var i = 0; i < length; i++) {
+            nextLocalIndex -= elementType.valueType().width();
+            function.visitInsn(DUP);
+            pushI32Constant(function, i);
+            function.visitVarInsn(elementType.valueType().localLoadOpcode(), nextLocalIndex);
+
+            switch (elementType.jvmDescriptor()) {
+                case "B" -> function.visitInsn(BASTORE);
+                case "S" -> function.visitInsn(SASTORE);
+                case "I" -> function.visitInsn(IASTORE);
+                case "J" -> function.visitInsn(LASTORE);
+                case "F" -> function.visitInsn(FASTORE);
+                case "D" -> function.visitInsn(DASTORE);
+                default -> function.visitInsn(AASTORE);
+            }
+        }
+
+        emitArrayWrap(typeId, arrayType);
+        operandStack.add(ValueType.ANYREF);
+    }
+
+    // Replaces the JVM array on top of the stack with an instance of the array type's class.
+    private void emitArrayWrap(int typeId, @NotNull ArrayType arrayType) {
+        function.visitInvokeDynamicInsn("_", "(" + arrayType.jvmDescriptor() + ")" + OBJECT_DESCRIPTOR, ModuleImpl.ARRAY_NEW_BOOTSTRAP, typeId);
+    }
+
+    private void translateArrayGet(boolean packed, boolean unsigned) throws TranslationException {
+        var elementType = index.arrayType(reader.nextUnsigned32()).elementType();
+
+        if ((elementType.packing() != FieldType.Packing.NONE) != packed) {
+            throw new TranslationException("Packed elements must be read with array.get_s or array.get_u");
+        }
+
+        popOperand(ValueType.I32);
+        popOperand(ValueType.ANYREF);
+        operandStack.add(elementType.valueType());
+        emitArrayAccessor(unsigned ? GcInstructionImpls.ARRAY_GET_U_NAME : GcInstructionImpls.ARRAY_GET_NAME, elementType, GcInstructionImpls.arrayGetDescriptor(elementType));
+        emitReferenceCast(elementType.valueType());
+    }
+
+    private void translateArraySet() throws TranslationException {
+        var elementType = mutableArrayElementType(reader.nextUnsigned32());
+        popOperand(elementType.valueType());
+        popOperand(ValueType.I32);
+        popOperand(ValueType.ANYREF);
+        emitArrayAccessor(GcInstructionImpls.ARRAY_SET_NAME, elementType, GcInstructionImpls.arraySetDescriptor(elementType));
+    }
+
+    private void translateArrayLen() throws TranslationException {
+        applyUnaryOp(ValueType.ANYREF, ValueType.I32);
+        function.visitMethodInsn(INVOKESTATIC, GcInstructionImpls.INTERNAL_NAME, GcInstructionImpls.ARRAY_LEN_NAME, GcInstructionImpls.ARRAY_LEN_DESCRIPTOR, false);
+    }
+
+    private void translateArrayFill() throws TranslationException {
+        var elementType = mutableArrayElementType(reader.nextUnsigned32());
+        popOperand(ValueType.I32);
+        popOperand(elementType.valueType());
+        popOperand(ValueType.I32);
+        popOperand(ValueType.ANYREF);
+        emitArrayAccessor(GcInstructionImpls.ARRAY_FILL_NAME, elementType, GcInstructionImpls.arrayFillDescriptor(elementType));
+    }
+
+    private void translateArrayCopy() throws TranslationException {
+        var destinationType = mutableArrayElementType(reader.nextUnsigned32());
+        var sourceType = index.arrayType(reader.nextUnsigned32()).elementType();
+
+        if (!destinationType.jvmDescriptor().equals(sourceType.jvmDescriptor())) {
+            throw new TranslationException("array.copy between incompatible element types");
+        }
+
+        popOperand(ValueType.I32);
+        popOperand(ValueType.I32);
+        popOperand(ValueType.ANYREF);
+        popOperand(ValueType.I32);
+        popOperand(ValueType.ANYREF);
+        function.visitMethodInsn(INVOKESTATIC, GcInstructionImpls.INTERNAL_NAME, GcInstructionImpls.ARRAY_COPY_NAME, GcInstructionImpls.ARRAY_COPY_DESCRIPTOR, false);
+    }
+
+    private @NotNull FieldType mutableArrayElementType(int typeId) throws TranslationException {
+        var elementType = index.arrayType(typeId).elementType();
+
+        if (elementType.mutability() != Mutability.VAR) {
+            throw new TranslationException("Mutation of an immutable array type");
+        }
+
+        return elementType;
+    }
+
+    private void emitArrayAccessor(@NotNull String name, @NotNull FieldType elementType, @NotNull String descriptor) {
+        function.visitMethodInsn(INVOKESTATIC, GcInstructionImpls.INTERNAL_NAME, name + elementType.arrayAccessorSuffix(), descriptor, false);
+    }
+
+    private void translateRefTest(boolean nullable) throws TranslationException {
+        var heapType = reader.nextSigned33();
+        var referenceType = popReferenceOperand();
+        emitHeapTypeTest(heapType, nullable, referenceType);
+        operandStack.add(ValueType.I32);
+    }
+
+    private void translateRefCast(boolean nullable) throws TranslationException {
+        var heapType = reader.nextSigned33();
+        var resultType = heapTypeReferenceType(heapType);
+
+        // The copy left below the one being tested keeps its original type until the cast.
+        operandStack.add(popReferenceOperand());
+
+        var successLabel = new Label();
+        function.visitInsn(DUP);
+        emitHeapTypeTest(heapType, nullable, last(operandStack));
+        function.visitJumpInsn(IFNE, successLabel);
+        function.visitMethodInsn(INVOKESTATIC, TrapException.INTERNAL_NAME, TrapException.CAST_FAILURE_NAME, TrapException.CAST_FAILURE_DESCRIPTOR, false);
+        function.visitInsn(ATHROW);
+        placeLabel(successLabel);
+
+        removeLast(operandStack);
+        operandStack.add(resultType);
+        emitReferenceCast(resultType);
+    }
+
+    private @NotNull ValueType heapTypeReferenceType(long heapType) throws TranslationException {
+        if (heapType >= 0) {
+            return index.referenceType((int) heapType);
+        }
+
+        return switch ((byte) (heapType & 0x7f)) {
+            case TYPE_FUNCREF, TYPE_NULLFUNCREF -> ValueType.FUNCREF;
+            case TYPE_EXTERNREF, TYPE_NULLEXTERNREF -> ValueType.EXTERNREF;
+            case TYPE_ANYREF, TYPE_EQREF, TYPE_I31REF, TYPE_STRUCTREF, TYPE_ARRAYREF, TYPE_NULLREF -> ValueType.ANYREF;
+            default -> throw new TranslationException("Invalid heap type");
+        };
+    }
+
+    // Replaces the reference on top of the stack with whether it's an instance of the heap type. The tracked operand
+    // stack is expected to hold exactly what's below the reference.
+    private void emitHeapTypeTest(long heapType, boolean nullable, @NotNull ValueType referenceType) throws TranslationException {
+        var doneLabel = new Label();
+
+        if (nullable) {
+            var nonNullLabel = new Label();
+            function.visitInsn(DUP);
+            function.visitJumpInsn(IFNONNULL, nonNullLabel);
+            function.visitInsn(POP);
+            function.visitInsn(ICONST_1);
+            function.visitJumpInsn(GOTO, doneLabel);
+            placeLabel(nonNullLabel, referenceType.frameType());
+        }
+
+        if (heapType >= 0) {
+            var typeId = (int) heapType;
+            switch (index.types().get(typeId)) {
+                case StructType ignored -> function.visitInvokeDynamicInsn("_", "(" + OBJECT_DESCRIPTOR + ")Z", ModuleImpl.TYPE_TEST_BOOTSTRAP, typeId);
+                case ArrayType ignored -> function.visitInvokeDynamicInsn("_", "(" + OBJECT_DESCRIPTOR + ")Z", ModuleImpl.TYPE_TEST_BOOTSTRAP, typeId);
+                case FunctionType functionType -> {
+                    function.visitLdcInsn(getMethodType(functionType.descriptor()));
+                    function.visitMethodInsn(INVOKESTATIC, GcInstructionImpls.INTERNAL_NAME, GcInstructionImpls.IS_FUNCTION_NAME, GcInstructionImpls.IS_FUNCTION_DESCRIPTOR, false);
+                }
+            }
+        }
+        else {
+            switch ((byte) (heapType & 0x7f)) {
+                case TYPE_ANYREF, TYPE_EXTERNREF -> {
+                    var nullLabel = new Label();
+                    function.visitJumpInsn(IFNULL, nullLabel);
+                    function.visitInsn(ICONST_1);
+                    function.visitJumpInsn(GOTO, doneLabel);
+                    placeLabel(nullLabel);
+                    function.visitInsn(ICONST_0);
+                }
+
+                case TYPE_NULLREF, TYPE_NULLFUNCREF, TYPE_NULLEXTERNREF -> {
+                    function.visitInsn(POP);
+                    function.visitInsn(ICONST_0);
+                }
+
+                case TYPE_EQREF -> function.visitMethodInsn(INVOKESTATIC, GcInstructionImpls.INTERNAL_NAME, GcInstructionImpls.IS_EQ_NAME, GcInstructionImpls.IS_EQ_DESCRIPTOR, false);
+                case TYPE_I31REF -> function.visitTypeInsn(INSTANCEOF, WasmI31.INTERNAL_NAME);
+                case TYPE_STRUCTREF -> function.visitTypeInsn(INSTANCEOF, WasmStruct.INTERNAL_NAME);
+                case TYPE_ARRAYREF -> function.visitTypeInsn(INSTANCEOF, WasmArray.INTERNAL_NAME);
+                case TYPE_FUNCREF -> function.visitTypeInsn(INSTANCEOF, METHOD_HANDLE_INTERNAL_NAME);
+                default -> throw new TranslationException("Invalid heap type");
+            }
+        }
+
+        placeLabel(doneLabel, INTEGER);
+    }
+
+    private void translateConvertReference(@NotNull ValueType from, @NotNull ValueType to) throws TranslationException {
+        // Both hierarchies are plain Objects on the JVM side, so conversion is only a change of static type.
+        popOperand(from);
+        operandStack.add(to);
+    }
+
+    private void translateRefI31() throws TranslationException {
+        applyUnaryOp(ValueType.I32, ValueType.ANYREF);
+        function.visitMethodInsn(INVOKESTATIC, GcInstructionImpls.INTERNAL_NAME, GcInstructionImpls.REF_I31_NAME, GcInstructionImpls.REF_I31_DESCRIPTOR, false);
+    }
+
+    private void translateI31Get(@NotNull String name, @NotNull String descriptor) throws TranslationException {
+        applyUnaryOp(ValueType.ANYREF, ValueType.I32);
+        function.visitMethodInsn(INVOKESTATIC, GcInstructionImpls.INTERNAL_NAME, name, descriptor, false);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
     private void translateCont() throws TranslationException {
         switch (reader.nextByte()) {
             case OP_CONT_I32_TRUNC_SAT_F32_S -> translateI32TruncSatF32S();
@@ -1849,9 +3448,9 @@ final class FunctionTranslator {
         popOperand(ValueType.I32);
 
         var dataId = reader.nextUnsigned32();
-        var memoryId = reader.nextUnsigned32();
-        function.visitInvokeDynamicInsn(
-            "_", "(III" + MODULE_INSTANCE_INTERNAL_NAME + ")V",
+        var memoryId = nextMemoryIndex();
+        emitInstanceSite(
+            "_", "(III" + MODULE_INSTANCE_DESCRIPTOR + ")V",
             ModuleImpl.MEMORY_INIT_BOOTSTRAP,
             dataId, memoryId
         );
@@ -1866,9 +3465,9 @@ final class FunctionTranslator {
         popOperand(ValueType.I32);
         popOperand(ValueType.I32);
 
-        emitMemoryFieldLoad(reader.nextUnsigned32());
-        emitMemoryFieldLoad(reader.nextUnsigned32());
-        function.visitMethodInsn(INVOKESTATIC, Memory.INTERNAL_NAME, Memory.COPY_METHOD_NAME, Memory.COPY_METHOD_DESCRIPTOR, false);
+        emitMemoryFieldLoad(nextMemoryIndex());
+        emitMemoryFieldLoad(nextMemoryIndex());
+        function.visitMethodInsn(INVOKESTATIC, Memory.INTERNAL_NAME, selectAccessor(Memory.COPY_METHOD_NAME, Memory.COPY_EXPLICIT_NAME), Memory.COPY_METHOD_DESCRIPTOR, false);
     }
 
     private void translateMemoryFill() throws TranslationException {
@@ -1876,8 +3475,8 @@ final class FunctionTranslator {
         popOperand(ValueType.I32);
         popOperand(ValueType.I32);
 
-        emitMemoryFieldLoad(reader.nextUnsigned32());
-        function.visitMethodInsn(INVOKESTATIC, Memory.INTERNAL_NAME, Memory.FILL_METHOD_NAME, Memory.FILL_METHOD_DESCRIPTOR, false);
+        emitMemoryFieldLoad(nextMemoryIndex());
+        function.visitMethodInsn(INVOKESTATIC, Memory.INTERNAL_NAME, selectAccessor(Memory.FILL_METHOD_NAME, Memory.FILL_EXPLICIT_NAME), Memory.FILL_METHOD_DESCRIPTOR, false);
     }
 
     private void translateTableInit() throws TranslationException {
@@ -1887,7 +3486,7 @@ final class FunctionTranslator {
 
         emitElementFieldLoad(reader.nextUnsigned32());
         emitTableFieldLoad(reader.nextUnsigned32());
-        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, Table.INIT_NAME, Table.INIT_DESCRIPTOR, false);
+        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, selectAccessor(Table.INIT_NAME, Table.INIT_EXPLICIT_NAME), Table.INIT_DESCRIPTOR, false);
     }
 
     private void translateElemDrop() {
@@ -1901,7 +3500,7 @@ final class FunctionTranslator {
 
         emitTableFieldLoad(reader.nextUnsigned32());
         emitTableFieldLoad(reader.nextUnsigned32());
-        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, Table.COPY_NAME, Table.COPY_DESCRIPTOR, false);
+        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, selectAccessor(Table.COPY_NAME, Table.COPY_EXPLICIT_NAME), Table.COPY_DESCRIPTOR, false);
     }
 
     private void translateTableGrow() throws TranslationException {
@@ -1925,7 +3524,7 @@ final class FunctionTranslator {
         popOperand(ValueType.I32);
 
         emitTableFieldLoad(reader.nextUnsigned32());
-        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, Table.FILL_NAME, Table.FILL_DESCRIPTOR, false);
+        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, selectAccessor(Table.FILL_NAME, Table.FILL_EXPLICIT_NAME), Table.FILL_DESCRIPTOR, false);
     }
 
     private void checkHasOperand() throws TranslationException {
@@ -1951,7 +3550,7 @@ final class FunctionTranslator {
 
         var last = last(operandStack);
 
-        if (last != ValueType.EXTERNREF && last != ValueType.FUNCREF) {
+        if (!last.isReference()) {
             throw new TranslationException("Wrong type at top of operand stack: expected reference type, found " + last);
         }
 
@@ -1966,10 +3565,22 @@ final class FunctionTranslator {
     }
 
     private void checkTopOperands(@NotNull List<ValueType> requiredTypes) throws TranslationException {
-        var topTypes = operandStack.subList(Integer.max(operandStack.size() - requiredTypes.size(), last(controlStack).baseOperandStackSize()), operandStack.size());
-        if (!topTypes.equals(requiredTypes)) {
-            throw new TranslationException("Wrong operand types at top of stack: expected " + requiredTypes + ", found " + topTypes);
+        var fromIndex = Integer.max(operandStack.size() - requiredTypes.size(), last(controlStack).baseOperandStackSize());
+        if (!tailEquals(operandStack, fromIndex, requiredTypes)) {
+            throw new TranslationException("Wrong operand types at top of stack: expected " + requiredTypes + ", found " + operandStack.subList(fromIndex, operandStack.size()));
+        }
+    }
+
+    // The scope a branch of the given depth leaves to, after checking that the operands it carries there are on top of
+    // the stack. Every kind of branch goes through here, including the ones that jump straight to the target's label.
+    private @NotNull ControlScope branchTarget(int depth) throws TranslationException {
+        if (depth < 0 || depth >= controlStack.size()) {
+            throw new TranslationException("Invalid branch depth: " + Integer.toUnsignedString(depth));
         }
+
+        var scope = controlStack.get(controlStack.size() - 1 - depth);
+        checkTopOperands(scope.branchTargetParameterTypes());
+        return scope;
     }
 
     private void applyUnaryOp(@NotNull ValueType inType, @NotNull ValueType outType) throws TranslationException {
@@ -1995,10 +3606,7 @@ final class FunctionTranslator {
     private void emitBranch(int id) throws TranslationException {
         // FIXME: stack fixup code isn't well-tested
 
-        var scope = controlStack.get(controlStack.size() - id - 1);
-
-        checkTopOperands(scope.branchTargetParameterTypes());
-
+        var scope = branchTarget(id);
         var nextLocalIndex = firstScratchLocalIndex;
 
         for (var i = scope.branchTargetParameterTypes().size() - 1; i >= 0; i--) {
@@ -2007,7 +3615,7 @@ final class FunctionTranslator {
             nextLocalIndex += parameterType.width();
         }
 
-        for (var i = operandStack.size() - scope.branchTargetParameterTypes().size() - 1; i > scope.baseOperandStackSize(); i--) {
+        for (var i = operandStack.size() - scope.branchTargetParameterTypes().size() - 1; i >= scope.baseOperandStackSize(); i--) {
             function.visitInsn(operandStack.get(i).isDoubleWidth() ? POP2 : POP);
         }
 
@@ -2019,18 +3627,175 @@ final class FunctionTranslator {
         function.visitJumpInsn(GOTO, scope.branchTargetLabel());
     }
 
+    private void addFuelCost(byte opcode) {
+        if (options.fuelCosts() != null) {
+            pendingFuel += options.fuelCosts().cost(opcode);
+        }
+    }
+
+    // Fuel lives in a local for the duration of the frame and is only synced with the instance's Fuel around calls and
+    // returns. Basic blocks charge their cost on the way out, but the exhaustion check is only emitted at loop headers
+    // and call sites, which is enough to bound execution while keeping forward edges cheap. Fuel spent since the last
+    // sync point is not written back if the frame traps.
+
+    private void emitFuelCharge() {
+        if (pendingFuel != 0 && isReachable()) {
+            function.visitVarInsn(LLOAD, fuelRemainingLocalIndex);
+            pushI64Constant(function, pendingFuel);
+            function.visitInsn(LSUB);
+            function.visitVarInsn(LSTORE, fuelRemainingLocalIndex);
+        }
+
+        pendingFuel = 0;
+    }
+
+    private void emitFuelCheck() {
+        emitFuelCharge();
+
+        if (options.fuelCosts() != null && isReachable()) {
+            var sufficientLabel = new Label();
+            function.visitVarInsn(LLOAD, fuelRemainingLocalIndex);
+            function.visitInsn(LCONST_0);
+            function.visitInsn(LCMP);
+            function.visitJumpInsn(IFGE, sufficientLabel);
+            function.visitVarInsn(LLOAD, fuelRemainingLocalIndex);
+            function.visitVarInsn(ALOAD, fuelLocalIndex);
+            function.visitMethodInsn(INVOKESTATIC, Fuel.INTERNAL_NAME, Fuel.REFUEL_NAME, Fuel.REFUEL_DESCRIPTOR, false);
+            function.visitVarInsn(LSTORE, fuelRemainingLocalIndex);
+            placeLabel(sufficientLabel);
+        }
+    }
+
+    private void emitFuelStore() {
+        emitFuelCharge();
+
+        if (options.fuelCosts() != null && isReachable()) {
+            function.visitVarInsn(LLOAD, fuelRemainingLocalIndex);
+            function.visitVarInsn(ALOAD, fuelLocalIndex);
+            function.visitMethodInsn(INVOKESTATIC, Fuel.INTERNAL_NAME, Fuel.STORE_NAME, Fuel.STORE_DESCRIPTOR, false);
+        }
+    }
+
+    private void emitFuelReload() {
+        if (options.fuelCosts() != null) {
+            function.visitVarInsn(ALOAD, fuelLocalIndex);
+            function.visitMethodInsn(INVOKESTATIC, Fuel.INTERNAL_NAME, Fuel.LOAD_NAME, Fuel.LOAD_DESCRIPTOR, false);
+            function.visitVarInsn(LSTORE, fuelRemainingLocalIndex);
+        }
+    }
+
+    // Emitted at function entry and loop headers: a volatile load of the global epoch and a compare against the deadline.
+    private void emitEpochCheck() {
+        if (options.epochInterruption()) {
+            function.visitVarInsn(ALOAD, epochDeadlineLocalIndex);
+            function.visitMethodInsn(INVOKESTATIC, EpochDeadline.INTERNAL_NAME, EpochDeadline.CHECK_NAME, EpochDeadline.CHECK_DESCRIPTOR, false);
+        }
+    }
+
+    private boolean isReachable() {
+        return function.isReachable();
+    }
+
+    // Places a jump target, describing the stack there as the operands the translator currently tracks plus any values
+    // the surrounding instruction sequence keeps on top of them.
+    private void placeLabel(@NotNull Label label, @NotNull Object... extraStackTypes) {
+        placeLabel(label, operandStack, extraStackTypes);
+    }
+
+    private void placeLabel(@NotNull Label label, @NotNull List<ValueType> operands, @NotNull Object... extraStackTypes) {
+        var stack = new Object[operands.size() + extraStackTypes.length];
+
+        for (var i = 0; i < operands.size(); i++) {
+            stack[i] = operands.get(i).frameType();
+        }
+
+        System.arraycopy(extraStackTypes, 0, stack, operands.size(), extraStackTypes.length);
+        function.visitLabel(label, frameLocals(), stack);
+    }
+
+    // The body's own locals, followed by the spilled operands and exception of every try the label is nested in. Only
+    // rebuilt when a try begins, moves on to its catch clauses or ends.
+    private @NotNull Object @NotNull[] frameLocals() {
+        if (cachedFrameLocals == null) {
+            var frameLocals = enclosingTryFrameLocals();
+            trimUnassignedFrameLocals(frameLocals);
+            cachedFrameLocals = frameLocals.toArray();
+        }
+
+        return cachedFrameLocals;
+    }
+
+    private @NotNull List<Object> enclosingTryFrameLocals() {
+        var frameLocals = new ArrayList<>(bodyFrameLocals);
+
+        for (var scope : controlStack) {
+            if (scope instanceof TryScope tryScope) {
+                addSpilledFrameLocals(frameLocals, tryScope);
+                frameLocals.add(tryScope.inCatch() ? WasmException.INTERNAL_NAME : TOP);
+            }
+        }
+
+        return frameLocals;
+    }
+
+    // Exception slots that haven't been stored to yet (in a try's body, and for try/delegate throughout) are TOP.
+    // Trailing ones have to be left out: COMPUTE_MAXS only counts slots that are stored to, so a frame declaring them
+    // would have more locals than max_locals.
+    private void trimUnassignedFrameLocals(@NotNull List<Object> frameLocals) {
+        while (frameLocals.size() > bodyFrameLocals.size() && TOP.equals(last(frameLocals))) {
+            removeLast(frameLocals);
+        }
+    }
+
+    private static void addSpilledFrameLocals(@NotNull List<Object> frameLocals, @NotNull TryScope scope) {
+        for (var local : scope.spilledOperands()) {
+            frameLocals.add(local.type().frameType());
+        }
+    }
+
     private void emitElementFieldLoad(int id) {
-        function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
-        function.visitInvokeDynamicInsn("_", "(" + MODULE_INSTANCE_DESCRIPTOR + ")" + OBJECT_ARRAY_DESCRIPTOR, ModuleImpl.ELEMENT_FIELD_BOOTSTRAP, id);
+        emitInstanceSite("_", "(" + MODULE_INSTANCE_DESCRIPTOR + ")" + OBJECT_ARRAY_DESCRIPTOR, ModuleImpl.ELEMENT_FIELD_BOOTSTRAP, id);
     }
 
     private void emitMemoryFieldLoad(int id) {
-        function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
-        function.visitInvokeDynamicInsn("_", "(" + MODULE_INSTANCE_DESCRIPTOR + ")" + Memory.DESCRIPTOR, ModuleImpl.MEMORY_FIELD_BOOTSTRAP, id);
+        emitInstanceSite("_", "(" + MODULE_INSTANCE_DESCRIPTOR + ")" + Memory.DESCRIPTOR, ModuleImpl.MEMORY_FIELD_BOOTSTRAP, id);
+    }
+
+    private void emitTagFieldLoad(int id) {
+        emitInstanceSite("_", Tag.FIELD_GETTER_DESCRIPTOR, ModuleImpl.TAG_FIELD_BOOTSTRAP, id);
     }
 
     private void emitTableFieldLoad(int id) {
-        function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
-        function.visitInvokeDynamicInsn("_", Table.FIELD_GETTER_DESCRIPTOR, ModuleImpl.TABLE_FIELD_BOOTSTRAP, id);
+        emitInstanceSite("_", Table.FIELD_GETTER_DESCRIPTOR, ModuleImpl.TABLE_FIELD_BOOTSTRAP, id);
+    }
+
+    // Instance state is reached through call sites that take the instance as their last argument. Functions specialized
+    // to a single instance don't have it, so their sites leave it out and the bootstrap binds the instance in instead.
+    private void emitInstanceSite(@NotNull String name, @NotNull String descriptor, @NotNull Handle bootstrap, @NotNull Object... bootstrapArguments) {
+        if (options.instanceSpecialization()) {
+            function.visitInvokeDynamicInsn(name, withoutInstance(descriptor), bootstrap, bootstrapArguments);
+        }
+        else {
+            function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
+            function.visitInvokeDynamicInsn(name, descriptor, bootstrap, bootstrapArguments);
+        }
+    }
+
+    // Pushes the instance itself, for calls through function references, which always take it.
+    private void emitInstanceLoad() {
+        if (options.instanceSpecialization()) {
+            function.visitLdcInsn(new ConstantDynamic("_", MODULE_INSTANCE_DESCRIPTOR, ModuleImpl.BOUND_INSTANCE_BOOTSTRAP));
+        }
+        else {
+            function.visitVarInsn(ALOAD, instanceArgumentLocalIndex);
+        }
+    }
+
+    private @NotNull String ownDescriptor(@NotNull FunctionType type) {
+        return options.instanceSpecialization() ? type.specializedDescriptor() : type.descriptor();
+    }
+
+    private static @NotNull String withoutInstance(@NotNull String descriptor) {
+        return descriptor.replace(MODULE_INSTANCE_DESCRIPTOR + ")", ")");
     }
 }
@@ -9,8 +9,9 @@ import java.util.List;
 
 import static org.objectweb.asm.Opcodes.ARETURN;
 import static org.objectweb.asm.Opcodes.RETURN;
+import static org.wastastic.Names.METHOD_HANDLE_DESCRIPTOR;
 import static org.wastastic.Names.MODULE_INSTANCE_DESCRIPTOR;
-import static org.wastastic.Names.OBJECT_ARRAY_DESCRIPTOR;
+import static org.wastastic.ValueType.ANYREF;
 import static org.wastastic.ValueType.EXTERNREF;
 import static org.wastastic.ValueType.F32;
 import static org.wastastic.ValueType.F64;
@@ -18,11 +19,13 @@ import static org.wastastic.ValueType.FUNCREF;
 import static org.wastastic.ValueType.I32;
 import static org.wastastic.ValueType.I64;
 
-final class FunctionType {
+final class FunctionType implements DefinedType {
     private final @NotNull @Unmodifiable List<ValueType> parameterTypes;
     private final @NotNull @Unmodifiable List<ValueType> returnTypes;
     private @Nullable String descriptor;
     private @Nullable String indirectDescriptor;
+    private @Nullable String referenceCallDescriptor;
+    private @Nullable String specializedDescriptor;
     private @Nullable MethodType methodType;
 
     FunctionType(@NotNull List<ValueType> parameterTypes, @NotNull List<ValueType> returnTypes) {
@@ -37,6 +40,7 @@ final class FunctionType {
     static final @NotNull FunctionType RET_F64 = new FunctionType(List.of(), List.of(F64)).initAll();
     static final @NotNull FunctionType RET_FUNCREF = new FunctionType(List.of(), List.of(FUNCREF)).initAll();
     static final @NotNull FunctionType RET_EXTERNREF = new FunctionType(List.of(), List.of(EXTERNREF)).initAll();
+    static final @NotNull FunctionType RET_ANYREF = new FunctionType(List.of(), List.of(ANYREF)).initAll();
 
     @NotNull @Unmodifiable List<ValueType> parameterTypes() {
         return parameterTypes;
@@ -78,6 +82,27 @@ final class FunctionType {
         return descriptor;
     }
 
+    @NotNull String referenceCallDescriptor() {
+        var descriptor = this.referenceCallDescriptor;
+
+        if (descriptor == null) {
+            this.referenceCallDescriptor = descriptor = computeReferenceCallDescriptor();
+        }
+
+        return descriptor;
+    }
+
+    // The descriptor of functions compiled for a single instance, which leave out the trailing ModuleInstance.
+    @NotNull String specializedDescriptor() {
+        var descriptor = this.specializedDescriptor;
+
+        if (descriptor == null) {
+            this.specializedDescriptor = descriptor = computeSpecializedDescriptor();
+        }
+
+        return descriptor;
+    }
+
     @NotNull MethodType methodType() {
         var type = this.methodType;
 
@@ -104,7 +129,7 @@ final class FunctionType {
             builder.append(returnTypes.get(0).descriptor());
         }
         else {
-            builder.append(OBJECT_ARRAY_DESCRIPTOR);
+            builder.append(MultipleResults.DESCRIPTOR);
         }
 
         return builder.toString();
@@ -126,7 +151,51 @@ final class FunctionType {
             builder.append(returnTypes.get(0).descriptor());
         }
         else {
-            builder.append(OBJECT_ARRAY_DESCRIPTOR);
+            builder.append(MultipleResults.DESCRIPTOR);
+        }
+
+        return builder.toString();
+    }
+
+    private @NotNull String computeReferenceCallDescriptor() {
+        var builder = new StringBuilder("(");
+
+        for (var parameterType : parameterTypes) {
+            builder.append(parameterType.descriptor());
+        }
+
+        builder.append(METHOD_HANDLE_DESCRIPTOR).append(MODULE_INSTANCE_DESCRIPTOR).append(')');
+
+        if (returnTypes.isEmpty()) {
+            builder.append('V');
+        }
+        else if (returnTypes.size() == 1) {
+            builder.append(returnTypes.get(0).descriptor());
+        }
+        else {
+            builder.append(MultipleResults.DESCRIPTOR);
+        }
+
+        return builder.toString();
+    }
+
+    private @NotNull String computeSpecializedDescriptor() {
+        var builder = new StringBuilder("(");
+
+        for (var parameterType : parameterTypes) {
+            builder.append(parameterType.descriptor());
+        }
+
+        builder.append(')');
+
+        if (returnTypes.isEmpty()) {
+            builder.append('V');
+        }
+        else if (returnTypes.size() == 1) {
+            builder.append(returnTypes.get(0).descriptor());
+        }
+        else {
+            builder.append(MultipleResults.DESCRIPTOR);
         }
 
         return builder.toString();
@@ -149,7 +218,7 @@ final class FunctionType {
             returnType = returnTypes.get(0).jvmType();
         }
         else {
-            returnType = Object[].class;
+            returnType = MultipleResults.class;
         }
 
         return MethodType.methodType(returnType, argumentTypes);
@@ -158,6 +227,8 @@ final class FunctionType {
     private @NotNull FunctionType initAll() {
         descriptor();
         indirectDescriptor();
+        referenceCallDescriptor();
+        specializedDescriptor();
         methodType();
         return this;
     }
@@ -0,0 +1,177 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.ClassWriter;
+
+import static java.util.Objects.requireNonNull;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V17;
+import static org.wastastic.Names.arrayClassName;
+import static org.wastastic.Names.structClassName;
+import static org.wastastic.Names.structFieldName;
+
+// Struct and array types are compiled to ordinary classes in a loader private to the module, rather than hidden classes,
+// so that subtypes can extend the classes of their supertypes and ref.test/ref.cast become plain instanceof checks.
+final class GcClasses {
+    private final @NotNull ModuleIndex index;
+    private final @NotNull ModuleStats stats;
+    private final @NotNull Class<?> @NotNull[] classes;
+    private final @NotNull Loader loader = new Loader();
+
+    GcClasses(@NotNull ModuleIndex index, @NotNull ModuleStats stats) {
+        this.index = requireNonNull(index);
+        this.stats = requireNonNull(stats);
+        this.classes = new Class<?>[index.types().size()];
+    }
+
+    synchronized @NotNull Class<?> get(int typeId) throws TranslationException {
+        var clazz = classes[typeId];
+
+        if (clazz == null) {
+            var type = index.types().get(typeId);
+            String kind, name;
+            byte[] bytes;
+
+            if (type instanceof StructType structType) {
+                if (structType.supertypeId() != -1) {
+                    get(structType.supertypeId());
+                }
+
+                kind = "struct";
+                name = structClassName(typeId);
+                bytes = generateStruct(typeId, structType);
+            }
+            else if (type instanceof ArrayType arrayType) {
+                if (arrayType.supertypeId() != -1) {
+                    get(arrayType.supertypeId());
+                }
+
+                kind = "array";
+                name = arrayClassName(typeId);
+                bytes = generateArray(typeId, arrayType);
+            }
+            else {
+                throw new TranslationException("Type " + typeId + " isn't a struct or array type");
+            }
+
+            clazz = classes[typeId] = loader.define(name.replace('/', '.'), kind, bytes);
+            stats.classDefined(bytes.length);
+        }
+
+        return clazz;
+    }
+
+    private byte @NotNull[] generateStruct(int typeId, @NotNull StructType type) throws TranslationException {
+        var superName = WasmStruct.INTERNAL_NAME;
+        var inheritedFieldCount = 0;
+
+        if (type.supertypeId() != -1) {
+            superName = structClassName(type.supertypeId());
+            inheritedFieldCount = index.structType(type.supertypeId()).fields().size();
+        }
+
+        var writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V17, ACC_PUBLIC | ACC_SUPER, structClassName(typeId), null, superName, null);
+
+        for (var i = inheritedFieldCount; i < type.fields().size(); i++) {
+            writer.visitField(ACC_PUBLIC, structFieldName(i), type.fields().get(i).jvmDescriptor(), null, null).visitEnd();
+        }
+
+        // struct.new_default
+        var defaultConstructor = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        defaultConstructor.visitCode();
+        defaultConstructor.visitVarInsn(ALOAD, 0);
+        defaultConstructor.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false);
+        defaultConstructor.visitInsn(RETURN);
+        defaultConstructor.visitMaxs(0, 0);
+        defaultConstructor.visitEnd();
+
+        // struct.new: takes every field, including inherited ones, in declaration order
+        if (!type.fields().isEmpty()) {
+            var constructor = writer.visitMethod(ACC_PUBLIC, "<init>", constructorDescriptor(type, type.fields().size()), null, null);
+            constructor.visitCode();
+            constructor.visitVarInsn(ALOAD, 0);
+
+            var nextLocalIndex = 1;
+            for (var i = 0; i < inheritedFieldCount; i++) {
+                var fieldType = type.fields().get(i);
+                constructor.visitVarInsn(fieldType.valueType().localLoadOpcode(), nextLocalIndex);
+                nextLocalIndex += fieldType.valueType().width();
+            }
+
+            constructor.visitMethodInsn(INVOKESPECIAL, superName, "<init>", constructorDescriptor(type, inheritedFieldCount), false);
+
+            for (var i = inheritedFieldCount; i < type.fields().size(); i++) {
+                var fieldType = type.fields().get(i);
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitVarInsn(fieldType.valueType().localLoadOpcode(), nextLocalIndex);
+                constructor.visitFieldInsn(PUTFIELD, structClassName(typeId), structFieldName(i), fieldType.jvmDescriptor());
+                nextLocalIndex += fieldType.valueType().width();
+            }
+
+            constructor.visitInsn(RETURN);
+            constructor.visitMaxs(0, 0);
+            constructor.visitEnd();
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    // array.new and friends fill a JVM array of the element type's storage, then hand it to the constructor.
+    private static byte @NotNull[] generateArray(int typeId, @NotNull ArrayType type) {
+        var superName = type.supertypeId() != -1 ? arrayClassName(type.supertypeId()) : WasmArray.storageInternalName(type.elementType());
+        var constructorDescriptor = "(" + type.jvmDescriptor() + ")V";
+
+        var writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V17, ACC_PUBLIC | ACC_SUPER, arrayClassName(typeId), null, superName, null);
+
+        var constructor = writer.visitMethod(ACC_PUBLIC, "<init>", constructorDescriptor, null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitVarInsn(ALOAD, 1);
+        constructor.visitMethodInsn(INVOKESPECIAL, superName, "<init>", constructorDescriptor, false);
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static @NotNull String constructorDescriptor(@NotNull StructType type, int fieldCount) {
+        var builder = new StringBuilder("(");
+
+        for (var i = 0; i < fieldCount; i++) {
+            builder.append(type.fields().get(i).jvmDescriptor());
+        }
+
+        return builder.append(")V").toString();
+    }
+
+    private static final class Loader extends ClassLoader {
+        Loader() {
+            super("wastastic-gc", WasmStruct.class.getClassLoader());
+        }
+
+        @NotNull Class<?> define(@NotNull String name, @NotNull String kind, byte @NotNull[] bytes) {
+            var event = new Events.ClassDefinitionEvent();
+            event.begin();
+            var clazz = defineClass(name, bytes, 0, bytes.length);
+
+            if (event.shouldCommit()) {
+                event.kind = kind;
+                event.definedClass = clazz;
+                event.classSize = bytes.length;
+                event.commit();
+            }
+
+            return clazz;
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+// Runtime support for the GC proposal's array, i31 and abstract-type instructions. Arrays are instances of per-type
+// classes (see GcClasses) around a plain JVM array (packed i8/i16 elements as byte[]/short[], references as Object[]),
+// and the accessors below cast to the storage class for the element type, so they're little more than a cast and an
+// array access that the JIT folds into the caller. i31 references are WasmI31s.
+final class GcInstructionImpls {
+    private GcInstructionImpls() {}
+
+    static final String INTERNAL_NAME = getInternalName(GcInstructionImpls.class);
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String ARRAY_NEW_NAME = "arrayNew";
+    static final String ARRAY_NEW_DEFAULT_NAME = "arrayNewDefault";
+    static final String ARRAY_GET_NAME = "arrayGet";
+    static final String ARRAY_GET_U_NAME = "arrayGetU";
+    static final String ARRAY_SET_NAME = "arraySet";
+    static final String ARRAY_FILL_NAME = "arrayFill";
+
+    // array.new and array.new_default return the JVM array, which ModuleImpl.ARRAY_NEW_BOOTSTRAP then wraps.
+    static @NotNull String arrayNewDescriptor(@NotNull FieldType elementType) {
+        return "(" + elementType.erasedValueDescriptor() + "I)[" + elementType.jvmDescriptor();
+    }
+
+    static @NotNull String arrayNewDefaultDescriptor(@NotNull FieldType elementType) {
+        return "(I)[" + elementType.jvmDescriptor();
+    }
+
+    static @NotNull String arrayGetDescriptor(@NotNull FieldType elementType) {
+        return "(" + Names.OBJECT_DESCRIPTOR + "I)" + elementType.erasedValueDescriptor();
+    }
+
+    static @NotNull String arraySetDescriptor(@NotNull FieldType elementType) {
+        return "(" + Names.OBJECT_DESCRIPTOR + "I" + elementType.erasedValueDescriptor() + ")V";
+    }
+
+    static @NotNull String arrayFillDescriptor(@NotNull FieldType elementType) {
+        return "(" + Names.OBJECT_DESCRIPTOR + "I" + elementType.erasedValueDescriptor() + "I)V";
+    }
+
+    private static int checkLength(int length) throws TrapException {
+        if (length < 0) {
+            throw new TrapException(TrapException.Kind.IMPLEMENTATION_LIMIT, "array size exceeds implementation limit");
+        }
+
+        return length;
+    }
+
+    // Array accesses catch whatever the JVM throws for them; a null array is a null reference, anything else is out of
+    // bounds.
+    private static @NotNull TrapException arrayAccessTrap(@NotNull RuntimeException exception) {
+        var kind = exception instanceof NullPointerException ? TrapException.Kind.NULL_REFERENCE : TrapException.Kind.OUT_OF_BOUNDS_ARRAY_ACCESS;
+        return new TrapException(kind, exception);
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unused")
+    static byte @NotNull[] arrayNewI8(int value, int length) throws TrapException {
+        var array = new byte[checkLength(length)];
+        Arrays.fill(array, (byte) value);
+        return array;
+    }
+
+    @SuppressWarnings("unused")
+    static byte @NotNull[] arrayNewDefaultI8(int length) throws TrapException {
+        return new byte[checkLength(length)];
+    }
+
+    @SuppressWarnings("unused")
+    static int arrayGetI8(@Nullable Object array, int index) throws TrapException {
+        try {
+            return ((WasmArray.I8) array).elements[index];
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static int arrayGetUI8(@Nullable Object array, int index) throws TrapException {
+        try {
+            return Byte.toUnsignedInt(((WasmArray.I8) array).elements[index]);
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arraySetI8(@Nullable Object array, int index, int value) throws TrapException {
+        try {
+            ((WasmArray.I8) array).elements[index] = (byte) value;
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arrayFillI8(@Nullable Object array, int offset, int value, int size) throws TrapException {
+        try {
+            var typedArray = ((WasmArray.I8) array).elements;
+            Arrays.fill(typedArray, offset, Math.addExact(offset, size), (byte) value);
+        }
+        catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unused")
+    static short @NotNull[] arrayNewI16(int value, int length) throws TrapException {
+        var array = new short[checkLength(length)];
+        Arrays.fill(array, (short) value);
+        return array;
+    }
+
+    @SuppressWarnings("unused")
+    static short @NotNull[] arrayNewDefaultI16(int length) throws TrapException {
+        return new short[checkLength(length)];
+    }
+
+    @SuppressWarnings("unused")
+    static int arrayGetI16(@Nullable Object array, int index) throws TrapException {
+        try {
+            return ((WasmArray.I16) array).elements[index];
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static int arrayGetUI16(@Nullable Object array, int index) throws TrapException {
+        try {
+            return Short.toUnsignedInt(((WasmArray.I16) array).elements[index]);
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arraySetI16(@Nullable Object array, int index, int value) throws TrapException {
+        try {
+            ((WasmArray.I16) array).elements[index] = (short) value;
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arrayFillI16(@Nullable Object array, int offset, int value, int size) throws TrapException {
+        try {
+            var typedArray = ((WasmArray.I16) array).elements;
+            Arrays.fill(typedArray, offset, Math.addExact(offset, size), (short) value);
+        }
+        catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unused")
+    static int @NotNull[] arrayNewI32(int value, int length) throws TrapException {
+        var array = new int[checkLength(length)];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    @SuppressWarnings("unused")
+    static int @NotNull[] arrayNewDefaultI32(int length) throws TrapException {
+        return new int[checkLength(length)];
+    }
+
+    @SuppressWarnings("unused")
+    static int arrayGetI32(@Nullable Object array, int index) throws TrapException {
+        try {
+            return ((WasmArray.I32) array).elements[index];
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arraySetI32(@Nullable Object array, int index, int value) throws TrapException {
+        try {
+            ((WasmArray.I32) array).elements[index] = value;
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arrayFillI32(@Nullable Object array, int offset, int value, int size) throws TrapException {
+        try {
+            var typedArray = ((WasmArray.I32) array).elements;
+            Arrays.fill(typedArray, offset, Math.addExact(offset, size), value);
+        }
+        catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unused")
+    static long @NotNull[] arrayNewI64(long value, int length) throws TrapException {
+        var array = new long[checkLength(length)];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    @SuppressWarnings("unused")
+    static long @NotNull[] arrayNewDefaultI64(int length) throws TrapException {
+        return new long[checkLength(length)];
+    }
+
+    @SuppressWarnings("unused")
+    static long arrayGetI64(@Nullable Object array, int index) throws TrapException {
+        try {
+            return ((WasmArray.I64) array).elements[index];
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arraySetI64(@Nullable Object array, int index, long value) throws TrapException {
+        try {
+            ((WasmArray.I64) array).elements[index] = value;
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arrayFillI64(@Nullable Object array, int offset, long value, int size) throws TrapException {
+        try {
+            var typedArray = ((WasmArray.I64) array).elements;
+            Arrays.fill(typedArray, offset, Math.addExact(offset, size), value);
+        }
+        catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unused")
+    static float @NotNull[] arrayNewF32(float value, int length) throws TrapException {
+        var array = new float[checkLength(length)];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    @SuppressWarnings("unused")
+    static float @NotNull[] arrayNewDefaultF32(int length) throws TrapException {
+        return new float[checkLength(length)];
+    }
+
+    @SuppressWarnings("unused")
+    static float arrayGetF32(@Nullable Object array, int index) throws TrapException {
+        try {
+            return ((WasmArray.F32) array).elements[index];
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arraySetF32(@Nullable Object array, int index, float value) throws TrapException {
+        try {
+            ((WasmArray.F32) array).elements[index] = value;
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arrayFillF32(@Nullable Object array, int offset, float value, int size) throws TrapException {
+        try {
+            var typedArray = ((WasmArray.F32) array).elements;
+            Arrays.fill(typedArray, offset, Math.addExact(offset, size), value);
+        }
+        catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unused")
+    static double @NotNull[] arrayNewF64(double value, int length) throws TrapException {
+        var array = new double[checkLength(length)];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    @SuppressWarnings("unused")
+    static double @NotNull[] arrayNewDefaultF64(int length) throws TrapException {
+        return new double[checkLength(length)];
+    }
+
+    @SuppressWarnings("unused")
+    static double arrayGetF64(@Nullable Object array, int index) throws TrapException {
+        try {
+            return ((WasmArray.F64) array).elements[index];
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arraySetF64(@Nullable Object array, int index, double value) throws TrapException {
+        try {
+            ((WasmArray.F64) array).elements[index] = value;
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arrayFillF64(@Nullable Object array, int offset, double value, int size) throws TrapException {
+        try {
+            var typedArray = ((WasmArray.F64) array).elements;
+            Arrays.fill(typedArray, offset, Math.addExact(offset, size), value);
+        }
+        catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unused")
+    static @Nullable Object @NotNull[] arrayNewRef(@Nullable Object value, int length) throws TrapException {
+        var array = new Object[checkLength(length)];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    @SuppressWarnings("unused")
+    static @Nullable Object @NotNull[] arrayNewDefaultRef(int length) throws TrapException {
+        return new Object[checkLength(length)];
+    }
+
+    @SuppressWarnings("unused")
+    static @Nullable Object arrayGetRef(@Nullable Object array, int index) throws TrapException {
+        try {
+            return ((WasmArray.Ref) array).elements[index];
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arraySetRef(@Nullable Object array, int index, @Nullable Object value) throws TrapException {
+        try {
+            ((WasmArray.Ref) array).elements[index] = value;
+        }
+        catch (NullPointerException | ArrayIndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    static void arrayFillRef(@Nullable Object array, int offset, @Nullable Object value, int size) throws TrapException {
+        try {
+            var typedArray = ((WasmArray.Ref) array).elements;
+            Arrays.fill(typedArray, offset, Math.addExact(offset, size), value);
+        }
+        catch (NullPointerException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String ARRAY_LEN_NAME = "arrayLen";
+    static final String ARRAY_LEN_DESCRIPTOR = methodDescriptor(int.class, Object.class);
+
+    @SuppressWarnings("unused")
+    static int arrayLen(@Nullable Object array) throws TrapException {
+        if (array == null) {
+            throw new TrapException(TrapException.Kind.NULL_REFERENCE, "null array reference");
+        }
+
+        return ((WasmArray) array).length();
+    }
+
+    static final String ARRAY_COPY_NAME = "arrayCopy";
+    static final String ARRAY_COPY_DESCRIPTOR = methodDescriptor(void.class, Object.class, int.class, Object.class, int.class, int.class);
+
+    @SuppressWarnings("unused")
+    static void arrayCopy(@Nullable Object destination, int destinationOffset, @Nullable Object source, int sourceOffset, int size) throws TrapException {
+        try {
+            System.arraycopy(((WasmArray) source).elements(), sourceOffset, ((WasmArray) destination).elements(), destinationOffset, size);
+        }
+        catch (NullPointerException | IndexOutOfBoundsException exception) {
+            throw arrayAccessTrap(exception);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String REF_I31_NAME = "refI31";
+    static final String REF_I31_DESCRIPTOR = methodDescriptor(Object.class, int.class);
+
+    @SuppressWarnings("unused")
+    static @NotNull Object refI31(int value) {
+        return new WasmI31((value << 1) >> 1);
+    }
+
+    static final String I31_GET_S_NAME = "i31GetS";
+    static final String I31_GET_S_DESCRIPTOR = methodDescriptor(int.class, Object.class);
+
+    @SuppressWarnings("unused")
+    static int i31GetS(@Nullable Object ref) throws TrapException {
+        if (ref == null) {
+            throw new TrapException(TrapException.Kind.NULL_REFERENCE, "null i31 reference");
+        }
+
+        return ((WasmI31) ref).value();
+    }
+
+    static final String I31_GET_U_NAME = "i31GetU";
+    static final String I31_GET_U_DESCRIPTOR = methodDescriptor(int.class, Object.class);
+
+    @SuppressWarnings("unused")
+    static int i31GetU(@Nullable Object ref) throws TrapException {
+        return i31GetS(ref) & 0x7fffffff;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // i31 references are WasmI31 boxes, so they compare by value rather than identity.
+    static final String REF_EQ_NAME = "refEq";
+    static final String REF_EQ_DESCRIPTOR = methodDescriptor(boolean.class, Object.class, Object.class);
+
+    @SuppressWarnings("unused")
+    static boolean refEq(@Nullable Object lhs, @Nullable Object rhs) {
+        return lhs == rhs || (lhs instanceof WasmI31 i31 && i31.equals(rhs));
+    }
+
+    static final String IS_EQ_NAME = "isEq";
+    static final String IS_EQ_DESCRIPTOR = methodDescriptor(boolean.class, Object.class);
+
+    @SuppressWarnings("unused")
+    static boolean isEq(@Nullable Object ref) {
+        return ref instanceof WasmStruct || ref instanceof WasmArray || ref instanceof WasmI31;
+    }
+
+    static final String IS_FUNCTION_NAME = "isFunction";
+    static final String IS_FUNCTION_DESCRIPTOR = methodDescriptor(boolean.class, Object.class, MethodType.class);
+
+    @SuppressWarnings("unused")
+    static boolean isFunction(@Nullable Object ref, @NotNull MethodType type) {
+        return ref instanceof MethodHandle handle && handle.type().equals(type);
+    }
+}
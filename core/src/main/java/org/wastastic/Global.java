@@ -0,0 +1,187 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+
+import static java.util.Objects.requireNonNull;
+import static org.objectweb.asm.Type.getDescriptor;
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+// A global that lives outside of any one instance: the value supplied for an imported global, or the shared cell behind
+// an exported mutable one. Instances keep a reference to mutable cells and read and write their value field directly;
+// immutable imports are copied into the instance when it's created.
+public final class Global {
+    static final String INTERNAL_NAME = getInternalName(Global.class);
+    static final String DESCRIPTOR = getDescriptor(Global.class);
+    static final String CONSTRUCTOR_DESCRIPTOR = methodDescriptor(void.class, ValueType.class, boolean.class);
+
+    final @NotNull ValueType type;
+    final boolean mutable;
+
+    // Only the field for the global's own type is ever used.
+    int i32Value;
+    long i64Value;
+    float f32Value;
+    double f64Value;
+    @Nullable Object referenceValue;
+
+    Global(@NotNull ValueType type, boolean mutable) {
+        this.type = requireNonNull(type);
+        this.mutable = mutable;
+    }
+
+    public static @NotNull Global i32(int value, boolean mutable) {
+        var global = new Global(ValueType.I32, mutable);
+        global.i32Value = value;
+        return global;
+    }
+
+    public static @NotNull Global i64(long value, boolean mutable) {
+        var global = new Global(ValueType.I64, mutable);
+        global.i64Value = value;
+        return global;
+    }
+
+    public static @NotNull Global f32(float value, boolean mutable) {
+        var global = new Global(ValueType.F32, mutable);
+        global.f32Value = value;
+        return global;
+    }
+
+    public static @NotNull Global f64(double value, boolean mutable) {
+        var global = new Global(ValueType.F64, mutable);
+        global.f64Value = value;
+        return global;
+    }
+
+    public static @NotNull Global funcref(@Nullable MethodHandle value, boolean mutable) {
+        var global = new Global(ValueType.FUNCREF, mutable);
+        global.referenceValue = MultipleResults.fromHost(value);
+        return global;
+    }
+
+    public static @NotNull Global externref(@Nullable Object value, boolean mutable) {
+        var global = new Global(ValueType.EXTERNREF, mutable);
+        global.referenceValue = value;
+        return global;
+    }
+
+    public static @NotNull Global anyref(@Nullable Object value, boolean mutable) {
+        var global = new Global(ValueType.ANYREF, mutable);
+        global.referenceValue = value;
+        return global;
+    }
+
+    public boolean isMutable() {
+        return mutable;
+    }
+
+    public int getI32() {
+        checkType(ValueType.I32);
+        return i32Value;
+    }
+
+    public void setI32(int value) {
+        checkMutable(ValueType.I32);
+        i32Value = value;
+    }
+
+    public long getI64() {
+        checkType(ValueType.I64);
+        return i64Value;
+    }
+
+    public void setI64(long value) {
+        checkMutable(ValueType.I64);
+        i64Value = value;
+    }
+
+    public float getF32() {
+        checkType(ValueType.F32);
+        return f32Value;
+    }
+
+    public void setF32(float value) {
+        checkMutable(ValueType.F32);
+        f32Value = value;
+    }
+
+    public double getF64() {
+        checkType(ValueType.F64);
+        return f64Value;
+    }
+
+    public void setF64(double value) {
+        checkMutable(ValueType.F64);
+        f64Value = value;
+    }
+
+    public @Nullable Object getReference() {
+        if (!type.isReference()) {
+            throw new IllegalStateException("global is of type " + type);
+        }
+
+        return type == ValueType.FUNCREF ? MultipleResults.toHost(referenceValue) : referenceValue;
+    }
+
+    public void setReference(@Nullable Object value) {
+        if (!type.isReference()) {
+            throw new IllegalStateException("global is of type " + type);
+        }
+
+        if (type == ValueType.FUNCREF && value != null && !(value instanceof MethodHandle)) {
+            throw new IllegalArgumentException("funcref globals can only hold method handles");
+        }
+
+        checkMutable(type);
+        referenceValue = type == ValueType.FUNCREF ? MultipleResults.fromHost(value) : value;
+    }
+
+    private void checkType(@NotNull ValueType expectedType) {
+        if (type != expectedType) {
+            throw new IllegalStateException("global is of type " + type);
+        }
+    }
+
+    private void checkMutable(@NotNull ValueType expectedType) {
+        checkType(expectedType);
+
+        if (!mutable) {
+            throw new IllegalStateException("global is immutable");
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static @NotNull String valueFieldName(@NotNull ValueType type) {
+        return switch (type) {
+            case I32 -> "i32Value";
+            case I64 -> "i64Value";
+            case F32 -> "f32Value";
+            case F64 -> "f64Value";
+            case FUNCREF, EXTERNREF, ANYREF -> "referenceValue";
+        };
+    }
+
+    static @NotNull Class<?> valueFieldType(@NotNull ValueType type) {
+        return type.isReference() ? Object.class : type.jvmType();
+    }
+
+    // Wraps the current value of an instance's own immutable global for export.
+    @SuppressWarnings("unused")
+    static @NotNull Global exportConstant(@NotNull ValueType type, @Nullable Object boxedValue) {
+        var global = new Global(type, false);
+
+        switch (type) {
+            case I32 -> global.i32Value = (Integer) requireNonNull(boxedValue);
+            case I64 -> global.i64Value = (Long) requireNonNull(boxedValue);
+            case F32 -> global.f32Value = (Float) requireNonNull(boxedValue);
+            case F64 -> global.f64Value = (Double) requireNonNull(boxedValue);
+            case FUNCREF, EXTERNREF, ANYREF -> global.referenceValue = boxedValue;
+        }
+
+        return global;
+    }
+}
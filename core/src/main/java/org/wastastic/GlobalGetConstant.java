@@ -0,0 +1,3 @@
+package org.wastastic;
+
+record GlobalGetConstant(int globalId) implements Constant {}
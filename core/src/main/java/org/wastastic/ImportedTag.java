@@ -0,0 +1,12 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+record ImportedTag(@NotNull QualifiedName name, @NotNull FunctionType type) {
+    ImportedTag {
+        requireNonNull(name);
+        requireNonNull(type);
+    }
+}
@@ -44,8 +44,12 @@ final class Importers {
             throw new InvalidImportException("Value provided for imported function is not a method handle", null);
         }
 
+        // Functions with several results are supplied returning an Object[], as they're exported, rather than the
+        // MultipleResults carrier that generated code calls them with.
+        var hostType = requiredType.returnType() == MultipleResults.class ? requiredType.changeReturnType(Object[].class) : requiredType;
+
         try {
-            return handle.asType(requiredType);
+            return MultipleResults.function(handle.asType(hostType));
         }
         catch (WrongMethodTypeException exception) {
             throw new InvalidImportException("Method handle provided for imported function has an incompatible type", exception);
@@ -86,4 +90,47 @@ final class Importers {
 
         return memory;
     }
+
+    static final String IMPORT_GLOBAL_NAME = "importGlobal";
+    static final String IMPORT_GLOBAL_DESCRIPTOR = methodDescriptor(Global.class, Map.class, String.class, String.class, ValueType.class, boolean.class);
+
+    @SuppressWarnings("unused")
+    static @NotNull Global importGlobal(
+        @NotNull Map<QualifiedName, Object> imports,
+        @NotNull String moduleName,
+        @NotNull String name,
+        @NotNull ValueType requiredType,
+        boolean requiredMutable
+    ) throws MissingImportException, InvalidImportException {
+        if (!(fetchImport(imports, moduleName, name) instanceof Global global)) {
+            throw new InvalidImportException("Value provided for imported global is not a global", null);
+        }
+
+        if (global.type != requiredType || global.mutable != requiredMutable) {
+            throw new InvalidImportException("Global provided for imported global has an incompatible type", null);
+        }
+
+        return global;
+    }
+
+    static final String IMPORT_TAG_NAME = "importTag";
+    static final String IMPORT_TAG_DESCRIPTOR = methodDescriptor(Tag.class, Map.class, String.class, String.class, MethodType.class);
+
+    @SuppressWarnings("unused")
+    static @NotNull Tag importTag(
+        @NotNull Map<QualifiedName, Object> imports,
+        @NotNull String moduleName,
+        @NotNull String name,
+        @NotNull MethodType requiredType
+    ) throws MissingImportException, InvalidImportException {
+        if (!(fetchImport(imports, moduleName, name) instanceof Tag tag)) {
+            throw new InvalidImportException("Value provided for imported tag is not a tag", null);
+        }
+
+        if (!tag.parameterTypes().equals(Tag.payloadTypes(requiredType).parameterList())) {
+            throw new InvalidImportException("Tag provided for imported tag has an incompatible type", null);
+        }
+
+        return tag;
+    }
 }
@@ -14,7 +14,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static int i32DivS(int lhs, int rhs) throws TrapException {
         if (rhs == 0 || (lhs == Integer.MIN_VALUE && rhs == -1)) {
-            throw new TrapException();
+            throw new TrapException(rhs == 0 ? TrapException.Kind.INTEGER_DIVIDE_BY_ZERO : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         return lhs / rhs;
@@ -26,7 +26,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static long i64DivS(long lhs, long rhs) throws TrapException {
         if (rhs == 0 || (lhs == Long.MIN_VALUE && rhs == -1)) {
-            throw new TrapException();
+            throw new TrapException(rhs == 0 ? TrapException.Kind.INTEGER_DIVIDE_BY_ZERO : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         return lhs / rhs;
@@ -54,7 +54,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static int i32TruncF32S(float operand) throws TrapException {
         if (Float.isNaN(operand) || operand < -0x1p31f || operand >= 0x1p31f) {
-            throw new TrapException();
+            throw new TrapException(Float.isNaN(operand) ? TrapException.Kind.INVALID_CONVERSION_TO_INTEGER : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         return (int) operand;
@@ -66,7 +66,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static int i32TruncF32U(float operand) throws TrapException {
         if (Float.isNaN(operand) || operand <= -1f || operand >= 0x1p32f) {
-            throw new TrapException();
+            throw new TrapException(Float.isNaN(operand) ? TrapException.Kind.INVALID_CONVERSION_TO_INTEGER : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         return (int) (long) operand;
@@ -78,7 +78,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static int i32TruncF64S(double operand) throws TrapException {
         if (Double.isNaN(operand) || operand <= -0x1.00000002p31 || operand >= 0x1p31) {
-            throw new TrapException();
+            throw new TrapException(Double.isNaN(operand) ? TrapException.Kind.INVALID_CONVERSION_TO_INTEGER : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         return (int) operand;
@@ -90,7 +90,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static int i32TruncF64U(double operand) throws TrapException {
         if (Double.isNaN(operand) || operand <= -1.0 || operand >= 0x1p32) {
-            throw new TrapException();
+            throw new TrapException(Double.isNaN(operand) ? TrapException.Kind.INVALID_CONVERSION_TO_INTEGER : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         return (int) (long) operand;
@@ -102,7 +102,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static long i64TruncF32S(float operand) throws TrapException {
         if (Float.isNaN(operand) || operand < -0x1p63f || operand >= 0x1p63f) {
-            throw new TrapException();
+            throw new TrapException(Float.isNaN(operand) ? TrapException.Kind.INVALID_CONVERSION_TO_INTEGER : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         return (long) operand;
@@ -114,7 +114,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static long i64TruncF32U(float operand) throws TrapException {
         if (Float.isNaN(operand) || operand <= -1f || operand >= 0x1p64f) {
-            throw new TrapException();
+            throw new TrapException(Float.isNaN(operand) ? TrapException.Kind.INVALID_CONVERSION_TO_INTEGER : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         if (operand >= 0x1p63f) {
@@ -130,7 +130,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static long i64TruncF64S(double operand) throws TrapException {
         if (Double.isNaN(operand) || operand < -0x1p63 || operand >= 0x1p63) {
-            throw new TrapException();
+            throw new TrapException(Double.isNaN(operand) ? TrapException.Kind.INVALID_CONVERSION_TO_INTEGER : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         return (long) operand;
@@ -142,7 +142,7 @@ final class InstructionImpls {
     @SuppressWarnings("unused")
     static long i64TruncF64U(double operand) throws TrapException {
         if (Double.isNaN(operand) || operand <= -1.0 || operand >= 0x1p64) {
-            throw new TrapException();
+            throw new TrapException(Double.isNaN(operand) ? TrapException.Kind.INVALID_CONVERSION_TO_INTEGER : TrapException.Kind.INTEGER_OVERFLOW);
         }
 
         if (operand >= 0x1p63) {
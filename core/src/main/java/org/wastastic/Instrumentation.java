@@ -0,0 +1,45 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+// Callbacks from generated code, for tracing, coverage and the like, set with CompilerOptions.withInstrumentation. Only
+// the points returned by points() get calls emitted for them, once per compile; the rest cost nothing, and without an
+// instrumentation at all the generated code is the same as it would otherwise be. Each hook is linked as a constant
+// call site bound to this object with the ids that are known at translation time already filled in, so hooks that the
+// JIT can inline cost no more than their own bodies. Hooks only take primitives, and run on the thread executing the
+// guest code; an exception thrown by one propagates out of the guest call like any other.
+public interface Instrumentation {
+    enum Point {
+        FUNCTION_ENTRY,
+        FUNCTION_EXIT,
+        CALL,
+        MEMORY_GROW,
+        MEMORY_ACCESS,
+    }
+
+    @NotNull Set<@NotNull Point> points();
+
+    // On entry to a defined function, before its first epoch check. A self tail call loops within the function rather
+    // than entering it again.
+    default void functionEntry(int functionId) {}
+
+    // On every normal return, including returns into a tail call trampoline; for a tail call, before the callee's
+    // arguments are handed off, so the hook may call back into the guest. Not called when a trap or exception unwinds
+    // the function.
+    default void functionExit(int functionId) {}
+
+    // Before a call or return_call to a known function. calleeId is -1 for call_ref and return_call_ref.
+    default void call(int functionId, int calleeId) {}
+
+    // Before a call_indirect or return_call_indirect, with the table element being called through.
+    default void indirectCall(int functionId, int tableId, int elementIndex) {}
+
+    // Before memory.grow, with the requested number of pages.
+    default void memoryGrow(int functionId, int memoryId, int deltaPages) {}
+
+    // Before a load or store, with its effective address (the address operand plus the static offset) and width in
+    // bytes. Called even if the access goes on to trap.
+    default void memoryAccess(int functionId, int memoryId, long address, int size, boolean store) {}
+}
@@ -16,8 +16,38 @@ final class Lists {
         return list.get(list.size() - 1);
     }
 
+    // The helpers below index into the list rather than going through iterators or subList views, so that the
+    // translator's per-instruction bookkeeping doesn't allocate.
+
     static void removeLast(@NotNull List<?> list, int count) {
-        list.subList(list.size() - count, list.size()).clear();
+        truncate(list, list.size() - count);
+    }
+
+    static void truncate(@NotNull List<?> list, int size) {
+        for (var i = list.size() - 1; i >= size; i--) {
+            list.remove(i);
+        }
+    }
+
+    static <E> void append(@NotNull List<E> list, @NotNull List<? extends E> elements) {
+        for (var i = 0; i < elements.size(); i++) {
+            list.add(elements.get(i));
+        }
+    }
+
+    // Whether the elements of list from fromIndex onwards are exactly those of expected.
+    static boolean tailEquals(@NotNull List<?> list, int fromIndex, @NotNull List<?> expected) {
+        if (fromIndex < 0 || list.size() - fromIndex != expected.size()) {
+            return false;
+        }
+
+        for (var i = 0; i < expected.size(); i++) {
+            if (!list.get(fromIndex + i).equals(expected.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
     }
 
     static <E> E removeLast(@NotNull List<E> list) {
@@ -4,6 +4,7 @@ import jdk.incubator.foreign.MemoryHandles;
 import jdk.incubator.foreign.MemorySegment;
 import jdk.incubator.foreign.ResourceScope;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
@@ -33,6 +34,11 @@ public final class Memory {
 
     private final int maxPageCount;
     private @NotNull MemorySegment segment;
+    private long byteSize;
+
+    // For RuntimeStats: successful grows, and the stats of the module that defined this memory, if one did.
+    private long growCount;
+    @Nullable ModuleStats owner;
 
     public Memory(int minPageCount, int maxPageCount) {
         if (compareUnsigned(minPageCount, maxPageCount) > 0) {
@@ -40,6 +46,7 @@ public final class Memory {
         }
 
         this.segment = MemorySegment.allocateNative(Integer.toUnsignedLong(minPageCount) * PAGE_SIZE, 8, newImplicitScope());
+        this.byteSize = segment.byteSize();
         this.maxPageCount = maxPageCount;
     }
 
@@ -105,6 +112,18 @@ public final class Memory {
         }
     }
 
+    long committedBytes() {
+        return byteSize;
+    }
+
+    long reservedBytes() {
+        return Math.min(Integer.toUnsignedLong(maxPageCount), 65536) * PAGE_SIZE;
+    }
+
+    long growCount() {
+        return growCount;
+    }
+
     public @NotNull Memory.Pinned pin() {
         // FIXME: actually prevent relocation
         return new Pinned(segment);
@@ -114,6 +133,14 @@ public final class Memory {
         return Integer.toUnsignedLong(address) + Integer.toUnsignedLong(offset);
     }
 
+    private static @NotNull TrapException outOfBounds() {
+        return new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, "out of bounds memory access");
+    }
+
+    private static boolean isOutOfBounds(long startAddress, long size, @NotNull Memory self) {
+        return startAddress + size > self.byteSize;
+    }
+
     static final String I32_LOAD_NAME = "i32Load";
 
     @SuppressWarnings("unused")
@@ -122,10 +149,23 @@ public final class Memory {
             return (int) VH_INT.get(self.segment, effectiveAddress(address, offset));
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
 
+    static final String I32_LOAD_EXPLICIT_NAME = "i32LoadExplicit";
+
+    @SuppressWarnings("unused")
+    static int i32LoadExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 4, self)) {
+            throw outOfBounds();
+        }
+
+        return (int) VH_INT.get(self.segment, effectiveAddress);
+    }
+
     static final String I64_LOAD_NAME = "i64Load";
 
     @SuppressWarnings("unused")
@@ -134,10 +174,23 @@ public final class Memory {
             return (long) VH_LONG.get(self.segment, effectiveAddress(address, offset));
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
 
+    static final String I64_LOAD_EXPLICIT_NAME = "i64LoadExplicit";
+
+    @SuppressWarnings("unused")
+    static long i64LoadExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 8, self)) {
+            throw outOfBounds();
+        }
+
+        return (long) VH_LONG.get(self.segment, effectiveAddress);
+    }
+
     static final String F32_LOAD_NAME = "f32Load";
 
     @SuppressWarnings("unused")
@@ -146,10 +199,23 @@ public final class Memory {
             return (float) VH_FLOAT.get(self.segment, effectiveAddress(address, offset));
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
 
+    static final String F32_LOAD_EXPLICIT_NAME = "f32LoadExplicit";
+
+    @SuppressWarnings("unused")
+    static float f32LoadExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 4, self)) {
+            throw outOfBounds();
+        }
+
+        return (float) VH_FLOAT.get(self.segment, effectiveAddress);
+    }
+
     static final String F64_LOAD_NAME = "f64Load";
 
     @SuppressWarnings("unused")
@@ -158,46 +224,99 @@ public final class Memory {
             return (double) VH_DOUBLE.get(self.segment, effectiveAddress(address, offset));
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
+        }
+    }
+
+    static final String F64_LOAD_EXPLICIT_NAME = "f64LoadExplicit";
+
+    @SuppressWarnings("unused")
+    static double f64LoadExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 8, self)) {
+            throw outOfBounds();
         }
+
+        return (double) VH_DOUBLE.get(self.segment, effectiveAddress);
     }
 
     static final String I32_LOAD_8_S_NAME = "i32Load8S";
 
     @SuppressWarnings("unused")
-    static byte i32Load8S(int address, int offset, @NotNull Memory self) throws TrapException {
+    static int i32Load8S(int address, int offset, @NotNull Memory self) throws TrapException {
         try {
             return (byte) VH_BYTE.get(self.segment, effectiveAddress(address, offset));
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
+        }
+    }
+
+    static final String I32_LOAD_8_S_EXPLICIT_NAME = "i32Load8SExplicit";
+
+    @SuppressWarnings("unused")
+    static int i32Load8SExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 1, self)) {
+            throw outOfBounds();
         }
+
+        return (byte) VH_BYTE.get(self.segment, effectiveAddress);
     }
 
     static final String I32_LOAD_8_U_NAME = "i32Load8U";
 
     @SuppressWarnings("unused")
     static int i32Load8U(int address, int offset, @NotNull Memory self) throws TrapException {
-        return Byte.toUnsignedInt(i32Load8S(address, offset, self));
+        return i32Load8S(address, offset, self) & 0xff;
+    }
+
+    static final String I32_LOAD_8_U_EXPLICIT_NAME = "i32Load8UExplicit";
+
+    @SuppressWarnings("unused")
+    static int i32Load8UExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        return i32Load8SExplicit(address, offset, self) & 0xff;
     }
 
     static final String I32_LOAD_16_S_NAME = "i32Load16S";
 
     @SuppressWarnings("unused")
-    static short i32Load16S(int address, int offset, @NotNull Memory self) throws TrapException {
+    static int i32Load16S(int address, int offset, @NotNull Memory self) throws TrapException {
         try {
             return (short) VH_SHORT.get(self.segment, effectiveAddress(address, offset));
         }
         catch (IndexOutOfBoundsException exception){
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
+        }
+    }
+
+    static final String I32_LOAD_16_S_EXPLICIT_NAME = "i32Load16SExplicit";
+
+    @SuppressWarnings("unused")
+    static int i32Load16SExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 2, self)) {
+            throw outOfBounds();
         }
+
+        return (short) VH_SHORT.get(self.segment, effectiveAddress);
     }
 
     static final String I32_LOAD_16_U_NAME = "i32Load16U";
 
     @SuppressWarnings("unused")
     static int i32Load16U(int address, int offset, @NotNull Memory self) throws TrapException {
-        return Short.toUnsignedInt(i32Load16S(address, offset, self));
+        return i32Load16S(address, offset, self) & 0xffff;
+    }
+
+    static final String I32_LOAD_16_U_EXPLICIT_NAME = "i32Load16UExplicit";
+
+    @SuppressWarnings("unused")
+    static int i32Load16UExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        return i32Load16SExplicit(address, offset, self) & 0xffff;
     }
 
     static final String I64_LOAD_8_S_NAME = "i64Load8S";
@@ -207,11 +326,25 @@ public final class Memory {
         return i32Load8S(address, offset, self);
     }
 
+    static final String I64_LOAD_8_S_EXPLICIT_NAME = "i64Load8SExplicit";
+
+    @SuppressWarnings("unused")
+    static long i64Load8SExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        return i32Load8SExplicit(address, offset, self);
+    }
+
     static final String I64_LOAD_8_U_NAME = "i64Load8U";
 
     @SuppressWarnings("unused")
     static long i64Load8U(int address, int offset, @NotNull Memory self) throws TrapException {
-        return Byte.toUnsignedLong(i32Load8S(address, offset, self));
+        return i32Load8U(address, offset, self);
+    }
+
+    static final String I64_LOAD_8_U_EXPLICIT_NAME = "i64Load8UExplicit";
+
+    @SuppressWarnings("unused")
+    static long i64Load8UExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        return i32Load8UExplicit(address, offset, self);
     }
 
     static final String I64_LOAD_16_S_NAME = "i64Load16S";
@@ -221,11 +354,25 @@ public final class Memory {
         return i32Load16S(address, offset, self);
     }
 
+    static final String I64_LOAD_16_S_EXPLICIT_NAME = "i64Load16SExplicit";
+
+    @SuppressWarnings("unused")
+    static long i64Load16SExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        return i32Load16SExplicit(address, offset, self);
+    }
+
     static final String I64_LOAD_16_U_NAME = "i64Load16U";
 
     @SuppressWarnings("unused")
     static long i64Load16U(int address, int offset, @NotNull Memory self) throws TrapException {
-        return Short.toUnsignedLong(i32Load16S(address, offset, self));
+        return i32Load16U(address, offset, self);
+    }
+
+    static final String I64_LOAD_16_U_EXPLICIT_NAME = "i64Load16UExplicit";
+
+    @SuppressWarnings("unused")
+    static long i64Load16UExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        return i32Load16UExplicit(address, offset, self);
     }
 
     static final String I64_LOAD_32_S_NAME = "i64Load32S";
@@ -235,6 +382,13 @@ public final class Memory {
         return i32Load(address, offset, self);
     }
 
+    static final String I64_LOAD_32_S_EXPLICIT_NAME = "i64Load32SExplicit";
+
+    @SuppressWarnings("unused")
+    static long i64Load32SExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        return i32LoadExplicit(address, offset, self);
+    }
+
     static final String I64_LOAD_32_U_NAME = "i64Load32U";
 
     @SuppressWarnings("unused")
@@ -242,6 +396,13 @@ public final class Memory {
         return Integer.toUnsignedLong(i32Load(address, offset, self));
     }
 
+    static final String I64_LOAD_32_U_EXPLICIT_NAME = "i64Load32UExplicit";
+
+    @SuppressWarnings("unused")
+    static long i64Load32UExplicit(int address, int offset, @NotNull Memory self) throws TrapException {
+        return Integer.toUnsignedLong(i32LoadExplicit(address, offset, self));
+    }
+
     static final String I32_STORE_NAME = "i32Store";
     static final String I32_STORE_DESCRIPTOR = methodDescriptor(void.class, int.class, int.class, int.class, Memory.class);
 
@@ -251,10 +412,23 @@ public final class Memory {
             VH_INT.set(self.segment, effectiveAddress(address, offset), value);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
 
+    static final String I32_STORE_EXPLICIT_NAME = "i32StoreExplicit";
+
+    @SuppressWarnings("unused")
+    static void i32StoreExplicit(int address, int value, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 4, self)) {
+            throw outOfBounds();
+        }
+
+        VH_INT.set(self.segment, effectiveAddress, value);
+    }
+
     static final String I64_STORE_NAME = "i64Store";
     static final String I64_STORE_DESCRIPTOR = methodDescriptor(void.class, int.class, long.class, int.class, Memory.class);
 
@@ -264,8 +438,21 @@ public final class Memory {
             VH_LONG.set(self.segment, effectiveAddress(address, offset), value);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
+        }
+    }
+
+    static final String I64_STORE_EXPLICIT_NAME = "i64StoreExplicit";
+
+    @SuppressWarnings("unused")
+    static void i64StoreExplicit(int address, long value, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 8, self)) {
+            throw outOfBounds();
         }
+
+        VH_LONG.set(self.segment, effectiveAddress, value);
     }
 
     static final String F32_STORE_NAME = "f32Store";
@@ -277,10 +464,23 @@ public final class Memory {
             VH_FLOAT.set(self.segment, effectiveAddress(address, offset), value);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
 
+    static final String F32_STORE_EXPLICIT_NAME = "f32StoreExplicit";
+
+    @SuppressWarnings("unused")
+    static void f32StoreExplicit(int address, float value, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 4, self)) {
+            throw outOfBounds();
+        }
+
+        VH_FLOAT.set(self.segment, effectiveAddress, value);
+    }
+
     static final String F64_STORE_NAME = "f64Store";
     static final String F64_STORE_DESCRIPTOR = methodDescriptor(void.class, int.class, double.class, int.class, Memory.class);
 
@@ -290,10 +490,23 @@ public final class Memory {
             VH_DOUBLE.set(self.segment, effectiveAddress(address, offset), value);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
 
+    static final String F64_STORE_EXPLICIT_NAME = "f64StoreExplicit";
+
+    @SuppressWarnings("unused")
+    static void f64StoreExplicit(int address, double value, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 8, self)) {
+            throw outOfBounds();
+        }
+
+        VH_DOUBLE.set(self.segment, effectiveAddress, value);
+    }
+
     static final String I32_STORE_8_NAME = "i32Store8";
     static final String I32_STORE_8_DESCRIPTOR = methodDescriptor(void.class, int.class, byte.class, int.class, Memory.class);
 
@@ -303,10 +516,23 @@ public final class Memory {
             VH_BYTE.set(self.segment, effectiveAddress(address, offset), value);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
 
+    static final String I32_STORE_8_EXPLICIT_NAME = "i32Store8Explicit";
+
+    @SuppressWarnings("unused")
+    static void i32Store8Explicit(int address, byte value, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 1, self)) {
+            throw outOfBounds();
+        }
+
+        VH_BYTE.set(self.segment, effectiveAddress, value);
+    }
+
     static final String I32_STORE_16_NAME = "i32Store16";
     static final String I32_STORE_16_DESCRIPTOR = methodDescriptor(void.class, int.class, short.class, int.class, Memory.class);
 
@@ -316,8 +542,21 @@ public final class Memory {
             VH_SHORT.set(self.segment, effectiveAddress(address, offset), value);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
+        }
+    }
+
+    static final String I32_STORE_16_EXPLICIT_NAME = "i32Store16Explicit";
+
+    @SuppressWarnings("unused")
+    static void i32Store16Explicit(int address, short value, int offset, @NotNull Memory self) throws TrapException {
+        var effectiveAddress = effectiveAddress(address, offset);
+
+        if (isOutOfBounds(effectiveAddress, 2, self)) {
+            throw outOfBounds();
         }
+
+        VH_SHORT.set(self.segment, effectiveAddress, value);
     }
 
     static final String I64_STORE_8_NAME = "i64Store8";
@@ -328,6 +567,13 @@ public final class Memory {
         i32Store8(address, (byte) value, offset, self);
     }
 
+    static final String I64_STORE_8_EXPLICIT_NAME = "i64Store8Explicit";
+
+    @SuppressWarnings("unused")
+    static void i64Store8Explicit(int address, long value, int offset, @NotNull Memory self) throws TrapException {
+        i32Store8Explicit(address, (byte) value, offset, self);
+    }
+
     static final String I64_STORE_16_NAME = "i64Store16";
     static final String I64_STORE_16_DESCRIPTOR = methodDescriptor(void.class, int.class, long.class, int.class, Memory.class);
 
@@ -336,6 +582,13 @@ public final class Memory {
         i32Store16(address, (short) value, offset, self);
     }
 
+    static final String I64_STORE_16_EXPLICIT_NAME = "i64Store16Explicit";
+
+    @SuppressWarnings("unused")
+    static void i64Store16Explicit(int address, long value, int offset, @NotNull Memory self) throws TrapException {
+        i32Store16Explicit(address, (short) value, offset, self);
+    }
+
     static final String I64_STORE_32_NAME = "i64Store32";
     static final String I64_STORE_32_DESCRIPTOR = methodDescriptor(void.class, int.class, long.class, int.class, Memory.class);
 
@@ -344,6 +597,13 @@ public final class Memory {
         i32Store(address, (int) value, offset, self);
     }
 
+    static final String I64_STORE_32_EXPLICIT_NAME = "i64Store32Explicit";
+
+    @SuppressWarnings("unused")
+    static void i64Store32Explicit(int address, long value, int offset, @NotNull Memory self) throws TrapException {
+        i32StoreExplicit(address, (int) value, offset, self);
+    }
+
     static final String SIZE_METHOD_NAME = "size";
     static final String SIZE_METHOD_DESCRIPTOR = methodDescriptor(int.class, Memory.class);
 
@@ -370,6 +630,10 @@ public final class Memory {
             return -1;
         }
 
+        // The event's own duration also covers allocating (and zeroing) the new segment.
+        var event = new Events.MemoryGrowEvent();
+        event.begin();
+
         MemorySegment newSegment;
         try {
             newSegment = MemorySegment.allocateNative(newPageCount * PAGE_SIZE, 8, newImplicitScope());
@@ -377,8 +641,24 @@ public final class Memory {
             return -1;
         }
 
+        var copyStart = System.nanoTime();
         newSegment.copyFrom(segment);
+        var copyTime = System.nanoTime() - copyStart;
         self.segment = newSegment;
+        self.byteSize = newSegment.byteSize();
+        self.growCount++;
+
+        var owner = self.owner;
+        if (owner != null) {
+            owner.memoryGrown();
+        }
+
+        if (event.shouldCommit()) {
+            event.oldSize = segment.byteSize();
+            event.newSize = newSegment.byteSize();
+            event.copyTime = copyTime;
+            event.commit();
+        }
 
         return (int) currentPageCount;
     }
@@ -407,10 +687,38 @@ public final class Memory {
             dstSlice.copyFrom(srcSlice);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
+        }
+    }
+
+    static final MethodHandle INIT_EXPLICIT_HANDLE;
+
+    static {
+        var lookup = MethodHandles.lookup();
+
+        try {
+            INIT_EXPLICIT_HANDLE = lookup.findStatic(
+                Memory.class, "initExplicit",
+                methodType(void.class, int.class, int.class, int.class, MemorySegment.class, Memory.class)
+            );
+        }
+        catch (Throwable exception) {
+            throw new UnsupportedOperationException(exception);
         }
     }
 
+    private static void initExplicit(int dstAddress, int srcAddress, int size, @NotNull MemorySegment src, @NotNull Memory self) throws TrapException {
+        var longDstAddress = Integer.toUnsignedLong(dstAddress);
+        var longSrcAddress = Integer.toUnsignedLong(srcAddress);
+        var longSize = Integer.toUnsignedLong(size);
+
+        if (isOutOfBounds(longDstAddress, longSize, self) || longSrcAddress + longSize > src.byteSize()) {
+            throw outOfBounds();
+        }
+
+        self.segment.asSlice(longDstAddress, longSize).copyFrom(src.asSlice(longSrcAddress, longSize));
+    }
+
     static final String INIT_FROM_ACTIVE_NAME = "initFromActive";
     static final String INIT_FROM_ACTIVE_DESCRIPTOR = methodDescriptor(void.class, MemorySegment.class, int.class, Memory.class);
 
@@ -420,7 +728,7 @@ public final class Memory {
             self.segment.asSlice(Integer.toUnsignedLong(dstAddress)).copyFrom(data);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
 
@@ -433,12 +741,26 @@ public final class Memory {
             self.segment.asSlice(Integer.toUnsignedLong(dstAddress), Integer.toUnsignedLong(size)).fill(fillValue);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
+        }
+    }
+
+    static final String FILL_EXPLICIT_NAME = "fillExplicit";
+
+    @SuppressWarnings("unused")
+    static void fillExplicit(int dstAddress, byte fillValue, int size, @NotNull Memory self) throws TrapException {
+        var longDstAddress = Integer.toUnsignedLong(dstAddress);
+        var longSize = Integer.toUnsignedLong(size);
+
+        if (isOutOfBounds(longDstAddress, longSize, self)) {
+            throw outOfBounds();
         }
+
+        self.segment.asSlice(longDstAddress, longSize).fill(fillValue);
     }
 
     static final String COPY_METHOD_NAME = "copy";
-    static final String COPY_METHOD_DESCRIPTOR = methodDescriptor(void.class, int.class, int.class, int.class, Memory.class);
+    static final String COPY_METHOD_DESCRIPTOR = methodDescriptor(void.class, int.class, int.class, int.class, Memory.class, Memory.class);
 
     @SuppressWarnings("unused")
     static void copy(int dstAddress, int srcAddress, int size, @NotNull Memory dst, @NotNull Memory src) throws TrapException {
@@ -448,7 +770,22 @@ public final class Memory {
             dstSegment.copyFrom(srcSegment);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_MEMORY_ACCESS, exception);
         }
     }
+
+    static final String COPY_EXPLICIT_NAME = "copyExplicit";
+
+    @SuppressWarnings("unused")
+    static void copyExplicit(int dstAddress, int srcAddress, int size, @NotNull Memory dst, @NotNull Memory src) throws TrapException {
+        var longDstAddress = Integer.toUnsignedLong(dstAddress);
+        var longSrcAddress = Integer.toUnsignedLong(srcAddress);
+        var longSize = Integer.toUnsignedLong(size);
+
+        if (isOutOfBounds(longDstAddress, longSize, dst) || isOutOfBounds(longSrcAddress, longSize, src)) {
+            throw outOfBounds();
+        }
+
+        dst.segment.asSlice(longDstAddress, longSize).copyFrom(src.segment.asSlice(longSrcAddress, longSize));
+    }
 }
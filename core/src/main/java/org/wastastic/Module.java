@@ -4,16 +4,43 @@ import jdk.incubator.foreign.MemorySegment;
 import jdk.incubator.foreign.ResourceScope;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.VarHandle;
+import java.nio.channels.ReadableByteChannel;
 
 public sealed interface Module permits ModuleImpl {
     static @NotNull Module compile(@NotNull MemorySegment segment) throws TranslationException {
-        return new ModuleImpl(ModuleIndex.of(segment.asReadOnly()));
+        return compile(segment, CompilerOptions.defaults());
+    }
+
+    static @NotNull Module compile(@NotNull MemorySegment segment, @NotNull CompilerOptions options) throws TranslationException {
+        return new ModuleImpl(ModuleIndex.of(segment.asReadOnly()), options);
+    }
+
+    // Checks that the module is well-formed and that every function body would translate, without generating any
+    // classes. Bodies are checked in parallel, and every invalid one is reported rather than only the first.
+    static void validate(@NotNull MemorySegment segment) throws ValidationException {
+        ModuleValidator.validate(segment.asReadOnly());
+    }
+
+    // Reads the module from a (blocking) channel, translating function bodies in the common pool while the rest of the
+    // module is still arriving. The channel is read to its end but not closed.
+    static @NotNull Module compileStreaming(@NotNull ReadableByteChannel channel) throws TranslationException, IOException {
+        return compileStreaming(channel, CompilerOptions.defaults());
+    }
+
+    static @NotNull Module compileStreaming(@NotNull ReadableByteChannel channel, @NotNull CompilerOptions options) throws TranslationException, IOException {
+        return StreamingCompiler.compile(channel, options);
     }
 
     @NotNull ResourceScope scope();
 
+    @NotNull RuntimeStats stats();
+
+    // Throws IllegalArgumentException if the instance wasn't created from this module.
+    @NotNull RuntimeStats.Instance stats(@NotNull ModuleInstance instance);
+
     void precompileFunctions() throws TranslationException;
 
     @NotNull MethodHandle instantiationHandle() throws TranslationException;
@@ -23,4 +50,12 @@ public sealed interface Module permits ModuleImpl {
     @NotNull VarHandle exportedTableHandle(@NotNull String name) throws TranslationException;
 
     @NotNull VarHandle exportedMemoryHandle(@NotNull String name) throws TranslationException;
+
+    @NotNull VarHandle exportedTagHandle(@NotNull String name) throws TranslationException;
+
+    @NotNull MethodHandle exportedGlobalHandle(@NotNull String name) throws TranslationException;
+
+    @NotNull MethodHandle fuelHandle() throws TranslationException;
+
+    @NotNull MethodHandle epochDeadlineHandle() throws TranslationException;
 }
@@ -8,6 +8,7 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
 
 import java.lang.invoke.CallSite;
 import java.lang.invoke.ConstantCallSite;
@@ -15,11 +16,19 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.VarHandle;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import static java.lang.invoke.MethodHandles.classData;
+import static java.lang.invoke.MethodHandles.constant;
+import static java.lang.invoke.MethodHandles.dropArguments;
 import static java.lang.invoke.MethodHandles.exactInvoker;
 import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.filterReturnValue;
 import static java.lang.invoke.MethodHandles.insertArguments;
 import static java.lang.invoke.MethodHandles.permuteArguments;
 import static java.lang.invoke.MethodType.methodType;
@@ -29,11 +38,16 @@ import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
 import static org.objectweb.asm.Opcodes.ACC_STATIC;
 import static org.objectweb.asm.Opcodes.ACONST_NULL;
 import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ASTORE;
 import static org.objectweb.asm.Opcodes.ATHROW;
 import static org.objectweb.asm.Opcodes.CHECKCAST;
 import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.F_NEW;
 import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
 import static org.objectweb.asm.Opcodes.H_INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.ICONST_1;
 import static org.objectweb.asm.Opcodes.IFNULL;
 import static org.objectweb.asm.Opcodes.ILOAD;
 import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
@@ -43,18 +57,27 @@ import static org.objectweb.asm.Opcodes.NEW;
 import static org.objectweb.asm.Opcodes.PUTFIELD;
 import static org.objectweb.asm.Opcodes.RETURN;
 import static org.objectweb.asm.Opcodes.V17;
+import static org.objectweb.asm.Type.getDescriptor;
 import static org.objectweb.asm.Type.getInternalName;
 import static org.objectweb.asm.Type.getMethodType;
+import static org.wastastic.CodegenUtils.argumentFrameTypes;
 import static org.wastastic.CodegenUtils.pushF32Constant;
 import static org.wastastic.CodegenUtils.pushF64Constant;
 import static org.wastastic.CodegenUtils.pushI32Constant;
 import static org.wastastic.CodegenUtils.pushI64Constant;
 import static org.wastastic.Importers.IMPORT_FUNCTION_DESCRIPTOR;
 import static org.wastastic.Importers.IMPORT_FUNCTION_NAME;
+import static org.wastastic.Importers.IMPORT_GLOBAL_DESCRIPTOR;
+import static org.wastastic.Importers.IMPORT_GLOBAL_NAME;
 import static org.wastastic.Importers.IMPORT_MEMORY_DESCRIPTOR;
 import static org.wastastic.Importers.IMPORT_MEMORY_NAME;
 import static org.wastastic.Importers.IMPORT_TABLE_DESCRIPTOR;
 import static org.wastastic.Importers.IMPORT_TABLE_NAME;
+import static org.wastastic.Importers.IMPORT_TAG_DESCRIPTOR;
+import static org.wastastic.Importers.IMPORT_TAG_NAME;
+import static org.wastastic.Names.EPOCH_DEADLINE_FIELD_NAME;
+import static org.wastastic.Names.FUEL_FIELD_NAME;
+import static org.wastastic.Names.FUNCTION_CLASS_BODY_NAME;
 import static org.wastastic.Names.FUNCTION_CLASS_ENTRY_NAME;
 import static org.wastastic.Names.GENERATED_FUNCTION_INTERNAL_NAME;
 import static org.wastastic.Names.GENERATED_INSTANCE_CONSTRUCTOR_DESCRIPTOR;
@@ -62,9 +85,12 @@ import static org.wastastic.Names.GENERATED_INSTANCE_INTERNAL_NAME;
 import static org.wastastic.Names.MEMORY_SEGMENT_DESCRIPTOR;
 import static org.wastastic.Names.METHOD_HANDLE_DESCRIPTOR;
 import static org.wastastic.Names.METHOD_HANDLE_INTERNAL_NAME;
+import static org.wastastic.Names.MODULE_INSTANCE_DESCRIPTOR;
 import static org.wastastic.Names.MODULE_INSTANCE_INTERNAL_NAME;
 import static org.wastastic.Names.OBJECT_ARRAY_DESCRIPTOR;
 import static org.wastastic.Names.OBJECT_INTERNAL_NAME;
+import static org.wastastic.Names.VALUE_TYPE_DESCRIPTOR;
+import static org.wastastic.Names.VALUE_TYPE_INTERNAL_NAME;
 import static org.wastastic.Names.WRONG_METHOD_TYPE_EXCEPTION_INTERNAL_NAME;
 import static org.wastastic.Names.dataSegmentName;
 import static org.wastastic.Names.elementSegmentName;
@@ -73,22 +99,63 @@ import static org.wastastic.Names.globalName;
 import static org.wastastic.Names.memoryName;
 import static org.wastastic.Names.methodDescriptor;
 import static org.wastastic.Names.tableName;
+import static org.wastastic.Names.tagName;
 
 final class ModuleImpl implements Module {
     private final @NotNull ModuleIndex index;
+    private final @NotNull CompilerOptions options;
 
     private @Nullable MethodHandles.Lookup instanceLookup;
     private final @Nullable MethodHandle @NotNull[] functionHandles;
 
-    ModuleImpl(@NotNull ModuleIndex index) {
+    // With instance specialization: the instance everything is bound to, and the functions' own handles, which don't
+    // take the instance.
+    private volatile @Nullable ModuleInstance boundInstance;
+    private final @Nullable MethodHandle @NotNull[] specializedFunctionHandles;
+
+    // Entry handle -> body handle, for functions whose entry is a tail call trampoline.
+    private final @NotNull ConcurrentHashMap<MethodHandle, MethodHandle> tailCallBodies = new ConcurrentHashMap<>();
+
+    // Functions translated ahead of time (see StreamingCompiler), each dropped once its class has been defined.
+    private final @Nullable PrecompiledFunction @NotNull[] precompiledFunctions;
+
+    private final @NotNull GcClasses gcClasses;
+    private final @NotNull ModuleStats stats;
+
+    record PrecompiledFunction(byte @NotNull[] bytes, boolean hasTrampoline) {}
+
+    ModuleImpl(@NotNull ModuleIndex index, @NotNull CompilerOptions options) {
+        this(index, options, new PrecompiledFunction[index.importedFunctions().size() + index.definedFunctions().size()]);
+    }
+
+    ModuleImpl(@NotNull ModuleIndex index, @NotNull CompilerOptions options, @Nullable PrecompiledFunction @NotNull[] precompiledFunctions) {
         this.index = requireNonNull(index);
+        this.options = requireNonNull(options);
+        this.precompiledFunctions = requireNonNull(precompiledFunctions);
         functionHandles = new MethodHandle[index.importedFunctions().size() + index.definedFunctions().size()];
+        specializedFunctionHandles = new MethodHandle[functionHandles.length];
+        stats = new ModuleStats(index);
+        gcClasses = new GcClasses(index, stats);
     }
 
     @Override public @NotNull ResourceScope scope() {
         return index.scope();
     }
 
+    @Override public @NotNull RuntimeStats stats() {
+        return stats;
+    }
+
+    @Override public @NotNull RuntimeStats.Instance stats(@NotNull ModuleInstance instance) {
+        var instanceStats = stats.instance(requireNonNull(instance));
+
+        if (instanceStats == null) {
+            throw new IllegalArgumentException("not an instance of this module");
+        }
+
+        return instanceStats;
+    }
+
     @Override public void precompileFunctions() throws TranslationException {
         getOrCreateInstance();
         for (var i = 0; i < functionHandles.length; i++) {
@@ -116,7 +183,7 @@ final class ModuleImpl implements Module {
             throw new IllegalArgumentException();
         }
 
-        return getOrCreateFunction(id);
+        return MultipleResults.hostView(getOrCreateFunction(id));
     }
 
     @Override public @NotNull VarHandle exportedTableHandle(@NotNull String name) throws TranslationException {
@@ -157,15 +224,117 @@ final class ModuleImpl implements Module {
         }
     }
 
+    @Override public @NotNull VarHandle exportedTagHandle(@NotNull String name) throws TranslationException {
+        var id = index.exportedTags().get(name);
+
+        if (id == null) {
+            throw new IllegalArgumentException();
+        }
+
+        try {
+            var lookup = getOrCreateInstance();
+            return lookup.findVarHandle(lookup.lookupClass(), tagName(id), Tag.class);
+        }
+        catch (TranslationException | VirtualMachineError exception) {
+            throw exception;
+        }
+        catch (Throwable exception) {
+            throw new TranslationException(exception);
+        }
+    }
+
+    @Override public @NotNull MethodHandle exportedGlobalHandle(@NotNull String name) throws TranslationException {
+        var id = index.exportedGlobals().get(name);
+
+        if (id == null) {
+            throw new IllegalArgumentException();
+        }
+
+        try {
+            var lookup = getOrCreateInstance();
+
+            if (isGlobalCell(id)) {
+                return lookup.findGetter(lookup.lookupClass(), globalName(id), Global.class).asType(methodType(Global.class, ModuleInstance.class));
+            }
+
+            // Immutable globals aren't stored in cells, so export a snapshot of the value; it can't change anyway.
+            var valueType = index.globalType(id).valueType();
+            var getter = lookup.findGetter(lookup.lookupClass(), globalName(id), valueType.jvmType()).asType(methodType(Object.class, ModuleInstance.class));
+            var wrapper = insertArguments(LOOKUP.findStatic(Global.class, "exportConstant", methodType(Global.class, ValueType.class, Object.class)), 0, valueType);
+            return filterReturnValue(getter, wrapper);
+        }
+        catch (TranslationException | VirtualMachineError exception) {
+            throw exception;
+        }
+        catch (Throwable exception) {
+            throw new TranslationException(exception);
+        }
+    }
+
+    @Override public @NotNull MethodHandle fuelHandle() throws TranslationException {
+        if (options.fuelCosts() == null) {
+            throw new IllegalStateException("fuel metering is not enabled");
+        }
+
+        try {
+            var lookup = getOrCreateInstance();
+            return lookup.findGetter(lookup.lookupClass(), FUEL_FIELD_NAME, Fuel.class).asType(methodType(Fuel.class, ModuleInstance.class));
+        }
+        catch (TranslationException | VirtualMachineError exception) {
+            throw exception;
+        }
+        catch (Throwable exception) {
+            throw new TranslationException(exception);
+        }
+    }
+
+    @Override public @NotNull MethodHandle epochDeadlineHandle() throws TranslationException {
+        if (!options.epochInterruption()) {
+            throw new IllegalStateException("epoch interruption is not enabled");
+        }
+
+        try {
+            var lookup = getOrCreateInstance();
+            return lookup.findGetter(lookup.lookupClass(), EPOCH_DEADLINE_FIELD_NAME, EpochDeadline.class).asType(methodType(EpochDeadline.class, ModuleInstance.class));
+        }
+        catch (TranslationException | VirtualMachineError exception) {
+            throw exception;
+        }
+        catch (Throwable exception) {
+            throw new TranslationException(exception);
+        }
+    }
+
     private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
 
+    // Holds the running Events.InstantiationPhaseEvent in generated instance constructors; local 1 is the imports map.
+    private static final int INSTANTIATION_PHASE_LOCAL_INDEX = 2;
+
+    private void emitBeginInstantiationPhase(@NotNull MethodVisitor constructor, @NotNull String phase) {
+        if (index.moduleName() != null) {
+            constructor.visitLdcInsn(index.moduleName());
+        }
+        else {
+            constructor.visitInsn(ACONST_NULL);
+        }
+
+        constructor.visitLdcInsn(phase);
+        constructor.visitMethodInsn(INVOKESTATIC, Events.INTERNAL_NAME, Events.BEGIN_INSTANTIATION_PHASE_NAME, Events.BEGIN_INSTANTIATION_PHASE_DESCRIPTOR, false);
+        constructor.visitVarInsn(ASTORE, INSTANTIATION_PHASE_LOCAL_INDEX);
+    }
+
+    private static void emitEndInstantiationPhase(@NotNull MethodVisitor constructor) {
+        constructor.visitVarInsn(ALOAD, INSTANTIATION_PHASE_LOCAL_INDEX);
+        constructor.visitMethodInsn(INVOKESTATIC, Events.INTERNAL_NAME, Events.END_INSTANTIATION_PHASE_NAME, Events.END_INSTANTIATION_PHASE_DESCRIPTOR, false);
+    }
+
     private synchronized @NotNull MethodHandles.Lookup getOrCreateInstance() throws TranslationException {
         if (instanceLookup != null) {
             return instanceLookup;
         }
 
         try {
-            var writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            var writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
             writer.visit(V17, ACC_FINAL, GENERATED_INSTANCE_INTERNAL_NAME, null, OBJECT_INTERNAL_NAME, new String[]{MODULE_INSTANCE_INTERNAL_NAME});
 
             for (var i = 0; i < index.importedFunctions().size(); i++) {
@@ -180,6 +349,10 @@ final class ModuleImpl implements Module {
                 writer.visitField(ACC_PRIVATE | ACC_FINAL, tableName(i), Table.DESCRIPTOR, null, null);
             }
 
+            for (var i = 0; i < index.importedTags().size() + index.definedTags().size(); i++) {
+                writer.visitField(ACC_PRIVATE | ACC_FINAL, tagName(i), Tag.DESCRIPTOR, null, null);
+            }
+
             for (var i = 0; i < index.dataSegments().size(); i++) {
                 writer.visitField(ACC_PRIVATE, dataSegmentName(i), MEMORY_SEGMENT_DESCRIPTOR, null, null);
             }
@@ -188,14 +361,28 @@ final class ModuleImpl implements Module {
                 writer.visitField(ACC_PRIVATE, elementSegmentName(i), OBJECT_ARRAY_DESCRIPTOR, null, null);
             }
 
-            for (var i = 0; i < index.definedGlobals().size(); i++) {
-                var access = ACC_PRIVATE;
+            for (var i = 0; i < index.importedGlobals().size() + index.definedGlobals().size(); i++) {
+                if (isGlobalCell(i)) {
+                    writer.visitField(ACC_PRIVATE | ACC_FINAL, globalName(i), Global.DESCRIPTOR, null, null);
+                }
+                else {
+                    var type = index.globalType(i);
+                    var access = ACC_PRIVATE;
+
+                    if (type.mutability() == Mutability.CONST) {
+                        access |= ACC_FINAL;
+                    }
 
-                if (index.definedGlobals().get(i).type().mutability() == Mutability.CONST) {
-                    access |= ACC_FINAL;
+                    writer.visitField(access, globalName(i), type.valueType().descriptor(), null, null);
                 }
+            }
+
+            if (options.fuelCosts() != null) {
+                writer.visitField(ACC_PRIVATE | ACC_FINAL, FUEL_FIELD_NAME, Fuel.DESCRIPTOR, null, null);
+            }
 
-                writer.visitField(access, globalName(index.importedTables().size() + i), index.definedGlobals().get(i).type().valueType().descriptor(), null, null);
+            if (options.epochInterruption()) {
+                writer.visitField(ACC_PRIVATE | ACC_FINAL, EPOCH_DEADLINE_FIELD_NAME, EpochDeadline.DESCRIPTOR, null, null);
             }
 
             var constructor = writer.visitMethod(ACC_PRIVATE, "<init>", GENERATED_INSTANCE_CONSTRUCTOR_DESCRIPTOR, null, null);
@@ -205,6 +392,24 @@ final class ModuleImpl implements Module {
             constructor.visitVarInsn(ALOAD, 0);
             constructor.visitMethodInsn(INVOKESPECIAL, OBJECT_INTERNAL_NAME, "<init>", "()V", false);
 
+            if (options.fuelCosts() != null) {
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitTypeInsn(NEW, Fuel.INTERNAL_NAME);
+                constructor.visitInsn(DUP);
+                constructor.visitMethodInsn(INVOKESPECIAL, Fuel.INTERNAL_NAME, "<init>", "()V", false);
+                constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, FUEL_FIELD_NAME, Fuel.DESCRIPTOR);
+            }
+
+            if (options.epochInterruption()) {
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitTypeInsn(NEW, EpochDeadline.INTERNAL_NAME);
+                constructor.visitInsn(DUP);
+                constructor.visitMethodInsn(INVOKESPECIAL, EpochDeadline.INTERNAL_NAME, "<init>", "()V", false);
+                constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, EPOCH_DEADLINE_FIELD_NAME, EpochDeadline.DESCRIPTOR);
+            }
+
+            emitBeginInstantiationPhase(constructor, "imports");
+
             for (var i = 0; i < index.importedFunctions().size(); i++) {
                 constructor.visitVarInsn(ALOAD, 0);
                 constructor.visitVarInsn(ALOAD, 1);
@@ -233,34 +438,66 @@ final class ModuleImpl implements Module {
                 constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, tableName(i), Table.DESCRIPTOR);
             }
 
-            for (var i = 0; i < index.definedGlobals().size(); i++) {
+            for (var i = 0; i < index.importedTags().size(); i++) {
                 constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitVarInsn(ALOAD, 1);
+                constructor.visitLdcInsn(index.importedTags().get(i).name().moduleName());
+                constructor.visitLdcInsn(index.importedTags().get(i).name().name());
+                constructor.visitLdcInsn(getMethodType(index.importedTags().get(i).type().descriptor()));
+                constructor.visitMethodInsn(INVOKESTATIC, Importers.INTERNAL_NAME, IMPORT_TAG_NAME, IMPORT_TAG_DESCRIPTOR, false);
+                constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, tagName(i), Tag.DESCRIPTOR);
+            }
 
-                var initialValue = index.definedGlobals().get(i).initialValue();
-
-                if (initialValue instanceof NullConstant) {
-                    constructor.visitInsn(ACONST_NULL);
-                }
-                else if (initialValue instanceof I32Constant i32Constant) {
-                    pushI32Constant(constructor, i32Constant.value());
-                }
-                else if (initialValue instanceof I64Constant i64Constant) {
-                    pushI64Constant(constructor, i64Constant.value());
-                }
-                else if (initialValue instanceof F32Constant f32Constant) {
-                    pushF32Constant(constructor, f32Constant.value());
+            for (var i = 0; i < index.importedGlobals().size(); i++) {
+                var type = index.importedGlobals().get(i).type();
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitVarInsn(ALOAD, 1);
+                constructor.visitLdcInsn(index.importedGlobals().get(i).name().moduleName());
+                constructor.visitLdcInsn(index.importedGlobals().get(i).name().name());
+                constructor.visitFieldInsn(GETSTATIC, VALUE_TYPE_INTERNAL_NAME, type.valueType().name(), VALUE_TYPE_DESCRIPTOR);
+                constructor.visitInsn(type.mutability() == Mutability.VAR ? ICONST_1 : ICONST_0);
+                constructor.visitMethodInsn(INVOKESTATIC, Importers.INTERNAL_NAME, IMPORT_GLOBAL_NAME, IMPORT_GLOBAL_DESCRIPTOR, false);
+
+                if (isGlobalCell(i)) {
+                    constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, globalName(i), Global.DESCRIPTOR);
                 }
-                else if (initialValue instanceof F64Constant f64Constant) {
-                    pushF64Constant(constructor, f64Constant.value());
+                else {
+                    // Immutable imports are copied into a final field, which the JIT trusts in hidden classes.
+                    emitGlobalCellRead(constructor, type.valueType());
+                    constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, globalName(i), type.valueType().descriptor());
                 }
-                else if (initialValue instanceof FunctionRefConstant functionRefConstant) {
-                    constructor.visitLdcInsn(new ConstantDynamic("_", METHOD_HANDLE_DESCRIPTOR, FUNCTION_REF_BOOTSTRAP, functionRefConstant.functionId()));
+            }
+
+            emitEndInstantiationPhase(constructor);
+            emitBeginInstantiationPhase(constructor, "definitions");
+
+            for (var i = 0; i < index.definedTags().size(); i++) {
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitLdcInsn(getMethodType(index.definedTags().get(i).descriptor()));
+                constructor.visitMethodInsn(INVOKESTATIC, Tag.INTERNAL_NAME, Tag.CREATE_NAME, Tag.CREATE_DESCRIPTOR, false);
+                constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, tagName(index.importedTags().size() + i), Tag.DESCRIPTOR);
+            }
+
+            for (var i = 0; i < index.definedGlobals().size(); i++) {
+                var id = index.importedGlobals().size() + i;
+                var type = index.definedGlobals().get(i).type();
+                constructor.visitVarInsn(ALOAD, 0);
+
+                if (isGlobalCell(id)) {
+                    constructor.visitTypeInsn(NEW, Global.INTERNAL_NAME);
+                    constructor.visitInsn(DUP);
+                    constructor.visitFieldInsn(GETSTATIC, VALUE_TYPE_INTERNAL_NAME, type.valueType().name(), VALUE_TYPE_DESCRIPTOR);
+                    constructor.visitInsn(ICONST_1);
+                    constructor.visitMethodInsn(INVOKESPECIAL, Global.INTERNAL_NAME, "<init>", Global.CONSTRUCTOR_DESCRIPTOR, false);
+                    constructor.visitInsn(DUP);
+                    emitConstant(constructor, index.definedGlobals().get(i).initialValue());
+                    constructor.visitFieldInsn(PUTFIELD, Global.INTERNAL_NAME, Global.valueFieldName(type.valueType()), getDescriptor(Global.valueFieldType(type.valueType())));
+                    constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, globalName(id), Global.DESCRIPTOR);
                 }
                 else {
-                    throw new ClassCastException();
+                    emitConstant(constructor, index.definedGlobals().get(i).initialValue());
+                    constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, globalName(id), type.valueType().descriptor());
                 }
-
-                constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, globalName(index.importedGlobals().size() + i), index.definedGlobals().get(i).type().valueType().descriptor());
             }
 
             for (var i = 0; i < index.definedMemories().size(); i++) {
@@ -283,13 +520,42 @@ final class ModuleImpl implements Module {
                 constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, tableName(index.importedTables().size() + i), Table.DESCRIPTOR);
             }
 
+            emitEndInstantiationPhase(constructor);
+            emitBeginInstantiationPhase(constructor, "segments");
+
+            // Bind only once everything that can fail to import has been, but before segments are copied into memories or
+            // tables that may be shared with a previous instance.
+            if (options.instanceSpecialization()) {
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitInvokeDynamicInsn("_", "(" + MODULE_INSTANCE_DESCRIPTOR + ")V", INSTANCE_BINDING_BOOTSTRAP);
+            }
+
+            // Registered for RuntimeStats here too, so that grows made by segment initialization and the start function
+            // are counted; an instance whose constructor then traps is counted as created but is never live for long.
+            var registrationDescriptor = new StringBuilder("(").append(MODULE_INSTANCE_DESCRIPTOR);
+            constructor.visitVarInsn(ALOAD, 0);
+
+            for (var i = 0; i < index.importedMemories().size() + index.definedMemories().size(); i++) {
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitFieldInsn(GETFIELD, GENERATED_INSTANCE_INTERNAL_NAME, memoryName(i), Memory.DESCRIPTOR);
+                registrationDescriptor.append(Memory.DESCRIPTOR);
+            }
+
+            for (var i = 0; i < index.importedTables().size() + index.definedTables().size(); i++) {
+                constructor.visitVarInsn(ALOAD, 0);
+                constructor.visitFieldInsn(GETFIELD, GENERATED_INSTANCE_INTERNAL_NAME, tableName(i), Table.DESCRIPTOR);
+                registrationDescriptor.append(Table.DESCRIPTOR);
+            }
+
+            constructor.visitInvokeDynamicInsn("_", registrationDescriptor.append(")V").toString(), INSTANCE_REGISTRATION_BOOTSTRAP);
+
             for (var i = 0; i < index.dataSegments().size(); i++) {
                 constructor.visitVarInsn(ALOAD, 0);
                 constructor.visitLdcInsn(new ConstantDynamic("_", MEMORY_SEGMENT_DESCRIPTOR, DATA_BOOTSTRAP, i));
 
                 if (index.dataSegments().get(i).mode() == DataSegment.Mode.ACTIVE) {
                     constructor.visitInsn(DUP);
-                    pushI32Constant(constructor, index.dataSegments().get(i).memoryOffset());
+                    emitConstant(constructor, index.dataSegments().get(i).memoryOffset());
                     constructor.visitVarInsn(ALOAD, 0);
                     constructor.visitFieldInsn(GETFIELD, GENERATED_INSTANCE_INTERNAL_NAME, memoryName(index.dataSegments().get(i).memoryIndex()), Memory.DESCRIPTOR);
                     constructor.visitMethodInsn(INVOKESTATIC, Memory.INTERNAL_NAME, Memory.INIT_FROM_ACTIVE_NAME, Memory.INIT_FROM_ACTIVE_DESCRIPTOR, false);
@@ -304,7 +570,7 @@ final class ModuleImpl implements Module {
 
                 if (index.elementSegments().get(i).mode() == ElementSegment.Mode.ACTIVE) {
                     constructor.visitInsn(DUP);
-                    pushI32Constant(constructor, index.elementSegments().get(i).tableOffset());
+                    emitConstant(constructor, index.elementSegments().get(i).tableOffset());
                     constructor.visitVarInsn(ALOAD, 0);
                     constructor.visitFieldInsn(GETFIELD, GENERATED_INSTANCE_INTERNAL_NAME, tableName(index.elementSegments().get(i).tableIndex()), Table.DESCRIPTOR);
                     constructor.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, Table.INIT_FROM_ACTIVE_NAME, Table.INIT_FROM_ACTIVE_DESCRIPTOR, false);
@@ -313,9 +579,13 @@ final class ModuleImpl implements Module {
                 constructor.visitFieldInsn(PUTFIELD, GENERATED_INSTANCE_INTERNAL_NAME, elementSegmentName(i), OBJECT_ARRAY_DESCRIPTOR);
             }
 
+            emitEndInstantiationPhase(constructor);
+
             if (index.startFunctionId() != null) {
+                emitBeginInstantiationPhase(constructor, "start");
                 constructor.visitVarInsn(ALOAD, 0);
                 constructor.visitInvokeDynamicInsn("_", index.functionType(index.startFunctionId()).descriptor(), DIRECT_CALL_BOOTSTRAP, index.startFunctionId());
+                emitEndInstantiationPhase(constructor);
             }
 
             constructor.visitInsn(RETURN);
@@ -324,7 +594,7 @@ final class ModuleImpl implements Module {
 
             writer.visitEnd();
             var bytes = writer.toByteArray();
-            return instanceLookup = LOOKUP.defineHiddenClassWithClassData(bytes, this, false);
+            return instanceLookup = defineClass(LOOKUP, "instance", bytes);
         }
         catch (VirtualMachineError exception) {
             throw exception;
@@ -334,6 +604,57 @@ final class ModuleImpl implements Module {
         }
     }
 
+    // Mutable globals that are shared with the outside, by being imported or exported, live in a Global cell; all others
+    // are plain fields of the instance.
+    private boolean isGlobalCell(int id) {
+        return index.globalType(id).mutability() == Mutability.VAR && (id < index.importedGlobals().size() || index.exportedGlobals().containsValue(id));
+    }
+
+    private static void emitGlobalCellRead(@NotNull MethodVisitor code, @NotNull ValueType type) {
+        code.visitFieldInsn(GETFIELD, Global.INTERNAL_NAME, Global.valueFieldName(type), getDescriptor(Global.valueFieldType(type)));
+
+        if (type == ValueType.FUNCREF) {
+            code.visitTypeInsn(CHECKCAST, METHOD_HANDLE_INTERNAL_NAME);
+        }
+    }
+
+    // Pushes the value of a constant expression from within the instance constructor.
+    private void emitConstant(@NotNull MethodVisitor constructor, @NotNull Constant constant) {
+        if (constant instanceof NullConstant) {
+            constructor.visitInsn(ACONST_NULL);
+        }
+        else if (constant instanceof I32Constant i32Constant) {
+            pushI32Constant(constructor, i32Constant.value());
+        }
+        else if (constant instanceof I64Constant i64Constant) {
+            pushI64Constant(constructor, i64Constant.value());
+        }
+        else if (constant instanceof F32Constant f32Constant) {
+            pushF32Constant(constructor, f32Constant.value());
+        }
+        else if (constant instanceof F64Constant f64Constant) {
+            pushF64Constant(constructor, f64Constant.value());
+        }
+        else if (constant instanceof FunctionRefConstant functionRefConstant) {
+            constructor.visitLdcInsn(new ConstantDynamic("_", METHOD_HANDLE_DESCRIPTOR, FUNCTION_REF_BOOTSTRAP, functionRefConstant.functionId()));
+        }
+        else if (constant instanceof GlobalGetConstant globalGetConstant) {
+            var id = globalGetConstant.globalId();
+            constructor.visitVarInsn(ALOAD, 0);
+
+            if (isGlobalCell(id)) {
+                constructor.visitFieldInsn(GETFIELD, GENERATED_INSTANCE_INTERNAL_NAME, globalName(id), Global.DESCRIPTOR);
+                emitGlobalCellRead(constructor, index.globalType(id).valueType());
+            }
+            else {
+                constructor.visitFieldInsn(GETFIELD, GENERATED_INSTANCE_INTERNAL_NAME, globalName(id), index.globalType(id).valueType().descriptor());
+            }
+        }
+        else {
+            throw new ClassCastException();
+        }
+    }
+
     private synchronized @NotNull MethodHandle getOrCreateFunction(int id) throws TranslationException {
         if (functionHandles[id] != null) {
             return functionHandles[id];
@@ -363,9 +684,47 @@ final class ModuleImpl implements Module {
                 return functionHandles[id] = permuteArguments(handle, methodType, permutationOrder);
             }
 
-            var bytes = new FunctionTranslator().translate(index, id);
-            var lookup = LOOKUP.defineHiddenClassWithClassData(bytes, this, false);
-            return functionHandles[id] = lookup.findStatic(lookup.lookupClass(), FUNCTION_CLASS_ENTRY_NAME, methodType);
+            byte[] bytes;
+            boolean hasTrampoline;
+
+            if (precompiledFunctions[id] != null) {
+                bytes = precompiledFunctions[id].bytes();
+                hasTrampoline = precompiledFunctions[id].hasTrampoline();
+                precompiledFunctions[id] = null;
+            }
+            else {
+                var translator = FunctionTranslator.forCurrentThread();
+                bytes = translator.translate(index, options, id);
+                hasTrampoline = translator.hasTrampoline();
+            }
+            var lookup = defineClass(LOOKUP, "function", bytes);
+            FunctionClasses.register(lookup.lookupClass(), index.moduleName(), index.functionNames().get(id), id);
+            stats.functionCompiled();
+
+            if (options.instanceSpecialization()) {
+                // The function itself doesn't take the instance; the handle given out keeps the usual signature so that it
+                // can still be stored in tables and called through references, and ignores its instance argument.
+                var parameterCount = type.parameterTypes().size();
+                var specializedType = methodType.dropParameterTypes(parameterCount, parameterCount + 1);
+                var specializedHandle = lookup.findStatic(lookup.lookupClass(), FUNCTION_CLASS_ENTRY_NAME, specializedType);
+                var handle = dropArguments(specializedHandle, parameterCount, ModuleInstance.class);
+
+                if (hasTrampoline) {
+                    var body = lookup.findStatic(lookup.lookupClass(), FUNCTION_CLASS_BODY_NAME, specializedType);
+                    tailCallBodies.put(handle, dropArguments(body, parameterCount, ModuleInstance.class));
+                }
+
+                specializedFunctionHandles[id] = specializedHandle;
+                return functionHandles[id] = handle;
+            }
+
+            var handle = lookup.findStatic(lookup.lookupClass(), FUNCTION_CLASS_ENTRY_NAME, methodType);
+
+            if (hasTrampoline) {
+                tailCallBodies.put(handle, lookup.findStatic(lookup.lookupClass(), FUNCTION_CLASS_BODY_NAME, methodType));
+            }
+
+            return functionHandles[id] = handle;
         }
         catch (TranslationException | VirtualMachineError exception) {
             throw exception;
@@ -375,6 +734,74 @@ final class ModuleImpl implements Module {
         }
     }
 
+    private synchronized void bindInstance(@NotNull ModuleInstance instance) {
+        if (boundInstance != null) {
+            throw new IllegalStateException("module is specialized to a single instance and has already been instantiated");
+        }
+
+        boundInstance = instance;
+    }
+
+    private @NotNull ModuleInstance boundInstance() {
+        var instance = boundInstance;
+
+        if (instance == null) {
+            throw new IllegalStateException("module has not been instantiated");
+        }
+
+        return instance;
+    }
+
+    private @NotNull MethodHandles.Lookup defineClass(@NotNull MethodHandles.Lookup lookup, @NotNull String kind, byte @NotNull[] bytes) throws IllegalAccessException {
+        var definedLookup = Events.defineClass(lookup, kind, bytes, this);
+        stats.classDefined(bytes.length);
+        return definedLookup;
+    }
+
+    // Every class that links call sites has its module as class data, whichever bootstrap it links them with.
+    private static @NotNull Events.CallSiteBootstrapEvent beginBootstrap(@NotNull String bootstrap, @NotNull MethodHandles.Lookup lookup) {
+        try {
+            classData(lookup, "_", ModuleImpl.class).stats.callSiteBootstrapped();
+        }
+        catch (IllegalAccessException exception) {
+            throw new IllegalStateException(exception);
+        }
+
+        return Events.beginBootstrap(bootstrap, lookup);
+    }
+
+    // A (ModuleInstance)T getter for one of the instance's fields. Once the module is bound to its single instance,
+    // final fields are read right away and folded into a constant.
+    private @NotNull MethodHandle instanceFieldGetter(@NotNull String name, @NotNull Class<?> type) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var instanceLookup = getOrCreateInstance();
+        var instance = boundInstance;
+
+        if (instance != null && Modifier.isFinal(instanceLookup.lookupClass().getDeclaredField(name).getModifiers())) {
+            var value = instanceLookup.findVarHandle(instanceLookup.lookupClass(), name, type).get(instance);
+            return dropArguments(constant(type, value), 0, ModuleInstance.class);
+        }
+
+        return instanceLookup.findGetter(instanceLookup.lookupClass(), name, type).asType(methodType(type, ModuleInstance.class));
+    }
+
+    // Links a call site to a handle that takes the instance as its last argument. Sites in specialized code leave the
+    // instance out, so it gets bound in here.
+    private @NotNull CallSite instanceSite(@NotNull MethodHandle handle, @NotNull MethodType siteType) {
+        var instancePosition = handle.type().parameterCount() - 1;
+
+        if (siteType.parameterCount() == instancePosition) {
+            handle = insertArguments(handle, instancePosition, boundInstance());
+        }
+
+        return new ConstantCallSite(handle.asType(siteType));
+    }
+
+    // Tail calls into a trampolined function go straight to its body so that its own trampoline doesn't nest.
+    private @NotNull MethodHandle tailCallTarget(@NotNull MethodHandle function) {
+        var body = tailCallBodies.get(function);
+        return body != null ? body : function;
+    }
+
     private static final String INTERNAL_NAME = getInternalName(ModuleImpl.class);
 
     //------------------------------------------------------------------------------------------------------------------
@@ -391,8 +818,45 @@ final class ModuleImpl implements Module {
         @NotNull MethodType expectedType,
         int functionId
     ) throws Throwable {
+        var event = beginBootstrap("directCall", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        return new ConstantCallSite(module.getOrCreateFunction(functionId));
+        var handle = module.getOrCreateFunction(functionId);
+        var specializedHandle = module.specializedFunctionHandles[functionId];
+
+        if (specializedHandle != null && specializedHandle.type().equals(expectedType)) {
+            return Events.endBootstrap(event, new ConstantCallSite(specializedHandle));
+        }
+
+        return Events.endBootstrap(event, module.instanceSite(handle, expectedType));
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // call_ref: the reference's static type already fixes the callee's signature, so unlike call_indirect there's no
+    // dynamic check to make; the site is an exact invoker with the handle moved in front of the arguments.
+    static final Handle REFERENCE_CALL_BOOTSTRAP = new Handle(
+        H_INVOKESTATIC, INTERNAL_NAME, "referenceCallBootstrap",
+        methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class),
+        false
+    );
+
+    @SuppressWarnings("unused")
+    static @NotNull CallSite referenceCallBootstrap(
+        @NotNull MethodHandles.Lookup lookup,
+        @NotNull String name,
+        @NotNull MethodType expectedType
+    ) {
+        var event = beginBootstrap("referenceCall", lookup);
+        var handleIndex = expectedType.parameterCount() - 2;
+        var invoker = exactInvoker(expectedType.dropParameterTypes(handleIndex, handleIndex + 1));
+
+        var reorder = new int[expectedType.parameterCount()];
+        reorder[0] = handleIndex;
+        for (var i = 0; i < handleIndex; i++) {
+            reorder[i + 1] = i;
+        }
+        reorder[handleIndex + 1] = handleIndex + 1;
+
+        return Events.endBootstrap(event, new ConstantCallSite(permuteArguments(invoker, expectedType, reorder)));
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -413,10 +877,11 @@ final class ModuleImpl implements Module {
         int typeId,
         int tableId
     ) throws Throwable {
+        var event = beginBootstrap("indirectCall", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        var functionType = module.index.types().get(typeId);
+        var functionType = module.index.functionTypeAt(typeId);
 
-        var writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        var writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
         writer.visit(V17, ACC_FINAL, GENERATED_FUNCTION_INTERNAL_NAME, null, OBJECT_INTERNAL_NAME, null);
 
         var function = writer.visitMethod(
@@ -439,7 +904,12 @@ final class ModuleImpl implements Module {
         function.visitVarInsn(ILOAD, trailingArgumentsLocalIndex);
         function.visitVarInsn(ALOAD, trailingArgumentsLocalIndex + 1);
         function.visitInvokeDynamicInsn("_", Table.FIELD_GETTER_DESCRIPTOR, TABLE_FIELD_BOOTSTRAP, tableId);
-        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, Table.GET_NAME, Table.GET_DESCRIPTOR, false);
+        var tableGetName = switch (module.options.boundsChecks()) {
+            case IMPLICIT -> Table.GET_NAME;
+            case EXPLICIT -> Table.GET_EXPLICIT_NAME;
+        };
+
+        function.visitMethodInsn(INVOKESTATIC, Table.INTERNAL_NAME, tableGetName, Table.GET_DESCRIPTOR, false);
         function.visitInsn(DUP);
         function.visitJumpInsn(IFNULL, nullRefHandler);
         function.visitTypeInsn(CHECKCAST, METHOD_HANDLE_INTERNAL_NAME);
@@ -469,7 +939,11 @@ final class ModuleImpl implements Module {
         function.visitLabel(returnLabel);
         function.visitInsn(functionType.returnOpcode());
 
+        // Both handlers only need the arguments, which are never reassigned.
+        var argumentFrameTypes = argumentFrameTypes(expectedType.descriptorString());
+
         function.visitLabel(nullRefHandler);
+        function.visitFrame(F_NEW, argumentFrameTypes.length, argumentFrameTypes, 1, new Object[]{OBJECT_INTERNAL_NAME});
         function.visitMethodInsn(
             INVOKESTATIC, TrapException.INTERNAL_NAME, TrapException.CALL_INDIRECT_NULL_REF_NAME,
             TrapException.CALL_INDIRECT_NULL_REF_DESCRIPTOR,
@@ -478,6 +952,7 @@ final class ModuleImpl implements Module {
         function.visitInsn(ATHROW);
 
         function.visitLabel(wrongTypeHandler);
+        function.visitFrame(F_NEW, argumentFrameTypes.length, argumentFrameTypes, 1, new Object[]{WRONG_METHOD_TYPE_EXCEPTION_INTERNAL_NAME});
         function.visitMethodInsn(
             INVOKESTATIC, TrapException.INTERNAL_NAME, TrapException.CALL_INDIRECT_TYPE_MISMATCH_NAME,
             TrapException.CALL_INDIRECT_TYPE_MISMATCH_DESCRIPTOR,
@@ -489,8 +964,8 @@ final class ModuleImpl implements Module {
         function.visitEnd();
 
         writer.visitEnd();
-        var trampolineLookup = lookup.defineHiddenClassWithClassData(writer.toByteArray(), module, false);
-        return new ConstantCallSite(trampolineLookup.findStatic(trampolineLookup.lookupClass(), "_", expectedType));
+        var trampolineLookup = module.defineClass(lookup, "indirect call trampoline", writer.toByteArray());
+        return Events.endBootstrap(event, new ConstantCallSite(trampolineLookup.findStatic(trampolineLookup.lookupClass(), "_", expectedType)));
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -511,102 +986,314 @@ final class ModuleImpl implements Module {
         int dataId,
         int memoryId
     ) throws Throwable {
+        var event = beginBootstrap("memoryInit", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        var instanceLookup = module.getOrCreateInstance();
-        return new ConstantCallSite(
+
+        var initHandle = switch (module.options.boundsChecks()) {
+            case IMPLICIT -> Memory.INIT_HANDLE;
+            case EXPLICIT -> Memory.INIT_EXPLICIT_HANDLE;
+        };
+
+        return Events.endBootstrap(event, module.instanceSite(
             permuteArguments(
                 filterArguments(
-                    Memory.INIT_HANDLE, 3,
-
-                    instanceLookup.findGetter(
-                        instanceLookup.lookupClass(),
-                        dataSegmentName(dataId),
-                        MemorySegment.class
-                    ).asType(methodType(MemorySegment.class, ModuleInstance.class)),
-
-                    instanceLookup.findGetter(
-                        instanceLookup.lookupClass(),
-                        memoryName(memoryId),
-                        Memory.class
-                    ).asType(methodType(Memory.class, ModuleInstance.class))
+                    initHandle, 3,
+                    module.instanceFieldGetter(dataSegmentName(dataId), MemorySegment.class),
+                    module.instanceFieldGetter(memoryName(memoryId), Memory.class)
                 ),
 
-                expectedType, 0, 1, 2, 3, 3
-            )
-        );
+                methodType(void.class, int.class, int.class, int.class, ModuleInstance.class), 0, 1, 2, 3, 3
+            ),
+
+            expectedType
+        ));
     }
 
     static final Handle GLOBAL_GET_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "globalGetBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull CallSite globalGetBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int id) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var event = beginBootstrap("globalGet", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        var instanceLookup = module.getOrCreateInstance();
-        var type = module.index.globalType(id).valueType().jvmType();
-        var handle = instanceLookup.findGetter(instanceLookup.lookupClass(), globalName(id), type);
-        handle = handle.asType(methodType(type, ModuleInstance.class));
-        return new ConstantCallSite(handle);
+        var valueType = module.index.globalType(id).valueType();
+        var type = valueType.jvmType();
+        MethodHandle handle;
+
+        if (module.isGlobalCell(id)) {
+            handle = module.instanceFieldGetter(globalName(id), Global.class);
+            handle = filterReturnValue(handle, LOOKUP.findGetter(Global.class, Global.valueFieldName(valueType), Global.valueFieldType(valueType)));
+        }
+        else {
+            handle = module.instanceFieldGetter(globalName(id), type);
+        }
+
+        return Events.endBootstrap(event, module.instanceSite(handle.asType(methodType(type, ModuleInstance.class)), methodType));
     }
 
     static final Handle TABLE_FIELD_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "tableFieldBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull CallSite tableFieldBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int id) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var event = beginBootstrap("tableField", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        var instanceLookup = module.getOrCreateInstance();
-        var handle = instanceLookup.findGetter(instanceLookup.lookupClass(), tableName(id), Table.class);
-        handle = handle.asType(methodType(Table.class, ModuleInstance.class));
-        return new ConstantCallSite(handle);
+        return Events.endBootstrap(event, module.instanceSite(module.instanceFieldGetter(tableName(id), Table.class), methodType));
     }
 
     static final Handle MEMORY_FIELD_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "memoryFieldBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull CallSite memoryFieldBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int id) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var event = beginBootstrap("memoryField", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        var instanceLookup = module.getOrCreateInstance();
-        var handle = instanceLookup.findGetter(instanceLookup.lookupClass(), memoryName(id), Memory.class);
-        handle = handle.asType(methodType(Memory.class, ModuleInstance.class));
-        return new ConstantCallSite(handle);
+        return Events.endBootstrap(event, module.instanceSite(module.instanceFieldGetter(memoryName(id), Memory.class), methodType));
     }
 
     static final Handle ELEMENT_FIELD_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "elementFieldBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull CallSite elementFieldBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int id) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var event = beginBootstrap("elementField", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        var instanceLookup = module.getOrCreateInstance();
-        var handle = instanceLookup.findGetter(instanceLookup.lookupClass(), elementSegmentName(id), Object[].class);
-        handle = handle.asType(methodType(Object[].class, ModuleInstance.class));
-        return new ConstantCallSite(handle);
+        return Events.endBootstrap(event, module.instanceSite(module.instanceFieldGetter(elementSegmentName(id), Object[].class), methodType));
+    }
+
+    static final Handle FUEL_FIELD_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "fuelFieldBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite fuelFieldBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var event = beginBootstrap("fuelField", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        return Events.endBootstrap(event, module.instanceSite(module.instanceFieldGetter(FUEL_FIELD_NAME, Fuel.class), methodType));
+    }
+
+    static final Handle EPOCH_DEADLINE_FIELD_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "epochDeadlineFieldBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite epochDeadlineFieldBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var event = beginBootstrap("epochDeadlineField", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        return Events.endBootstrap(event, module.instanceSite(module.instanceFieldGetter(EPOCH_DEADLINE_FIELD_NAME, EpochDeadline.class), methodType));
+    }
+
+    static final Handle TAG_FIELD_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "tagFieldBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite tagFieldBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int id) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var event = beginBootstrap("tagField", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        return Events.endBootstrap(event, module.instanceSite(module.instanceFieldGetter(tagName(id), Tag.class), methodType));
     }
 
     static final Handle GLOBAL_SET_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "globalSetBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull CallSite globalSetBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int id) throws IllegalAccessException, NoSuchFieldException, TranslationException {
+        var event = beginBootstrap("globalSet", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
         var instanceLookup = module.getOrCreateInstance();
-        var type = module.index.globalType(id).valueType().jvmType();
-        var handle = instanceLookup.findSetter(instanceLookup.lookupClass(), globalName(id), type);
+        var valueType = module.index.globalType(id).valueType();
+        var type = valueType.jvmType();
+        MethodHandle handle;
+
+        if (module.isGlobalCell(id)) {
+            handle = LOOKUP.findSetter(Global.class, Global.valueFieldName(valueType), Global.valueFieldType(valueType));
+            handle = filterArguments(handle, 0, module.instanceFieldGetter(globalName(id), Global.class));
+        }
+        else {
+            handle = instanceLookup.findSetter(instanceLookup.lookupClass(), globalName(id), type);
+        }
+
         handle = handle.asType(methodType(void.class, ModuleInstance.class, type));
         handle = permuteArguments(handle, methodType(void.class, type, ModuleInstance.class), 1, 0);
-        return new ConstantCallSite(handle);
+        return Events.endBootstrap(event, module.instanceSite(handle, methodType));
     }
 
-    static final Handle FUNCTION_REF_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "functionRefBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, Class.class, int.class), false);
+    static final Handle FUNCTION_REF_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "functionRefBootstrap", methodDescriptor(MethodHandle.class, MethodHandles.Lookup.class, String.class, Class.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull MethodHandle functionRefBootstrap(@NotNull MethodHandles.Lookup lookup, String name, Class<?> clazz, int id) throws IllegalAccessException, TranslationException {
+        var event = beginBootstrap("functionRef", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        return module.getOrCreateFunction(id);
+        return Events.endBootstrap(event, module.getOrCreateFunction(id));
     }
 
     static final Handle MEMORY_LOAD_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "memoryLoadBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull CallSite memoryLoadBootstrap(@NotNull MethodHandles.Lookup lookup, @NotNull String name, @NotNull MethodType expectedMethodType, int memoryId, int offset) throws IllegalAccessException, TranslationException, NoSuchFieldException, NoSuchMethodException {
+        var event = beginBootstrap("memoryLoad", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        var instanceLookup = module.getOrCreateInstance();
-        var fieldGetter = instanceLookup.findGetter(instanceLookup.lookupClass(), memoryName(memoryId), Memory.class).asType(methodType(Memory.class, ModuleInstance.class));
+        var fieldGetter = module.instanceFieldGetter(memoryName(memoryId), Memory.class);
         var accessor = lookup.findStatic(Memory.class, name, methodType(expectedMethodType.returnType(), int.class, int.class, Memory.class));
-        return new ConstantCallSite(insertArguments(filterArguments(accessor, 2, fieldGetter), 1, offset));
+        return Events.endBootstrap(event, module.instanceSite(insertArguments(filterArguments(accessor, 2, fieldGetter), 1, offset), expectedMethodType));
+    }
+
+    static final Handle TAIL_CALL_TARGET_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "tailCallTargetBootstrap", methodDescriptor(MethodHandle.class, MethodHandles.Lookup.class, String.class, Class.class, int.class), false);
+    @SuppressWarnings("unused") static @NotNull MethodHandle tailCallTargetBootstrap(@NotNull MethodHandles.Lookup lookup, String name, Class<?> clazz, int id) throws IllegalAccessException, TranslationException {
+        var event = beginBootstrap("tailCallTarget", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        return Events.endBootstrap(event, module.tailCallTarget(module.getOrCreateFunction(id)));
+    }
+
+    static final Handle TAIL_CALL_INVOKER_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "tailCallInvokerBootstrap", methodDescriptor(MethodHandle.class, MethodHandles.Lookup.class, String.class, Class.class, MethodType.class), false);
+    @SuppressWarnings("unused") static @NotNull MethodHandle tailCallInvokerBootstrap(@NotNull MethodHandles.Lookup lookup, String name, Class<?> clazz, MethodType calleeType) {
+        var event = beginBootstrap("tailCallInvoker", lookup);
+        return Events.endBootstrap(event, TailCallFrame.invokerFor(calleeType));
+    }
+
+    static final Handle INDIRECT_TAIL_CALL_TARGET_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "indirectTailCallTargetBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, MethodType.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite indirectTailCallTargetBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, MethodType calleeType) throws IllegalAccessException, NoSuchMethodException {
+        var event = beginBootstrap("indirectTailCallTarget", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var resolver = LOOKUP.findVirtual(ModuleImpl.class, "resolveIndirectTailCallTarget", methodType(MethodHandle.class, MethodType.class, Object.class));
+        return Events.endBootstrap(event, new ConstantCallSite(insertArguments(resolver, 0, module, calleeType)));
+    }
+
+    static final Handle REFERENCE_TAIL_CALL_TARGET_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "referenceTailCallTargetBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite referenceTailCallTargetBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType) throws IllegalAccessException, NoSuchMethodException {
+        var event = beginBootstrap("referenceTailCallTarget", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var resolver = LOOKUP.findVirtual(ModuleImpl.class, "tailCallTarget", methodType(MethodHandle.class, MethodHandle.class));
+        return Events.endBootstrap(event, new ConstantCallSite(resolver.bindTo(module)));
+    }
+
+    static final Handle BOUND_INSTANCE_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "boundInstanceBootstrap", methodDescriptor(ModuleInstance.class, MethodHandles.Lookup.class, String.class, Class.class), false);
+    @SuppressWarnings("unused") static @NotNull ModuleInstance boundInstanceBootstrap(@NotNull MethodHandles.Lookup lookup, String name, Class<?> clazz) throws IllegalAccessException {
+        var event = beginBootstrap("boundInstance", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        return Events.endBootstrap(event, module.boundInstance());
+    }
+
+    static final Handle TRAP_COUNT_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "trapCountBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite trapCountBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType) throws IllegalAccessException, NoSuchMethodException {
+        var event = beginBootstrap("trapCount", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var counter = LOOKUP.findStatic(TrapException.class, "count", methodType(TrapException.class, TrapException.class, LongAdder[].class));
+        return Events.endBootstrap(event, new ConstantCallSite(insertArguments(counter, 1, (Object) module.stats.traps).asType(methodType)));
+    }
+
+    private static final Handle INSTANCE_BINDING_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "instanceBindingBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite instanceBindingBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType) throws IllegalAccessException, NoSuchMethodException {
+        var event = beginBootstrap("instanceBinding", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var binder = LOOKUP.findVirtual(ModuleImpl.class, "bindInstance", methodType(void.class, ModuleInstance.class));
+        return Events.endBootstrap(event, new ConstantCallSite(binder.bindTo(module).asType(methodType)));
+    }
+
+    private static final Handle INSTANCE_REGISTRATION_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "instanceRegistrationBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite instanceRegistrationBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType) throws IllegalAccessException, NoSuchMethodException {
+        var event = beginBootstrap("instanceRegistration", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var memoryCount = module.index.importedMemories().size() + module.index.definedMemories().size();
+        var tableCount = module.index.importedTables().size() + module.index.definedTables().size();
+        var registrar = LOOKUP.findVirtual(ModuleStats.class, "instanceCreated", methodType(void.class, ModuleInstance.class, Memory[].class, Table[].class));
+        registrar = registrar.bindTo(module.stats).asCollector(2, Table[].class, tableCount).asCollector(1, Memory[].class, memoryCount);
+        return Events.endBootstrap(event, new ConstantCallSite(registrar.asType(methodType)));
+    }
+
+    private @NotNull MethodHandle resolveIndirectTailCallTarget(@NotNull MethodType calleeType, @Nullable Object element) throws TrapException {
+        if (element == null) {
+            throw TrapException.callIndirectNullRef();
+        }
+
+        var function = (MethodHandle) element;
+
+        if (!function.type().equals(calleeType)) {
+            throw TrapException.callIndirectTypeMismatch(new WrongMethodTypeException("expected " + calleeType + " but found " + function.type()));
+        }
+
+        return tailCallTarget(function);
+    }
+
+    static final int STRUCT_GET_PLAIN = 0;
+    static final int STRUCT_GET_SIGNED = 1;
+    static final int STRUCT_GET_UNSIGNED = 2;
+
+    static final Handle STRUCT_NEW_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "structNewBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite structNewBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int typeId) throws IllegalAccessException, NoSuchMethodException, TranslationException {
+        var event = beginBootstrap("structNew", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var clazz = module.gcClasses.get(typeId);
+        var parameterTypes = module.index.structType(typeId).fields().stream().map(FieldType::jvmType).toArray(Class<?>[]::new);
+        var handle = methodType.parameterCount() == 0 ? MethodHandles.publicLookup().findConstructor(clazz, methodType(void.class)) : MethodHandles.publicLookup().findConstructor(clazz, methodType(void.class, parameterTypes));
+        return Events.endBootstrap(event, new ConstantCallSite(MethodHandles.explicitCastArguments(handle, methodType)));
+    }
+
+    static final Handle STRUCT_GET_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "structGetBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class, int.class, int.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite structGetBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int typeId, int fieldIndex, int extension) throws IllegalAccessException, NoSuchFieldException, NoSuchMethodException, TranslationException {
+        var event = beginBootstrap("structGet", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var fieldType = module.index.structType(typeId).fields().get(fieldIndex);
+        var handle = MethodHandles.publicLookup().findGetter(module.gcClasses.get(typeId), Names.structFieldName(fieldIndex), fieldType.jvmType());
+
+        if (extension == STRUCT_GET_UNSIGNED) {
+            var widener = fieldType.packing() == FieldType.Packing.I8
+                ? LOOKUP.findStatic(Byte.class, "toUnsignedInt", methodType(int.class, byte.class))
+                : LOOKUP.findStatic(Short.class, "toUnsignedInt", methodType(int.class, short.class));
+            handle = MethodHandles.filterReturnValue(handle, widener);
+        }
+
+        return Events.endBootstrap(event, new ConstantCallSite(trapOnNullStruct(MethodHandles.explicitCastArguments(handle, methodType))));
+    }
+
+    static final Handle STRUCT_SET_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "structSetBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class, int.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite structSetBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int typeId, int fieldIndex) throws IllegalAccessException, NoSuchFieldException, NoSuchMethodException, TranslationException {
+        var event = beginBootstrap("structSet", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var fieldType = module.index.structType(typeId).fields().get(fieldIndex);
+        var handle = MethodHandles.publicLookup().findSetter(module.gcClasses.get(typeId), Names.structFieldName(fieldIndex), fieldType.jvmType());
+        return Events.endBootstrap(event, new ConstantCallSite(trapOnNullStruct(MethodHandles.explicitCastArguments(handle, methodType))));
+    }
+
+    // Wraps the JVM array that array.new and friends filled in the array type's class.
+    static final Handle ARRAY_NEW_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "arrayNewBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite arrayNewBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int typeId) throws IllegalAccessException, NoSuchMethodException, TranslationException {
+        var event = beginBootstrap("arrayNew", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var handle = MethodHandles.publicLookup().findConstructor(module.gcClasses.get(typeId), methodType.changeReturnType(void.class));
+        return Events.endBootstrap(event, new ConstantCallSite(handle.asType(methodType)));
+    }
+
+    // ref.test against a struct or array type.
+    static final Handle TYPE_TEST_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "typeTestBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int.class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite typeTestBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int typeId) throws IllegalAccessException, NoSuchMethodException, TranslationException {
+        var event = beginBootstrap("typeTest", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var handle = LOOKUP.findVirtual(Class.class, "isInstance", methodType(boolean.class, Object.class));
+        return Events.endBootstrap(event, new ConstantCallSite(handle.bindTo(module.gcClasses.get(typeId))));
+    }
+
+    // Hooks into the module's Instrumentation, with the leading int arguments given as constants. memoryAccess takes
+    // (functionId, memoryId, offset, size, store) as constants and the address operand from the stack.
+    static final Handle INSTRUMENTATION_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "instrumentationBootstrap", methodDescriptor(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class, int[].class), false);
+    @SuppressWarnings("unused") static @NotNull CallSite instrumentationBootstrap(@NotNull MethodHandles.Lookup lookup, String name, MethodType methodType, int... constants) throws IllegalAccessException, NoSuchMethodException {
+        var event = beginBootstrap("instrumentation", lookup);
+        var module = classData(lookup, "_", ModuleImpl.class);
+        var instrumentation = requireNonNull(module.options.instrumentation());
+
+        MethodHandle handle;
+        if (name.equals("memoryAccess")) {
+            handle = LOOKUP.findVirtual(Instrumentation.class, name, methodType(void.class, int.class, int.class, long.class, int.class, boolean.class));
+            handle = MethodHandles.insertArguments(handle, 0, instrumentation, constants[0], constants[1]);
+            handle = MethodHandles.insertArguments(handle, 1, constants[3], constants[4] != 0);
+            var effectiveAddress = LOOKUP.findStatic(ModuleImpl.class, "effectiveAddress", methodType(long.class, int.class, int.class));
+            handle = MethodHandles.filterArguments(handle, 0, MethodHandles.insertArguments(effectiveAddress, 1, constants[2]));
+        } else {
+            var parameterTypes = new Class<?>[constants.length + methodType.parameterCount()];
+            Arrays.fill(parameterTypes, int.class);
+            handle = LOOKUP.findVirtual(Instrumentation.class, name, methodType(void.class, parameterTypes)).bindTo(instrumentation);
+            handle = MethodHandles.insertArguments(handle, 0, Arrays.stream(constants).boxed().toArray());
+        }
+
+        return Events.endBootstrap(event, new ConstantCallSite(handle.asType(methodType)));
+    }
+
+    @SuppressWarnings("unused")
+    private static long effectiveAddress(int address, int offset) {
+        return Integer.toUnsignedLong(address) + Integer.toUnsignedLong(offset);
+    }
+
+    private static @NotNull MethodHandle trapOnNullStruct(@NotNull MethodHandle accessor) throws IllegalAccessException, NoSuchMethodException {
+        var handler = LOOKUP.findStatic(ModuleImpl.class, "nullStructReference", methodType(void.class, NullPointerException.class));
+        handler = MethodHandles.dropArguments(handler, 1, accessor.type().parameterList());
+        return MethodHandles.catchException(accessor, NullPointerException.class, handler.asType(handler.type().changeReturnType(accessor.type().returnType())));
+    }
+
+    @SuppressWarnings("unused")
+    private static void nullStructReference(@NotNull NullPointerException exception) throws TrapException {
+        throw new TrapException(TrapException.Kind.NULL_REFERENCE, "null struct reference", exception);
     }
 
     private static final Handle DATA_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "dataBootstrap", methodDescriptor(MemorySegment.class, MethodHandles.Lookup.class, String.class, Class.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull MemorySegment dataBootstrap(@NotNull MethodHandles.Lookup lookup, String name, Class<?> clazz, int id) throws IllegalAccessException {
+        var event = beginBootstrap("data", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
-        return module.index.dataSegments().get(id).contents();
+        return Events.endBootstrap(event, module.index.dataSegments().get(id).contents());
     }
 
     private static final Handle ELEMENT_BOOTSTRAP = new Handle(H_INVOKESTATIC, INTERNAL_NAME, "elementBootstrap", methodDescriptor(Object[].class, MethodHandles.Lookup.class, String.class, Class.class, int.class), false);
     @SuppressWarnings("unused") static @NotNull Object[] elementBootstrap(@NotNull MethodHandles.Lookup lookup, String name, Class<?> clazz, int id) throws IllegalAccessException, TranslationException {
+        var event = beginBootstrap("element", lookup);
         var module = classData(lookup, "_", ModuleImpl.class);
         var constantValues = module.index.elementSegments().get(id).values();
         var resolvedValues = new Object[constantValues.size()];
@@ -618,6 +1305,6 @@ final class ModuleImpl implements Module {
                 throw new ClassCastException();
             }
         }
-        return resolvedValues;
+        return Events.endBootstrap(event, resolvedValues);
     }
 }
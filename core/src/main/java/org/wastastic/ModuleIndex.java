@@ -6,6 +6,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,28 +24,37 @@ import static org.wastastic.WasmOpcodes.SECTION_IMPORT;
 import static org.wastastic.WasmOpcodes.SECTION_MEMORY;
 import static org.wastastic.WasmOpcodes.SECTION_START;
 import static org.wastastic.WasmOpcodes.SECTION_TABLE;
+import static org.wastastic.WasmOpcodes.SECTION_TAG;
 import static org.wastastic.WasmOpcodes.SECTION_TYPE;
+import static org.wastastic.WasmOpcodes.TYPE_ARRAY;
 import static org.wastastic.WasmOpcodes.TYPE_FUNCTION;
+import static org.wastastic.WasmOpcodes.TYPE_REC;
+import static org.wastastic.WasmOpcodes.TYPE_STRUCT;
+import static org.wastastic.WasmOpcodes.TYPE_SUB;
+import static org.wastastic.WasmOpcodes.TYPE_SUB_FINAL;
 
 record ModuleIndex(
     @NotNull ResourceScope scope,
 
-    @NotNull List<@NotNull FunctionType> types,
+    @NotNull List<@NotNull DefinedType> types,
 
     @NotNull List<@NotNull ImportedFunction> importedFunctions,
     @NotNull List<@NotNull ImportedGlobal> importedGlobals,
     @NotNull List<@NotNull ImportedTable> importedTables,
     @NotNull List<@NotNull ImportedMemory> importedMemories,
+    @NotNull List<@NotNull ImportedTag> importedTags,
 
     @NotNull List<@NotNull FunctionType> definedFunctions,
     @NotNull List<@NotNull DefinedGlobal> definedGlobals,
     @NotNull List<@NotNull TableType> definedTables,
     @NotNull List<@NotNull MemoryType> definedMemories,
+    @NotNull List<@NotNull FunctionType> definedTags,
 
     @NotNull Map<@NotNull String, @NotNull Integer> exportedFunctions,
     @NotNull Map<@NotNull String, @NotNull Integer> exportedGlobals,
     @NotNull Map<@NotNull String, @NotNull Integer> exportedTables,
     @NotNull Map<@NotNull String, @NotNull Integer> exportedMemories,
+    @NotNull Map<@NotNull String, @NotNull Integer> exportedTags,
 
     @NotNull List<@NotNull MemorySegment> functionBodies,
     @NotNull List<@NotNull DataSegment> dataSegments,
@@ -52,10 +63,30 @@ record ModuleIndex(
     @Nullable Integer startFunctionId,
 
     @Nullable String moduleName,
-    @NotNull List<@Nullable String> functionNames
+    @NotNull List<@Nullable String> functionNames,
+
+    // Contents of the code section, which DWARF addresses are relative to.
+    @Nullable MemorySegment codeSection,
+    @Nullable DebugLines debugLines
 ) {
     static @NotNull ModuleIndex of(@NotNull MemorySegment input) throws TranslationException {
-        return new Indexer().buildIndex(input);
+        return of(input, new Indexer());
+    }
+
+    // With the caller's indexer, which can say where in the input reading stopped if this fails.
+    static @NotNull ModuleIndex of(@NotNull MemorySegment input, @NotNull Indexer indexer) throws TranslationException {
+        var event = new Events.ModuleParseEvent();
+        event.begin();
+        var index = indexer.buildIndex(input);
+
+        if (event.shouldCommit()) {
+            event.moduleName = index.moduleName();
+            event.moduleSize = input.byteSize();
+            event.functionCount = index.importedFunctions().size() + index.definedFunctions().size();
+            event.commit();
+        }
+
+        return index;
     }
 
     @NotNull FunctionType functionType(int index) {
@@ -85,25 +116,69 @@ record ModuleIndex(
         }
     }
 
-    private static final class Indexer {
-        private ResourceScope scope;
+    @NotNull FunctionType functionTypeAt(int typeId) throws TranslationException {
+        if (!(types.get(typeId) instanceof FunctionType type)) {
+            throw new TranslationException("Type " + typeId + " is not a function type");
+        }
+
+        return type;
+    }
+
+    @NotNull StructType structType(int typeId) throws TranslationException {
+        if (!(types.get(typeId) instanceof StructType type)) {
+            throw new TranslationException("Type " + typeId + " is not a struct type");
+        }
+
+        return type;
+    }
+
+    @NotNull ArrayType arrayType(int typeId) throws TranslationException {
+        if (!(types.get(typeId) instanceof ArrayType type)) {
+            throw new TranslationException("Type " + typeId + " is not an array type");
+        }
+
+        return type;
+    }
+
+    @NotNull ValueType referenceType(int typeId) {
+        return types.get(typeId) instanceof FunctionType ? ValueType.FUNCREF : ValueType.ANYREF;
+    }
+
+    @NotNull FunctionType tagType(int index) {
+        if (index < importedTags.size()) {
+            return importedTags.get(index).type();
+        }
+        else {
+            return definedTags.get(index - importedTags.size());
+        }
+    }
 
-        private final @NotNull List<@NotNull FunctionType> types = new ArrayList<>();
+    // Builds an index one section at a time, so that it can also be fed sections as they arrive from a stream (see
+    // StreamingCompiler).
+    static final class Indexer {
+        private final @NotNull List<@NotNull DefinedType> types = new ArrayList<>();
+
+        // Kinds of the types in the recursion group currently being read, which may refer to each other before they've
+        // been added to types.
+        private boolean @Nullable[] pendingFunctionTypes;
 
         private final @NotNull List<@NotNull ImportedFunction> importedFunctions = new ArrayList<>();
         private final @NotNull List<@NotNull ImportedGlobal> importedGlobals = new ArrayList<>();
         private final @NotNull List<@NotNull ImportedTable> importedTables = new ArrayList<>();
         private final @NotNull List<@NotNull ImportedMemory> importedMemories = new ArrayList<>();
+        private final @NotNull List<@NotNull ImportedTag> importedTags = new ArrayList<>();
 
         private final @NotNull List<@NotNull FunctionType> definedFunctions = new ArrayList<>();
         private final @NotNull List<@NotNull DefinedGlobal> definedGlobals = new ArrayList<>();
         private final @NotNull List<@NotNull TableType> definedTables = new ArrayList<>();
         private final @NotNull List<@NotNull MemoryType> definedMemories = new ArrayList<>();
+        private final @NotNull List<@NotNull FunctionType> definedTags = new ArrayList<>();
 
         private final @NotNull Map<@NotNull String, @NotNull Integer> exportedFunctions = new HashMap<>();
         private final @NotNull Map<@NotNull String, @NotNull Integer> exportedGlobals = new HashMap<>();
         private final @NotNull Map<@NotNull String, @NotNull Integer> exportedTables = new HashMap<>();
         private final @NotNull Map<@NotNull String, @NotNull Integer> exportedMemories = new HashMap<>();
+        private final @NotNull Map<@NotNull String, @NotNull Integer> exportedTags = new HashMap<>();
 
         private final @NotNull List<@NotNull MemorySegment> functionBodies = new ArrayList<>();
         private final @NotNull List<@NotNull DataSegment> dataSegments = new ArrayList<>();
@@ -114,9 +189,31 @@ record ModuleIndex(
         private @Nullable String moduleName;
         private String[] functionNames;
 
+        private @Nullable MemorySegment codeSection;
+        private @Nullable MemorySegment debugLine;
+        private @Nullable MemorySegment debugLineStr;
+        private @Nullable MemorySegment debugStr;
+
+        // Where reading has got to: the reader over the whole module, and the section being read with the reader over
+        // its body, which are cleared once it's been read.
+        private @Nullable WasmReader moduleReader;
+        private @Nullable MemorySegment currentSection;
+        private @Nullable WasmReader currentSectionReader;
+
         private @NotNull ModuleIndex buildIndex(@NotNull MemorySegment input) throws TranslationException {
-            var reader = new WasmReader(input);
+            var reader = moduleReader = new WasmReader(input);
+            readHeader(reader);
+
+            while (reader.hasRemaining()) {
+                byte sectionId = reader.nextByte();
+                var sectionSize = Integer.toUnsignedLong(reader.nextUnsigned32());
+                readSection(sectionId, reader.nextSlice(sectionSize));
+            }
+
+            return build(input.scope());
+        }
 
+        static void readHeader(@NotNull WasmReader reader) throws TranslationException {
             if (reader.nextByte() != 0x00 ||
                 reader.nextByte() != 0x61 ||
                 reader.nextByte() != 0x73 ||
@@ -132,52 +229,91 @@ record ModuleIndex(
             ) {
                 throw new TranslationException("Unsupported version");
             }
+        }
 
-            while (reader.hasRemaining()) {
-                byte sectionId = reader.nextByte();
-                var sectionSize = Integer.toUnsignedLong(reader.nextUnsigned32());
-                var sectionBody = reader.nextSlice(sectionSize);
-                var bodyReader = new WasmReader(sectionBody);
-
-                switch (sectionId) {
-                    case SECTION_CUSTOM -> readCustomSection(bodyReader);
-                    case SECTION_TYPE -> readTypeSection(bodyReader);
-                    case SECTION_IMPORT -> readImportSection(bodyReader);
-                    case SECTION_FUNCTION -> readFunctionSection(bodyReader);
-                    case SECTION_TABLE -> readTableSection(bodyReader);
-                    case SECTION_MEMORY -> readMemorySection(bodyReader);
-                    case SECTION_GLOBAL -> readGlobalSection(bodyReader);
-                    case SECTION_EXPORT -> readExportSection(bodyReader);
-                    case SECTION_START -> readStartSection(bodyReader);
-                    case SECTION_ELEMENT -> readElementSection(bodyReader);
-                    case SECTION_CODE -> readCodeSection(bodyReader);
-                    case SECTION_DATA -> readDataSection(bodyReader);
-                    case SECTION_DATA_COUNT -> readDataCountSection(bodyReader);
-                    default -> throw new TranslationException("Invalid section ID: " + sectionId);
-                }
+        // The offset from the start of input at which reading stopped, for reporting a failure: within the section that
+        // was being read, or else wherever the module reader was. -1 if nothing has been read from input.
+        long failureOffset(@NotNull MemorySegment input) {
+            if (currentSectionReader != null) {
+                return currentSection.address().segmentOffset(input) + currentSectionReader.offset();
             }
+            else if (moduleReader != null) {
+                return moduleReader.offset();
+            }
+            else {
+                return -1;
+            }
+        }
+
+        void readSection(byte sectionId, @NotNull MemorySegment sectionBody) throws TranslationException {
+            var bodyReader = currentSectionReader = new WasmReader(sectionBody, this::referenceType);
+            currentSection = sectionBody;
+
+            switch (sectionId) {
+                case SECTION_CUSTOM -> readCustomSection(bodyReader);
+                case SECTION_TYPE -> readTypeSection(bodyReader);
+                case SECTION_IMPORT -> readImportSection(bodyReader);
+                case SECTION_FUNCTION -> readFunctionSection(bodyReader);
+                case SECTION_TABLE -> readTableSection(bodyReader);
+                case SECTION_MEMORY -> readMemorySection(bodyReader);
+                case SECTION_GLOBAL -> readGlobalSection(bodyReader);
+                case SECTION_EXPORT -> readExportSection(bodyReader);
+                case SECTION_START -> readStartSection(bodyReader);
+                case SECTION_ELEMENT -> readElementSection(bodyReader);
+                case SECTION_CODE -> readCodeSection(sectionBody, bodyReader);
+                case SECTION_DATA -> readDataSection(bodyReader);
+                case SECTION_DATA_COUNT -> readDataCountSection(bodyReader);
+                case SECTION_TAG -> readTagSection(bodyReader);
+                default -> throw new TranslationException("Invalid section ID: " + sectionId);
+            }
+
+            currentSection = null;
+            currentSectionReader = null;
+        }
 
+        int definedFunctionCount() {
+            return definedFunctions.size();
+        }
+
+        void addFunctionBody(@NotNull MemorySegment body) {
+            functionBodies.add(body);
+        }
+
+        // For code sections that are scanned by the caller instead of read with readSection.
+        void setCodeSection(@NotNull MemorySegment codeSection) {
+            this.codeSection = codeSection;
+        }
+
+        // Can be called more than once; each index is a snapshot of the sections read so far.
+        @NotNull ModuleIndex build(@NotNull ResourceScope scope) {
             return new ModuleIndex(
-                input.scope(),
+                scope,
                 List.copyOf(types),
                 List.copyOf(importedFunctions),
                 List.copyOf(importedGlobals),
                 List.copyOf(importedTables),
                 List.copyOf(importedMemories),
+                List.copyOf(importedTags),
                 List.copyOf(definedFunctions),
                 List.copyOf(definedGlobals),
                 List.copyOf(definedTables),
                 List.copyOf(definedMemories),
+                List.copyOf(definedTags),
                 Map.copyOf(exportedFunctions),
                 Map.copyOf(exportedGlobals),
                 Map.copyOf(exportedTables),
                 Map.copyOf(exportedMemories),
+                Map.copyOf(exportedTags),
                 List.copyOf(functionBodies),
                 List.copyOf(dataSegments),
                 List.copyOf(elementSegments),
                 startFunctionIndex,
                 moduleName,
-                List.of(functionNames)
+                functionNames == null
+                    ? Collections.nCopies(importedFunctions.size() + definedFunctions.size(), null)
+                    : Collections.unmodifiableList(Arrays.asList(functionNames.clone())),
+                codeSection,
+                debugLine != null ? new DebugLines(debugLine, debugLineStr, debugStr) : null
             );
         }
 
@@ -186,6 +322,10 @@ record ModuleIndex(
                 case "name" -> {
                     readNameSection(reader);
                 }
+
+                case ".debug_line" -> debugLine = reader.remaining();
+                case ".debug_line_str" -> debugLineStr = reader.remaining();
+                case ".debug_str" -> debugStr = reader.remaining();
             }
         }
 
@@ -209,13 +349,112 @@ record ModuleIndex(
         }
 
         private void readTypeSection(@NotNull WasmReader reader) throws TranslationException {
-            var remaining = reader.nextUnsigned32();
-            for (; remaining != 0; remaining--) {
-                if (reader.nextByte() != TYPE_FUNCTION) {
-                    throw new TranslationException("Invalid function type");
+            for (var remaining = reader.nextUnsigned32(); remaining != 0; remaining--) {
+                // A type outside of a rec group is a group of its own.
+                var groupSize = 1;
+                if (reader.peekByte() == TYPE_REC) {
+                    reader.nextByte();
+                    groupSize = reader.nextUnsigned32();
+                }
+
+                // Skim the group once to learn which of its members are function types, since references to them
+                // erase differently from references to structs and arrays.
+                var skimmer = reader.withTypeIndexResolver(typeIndex -> ValueType.ANYREF);
+                var functionTypes = new boolean[groupSize];
+                for (var i = 0; i < groupSize; i++) {
+                    functionTypes[i] = nextSubtype(skimmer, types.size() + i) instanceof FunctionType;
+                }
+
+                pendingFunctionTypes = functionTypes;
+                for (var i = 0; i < groupSize; i++) {
+                    var type = nextSubtype(reader, types.size());
+                    checkSupertype(type, types.size());
+                    types.add(type);
+                    pendingFunctionTypes = Arrays.copyOfRange(functionTypes, i + 1, groupSize);
+                }
+
+                pendingFunctionTypes = null;
+            }
+        }
+
+        private @NotNull DefinedType nextSubtype(@NotNull WasmReader reader, int typeId) throws TranslationException {
+            var supertypeId = -1;
+            var code = reader.nextByte();
+
+            if (code == TYPE_SUB || code == TYPE_SUB_FINAL) {
+                switch (reader.nextUnsigned32()) {
+                    case 0 -> {}
+                    case 1 -> supertypeId = reader.nextUnsigned32();
+                    default -> throw new TranslationException("Multiple supertypes are not supported");
+                }
+
+                if (supertypeId >= typeId) {
+                    throw new TranslationException("Supertype must be defined before its subtypes");
+                }
+
+                code = reader.nextByte();
+            }
+
+            switch (code) {
+                case TYPE_FUNCTION -> {
+                    return new FunctionType(reader.nextResultType(), reader.nextResultType());
+                }
+
+                case TYPE_STRUCT -> {
+                    var fields = new ArrayList<FieldType>();
+                    for (var remaining = reader.nextUnsigned32(); remaining != 0; remaining--) {
+                        fields.add(reader.nextFieldType());
+                    }
+
+                    return new StructType(fields, supertypeId);
                 }
-                types.add(new FunctionType(reader.nextResultType(), reader.nextResultType()));
+
+                case TYPE_ARRAY -> {
+                    return new ArrayType(reader.nextFieldType(), supertypeId);
+                }
+
+                default -> throw new TranslationException("Invalid type: " + Integer.toHexString(Byte.toUnsignedInt(code)));
+            }
+        }
+
+        // Struct subtypes become JVM subclasses, so their fields have to start with the supertype's.
+        private void checkSupertype(@NotNull DefinedType type, int typeId) throws TranslationException {
+            if (type instanceof StructType structType && structType.supertypeId() != -1) {
+                if (!(types.get(structType.supertypeId()) instanceof StructType supertype) ||
+                    structType.fields().size() < supertype.fields().size() ||
+                    !structType.fields().subList(0, supertype.fields().size()).equals(supertype.fields())
+                ) {
+                    throw new TranslationException("Struct type " + typeId + " doesn't extend its supertype");
+                }
+            }
+            else if (type instanceof ArrayType arrayType && arrayType.supertypeId() != -1) {
+                if (!(types.get(arrayType.supertypeId()) instanceof ArrayType supertype) ||
+                    !supertype.jvmDescriptor().equals(arrayType.jvmDescriptor())
+                ) {
+                    throw new TranslationException("Array type " + typeId + " doesn't extend its supertype");
+                }
+            }
+        }
+
+        private @NotNull ValueType referenceType(int typeIndex) throws TranslationException {
+            if (typeIndex < types.size()) {
+                return types.get(typeIndex) instanceof FunctionType ? ValueType.FUNCREF : ValueType.ANYREF;
+            }
+
+            var pending = pendingFunctionTypes;
+            if (pending != null && typeIndex - types.size() < pending.length) {
+                return pending[typeIndex - types.size()] ? ValueType.FUNCREF : ValueType.ANYREF;
+            }
+
+            throw new TranslationException("Invalid type index: " + typeIndex);
+        }
+
+        private @NotNull FunctionType functionTypeAt(int typeId) throws TranslationException {
+            if (typeId >= types.size() || !(types.get(typeId) instanceof FunctionType type)) {
+                throw new TranslationException("Type " + typeId + " is not a function type");
             }
+
+            return type;
         }
 
         private void readImportSection(@NotNull WasmReader reader) throws TranslationException {
@@ -224,19 +463,20 @@ record ModuleIndex(
                 var name = reader.nextName();
                 var qualifiedName = new QualifiedName(moduleName, name);
                 switch (reader.nextByte()) {
-                    case 0x00 -> importedFunctions.add(new ImportedFunction(qualifiedName, types.get(reader.nextUnsigned32())));
+                    case 0x00 -> importedFunctions.add(new ImportedFunction(qualifiedName, functionTypeAt(reader.nextUnsigned32())));
                     case 0x01 -> importedTables.add(new ImportedTable(qualifiedName, reader.nextTableType()));
                     case 0x02 -> importedMemories.add(new ImportedMemory(qualifiedName, reader.nextMemoryType()));
-                    case 0x03 -> throw new TranslationException("TODO implement global imports");
+                    case 0x03 -> importedGlobals.add(new ImportedGlobal(qualifiedName, nextGlobalType(reader)));
+                    case 0x04 -> importedTags.add(new ImportedTag(qualifiedName, nextTagType(reader)));
                     default -> throw new TranslationException("Invalid import description");
                 }
             }
         }
 
-        private void readFunctionSection(@NotNull WasmReader reader) {
+        private void readFunctionSection(@NotNull WasmReader reader) throws TranslationException {
             var remaining = reader.nextUnsigned32();
             for (; remaining != 0; remaining--) {
-                definedFunctions.add(types.get(reader.nextUnsigned32()));
+                definedFunctions.add(functionTypeAt(reader.nextUnsigned32()));
             }
         }
 
@@ -257,15 +497,46 @@ record ModuleIndex(
         private void readGlobalSection(@NotNull WasmReader reader) throws TranslationException {
             var remaining = reader.nextUnsigned32();
             for (; remaining != 0; remaining--) {
-                var type = reader.nextValueType();
+                var type = nextGlobalType(reader);
+                var initialValue = reader.nextConstantExpression();
+                checkGlobalGetConstant(initialValue, type.valueType());
+                definedGlobals.add(new DefinedGlobal(type, initialValue));
+            }
+        }
 
-                var mutability = switch (reader.nextByte()) {
-                    case 0x00 -> Mutability.CONST;
-                    case 0x01 -> Mutability.VAR;
-                    default -> throw new TranslationException("Invalid mutability");
-                };
+        private static @NotNull GlobalType nextGlobalType(@NotNull WasmReader reader) throws TranslationException {
+            var type = reader.nextValueType();
+
+            var mutability = switch (reader.nextByte()) {
+                case 0x00 -> Mutability.CONST;
+                case 0x01 -> Mutability.VAR;
+                default -> throw new TranslationException("Invalid mutability");
+            };
+
+            return new GlobalType(type, mutability);
+        }
+
+        // A global.get in a constant expression can only see immutable globals that have already been declared.
+        private void checkGlobalGetConstant(@NotNull Constant constant, @NotNull ValueType expectedType) throws TranslationException {
+            if (!(constant instanceof GlobalGetConstant globalGet)) {
+                return;
+            }
+
+            var id = globalGet.globalId();
+            GlobalType type;
+
+            if (Integer.compareUnsigned(id, importedGlobals.size()) < 0) {
+                type = importedGlobals.get(id).type();
+            }
+            else if (Integer.compareUnsigned(id - importedGlobals.size(), definedGlobals.size()) < 0) {
+                type = definedGlobals.get(id - importedGlobals.size()).type();
+            }
+            else {
+                throw new TranslationException("Invalid global index in constant expression: " + Integer.toUnsignedString(id));
+            }
 
-                definedGlobals.add(new DefinedGlobal(new GlobalType(type, mutability), reader.nextConstantExpression()));
+            if (type.mutability() != Mutability.CONST || type.valueType() != expectedType) {
+                throw new TranslationException("Constant expression refers to a mutable global or one of the wrong type");
             }
         }
 
@@ -280,6 +551,7 @@ record ModuleIndex(
                     case 0x01 -> exportedTables;
                     case 0x02 -> exportedMemories;
                     case 0x03 -> exportedGlobals;
+                    case 0x04 -> exportedTags;
                     default -> throw new TranslationException("Invalid export description");
                 };
 
@@ -287,6 +559,26 @@ record ModuleIndex(
             }
         }
 
+        private void readTagSection(@NotNull WasmReader reader) throws TranslationException {
+            for (var remaining = reader.nextUnsigned32(); remaining != 0; remaining--) {
+                definedTags.add(nextTagType(reader));
+            }
+        }
+
+        private @NotNull FunctionType nextTagType(@NotNull WasmReader reader) throws TranslationException {
+            if (reader.nextByte() != 0x00) {
+                throw new TranslationException("Invalid tag attribute");
+            }
+
+            var type = functionTypeAt(reader.nextUnsigned32());
+
+            if (!type.returnTypes().isEmpty()) {
+                throw new TranslationException("Tag types must not have results");
+            }
+
+            return type;
+        }
+
         private void readStartSection(@NotNull WasmReader reader) {
             startFunctionIndex = reader.nextUnsigned32();
         }
@@ -317,7 +609,8 @@ record ModuleIndex(
                 default -> throw new AssertionError();
             };
 
-            var tableOffset = ((kind & 1) == 0) ? reader.nextI32ConstantExpression() : 0;
+            var tableOffset = ((kind & 1) == 0) ? reader.nextI32ConstantExpression() : new I32Constant(0);
+            checkGlobalGetConstant(tableOffset, ValueType.I32);
 
             var values = switch (kind) {
                 case 0, 1, 2, 3 -> {
@@ -351,7 +644,7 @@ record ModuleIndex(
                             }
                         }
 
-                        case EXTERNREF -> {
+                        case EXTERNREF, ANYREF -> {
                             for (var i = 0; i < v.length; i++) {
                                 v[i] = reader.nextExternRefConstantExpression();
                             }
@@ -369,9 +662,11 @@ record ModuleIndex(
             elementSegments.add(new ElementSegment(List.of(values), mode, tableIndex, tableOffset));
         }
 
-        private void readCodeSection(@NotNull WasmReader reader) {
+        private void readCodeSection(@NotNull MemorySegment section, @NotNull WasmReader reader) {
+            codeSection = section;
+
             for (var remaining = reader.nextUnsigned32(); remaining != 0; remaining--) {
-                functionBodies.add(reader.nextSlice(Integer.toUnsignedLong(reader.nextUnsigned32())));
+                addFunctionBody(reader.nextSlice(Integer.toUnsignedLong(reader.nextUnsigned32())));
             }
         }
 
@@ -385,7 +680,8 @@ record ModuleIndex(
 
                 var mode = (kind == 0 || kind == 2) ? DataSegment.Mode.ACTIVE : DataSegment.Mode.PASSIVE;
                 var memoryIndex = (kind == 2) ? reader.nextUnsigned32() : 0;
-                var memoryOffset = (kind == 0 || kind == 2) ? reader.nextI32ConstantExpression() : 0;
+                var memoryOffset = (kind == 0 || kind == 2) ? reader.nextI32ConstantExpression() : new I32Constant(0);
+                checkGlobalGetConstant(memoryOffset, ValueType.I32);
 
                 var contentsSize = reader.nextUnsigned32();
                 var contents = reader.nextSlice(Integer.toUnsignedLong(contentsSize));
@@ -0,0 +1,214 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+// The counters behind Module.stats(). Live instances are kept as weak keys, each with its memories and tables, so that
+// the memory figures can be summed on demand without holding on to instances; the memories and tables themselves only
+// stay reachable from here until their instance's entry is expunged, which happens on the next access.
+final class ModuleStats implements RuntimeStats {
+    private final int importedMemoryCount;
+    private final int importedTableCount;
+
+    private final LongAdder compiledFunctions = new LongAdder();
+    private final LongAdder definedClasses = new LongAdder();
+    private final LongAdder classBytes = new LongAdder();
+    private final LongAdder callSiteBootstraps = new LongAdder();
+    private final LongAdder instancesCreated = new LongAdder();
+    private final LongAdder memoryGrows = new LongAdder();
+    private final LongAdder tableGrows = new LongAdder();
+
+    // By TrapException.Kind ordinal, and bound into each generated function's trap handler, which counts the traps
+    // that unwind through it (see TrapException.count).
+    final @NotNull LongAdder @NotNull[] traps = new LongAdder[TrapException.Kind.values().length];
+
+    private final Map<ModuleInstance, InstanceStats> instances = new WeakHashMap<>();
+
+    ModuleStats(@NotNull ModuleIndex index) {
+        importedMemoryCount = index.importedMemories().size();
+        importedTableCount = index.importedTables().size();
+
+        for (var i = 0; i < traps.length; i++) {
+            traps[i] = new LongAdder();
+        }
+    }
+
+    void classDefined(int size) {
+        definedClasses.increment();
+        classBytes.add(size);
+    }
+
+    void functionCompiled() {
+        compiledFunctions.increment();
+    }
+
+    void callSiteBootstrapped() {
+        callSiteBootstraps.increment();
+    }
+
+    void memoryGrown() {
+        memoryGrows.increment();
+    }
+
+    void tableGrown() {
+        tableGrows.increment();
+    }
+
+    void instanceCreated(@NotNull ModuleInstance instance, @NotNull Memory @NotNull[] memories, @NotNull Table @NotNull[] tables) {
+        for (var i = importedMemoryCount; i < memories.length; i++) {
+            memories[i].owner = this;
+        }
+
+        for (var i = importedTableCount; i < tables.length; i++) {
+            tables[i].owner = this;
+        }
+
+        instancesCreated.increment();
+
+        synchronized (instances) {
+            instances.put(instance, new InstanceStats(memories, tables));
+        }
+    }
+
+    @Nullable InstanceStats instance(@NotNull ModuleInstance instance) {
+        synchronized (instances) {
+            return instances.get(instance);
+        }
+    }
+
+    private @NotNull InstanceStats @NotNull[] liveInstanceStats() {
+        synchronized (instances) {
+            return instances.values().toArray(InstanceStats[]::new);
+        }
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @Override public long compiledFunctions() {
+        return compiledFunctions.sum();
+    }
+
+    @Override public long definedClasses() {
+        return definedClasses.sum();
+    }
+
+    @Override public long classBytes() {
+        return classBytes.sum();
+    }
+
+    @Override public long callSiteBootstraps() {
+        return callSiteBootstraps.sum();
+    }
+
+    @Override public long instancesCreated() {
+        return instancesCreated.sum();
+    }
+
+    @Override public int liveInstances() {
+        synchronized (instances) {
+            return instances.size();
+        }
+    }
+
+    @Override public long committedMemoryBytes() {
+        var total = 0L;
+
+        for (var instance : liveInstanceStats()) {
+            for (var i = importedMemoryCount; i < instance.memories.length; i++) {
+                total += instance.memories[i].committedBytes();
+            }
+        }
+
+        return total;
+    }
+
+    @Override public long reservedMemoryBytes() {
+        var total = 0L;
+
+        for (var instance : liveInstanceStats()) {
+            for (var i = importedMemoryCount; i < instance.memories.length; i++) {
+                total += instance.memories[i].reservedBytes();
+            }
+        }
+
+        return total;
+    }
+
+    @Override public long tableElements() {
+        var total = 0L;
+
+        for (var instance : liveInstanceStats()) {
+            for (var i = importedTableCount; i < instance.tables.length; i++) {
+                total += instance.tables[i].storage.length;
+            }
+        }
+
+        return total;
+    }
+
+    @Override public long memoryGrows() {
+        return memoryGrows.sum();
+    }
+
+    @Override public long tableGrows() {
+        return tableGrows.sum();
+    }
+
+    @Override public long traps(@NotNull TrapException.Kind kind) {
+        return traps[kind.ordinal()].sum();
+    }
+
+    @Override public long traps() {
+        var total = 0L;
+
+        for (var counter : traps) {
+            total += counter.sum();
+        }
+
+        return total;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final class InstanceStats implements RuntimeStats.Instance {
+        private final @NotNull Memory @NotNull[] memories;
+        private final @NotNull Table @NotNull[] tables;
+
+        InstanceStats(@NotNull Memory @NotNull[] memories, @NotNull Table @NotNull[] tables) {
+            this.memories = requireNonNull(memories);
+            this.tables = requireNonNull(tables);
+        }
+
+        @Override public int memoryCount() {
+            return memories.length;
+        }
+
+        @Override public long committedMemoryBytes(int memoryId) {
+            return memories[memoryId].committedBytes();
+        }
+
+        @Override public long reservedMemoryBytes(int memoryId) {
+            return memories[memoryId].reservedBytes();
+        }
+
+        @Override public long memoryGrows(int memoryId) {
+            return memories[memoryId].growCount();
+        }
+
+        @Override public int tableCount() {
+            return tables.length;
+        }
+
+        @Override public int tableSize(int tableId) {
+            return tables[tableId].storage.length;
+        }
+
+        @Override public long tableGrows(int tableId) {
+            return tables[tableId].growCount;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.wastastic;
+
+import jdk.incubator.foreign.MemorySegment;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+// Validation is translation with the output thrown away (see FunctionTranslator.validate), so a module that passes
+// here is exactly one whose functions will all translate. Bodies are independent of one another once the module has
+// been indexed, so they're checked in parallel, each worker thread reusing its own translator.
+final class ModuleValidator {
+    private ModuleValidator() {}
+
+    static void validate(@NotNull MemorySegment input) throws ValidationException {
+        var indexer = new ModuleIndex.Indexer();
+        ModuleIndex index;
+        try {
+            index = ModuleIndex.of(input, indexer);
+        }
+        catch (TranslationException | RuntimeException exception) {
+            throw new ValidationException(List.of(new ValidationError(-1, indexer.failureOffset(input), describe(exception))));
+        }
+
+        // Reported at the code section, or at the end of the module if there isn't one.
+        var definedFunctionCount = index.definedFunctions().size();
+        if (index.functionBodies().size() != definedFunctionCount) {
+            throw new ValidationException(List.of(new ValidationError(
+                -1,
+                index.codeSection() != null ? index.codeSection().address().segmentOffset(input) : input.byteSize(),
+                "Function section declares " + definedFunctionCount + " functions, but the code section has " + index.functionBodies().size() + " bodies"
+            )));
+        }
+
+        var errors = IntStream.range(0, definedFunctionCount)
+            .parallel()
+            .mapToObj(i -> validateFunction(input, index, index.importedFunctions().size() + i))
+            .filter(Objects::nonNull)
+            .toList();
+
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
+    }
+
+    private static @Nullable ValidationError validateFunction(@NotNull MemorySegment input, @NotNull ModuleIndex index, int functionId) {
+        var translator = FunctionTranslator.forCurrentThread();
+
+        try {
+            translator.validate(index, functionId);
+            return null;
+        }
+        catch (TranslationException | RuntimeException exception) {
+            // Running off the end of a truncated body surfaces as an out of bounds access on its segment.
+            var body = index.functionBodies().get(functionId - index.importedFunctions().size());
+            var offset = body.address().segmentOffset(input) + translator.instructionOffset();
+            return new ValidationError(functionId, offset, describe(exception));
+        }
+    }
+
+    private static @NotNull String describe(@NotNull Exception exception) {
+        return exception.getMessage() != null ? exception.getMessage() : exception.toString();
+    }
+}
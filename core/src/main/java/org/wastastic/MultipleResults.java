@@ -0,0 +1,333 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.filterReturnValue;
+import static java.lang.invoke.MethodType.methodType;
+import static org.objectweb.asm.Type.getDescriptor;
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+// Per-thread carrier for the results of a function with more than one. The callee stores its results in the current
+// thread's carrier and returns it, and the caller reads them back right away, so returning several values allocates
+// nothing. Like TailCallFrame, a carrier only holds anything between a body storing its results and its caller taking
+// them, and no guest code runs on the thread in between (bodies run their function exit hook before storing any), so
+// one carrier per thread serves every call.
+//
+// The host sees the Object[] of boxed values in result order that multi-value functions have always returned: exported
+// and imported functions are adapted with hostView and function, and funcrefs handed across through globals, exception
+// payloads and results with toHost and fromHost. Only the host's side of the boundary allocates.
+final class MultipleResults {
+    private static final byte I32 = 0;
+    private static final byte I64 = 1;
+    private static final byte F32 = 2;
+    private static final byte F64 = 3;
+    private static final byte REF = 4;
+
+    private long @NotNull[] primitiveSlots = new long[0];
+    private @Nullable Object @NotNull[] referenceSlots = new Object[0];
+
+    // What each slot was last stored as, for toArray, which doesn't know the callee's result types.
+    private byte @NotNull[] kinds = new byte[0];
+    private int count;
+
+    static final String INTERNAL_NAME = getInternalName(MultipleResults.class);
+    static final String DESCRIPTOR = getDescriptor(MultipleResults.class);
+
+    private MultipleResults() {}
+
+    //------------------------------------------------------------------------------------------------------------------
+    private static final ThreadLocal<MultipleResults> CURRENT = ThreadLocal.withInitial(MultipleResults::new);
+
+    static final String CURRENT_NAME = "current";
+    static final String CURRENT_DESCRIPTOR = methodDescriptor(MultipleResults.class, int.class);
+
+    // The current thread's carrier, with room for count results.
+    @SuppressWarnings("unused")
+    static @NotNull MultipleResults current(int count) {
+        var results = CURRENT.get();
+
+        if (results.kinds.length < count) {
+            results.primitiveSlots = Arrays.copyOf(results.primitiveSlots, count);
+            results.referenceSlots = Arrays.copyOf(results.referenceSlots, count);
+            results.kinds = Arrays.copyOf(results.kinds, count);
+        }
+
+        results.count = count;
+        return results;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String PUT_I32_NAME = "putI32";
+    static final String PUT_I32_DESCRIPTOR = methodDescriptor(void.class, int.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static void putI32(int value, int index, @NotNull MultipleResults self) {
+        self.primitiveSlots[index] = value;
+        self.kinds[index] = I32;
+    }
+
+    static final String PUT_I64_NAME = "putI64";
+    static final String PUT_I64_DESCRIPTOR = methodDescriptor(void.class, long.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static void putI64(long value, int index, @NotNull MultipleResults self) {
+        self.primitiveSlots[index] = value;
+        self.kinds[index] = I64;
+    }
+
+    static final String PUT_F32_NAME = "putF32";
+    static final String PUT_F32_DESCRIPTOR = methodDescriptor(void.class, float.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static void putF32(float value, int index, @NotNull MultipleResults self) {
+        self.primitiveSlots[index] = Float.floatToRawIntBits(value);
+        self.kinds[index] = F32;
+    }
+
+    static final String PUT_F64_NAME = "putF64";
+    static final String PUT_F64_DESCRIPTOR = methodDescriptor(void.class, double.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static void putF64(double value, int index, @NotNull MultipleResults self) {
+        self.primitiveSlots[index] = Double.doubleToRawLongBits(value);
+        self.kinds[index] = F64;
+    }
+
+    static final String PUT_REF_NAME = "putRef";
+    static final String PUT_REF_DESCRIPTOR = methodDescriptor(void.class, Object.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static void putRef(@Nullable Object value, int index, @NotNull MultipleResults self) {
+        self.referenceSlots[index] = value;
+        self.kinds[index] = REF;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String I32_NAME = "i32";
+    static final String I32_DESCRIPTOR = methodDescriptor(int.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static int i32(int index, @NotNull MultipleResults self) {
+        return (int) self.primitiveSlots[index];
+    }
+
+    static final String I64_NAME = "i64";
+    static final String I64_DESCRIPTOR = methodDescriptor(long.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static long i64(int index, @NotNull MultipleResults self) {
+        return self.primitiveSlots[index];
+    }
+
+    static final String F32_NAME = "f32";
+    static final String F32_DESCRIPTOR = methodDescriptor(float.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static float f32(int index, @NotNull MultipleResults self) {
+        return Float.intBitsToFloat((int) self.primitiveSlots[index]);
+    }
+
+    static final String F64_NAME = "f64";
+    static final String F64_DESCRIPTOR = methodDescriptor(double.class, int.class, MultipleResults.class);
+
+    @SuppressWarnings("unused")
+    static double f64(int index, @NotNull MultipleResults self) {
+        return Double.longBitsToDouble(self.primitiveSlots[index]);
+    }
+
+    static final String REF_NAME = "ref";
+    static final String REF_DESCRIPTOR = methodDescriptor(Object.class, int.class, MultipleResults.class);
+
+    // Clears the slot, so that the carrier doesn't keep the reference alive.
+    @SuppressWarnings("unused")
+    static @Nullable Object ref(int index, @NotNull MultipleResults self) {
+        var value = self.referenceSlots[index];
+        self.referenceSlots[index] = null;
+        return value;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    private static @Nullable Object @NotNull[] toArray(@NotNull MultipleResults self) {
+        var values = new Object[self.count];
+
+        for (var i = 0; i < values.length; i++) {
+            values[i] = switch (self.kinds[i]) {
+                case I32 -> (int) self.primitiveSlots[i];
+                case I64 -> self.primitiveSlots[i];
+                case F32 -> Float.intBitsToFloat((int) self.primitiveSlots[i]);
+                case F64 -> Double.longBitsToDouble(self.primitiveSlots[i]);
+                default -> toHost(ref(i, self));
+            };
+        }
+
+        return values;
+    }
+
+    // Boxed values are read back by the primitive accessor for their result type, anything else by ref, so a box is
+    // stored both ways: the host's array doesn't say which of its results are references.
+    private static @NotNull MultipleResults fromArray(@Nullable Object @NotNull[] values) {
+        var self = current(values.length);
+
+        for (var i = 0; i < values.length; i++) {
+            var value = values[i];
+            self.referenceSlots[i] = value;
+            self.kinds[i] = REF;
+
+            if (value instanceof Integer boxed) {
+                self.primitiveSlots[i] = boxed;
+                self.kinds[i] = I32;
+            }
+            else if (value instanceof Long boxed) {
+                self.primitiveSlots[i] = boxed;
+                self.kinds[i] = I64;
+            }
+            else if (value instanceof Float boxed) {
+                self.primitiveSlots[i] = Float.floatToRawIntBits(boxed);
+                self.kinds[i] = F32;
+            }
+            else if (value instanceof Double boxed) {
+                self.primitiveSlots[i] = Double.doubleToRawLongBits(boxed);
+                self.kinds[i] = F64;
+            }
+            else if (value instanceof MethodHandle handle) {
+                self.referenceSlots[i] = fromHost(handle);
+            }
+        }
+
+        return self;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Each adapted handle, host view or function, mapped to the handle it was made from, so that a function that goes
+    // out to the host and comes back, whether as a funcref or as another module's import, is the same handle again and
+    // is called without going through an array, and the other way around. Weak keys, and a handle doesn't refer to the
+    // ones made from it, so entries go away with the adapted handle.
+    private static final Map<MethodHandle, MethodHandle> ORIGINALS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // And each function's host view, for as long as the host holds on to it, so that the same function is handed out
+    // as the same view.
+    private static final Map<MethodHandle, WeakReference<MethodHandle>> HOST_VIEWS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // The host's view of a function of this or another module: results come back as an Object[] rather than in a
+    // carrier, and funcref arguments and results are converted with fromHost and toHost.
+    static @NotNull MethodHandle hostView(@NotNull MethodHandle function) {
+        var original = ORIGINALS.get(function);
+
+        if (original != null) {
+            return original;
+        }
+
+        var existing = HOST_VIEWS.get(function);
+        var view = existing != null ? existing.get() : null;
+
+        if (view != null) {
+            return view;
+        }
+
+        var type = function.type();
+        view = adaptReferenceParameters(function, FROM_HOST);
+
+        if (type.returnType() == MultipleResults.class) {
+            view = filterReturnValue(view, TO_ARRAY);
+        }
+        else if (type.returnType() == MethodHandle.class) {
+            view = filterReturnValue(view, TO_HOST);
+        }
+
+        if (view != function) {
+            ORIGINALS.put(view, function);
+            HOST_VIEWS.put(function, new WeakReference<>(view));
+        }
+
+        return view;
+    }
+
+    // The reverse of hostView, for functions supplied by the host: imports, and funcrefs that return an Object[].
+    static @NotNull MethodHandle function(@NotNull MethodHandle hostFunction) {
+        var original = ORIGINALS.get(hostFunction);
+
+        if (original != null) {
+            return original;
+        }
+
+        var type = hostFunction.type();
+        var function = adaptReferenceParameters(hostFunction, TO_HOST);
+
+        if (type.returnType() == Object[].class) {
+            function = filterReturnValue(function, FROM_ARRAY);
+        }
+        else if (type.returnType() == MethodHandle.class) {
+            function = filterReturnValue(function, FROM_HOST);
+        }
+
+        if (function != hostFunction) {
+            ORIGINALS.put(function, hostFunction);
+        }
+
+        return function;
+    }
+
+    private static @NotNull MethodHandle adaptReferenceParameters(@NotNull MethodHandle handle, @NotNull MethodHandle filter) {
+        var parameterTypes = handle.type().parameterArray();
+        var filters = new MethodHandle[parameterTypes.length];
+        var adapted = false;
+
+        for (var i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == MethodHandle.class) {
+                filters[i] = filter;
+                adapted = true;
+            }
+        }
+
+        return adapted ? filterArguments(handle, 0, filters) : handle;
+    }
+
+    // A funcref value on its way out to the host. Only functions that return their results in a carrier differ between
+    // the two sides, and only they can be told apart by their type; anything else is returned as is.
+    static @Nullable MethodHandle toHost(@Nullable MethodHandle function) {
+        return function != null && function.type().returnType() == MultipleResults.class ? hostView(function) : function;
+    }
+
+    static @Nullable Object toHost(@Nullable Object reference) {
+        return reference instanceof MethodHandle function ? toHost(function) : reference;
+    }
+
+    // A funcref value on its way in from the host.
+    static @Nullable MethodHandle fromHost(@Nullable MethodHandle hostFunction) {
+        return hostFunction != null && hostFunction.type().returnType() == Object[].class ? function(hostFunction) : hostFunction;
+    }
+
+    static @Nullable Object fromHost(@Nullable Object reference) {
+        return reference instanceof MethodHandle hostFunction ? fromHost(hostFunction) : reference;
+    }
+
+    private static final MethodHandle TO_ARRAY;
+    private static final MethodHandle FROM_ARRAY;
+    private static final MethodHandle TO_HOST;
+    private static final MethodHandle FROM_HOST;
+
+    static {
+        var lookup = MethodHandles.lookup();
+
+        try {
+            TO_ARRAY = lookup.findStatic(MultipleResults.class, "toArray", methodType(Object[].class, MultipleResults.class));
+            FROM_ARRAY = lookup.findStatic(MultipleResults.class, "fromArray", methodType(MultipleResults.class, Object[].class));
+            TO_HOST = lookup.findStatic(MultipleResults.class, "toHost", methodType(MethodHandle.class, MethodHandle.class));
+            FROM_HOST = lookup.findStatic(MultipleResults.class, "fromHost", methodType(MethodHandle.class, MethodHandle.class));
+        }
+        catch (NoSuchMethodException | IllegalAccessException exception) {
+            throw new ExceptionInInitializerError(exception);
+        }
+    }
+}
@@ -29,6 +29,22 @@ final class Names {
         return "global-" + index;
     }
 
+    static @NotNull String tagName(int index) {
+        return "tag-" + index;
+    }
+
+    static @NotNull String structClassName(int typeId) {
+        return "org/wastastic/gc/Struct$" + typeId;
+    }
+
+    static @NotNull String arrayClassName(int typeId) {
+        return "org/wastastic/gc/Array$" + typeId;
+    }
+
+    static @NotNull String structFieldName(int index) {
+        return "f" + index;
+    }
+
     static @NotNull String dataSegmentName(int index) {
         return "data-" + index;
     }
@@ -47,8 +63,12 @@ final class Names {
         return builder.append(")").append(getDescriptor(returnType)).toString();
     }
 
+    static final String EPOCH_DEADLINE_FIELD_NAME = "epochDeadline";
+    static final String FUEL_FIELD_NAME = "fuel";
+
     static final String DOUBLE_INTERNAL_NAME = getInternalName(Double.class);
     static final String FLOAT_INTERNAL_NAME = getInternalName(Float.class);
+    static final String FUNCTION_CLASS_BODY_NAME = "body";
     static final String FUNCTION_CLASS_ENTRY_NAME = "entry";
     static final String GENERATED_FUNCTION_INTERNAL_NAME = "org/wastastic/GeneratedFunction";
     static final String GENERATED_INSTANCE_INTERNAL_NAME = "org/wastastic/GeneratedModuleInstance";
@@ -58,12 +78,15 @@ final class Names {
     static final String METHOD_HANDLE_INTERNAL_NAME = getInternalName(MethodHandle.class);
     static final String MODULE_INSTANCE_INTERNAL_NAME = getInternalName(ModuleInstance.class);
     static final String OBJECT_INTERNAL_NAME = getInternalName(Object.class);
+    static final String VALUE_TYPE_INTERNAL_NAME = getInternalName(ValueType.class);
     static final String WRONG_METHOD_TYPE_EXCEPTION_INTERNAL_NAME = getInternalName(WrongMethodTypeException.class);
 
     static final String MEMORY_SEGMENT_DESCRIPTOR = getDescriptor(MemorySegment.class);
     static final String METHOD_HANDLE_DESCRIPTOR = getDescriptor(MethodHandle.class);
     static final String MODULE_INSTANCE_DESCRIPTOR = getDescriptor(ModuleInstance.class);
     static final String OBJECT_ARRAY_DESCRIPTOR = getDescriptor(Object[].class);
+    static final String OBJECT_DESCRIPTOR = getDescriptor(Object.class);
+    static final String VALUE_TYPE_DESCRIPTOR = getDescriptor(ValueType.class);
 
     static final String GENERATED_INSTANCE_CONSTRUCTOR_DESCRIPTOR = methodDescriptor(void.class, Map.class);
 }
@@ -0,0 +1,64 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+// Live counters for a module, from Module.stats(), and for one of its instances, from Module.stats(instance). Every
+// call reads the current value, so a view can be kept and scraped periodically; counters are striped, and reads neither
+// lock nor stop guest code, so values read together aren't a consistent snapshot of one moment.
+public interface RuntimeStats {
+    // Functions whose classes have been defined so far, whether lazily on first call or by precompileFunctions.
+    long compiledFunctions();
+
+    // Every class defined for the module: functions, the instance class, indirect call trampolines and struct types.
+    long definedClasses();
+
+    long classBytes();
+
+    long callSiteBootstraps();
+
+    long instancesCreated();
+
+    // Instances that haven't been garbage collected yet.
+    int liveInstances();
+
+    // Bytes currently allocated for the memories that live instances define; memories imported from elsewhere are
+    // counted by whoever defines them.
+    long committedMemoryBytes();
+
+    // What those memories could grow to, capped at 4 GiB each. Nothing is reserved ahead of growth: a memory is
+    // reallocated and copied when it grows, so this is a limit rather than address space held.
+    long reservedMemoryBytes();
+
+    // Elements of the tables that live instances define.
+    long tableElements();
+
+    // Successful memory.grow and table.grow operations on memories and tables the module defines, including ones made
+    // by other modules or the host through imports and exports.
+    long memoryGrows();
+
+    long tableGrows();
+
+    // Traps raised in the module's functions, counted against the innermost one the trap unwound through; this doesn't
+    // depend on the trap stack trace mode. Traps raised while instantiating, outside of the start function, aren't
+    // counted.
+    long traps(@NotNull TrapException.Kind kind);
+
+    long traps();
+
+    // An instance's memories and tables, imported ones included, by their index in the module.
+    interface Instance {
+        int memoryCount();
+
+        long committedMemoryBytes(int memoryId);
+
+        long reservedMemoryBytes(int memoryId);
+
+        long memoryGrows(int memoryId);
+
+        int tableCount();
+
+        int tableSize(int tableId);
+
+        long tableGrows(int tableId);
+    }
+}
@@ -0,0 +1,434 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.requireNonNull;
+
+// Periodically takes stack traces of threads running guest code and counts how often each distinct stack was seen.
+// Generated function classes are shown as the Wasm functions they were translated from, other hidden classes (lambda
+// forms, call_indirect trampolines) are left out, and ordinary Java frames are kept so that host imports show up as
+// well. Samples of stacks without any guest frames are dropped. Sampling goes through Thread.getStackTrace, so it's
+// wall clock rather than CPU time, and biased towards safepoints like any other sampler built on it.
+public final class SamplingProfiler implements AutoCloseable {
+    private final long intervalNanos;
+    private final @NotNull Thread @Nullable[] threads;
+    private final @NotNull Thread samplerThread;
+    private volatile boolean closed;
+
+    // Everything below is guarded by this.
+    private final HashMap<String, Integer> frameIds = new HashMap<>();
+    private final ArrayList<String> frameNames = new ArrayList<>();
+    private final StackTable stacks = new StackTable();
+    private int[] scratch = new int[256];
+    private final long startTimeNanos = System.currentTimeMillis() * 1_000_000;
+    private final long startNanoTime = System.nanoTime();
+    private long stopNanoTime;
+
+    private SamplingProfiler(long intervalNanos, @NotNull Thread @Nullable[] threads) {
+        this.intervalNanos = intervalNanos;
+        this.threads = threads;
+
+        samplerThread = new Thread(() -> {
+            while (!closed) {
+                LockSupport.parkNanos(intervalNanos);
+
+                if (!closed) {
+                    sample();
+                }
+            }
+
+            synchronized (this) {
+                stopNanoTime = System.nanoTime();
+            }
+        }, "wastastic-sampling-profiler");
+
+        samplerThread.setDaemon(true);
+        samplerThread.start();
+    }
+
+    // Samples every live thread.
+    public static @NotNull SamplingProfiler start(@NotNull Duration interval) {
+        return new SamplingProfiler(intervalNanos(interval), null);
+    }
+
+    // Samples only the given threads, which is much cheaper than walking every thread in the process.
+    public static @NotNull SamplingProfiler start(@NotNull Duration interval, @NotNull Thread @NotNull... threads) {
+        var copy = threads.clone();
+
+        for (var thread : copy) {
+            requireNonNull(thread);
+        }
+
+        return new SamplingProfiler(intervalNanos(interval), copy);
+    }
+
+    private static long intervalNanos(@NotNull Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("sampling interval must be positive");
+        }
+
+        return interval.toNanos();
+    }
+
+    // Stops sampling and waits for a sample that's being taken to finish. The collected samples stay available.
+    @Override public void close() {
+        closed = true;
+        LockSupport.unpark(samplerThread);
+
+        var interrupted = false;
+        while (true) {
+            try {
+                samplerThread.join();
+                break;
+            }
+            catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized long sampleCount() {
+        var total = 0L;
+
+        for (var i = 0; i < stacks.size; i++) {
+            total += stacks.counts[i];
+        }
+
+        return total;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    private void sample() {
+        if (threads != null) {
+            for (var thread : threads) {
+                if (thread.isAlive()) {
+                    record(thread.getStackTrace());
+                }
+            }
+        }
+        else {
+            for (var entry : Thread.getAllStackTraces().entrySet()) {
+                if (entry.getKey() != samplerThread) {
+                    record(entry.getValue());
+                }
+            }
+        }
+    }
+
+    private synchronized void record(@NotNull StackTraceElement @NotNull[] trace) {
+        if (scratch.length < trace.length) {
+            scratch = new int[Integer.max(trace.length, scratch.length * 2)];
+        }
+
+        var length = 0;
+        var hasGuestFrames = false;
+        String previousBodyClassName = null;
+
+        // Leaf first, like the trace itself.
+        for (var element : trace) {
+            var className = element.getClassName();
+            var methodName = element.getMethodName();
+
+            // Only hidden classes have a '/' in their name.
+            if (className.indexOf('/') != -1) {
+                var label = FunctionClasses.label(className);
+
+                if (label == null) {
+                    previousBodyClassName = null;
+                    continue;
+                }
+
+                hasGuestFrames = true;
+
+                // A tail call trampoline shows up right below its own body; only count the function once.
+                if (!className.equals(previousBodyClassName) || !methodName.equals(Names.FUNCTION_CLASS_ENTRY_NAME)) {
+                    scratch[length++] = frameId(label);
+                }
+
+                previousBodyClassName = methodName.equals(Names.FUNCTION_CLASS_BODY_NAME) ? className : null;
+            }
+            else {
+                scratch[length++] = frameId(className + "." + methodName);
+                previousBodyClassName = null;
+            }
+        }
+
+        if (hasGuestFrames) {
+            stacks.add(scratch, length);
+        }
+    }
+
+    private int frameId(@NotNull String name) {
+        var id = frameIds.get(name);
+
+        if (id == null) {
+            id = frameNames.size();
+            frameIds.put(name, id);
+            frameNames.add(name);
+        }
+
+        return id;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Writes one line per distinct stack, root first, in the collapsed format taken by flamegraph.pl and most other
+    // flame graph tools.
+    public synchronized void writeCollapsedStacks(@NotNull Writer writer) throws IOException {
+        var line = new StringBuilder();
+
+        for (var i = 0; i < stacks.size; i++) {
+            line.setLength(0);
+            var offset = stacks.offsets[i];
+
+            for (var j = offset + stacks.lengths[i] - 1; j >= offset; j--) {
+                // Semicolons separate frames, and the count follows the last space.
+                line.append(frameNames.get(stacks.frames[j]).replace(';', ':').replace(' ', '_'));
+                line.append(j != offset ? ';' : ' ');
+            }
+
+            line.append(stacks.counts[i]).append('\n');
+            writer.write(line.toString());
+        }
+
+        writer.flush();
+    }
+
+    // Writes a gzipped profile.proto, as read by pprof. Each frame gets one location and one function, both with the
+    // frame's id plus one, since zero isn't a valid id.
+    public synchronized void writePprof(@NotNull OutputStream output) throws IOException {
+        var strings = new StringTable();
+        var profile = new ProtoWriter();
+
+        var sampleType = new ProtoWriter();
+        sampleType.writeInt64(1, strings.id("samples"));
+        sampleType.writeInt64(2, strings.id("count"));
+        profile.writeMessage(1, sampleType);
+
+        var wallType = new ProtoWriter();
+        wallType.writeInt64(1, strings.id("wall"));
+        wallType.writeInt64(2, strings.id("nanoseconds"));
+        profile.writeMessage(1, wallType);
+
+        var locationIds = new long[0];
+        for (var i = 0; i < stacks.size; i++) {
+            var length = stacks.lengths[i];
+
+            if (locationIds.length != length) {
+                locationIds = new long[length];
+            }
+
+            for (var j = 0; j < length; j++) {
+                locationIds[j] = stacks.frames[stacks.offsets[i] + j] + 1;
+            }
+
+            var sample = new ProtoWriter();
+            sample.writePacked(1, locationIds);
+            sample.writePacked(2, new long[]{stacks.counts[i], stacks.counts[i] * intervalNanos});
+            profile.writeMessage(2, sample);
+        }
+
+        for (var i = 0; i < frameNames.size(); i++) {
+            var line = new ProtoWriter();
+            line.writeInt64(1, i + 1);
+
+            var location = new ProtoWriter();
+            location.writeInt64(1, i + 1);
+            location.writeMessage(4, line);
+            profile.writeMessage(4, location);
+        }
+
+        for (var i = 0; i < frameNames.size(); i++) {
+            var function = new ProtoWriter();
+            function.writeInt64(1, i + 1);
+            function.writeInt64(2, strings.id(frameNames.get(i)));
+            function.writeInt64(3, strings.id(frameNames.get(i)));
+            profile.writeMessage(5, function);
+        }
+
+        var periodType = new ProtoWriter();
+        periodType.writeInt64(1, strings.id("wall"));
+        periodType.writeInt64(2, strings.id("nanoseconds"));
+
+        profile.writeInt64(9, startTimeNanos);
+        profile.writeInt64(10, (closed ? stopNanoTime : System.nanoTime()) - startNanoTime);
+        profile.writeMessage(11, periodType);
+        profile.writeInt64(12, intervalNanos);
+
+        // The string table goes last, since the fields before it are what fill it in.
+        for (var string : strings.strings) {
+            profile.writeString(6, string);
+        }
+
+        var gzip = new GZIPOutputStream(output);
+        profile.bytes.writeTo(gzip);
+        gzip.finish();
+        gzip.flush();
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Counts per distinct stack. Stacks are kept back to back in one int array and found through an open addressing
+    // table of indices into it, so recording a stack that has been seen before doesn't allocate.
+    private static final class StackTable {
+        int[] frames = new int[4096];
+        int framesSize;
+
+        int[] offsets = new int[256];
+        int[] lengths = new int[256];
+        long[] counts = new long[256];
+        int[] hashes = new int[256];
+        int size;
+
+        // Each slot holds a stack's index plus one, or zero if it's empty.
+        int[] slots = new int[512];
+
+        void add(int @NotNull[] stack, int length) {
+            var hash = hash(stack, length);
+            var mask = slots.length - 1;
+
+            for (var slot = hash & mask; ; slot = (slot + 1) & mask) {
+                var index = slots[slot] - 1;
+
+                if (index == -1) {
+                    insert(slot, stack, length, hash);
+                    return;
+                }
+
+                if (hashes[index] == hash && lengths[index] == length && Arrays.equals(frames, offsets[index], offsets[index] + length, stack, 0, length)) {
+                    counts[index]++;
+                    return;
+                }
+            }
+        }
+
+        private void insert(int slot, int @NotNull[] stack, int length, int hash) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+
+            if (frames.length - framesSize < length) {
+                frames = Arrays.copyOf(frames, Integer.max(frames.length * 2, framesSize + length));
+            }
+
+            System.arraycopy(stack, 0, frames, framesSize, length);
+            offsets[size] = framesSize;
+            lengths[size] = length;
+            counts[size] = 1;
+            hashes[size] = hash;
+            framesSize += length;
+            slots[slot] = ++size;
+
+            // Kept at most half full.
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            var mask = slots.length - 1;
+
+            for (var i = 0; i < size; i++) {
+                var slot = hashes[i] & mask;
+
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+
+                slots[slot] = i + 1;
+            }
+        }
+
+        private static int hash(int @NotNull[] stack, int length) {
+            var hash = 1;
+
+            for (var i = 0; i < length; i++) {
+                hash = hash * 31 + stack[i];
+            }
+
+            // Spread the bits, since only the low ones pick the slot.
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    private static final class StringTable {
+        final List<String> strings = new ArrayList<>(List.of(""));
+        final HashMap<String, Integer> ids = new HashMap<>();
+
+        long id(@NotNull String string) {
+            var id = ids.get(string);
+
+            if (id == null) {
+                id = strings.size();
+                ids.put(string, id);
+                strings.add(string);
+            }
+
+            return id;
+        }
+    }
+
+    // Just enough of the protobuf wire format for profile.proto: varints, length delimited strings and messages, and
+    // packed repeated varints.
+    private static final class ProtoWriter {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        void writeInt64(int field, long value) {
+            writeVarint((long) field << 3);
+            writeVarint(value);
+        }
+
+        void writeString(int field, @NotNull String value) {
+            writeLengthDelimited(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeMessage(int field, @NotNull ProtoWriter message) {
+            writeLengthDelimited(field, message.bytes.toByteArray());
+        }
+
+        void writePacked(int field, long @NotNull[] values) {
+            var packed = new ProtoWriter();
+
+            for (var value : values) {
+                packed.writeVarint(value);
+            }
+
+            writeMessage(field, packed);
+        }
+
+        private void writeLengthDelimited(int field, byte @NotNull[] value) {
+            writeVarint((long) field << 3 | 2);
+            writeVarint(value.length);
+            bytes.writeBytes(value);
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                bytes.write((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+
+            bytes.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package org.wastastic;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static java.util.Objects.requireNonNull;
+import static org.wastastic.WasmOpcodes.SECTION_CODE;
+
+// Compiles a module while it's still being read. Every section is indexed as soon as it has arrived in full, and from the
+// start of the code section on, each function body is handed to the common pool for translation as soon as its last
+// byte is in, so that translating overlaps with reading the rest of the module. Everything before the code section is
+// all a body needs to be translated, except for the name section, which usually comes last; functions translated
+// before it was read get their names patched in at the end.
+//
+// The finished module starts out with those translations instead of translating on demand. A function whose early
+// translation failed is simply left to be translated again on demand, where the failure is reported like it would be
+// for Module.compile.
+final class StreamingCompiler {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int HEADER_SIZE = 8;
+
+    private final @NotNull ReadableByteChannel channel;
+    private final @NotNull CompilerOptions options;
+
+    private final @NotNull ResourceScope scope = ResourceScope.newImplicitScope();
+    private final @NotNull ModuleIndex.Indexer indexer = new ModuleIndex.Indexer();
+
+    // Read ahead for section headers; section bodies are read straight into their own segments (see nextSegment).
+    private final @NotNull ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE).flip();
+
+    // Index of the sections before the code section, which the early translations are done against.
+    private @Nullable ModuleIndex codeIndex;
+    private final @NotNull List<@NotNull ForkJoinTask<ModuleImpl.PrecompiledFunction>> translations = new ArrayList<>();
+
+    // Bytes read from the channel so far, for the parse event.
+    private long inputSize;
+
+    private StreamingCompiler(@NotNull ReadableByteChannel channel, @NotNull CompilerOptions options) {
+        this.channel = requireNonNull(channel);
+        this.options = requireNonNull(options);
+    }
+
+    static @NotNull Module compile(@NotNull ReadableByteChannel channel, @NotNull CompilerOptions options) throws TranslationException, IOException {
+        var compiler = new StreamingCompiler(channel, options);
+
+        try {
+            return compiler.compile();
+        }
+        catch (TranslationException | IOException | RuntimeException | Error exception) {
+            for (var translation : compiler.translations) {
+                translation.cancel(false);
+            }
+
+            throw exception;
+        }
+    }
+
+    private @NotNull Module compile() throws TranslationException, IOException {
+        var event = new Events.ModuleParseEvent();
+        event.begin();
+
+        ModuleIndex.Indexer.readHeader(new WasmReader(nextSegment(HEADER_SIZE)));
+
+        int sectionId;
+        while ((sectionId = nextByte()) != -1) {
+            var sectionSize = Integer.toUnsignedLong(nextUnsigned32());
+
+            if (sectionId == SECTION_CODE) {
+                readCodeSection(sectionSize);
+            }
+            else {
+                indexer.readSection((byte) sectionId, nextSegment(sectionSize));
+            }
+        }
+
+        var index = indexer.build(scope);
+        var precompiledFunctions = new ModuleImpl.PrecompiledFunction[index.importedFunctions().size() + index.definedFunctions().size()];
+
+        // Line numbers from DWARF sections that came after the code section can't be patched in like names can.
+        var missingDebugLines = options.dwarfLineNumbers() && index.debugLines() != null && requireNonNull(codeIndex).debugLines() == null;
+
+        for (var i = 0; i < translations.size(); i++) {
+            var translation = translations.get(i);
+
+            if (missingDebugLines) {
+                translation.cancel(false);
+                continue;
+            }
+
+            translation.quietlyJoin();
+
+            if (!translation.isCompletedNormally()) {
+                continue;
+            }
+
+            var functionId = index.importedFunctions().size() + i;
+            var precompiled = translation.getRawResult();
+
+            if (needsNames(index, functionId)) {
+                var bytes = FunctionTranslator.withNames(precompiled.bytes(), index.moduleName(), index.functionNames().get(functionId));
+                precompiled = new ModuleImpl.PrecompiledFunction(bytes, precompiled.hasTrampoline());
+            }
+
+            precompiledFunctions[functionId] = precompiled;
+        }
+
+        if (event.shouldCommit()) {
+            event.moduleName = index.moduleName();
+            event.moduleSize = inputSize;
+            event.functionCount = precompiledFunctions.length;
+            event.streaming = true;
+            event.commit();
+        }
+
+        return new ModuleImpl(index, options, precompiledFunctions);
+    }
+
+    // Whether names turned up after the function had already been translated without them.
+    private boolean needsNames(@NotNull ModuleIndex index, int functionId) {
+        var codeIndex = requireNonNull(this.codeIndex);
+
+        if (codeIndex.moduleName() != null || codeIndex.functionNames().get(functionId) != null) {
+            return false;
+        }
+
+        return index.moduleName() != null || index.functionNames().get(functionId) != null;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    private void readCodeSection(long sectionSize) throws TranslationException, IOException {
+        if (codeIndex != null) {
+            throw new TranslationException("Duplicate code section");
+        }
+
+        codeIndex = indexer.build(scope);
+
+        var scanner = new CodeSectionScanner(sectionSize);
+        var section = nextSegment(sectionSize, scanner);
+        scanner.finish(section);
+        indexer.setCodeSection(section);
+    }
+
+    // Picks complete function bodies out of the code section as its bytes come in, and hands each one off for
+    // translation as a slice of whichever segment it arrived in. The index only gets the bodies once the whole section
+    // is in, as slices of the final segment, which DWARF line numbers take offsets into.
+    private final class CodeSectionScanner {
+        private final long sectionSize;
+        private long position = 0;
+        private long remainingBodies = -1;
+        private final @NotNull List<@NotNull BodyRange> bodies = new ArrayList<>();
+
+        private record BodyRange(long offset, long size) {}
+
+        CodeSectionScanner(long sectionSize) {
+            this.sectionSize = sectionSize;
+        }
+
+        void scan(@NotNull MemorySegment section, long filled) throws TranslationException {
+            while (remainingBodies != 0) {
+                var sizeLength = unsigned32Length(section, position, filled);
+
+                if (sizeLength == -1) {
+                    return;
+                }
+
+                var value = Integer.toUnsignedLong(new WasmReader(section.asSlice(position, sizeLength)).nextUnsigned32());
+
+                if (remainingBodies == -1) {
+                    remainingBodies = value;
+                    position += sizeLength;
+                    continue;
+                }
+
+                var bodyStart = position + sizeLength;
+                if (value > sectionSize - bodyStart) {
+                    throw new TranslationException("Function body extends past the end of the code section");
+                }
+
+                if (bodyStart + value > filled) {
+                    return;
+                }
+
+                addBody(section.asSlice(bodyStart, value));
+                bodies.add(new BodyRange(bodyStart, value));
+                position = bodyStart + value;
+                remainingBodies--;
+            }
+        }
+
+        void finish(@NotNull MemorySegment section) throws TranslationException {
+            if (remainingBodies != 0 || position != sectionSize) {
+                throw new TranslationException("Code section size mismatch");
+            }
+
+            for (var body : bodies) {
+                indexer.addFunctionBody(section.asSlice(body.offset(), body.size()));
+            }
+        }
+    }
+
+    private void addBody(@NotNull MemorySegment body) throws TranslationException {
+        var definedFunctionId = translations.size();
+
+        if (definedFunctionId >= indexer.definedFunctionCount()) {
+            throw new TranslationException("More function bodies than functions");
+        }
+
+        var index = requireNonNull(codeIndex);
+        var functionId = index.importedFunctions().size() + definedFunctionId;
+
+        translations.add(ForkJoinPool.commonPool().submit(() -> {
+            var translator = FunctionTranslator.forCurrentThread();
+            var bytes = translator.translate(index, options, functionId, body);
+            return new ModuleImpl.PrecompiledFunction(bytes, translator.hasTrampoline());
+        }));
+    }
+
+    // The encoded length of the unsigned LEB128 at offset, or -1 if it hasn't fully arrived yet.
+    private static int unsigned32Length(@NotNull MemorySegment segment, long offset, long filled) throws TranslationException {
+        for (var length = 1; length <= 5; length++) {
+            if (offset + length > filled) {
+                return -1;
+            }
+
+            if ((byte) Memory.VH_BYTE.get(segment, offset + length - 1) >= 0) {
+                return length;
+            }
+        }
+
+        throw new TranslationException("Malformed LEB128 integer");
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    private @NotNull MemorySegment nextSegment(long size) throws TranslationException, IOException {
+        return nextSegment(size, null);
+    }
+
+    // Reads size bytes, as declared by the input, into a segment that starts out at one chunk and doubles whenever it
+    // fills up, so that memory is only committed for bytes that actually arrive rather than for whatever size a
+    // truncated or hostile module claims (up to 4 GiB per section). The doubling copies add up to less than the section
+    // itself. Segments outgrown this way are freed once nothing refers to them, and the scanner, if there is one, sees
+    // the segment after every read.
+    private @NotNull MemorySegment nextSegment(long size, @Nullable CodeSectionScanner scanner) throws TranslationException, IOException {
+        var segment = allocate(Long.min(size, CHUNK_SIZE));
+        var filled = drainBuffer(segment);
+
+        if (scanner != null) {
+            scanner.scan(segment, filled);
+        }
+
+        while (filled != size) {
+            if (filled == segment.byteSize()) {
+                var grown = allocate(Long.min(size, segment.byteSize() * 2));
+                grown.copyFrom(segment);
+                segment = grown;
+            }
+
+            var count = channel.read(segment.asSlice(filled, Long.min(CHUNK_SIZE, segment.byteSize() - filled)).asByteBuffer());
+
+            if (count < 0) {
+                throw new TranslationException("Unexpected end of input");
+            }
+
+            inputSize += count;
+            filled += count;
+
+            if (scanner != null) {
+                scanner.scan(segment, filled);
+            }
+        }
+
+        return segment;
+    }
+
+    // Native segments can't be empty, but sections can be. Each segment gets a scope of its own, so that one that has
+    // been outgrown can be freed without waiting for the module.
+    private static @NotNull MemorySegment allocate(long size) {
+        return size == 0 ? MemorySegment.ofArray(new byte[0]) : MemorySegment.allocateNative(size, ResourceScope.newImplicitScope());
+    }
+
+    // Moves whatever has already been read ahead into the start of segment.
+    private long drainBuffer(@NotNull MemorySegment segment) {
+        var count = (int) Long.min(buffer.remaining(), segment.byteSize());
+        segment.asSlice(0, count).copyFrom(MemorySegment.ofByteBuffer(buffer.slice(buffer.position(), count)));
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+
+    // The next byte as an unsigned value, or -1 at the end of the input.
+    private int nextByte() throws IOException {
+        while (!buffer.hasRemaining()) {
+            buffer.clear();
+            var count = channel.read(buffer);
+            buffer.flip();
+
+            if (count < 0) {
+                return -1;
+            }
+
+            inputSize += count;
+        }
+
+        return Byte.toUnsignedInt(buffer.get());
+    }
+
+    private int nextUnsigned32() throws TranslationException, IOException {
+        var total = 0;
+
+        for (var shift = 0; shift < 35; shift += 7) {
+            var b = nextByte();
+
+            if (b == -1) {
+                throw new TranslationException("Unexpected end of input");
+            }
+
+            total |= (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return total;
+            }
+        }
+
+        throw new TranslationException("Malformed LEB128 integer");
+    }
+}
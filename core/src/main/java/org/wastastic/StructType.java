@@ -0,0 +1,12 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+// supertypeId is -1 for struct types that don't declare a supertype.
+record StructType(@NotNull List<FieldType> fields, int supertypeId) implements DefinedType {
+    StructType {
+        fields = List.copyOf(fields);
+    }
+}
@@ -15,6 +15,10 @@ public final class Table {
     final int maxSize;
     @Nullable Object @NotNull[] storage;
 
+    // For RuntimeStats: successful grows, and the stats of the module that defined this table, if one did.
+    long growCount;
+    @Nullable ModuleStats owner;
+
     static final String INTERNAL_NAME = getInternalName(Table.class);
     static final String DESCRIPTOR = getDescriptor(Table.class);
     static final String FIELD_GETTER_DESCRIPTOR = methodDescriptor(Table.class, ModuleInstance.class);
@@ -32,6 +36,14 @@ public final class Table {
         this(initialSize, -1);
     }
 
+    private static @NotNull TrapException outOfBounds() {
+        return new TrapException(TrapException.Kind.OUT_OF_BOUNDS_TABLE_ACCESS, "out of bounds table access");
+    }
+
+    private static boolean isOutOfBounds(int index, int count, @Nullable Object @NotNull[] storage) {
+        return Integer.toUnsignedLong(index) + Integer.toUnsignedLong(count) > storage.length;
+    }
+
     static final String GET_NAME = "get";
     static final String GET_DESCRIPTOR = methodDescriptor(Object.class, int.class, Table.class);
 
@@ -41,10 +53,23 @@ public final class Table {
             return self.storage[index];
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_TABLE_ACCESS, exception);
         }
     }
 
+    static final String GET_EXPLICIT_NAME = "getExplicit";
+
+    @SuppressWarnings("unused")
+    static @Nullable Object getExplicit(int index, @NotNull Table self) throws TrapException {
+        var storage = self.storage;
+
+        if (Integer.compareUnsigned(index, storage.length) >= 0) {
+            throw outOfBounds();
+        }
+
+        return storage[index];
+    }
+
     static final String SET_NAME = "set";
     static final String SET_DESCRIPTOR = methodDescriptor(void.class, int.class, Object.class, Table.class);
 
@@ -54,10 +79,23 @@ public final class Table {
             self.storage[index] = value;
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_TABLE_ACCESS, exception);
         }
     }
 
+    static final String SET_EXPLICIT_NAME = "setExplicit";
+
+    @SuppressWarnings("unused")
+    static void setExplicit(int index, @Nullable Object value, @NotNull Table self) throws TrapException {
+        var storage = self.storage;
+
+        if (Integer.compareUnsigned(index, storage.length) >= 0) {
+            throw outOfBounds();
+        }
+
+        storage[index] = value;
+    }
+
     static final String SIZE_METHOD_NAME = "size";
     static final String SIZE_METHOD_DESCRIPTOR = methodDescriptor(int.class, Table.class);
 
@@ -83,6 +121,9 @@ public final class Table {
             return -1;
         }
 
+        var event = new Events.TableGrowEvent();
+        event.begin();
+
         Object[] newStorage;
         try {
             newStorage = Arrays.copyOf(storage, (int) newSize);
@@ -93,6 +134,19 @@ public final class Table {
         Arrays.fill(newStorage, storage.length, newStorage.length, initialValue);
 
         self.storage = newStorage;
+        self.growCount++;
+
+        var owner = self.owner;
+        if (owner != null) {
+            owner.tableGrown();
+        }
+
+        if (event.shouldCommit()) {
+            event.oldSize = storage.length;
+            event.newSize = newStorage.length;
+            event.commit();
+        }
+
         return storage.length;
     }
 
@@ -107,23 +161,50 @@ public final class Table {
             Arrays.fill(storage, startIndex, startIndex + count, fillValue);
         }
         catch (IndexOutOfBoundsException | IllegalArgumentException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_TABLE_ACCESS, exception);
         }
     }
 
+    static final String FILL_EXPLICIT_NAME = "fillExplicit";
+
+    @SuppressWarnings("unused")
+    static void fillExplicit(int startIndex, @Nullable Object fillValue, int count, @NotNull Table self) throws TrapException {
+        var storage = self.storage;
+
+        if (isOutOfBounds(startIndex, count, storage)) {
+            throw outOfBounds();
+        }
+
+        Arrays.fill(storage, startIndex, startIndex + count, fillValue);
+    }
+
     static final String COPY_NAME = "copy";
     static final String COPY_DESCRIPTOR = methodDescriptor(void.class, int.class, int.class, int.class, Table.class, Table.class);
 
     @SuppressWarnings("unused")
-    static void copy(int dstIndex, int srcIndex, int count, @NotNull Table src, @NotNull Table dst) throws TrapException {
+    static void copy(int dstIndex, int srcIndex, int count, @NotNull Table dst, @NotNull Table src) throws TrapException {
         try {
             arraycopy(src.storage, srcIndex, dst.storage, dstIndex, count);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_TABLE_ACCESS, exception);
         }
     }
 
+    static final String COPY_EXPLICIT_NAME = "copyExplicit";
+
+    @SuppressWarnings("unused")
+    static void copyExplicit(int dstIndex, int srcIndex, int count, @NotNull Table dst, @NotNull Table src) throws TrapException {
+        var dstStorage = dst.storage;
+        var srcStorage = src.storage;
+
+        if (isOutOfBounds(dstIndex, count, dstStorage) || isOutOfBounds(srcIndex, count, srcStorage)) {
+            throw outOfBounds();
+        }
+
+        arraycopy(srcStorage, srcIndex, dstStorage, dstIndex, count);
+    }
+
     static final String INIT_NAME = "init";
     static final String INIT_DESCRIPTOR = methodDescriptor(void.class, int.class, int.class, int.class, Object[].class, Table.class);
 
@@ -133,8 +214,21 @@ public final class Table {
             arraycopy(src, srcIndex, self.storage, dstIndex, count);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_TABLE_ACCESS, exception);
+        }
+    }
+
+    static final String INIT_EXPLICIT_NAME = "initExplicit";
+
+    @SuppressWarnings("unused")
+    static void initExplicit(int dstIndex, int srcIndex, int count, @Nullable Object @NotNull[] src, @NotNull Table self) throws TrapException {
+        var storage = self.storage;
+
+        if (isOutOfBounds(dstIndex, count, storage) || isOutOfBounds(srcIndex, count, src)) {
+            throw outOfBounds();
         }
+
+        arraycopy(src, srcIndex, storage, dstIndex, count);
     }
 
     static final String INIT_FROM_ACTIVE_NAME = "initFromActive";
@@ -146,7 +240,7 @@ public final class Table {
             arraycopy(element, 0, self.storage, offset, element.length);
         }
         catch (IndexOutOfBoundsException exception) {
-            throw new TrapException(exception);
+            throw new TrapException(TrapException.Kind.OUT_OF_BOUNDS_TABLE_ACCESS, exception);
         }
     }
 }
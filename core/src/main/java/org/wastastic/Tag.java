@@ -0,0 +1,45 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+import static org.objectweb.asm.Type.getDescriptor;
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+public final class Tag {
+    private final @NotNull @Unmodifiable List<Class<?>> parameterTypes;
+
+    // Tags without a payload always throw the same stackless exception.
+    final @Nullable WasmException preallocatedException;
+
+    static final String INTERNAL_NAME = getInternalName(Tag.class);
+    static final String DESCRIPTOR = getDescriptor(Tag.class);
+    static final String FIELD_GETTER_DESCRIPTOR = methodDescriptor(Tag.class, ModuleInstance.class);
+
+    public Tag(@NotNull Class<?> @NotNull... parameterTypes) {
+        this.parameterTypes = List.of(parameterTypes);
+        this.preallocatedException = parameterTypes.length == 0 ? new WasmException(this, new Object[0]) : null;
+    }
+
+    public @NotNull @Unmodifiable List<Class<?>> parameterTypes() {
+        return parameterTypes;
+    }
+
+    static final String CREATE_NAME = "create";
+    static final String CREATE_DESCRIPTOR = methodDescriptor(Tag.class, MethodType.class);
+
+    // Takes the tag's function type as a generated function would see it, i.e. with the trailing ModuleInstance.
+    @SuppressWarnings("unused")
+    static @NotNull Tag create(@NotNull MethodType type) {
+        return new Tag(payloadTypes(type).parameterArray());
+    }
+
+    static @NotNull MethodType payloadTypes(@NotNull MethodType type) {
+        return type.dropParameterTypes(type.parameterCount() - 1, type.parameterCount());
+    }
+}
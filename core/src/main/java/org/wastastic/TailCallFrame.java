@@ -0,0 +1,231 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.invoke.MethodHandles.exactInvoker;
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodHandles.permuteArguments;
+import static java.lang.invoke.MethodType.methodType;
+import static org.objectweb.asm.Type.getDescriptor;
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+// Per-thread scratch space for handing a tail call off to the trampoline in the nearest enclosing entry method.
+// Arguments are passed through slots rather than bound into a handle so that a tail call doesn't allocate. A frame
+// only holds anything from a body storing a tail call until the trampoline it returns to takes it, and no other guest
+// code runs on the thread in between (bodies run their function exit hook before storing anything), so one frame per
+// thread serves every instance of every module, and instances can be called from several threads at once.
+final class TailCallFrame {
+    private long @NotNull[] primitiveSlots = new long[0];
+    private @Nullable Object @NotNull[] referenceSlots = new Object[0];
+    private @Nullable MethodHandle target;
+    private @Nullable MethodHandle invoker;
+
+    static final String INTERNAL_NAME = getInternalName(TailCallFrame.class);
+    static final String DESCRIPTOR = getDescriptor(TailCallFrame.class);
+
+    // Invokers have the type (MethodHandle, TailCallFrame, ModuleInstance)R for whatever R the callee returns.
+    static final String INVOKER_DESCRIPTOR_PREFIX = "(" + Names.METHOD_HANDLE_DESCRIPTOR + DESCRIPTOR + Names.MODULE_INSTANCE_DESCRIPTOR + ")";
+
+    private TailCallFrame() {}
+
+    //------------------------------------------------------------------------------------------------------------------
+    private static final ThreadLocal<TailCallFrame> CURRENT = ThreadLocal.withInitial(TailCallFrame::new);
+
+    static final String CURRENT_NAME = "current";
+    static final String CURRENT_DESCRIPTOR = methodDescriptor(TailCallFrame.class, int.class);
+
+    // The current thread's frame, with room for at least slotCount arguments. Slots grow in place rather than the frame
+    // being replaced, so a trampoline can hold on to the frame across the calls it makes.
+    @SuppressWarnings("unused")
+    static @NotNull TailCallFrame current(int slotCount) {
+        var frame = CURRENT.get();
+
+        if (frame.primitiveSlots.length < slotCount) {
+            frame.primitiveSlots = Arrays.copyOf(frame.primitiveSlots, slotCount);
+            frame.referenceSlots = Arrays.copyOf(frame.referenceSlots, slotCount);
+        }
+
+        return frame;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String PUT_I32_NAME = "putI32";
+    static final String PUT_I32_DESCRIPTOR = methodDescriptor(void.class, int.class, int.class, TailCallFrame.class);
+
+    @SuppressWarnings("unused")
+    static void putI32(int value, int slot, @NotNull TailCallFrame self) {
+        self.primitiveSlots[slot] = value;
+    }
+
+    static final String PUT_I64_NAME = "putI64";
+    static final String PUT_I64_DESCRIPTOR = methodDescriptor(void.class, long.class, int.class, TailCallFrame.class);
+
+    @SuppressWarnings("unused")
+    static void putI64(long value, int slot, @NotNull TailCallFrame self) {
+        self.primitiveSlots[slot] = value;
+    }
+
+    static final String PUT_F32_NAME = "putF32";
+    static final String PUT_F32_DESCRIPTOR = methodDescriptor(void.class, float.class, int.class, TailCallFrame.class);
+
+    @SuppressWarnings("unused")
+    static void putF32(float value, int slot, @NotNull TailCallFrame self) {
+        self.primitiveSlots[slot] = Float.floatToRawIntBits(value);
+    }
+
+    static final String PUT_F64_NAME = "putF64";
+    static final String PUT_F64_DESCRIPTOR = methodDescriptor(void.class, double.class, int.class, TailCallFrame.class);
+
+    @SuppressWarnings("unused")
+    static void putF64(double value, int slot, @NotNull TailCallFrame self) {
+        self.primitiveSlots[slot] = Double.doubleToRawLongBits(value);
+    }
+
+    static final String PUT_REF_NAME = "putRef";
+    static final String PUT_REF_DESCRIPTOR = methodDescriptor(void.class, Object.class, int.class, TailCallFrame.class);
+
+    @SuppressWarnings("unused")
+    static void putRef(@Nullable Object value, int slot, @NotNull TailCallFrame self) {
+        self.referenceSlots[slot] = value;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    @SuppressWarnings("unused")
+    private static int getI32(int slot, @NotNull TailCallFrame self) {
+        return (int) self.primitiveSlots[slot];
+    }
+
+    @SuppressWarnings("unused")
+    private static long getI64(int slot, @NotNull TailCallFrame self) {
+        return self.primitiveSlots[slot];
+    }
+
+    @SuppressWarnings("unused")
+    private static float getF32(int slot, @NotNull TailCallFrame self) {
+        return Float.intBitsToFloat((int) self.primitiveSlots[slot]);
+    }
+
+    @SuppressWarnings("unused")
+    private static double getF64(int slot, @NotNull TailCallFrame self) {
+        return Double.longBitsToDouble(self.primitiveSlots[slot]);
+    }
+
+    @SuppressWarnings("unused")
+    private static @Nullable Object getRef(int slot, @NotNull TailCallFrame self) {
+        var value = self.referenceSlots[slot];
+        self.referenceSlots[slot] = null;
+        return value;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String SET_TARGET_NAME = "setTarget";
+    static final String SET_TARGET_DESCRIPTOR = methodDescriptor(void.class, MethodHandle.class, MethodHandle.class, TailCallFrame.class);
+
+    @SuppressWarnings("unused")
+    static void setTarget(@NotNull MethodHandle target, @NotNull MethodHandle invoker, @NotNull TailCallFrame self) {
+        self.target = target;
+        self.invoker = invoker;
+    }
+
+    static final String TAKE_TARGET_NAME = "takeTarget";
+    static final String TAKE_TARGET_DESCRIPTOR = methodDescriptor(MethodHandle.class, TailCallFrame.class);
+
+    @SuppressWarnings("unused")
+    static @Nullable MethodHandle takeTarget(@NotNull TailCallFrame self) {
+        var target = self.target;
+        self.target = null;
+        return target;
+    }
+
+    static final String INVOKER_NAME = "invoker";
+    static final String INVOKER_DESCRIPTOR = methodDescriptor(MethodHandle.class, TailCallFrame.class);
+
+    @SuppressWarnings("unused")
+    static @Nullable MethodHandle invoker(@NotNull TailCallFrame self) {
+        return self.invoker;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    private static final ConcurrentHashMap<MethodType, MethodHandle> INVOKERS = new ConcurrentHashMap<>();
+
+    static @NotNull MethodHandle invokerFor(@NotNull MethodType calleeType) {
+        var invoker = INVOKERS.get(calleeType);
+
+        if (invoker == null) {
+            invoker = createInvoker(calleeType);
+            var existing = INVOKERS.putIfAbsent(calleeType, invoker);
+            if (existing != null) {
+                invoker = existing;
+            }
+        }
+
+        return invoker;
+    }
+
+    private static @NotNull MethodHandle createInvoker(@NotNull MethodType calleeType) {
+        var parameterCount = calleeType.parameterCount() - 1;
+        var argumentGetters = new MethodHandle[parameterCount];
+
+        for (var i = 0; i < parameterCount; i++) {
+            var type = calleeType.parameterType(i);
+
+            String getterName;
+            if (type == int.class) {
+                getterName = "getI32";
+            }
+            else if (type == long.class) {
+                getterName = "getI64";
+            }
+            else if (type == float.class) {
+                getterName = "getF32";
+            }
+            else if (type == double.class) {
+                getterName = "getF64";
+            }
+            else {
+                getterName = "getRef";
+            }
+
+            MethodHandle getter;
+            try {
+                getter = LOOKUP.findStatic(
+                    TailCallFrame.class,
+                    getterName,
+                    methodType(type.isPrimitive() ? type : Object.class, int.class, TailCallFrame.class)
+                );
+            }
+            catch (NoSuchMethodException | IllegalAccessException exception) {
+                throw new IllegalStateException(exception);
+            }
+
+            argumentGetters[i] = insertArguments(getter, 0, i).asType(methodType(type, TailCallFrame.class));
+        }
+
+        // (MethodHandle, P..., ModuleInstance)R -> (MethodHandle, TailCallFrame..., ModuleInstance)R
+        var invoker = filterArguments(exactInvoker(calleeType), 1, argumentGetters);
+
+        var reorder = new int[parameterCount + 2];
+        reorder[0] = 0;
+        for (var i = 0; i < parameterCount; i++) {
+            reorder[i + 1] = 1;
+        }
+        reorder[parameterCount + 1] = 2;
+
+        return permuteArguments(
+            invoker,
+            methodType(calleeType.returnType(), MethodHandle.class, TailCallFrame.class, ModuleInstance.class),
+            reorder
+        );
+    }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+}
@@ -4,32 +4,112 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.invoke.WrongMethodTypeException;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Set;
-import java.util.stream.Stream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
+import static java.util.Objects.requireNonNull;
 import static org.objectweb.asm.Type.getInternalName;
 import static org.wastastic.Names.methodDescriptor;
 
 public final class TrapException extends Exception {
-    TrapException(@Nullable String message, @Nullable Throwable cause, int stackTraceSkipCount) {
+    private final @NotNull Kind kind;
+    private boolean counted;
+
+    TrapException(@NotNull Kind kind, @Nullable String message, @Nullable Throwable cause) {
         super(message, cause);
-        setStackTrace(recoverStackTrace(stackTraceSkipCount));
+        this.kind = requireNonNull(kind);
+
+        switch (stackTraceMode) {
+            case EAGER -> super.setStackTrace(captureStackTrace());
+            case SAMPLED -> {
+                if (ThreadLocalRandom.current().nextInt(stackTraceSampleInterval) == 0) {
+                    super.setStackTrace(captureStackTrace());
+                }
+            }
+            case NONE -> {}
+        }
+    }
+
+    TrapException(@NotNull Kind kind, @Nullable String message) {
+        this(kind, message, null);
+    }
+
+    TrapException(@NotNull Kind kind, @Nullable Throwable cause) {
+        this(kind, null, cause);
+    }
+
+    TrapException(@NotNull Kind kind) {
+        this(kind, null, null);
+    }
+
+    // What the guest did to trap, as the spec's trap conditions; counted per module in RuntimeStats.
+    public enum Kind {
+        UNREACHABLE,
+        INTEGER_DIVIDE_BY_ZERO,
+        INTEGER_OVERFLOW,
+        INVALID_CONVERSION_TO_INTEGER,
+        OUT_OF_BOUNDS_MEMORY_ACCESS,
+        OUT_OF_BOUNDS_TABLE_ACCESS,
+        OUT_OF_BOUNDS_ARRAY_ACCESS,
+        UNINITIALIZED_ELEMENT,
+        INDIRECT_CALL_TYPE_MISMATCH,
+        NULL_REFERENCE,
+        CAST_FAILURE,
+        FUEL_EXHAUSTED,
+        EPOCH_DEADLINE_EXCEEDED,
+        IMPLEMENTATION_LIMIT,
+    }
+
+    public @NotNull Kind kind() {
+        return kind;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    // Which traps get a stack trace. Generated functions are hidden classes, whose frames only show up to a StackWalker
+    // while they're still on the stack, so a trace can't be put off until someone asks for it: it has to be walked when
+    // the trap is created, which costs several times as much as throwing and catching the trap does. The default is
+    // SAMPLED, so that guests that trap a lot run at close to normal speed while traps still come with a trace every so
+    // often; set the org.wastastic.trapStackTraces property to "eager" to give every trap one while debugging.
+    public enum StackTraceMode {
+        EAGER,
+
+        // One trap in every sample interval, on average, gets a trace; the rest get none.
+        SAMPLED,
+
+        NONE,
     }
 
-    TrapException(@Nullable String message, @Nullable Throwable cause) {
-        this(message, cause, 3);
+    private static volatile @NotNull StackTraceMode stackTraceMode = StackTraceMode.valueOf(
+        System.getProperty("org.wastastic.trapStackTraces", "sampled").toUpperCase(Locale.ROOT)
+    );
+
+    private static volatile int stackTraceSampleInterval = Integer.getInteger(
+        "org.wastastic.trapStackTraceSampleInterval",
+        64
+    );
+
+    public static @NotNull StackTraceMode getStackTraceMode() {
+        return stackTraceMode;
     }
 
-    TrapException(@Nullable String message) {
-        this(message, null, 3);
+    public static void setStackTraceMode(@NotNull StackTraceMode mode) {
+        stackTraceMode = requireNonNull(mode);
     }
 
-    TrapException(@Nullable Throwable cause) {
-        this(null, cause, 3);
+    public static int getStackTraceSampleInterval() {
+        return stackTraceSampleInterval;
     }
 
-    TrapException() {
-        this(null, null, 3);
+    public static void setStackTraceSampleInterval(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("sample interval must be positive");
+        }
+
+        stackTraceSampleInterval = interval;
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -41,13 +121,29 @@ public final class TrapException extends Exception {
     static final String INTERNAL_NAME = getInternalName(TrapException.class);
     static final String[] INTERNAL_NAME_ARRAY = new String[]{INTERNAL_NAME};
 
+    //------------------------------------------------------------------------------------------------------------------
+    static final String COUNT_SITE_DESCRIPTOR = methodDescriptor(TrapException.class, TrapException.class);
+
+    // Called by the handler that covers the whole of every generated function, bound to its module's trap counters, as
+    // the trap unwinds through it. Only the innermost function counts it, so there's no need to walk the stack to find out
+    // whose trap it is.
+    @SuppressWarnings("unused")
+    static @NotNull TrapException count(@NotNull TrapException exception, @NotNull LongAdder @NotNull[] traps) {
+        if (!exception.counted) {
+            exception.counted = true;
+            traps[exception.kind.ordinal()].increment();
+        }
+
+        return exception;
+    }
+
     //------------------------------------------------------------------------------------------------------------------
     static final String UNREACHABLE_NAME = "unreachable";
     static final String UNREACHABLE_DESCRIPTOR = methodDescriptor(TrapException.class);
 
     @SuppressWarnings("unused")
     static @NotNull TrapException unreachable() {
-        return new TrapException("unreachable instruction executed");
+        return new TrapException(Kind.UNREACHABLE, "unreachable instruction executed");
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -59,7 +155,7 @@ public final class TrapException extends Exception {
 
     @SuppressWarnings("unused")
     static @NotNull TrapException callIndirectTypeMismatch(@NotNull WrongMethodTypeException cause) {
-        return new TrapException("call_indirect type mismatch", cause);
+        return new TrapException(Kind.INDIRECT_CALL_TYPE_MISMATCH, "call_indirect type mismatch", cause);
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -68,7 +164,25 @@ public final class TrapException extends Exception {
 
     @SuppressWarnings("unused")
     static @NotNull TrapException callIndirectNullRef() {
-        return new TrapException("call_indirect with null funref");
+        return new TrapException(Kind.UNINITIALIZED_ELEMENT, "call_indirect with null funref");
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String NULL_REFERENCE_NAME = "nullReference";
+    static final String NULL_REFERENCE_DESCRIPTOR = methodDescriptor(TrapException.class);
+
+    @SuppressWarnings("unused")
+    static @NotNull TrapException nullReference() {
+        return new TrapException(Kind.NULL_REFERENCE, "null reference");
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String CAST_FAILURE_NAME = "castFailure";
+    static final String CAST_FAILURE_DESCRIPTOR = methodDescriptor(TrapException.class);
+
+    @SuppressWarnings("unused")
+    static @NotNull TrapException castFailure() {
+        return new TrapException(Kind.CAST_FAILURE, "ref.cast failure");
     }
 
     //------------------------------------------------------------------------------------------------------------------
@@ -79,48 +193,128 @@ public final class TrapException extends Exception {
         )
     );
 
-    private static @NotNull StackTraceElement @NotNull[] recoverStackTrace(int skipCount) {
-        return STACK_WALKER.walk(frames -> {
-            if (skipCount != 0) {
-                frames = frames.skip(skipCount);
+    // Frames of hidden classes that aren't generated functions (lambda forms and the like) map to this and get dropped.
+    private static final StackTraceElement OMITTED_FRAME = new StackTraceElement("", "", null, -1);
+
+    private static final ClassValue<StackTraceElement> GENERATED_FRAMES = new ClassValue<>() {
+        @Override protected @NotNull StackTraceElement computeValue(@NotNull Class<?> clazz) {
+            if (!GeneratedFunction.class.isAssignableFrom(clazz)) {
+                return OMITTED_FRAME;
             }
 
-            return frames.flatMap(frame -> {
-                var clazz = frame.getDeclaringClass();
+            var moduleName = clazz.getAnnotation(GeneratedFunction.ModuleName.class);
+            var functionName = clazz.getAnnotation(GeneratedFunction.FunctionName.class);
 
-                StackTraceElement element;
-                if (clazz.isHidden()) {
-                    if (!GeneratedFunction.class.isAssignableFrom(clazz)) {
-                        return Stream.empty();
-                    }
+            String declaringClass;
+            if (moduleName != null) {
+                declaringClass = "<WASM module '" + moduleName.value() + "'>";
+            }
+            else {
+                declaringClass = "<WASM module>";
+            }
+
+            String methodName;
+            if (functionName != null) {
+                methodName = functionName.value();
+            }
+            else {
+                methodName = "<unknown>";
+            }
 
-                    var moduleName = clazz.getAnnotation(GeneratedFunction.ModuleName.class);
-                    var functionName = clazz.getAnnotation(GeneratedFunction.FunctionName.class);
+            return new StackTraceElement(declaringClass, methodName, null, -1);
+        }
+    };
 
-                    String declaringClass;
-                    if (moduleName != null) {
-                        declaringClass = "<WASM module '" + moduleName.value() + "'>";
-                    }
-                    else {
-                        declaringClass = "<WASM module>";
-                    }
+    // A generated function's elements by method and bytecode index, so that a trap site that keeps trapping doesn't have
+    // its frames resolved to file names and lines every time. Functions only have an entry and a body method.
+    private static final ClassValue<FrameLines> GENERATED_FRAME_LINES = new ClassValue<>() {
+        @Override protected @NotNull FrameLines computeValue(@NotNull Class<?> clazz) {
+            return new FrameLines();
+        }
+    };
 
-                    String methodName;
-                    if (functionName != null) {
-                        methodName = functionName.value();
-                    }
-                    else {
-                        methodName = "<unknown>";
-                    }
+    // Elements indexed by bytecode index, one table per method. Tables only grow, by being copied under the lock, and
+    // elements are only set under it too, so a lookup that hits reads nothing but the table.
+    private static final class FrameLines {
+        private volatile @NotNull AtomicReferenceArray<StackTraceElement> entry = new AtomicReferenceArray<>(0);
+        private volatile @NotNull AtomicReferenceArray<StackTraceElement> body = new AtomicReferenceArray<>(0);
+
+        @Nullable StackTraceElement get(boolean isBody, int bci) {
+            var elements = isBody ? body : entry;
+            return bci < elements.length() ? elements.get(bci) : null;
+        }
 
-                    element = new StackTraceElement(declaringClass, methodName, null, -1);
+        synchronized void put(boolean isBody, int bci, @NotNull StackTraceElement element) {
+            var elements = isBody ? body : entry;
+
+            if (bci >= elements.length()) {
+                var grown = new AtomicReferenceArray<StackTraceElement>(Math.max(bci + 1, elements.length() * 2));
+                for (var i = 0; i < elements.length(); i++) {
+                    grown.setPlain(i, elements.getPlain(i));
+                }
+
+                elements = grown;
+                if (isBody) {
+                    body = grown;
                 }
                 else {
-                    element = frame.toStackTraceElement();
+                    entry = grown;
                 }
+            }
+
+            elements.set(bci, element);
+        }
+    }
+
+    private static @NotNull StackTraceElement @NotNull[] captureStackTrace() {
+        var frames = STACK_WALKER.walk(stream -> stream
+            .dropWhile(frame -> frame.getDeclaringClass() == TrapException.class)
+            .toArray(StackWalker.StackFrame[]::new)
+        );
+
+        var elements = new StackTraceElement[frames.length];
+        var count = 0;
+        Class<?> previousBodyClass = null;
+
+        for (var frame : frames) {
+            var clazz = frame.getDeclaringClass();
+
+            if (clazz.isHidden()) {
+                var element = GENERATED_FRAMES.get(clazz);
+                if (element != OMITTED_FRAME) {
+                    // A tail call trampoline shows up right below its own body; only report the function once.
+                    // The trampoline is the one frame without a line number table; the body below it has the line.
+                    if (clazz != previousBodyClass || !frame.getMethodName().equals(Names.FUNCTION_CLASS_ENTRY_NAME)) {
+                        elements[count++] = generatedFrameElement(clazz, element, frame);
+                    }
+
+                    previousBodyClass = frame.getMethodName().equals(Names.FUNCTION_CLASS_BODY_NAME) ? clazz : null;
+                }
+            }
+            else {
+                elements[count++] = frame.toStackTraceElement();
+                previousBodyClass = null;
+            }
+        }
+
+        return count == elements.length ? elements : Arrays.copyOf(elements, count);
+    }
+
+    private static @NotNull StackTraceElement generatedFrameElement(
+        @NotNull Class<?> clazz,
+        @NotNull StackTraceElement function,
+        @NotNull StackWalker.StackFrame frame
+    ) {
+        var isBody = frame.getMethodName().equals(Names.FUNCTION_CLASS_BODY_NAME);
+        var bci = frame.getByteCodeIndex();
+        var lines = GENERATED_FRAME_LINES.get(clazz);
+        var element = lines.get(isBody, bci);
+
+        if (element == null) {
+            element = new StackTraceElement(function.getClassName(), function.getMethodName(), frame.getFileName(), frame.getLineNumber());
+            lines.put(isBody, bci, element);
+        }
 
-                return Stream.of(element);
-            }).toArray(StackTraceElement[]::new);
-        });
+        return element;
     }
 }
@@ -0,0 +1,86 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.Label;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+final class TryScope extends ControlScope {
+    private final @NotNull Label startLabel = new Label();
+    private final @NotNull Label bodyEndLabel = new Label();
+    private final @NotNull Label dispatchLabel = new Label();
+    private final @NotNull Label endLabel;
+
+    // Operands below the try's parameters, spilled at entry so that catch clauses can restore them.
+    private final @NotNull List<Local> spilledOperands;
+    private final int exceptionLocalIndex;
+    private final int enclosingScratchLocalIndex;
+
+    private final @NotNull List<Clause> clauses = new ArrayList<>();
+
+    record Clause(int tagId, @NotNull Label label) {
+        static final int CATCH_ALL = -1;
+    }
+
+    TryScope(
+        @NotNull Label endLabel,
+        @NotNull FunctionType type,
+        int operandStackSize,
+        @NotNull List<Local> spilledOperands,
+        int exceptionLocalIndex,
+        int enclosingScratchLocalIndex
+    ) {
+        super(type, operandStackSize);
+        this.endLabel = requireNonNull(endLabel);
+        this.spilledOperands = List.copyOf(spilledOperands);
+        this.exceptionLocalIndex = exceptionLocalIndex;
+        this.enclosingScratchLocalIndex = enclosingScratchLocalIndex;
+    }
+
+    @NotNull Label startLabel() {
+        return startLabel;
+    }
+
+    @NotNull Label bodyEndLabel() {
+        return bodyEndLabel;
+    }
+
+    @NotNull Label dispatchLabel() {
+        return dispatchLabel;
+    }
+
+    @NotNull Label endLabel() {
+        return endLabel;
+    }
+
+    @NotNull List<Local> spilledOperands() {
+        return spilledOperands;
+    }
+
+    int exceptionLocalIndex() {
+        return exceptionLocalIndex;
+    }
+
+    int enclosingScratchLocalIndex() {
+        return enclosingScratchLocalIndex;
+    }
+
+    @NotNull List<Clause> clauses() {
+        return clauses;
+    }
+
+    boolean inCatch() {
+        return !clauses.isEmpty();
+    }
+
+    @Override @NotNull Label branchTargetLabel() {
+        return endLabel;
+    }
+
+    @Override @NotNull List<ValueType> branchTargetParameterTypes() {
+        return type().returnTypes();
+    }
+}
@@ -0,0 +1,18 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+// One problem found by Module.validate. functionIndex is in the function index space (imports first) and is -1 for
+// problems outside of any function body; offset is from the start of the module and is -1 when it isn't known.
+public record ValidationError(int functionIndex, long offset, @NotNull String message) {
+    public ValidationError {
+        requireNonNull(message);
+    }
+
+    @Override public @NotNull String toString() {
+        var location = functionIndex == -1 ? "module" : "function " + functionIndex;
+        return offset == -1 ? location + ": " + message : location + " at offset " + offset + ": " + message;
+    }
+}
@@ -0,0 +1,23 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public final class ValidationException extends Exception {
+    private final @NotNull List<@NotNull ValidationError> errors;
+
+    ValidationException(@NotNull List<@NotNull ValidationError> errors) {
+        super(describe(errors));
+        this.errors = List.copyOf(errors);
+    }
+
+    public @NotNull List<@NotNull ValidationError> errors() {
+        return errors;
+    }
+
+    private static @NotNull String describe(@NotNull List<@NotNull ValidationError> errors) {
+        var first = errors.get(0).toString();
+        return errors.size() == 1 ? first : first + " (and " + (errors.size() - 1) + " more)";
+    }
+}
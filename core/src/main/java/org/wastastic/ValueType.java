@@ -10,21 +10,27 @@ import static org.objectweb.asm.Opcodes.ARETURN;
 import static org.objectweb.asm.Opcodes.ASTORE;
 import static org.objectweb.asm.Opcodes.DCONST_0;
 import static org.objectweb.asm.Opcodes.DLOAD;
+import static org.objectweb.asm.Opcodes.DOUBLE;
 import static org.objectweb.asm.Opcodes.DRETURN;
 import static org.objectweb.asm.Opcodes.DSTORE;
 import static org.objectweb.asm.Opcodes.FCONST_0;
 import static org.objectweb.asm.Opcodes.FLOAD;
+import static org.objectweb.asm.Opcodes.FLOAT;
 import static org.objectweb.asm.Opcodes.FRETURN;
 import static org.objectweb.asm.Opcodes.FSTORE;
 import static org.objectweb.asm.Opcodes.ICONST_0;
 import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INTEGER;
 import static org.objectweb.asm.Opcodes.IRETURN;
 import static org.objectweb.asm.Opcodes.ISTORE;
 import static org.objectweb.asm.Opcodes.LCONST_0;
 import static org.objectweb.asm.Opcodes.LLOAD;
+import static org.objectweb.asm.Opcodes.LONG;
 import static org.objectweb.asm.Opcodes.LRETURN;
 import static org.objectweb.asm.Opcodes.LSTORE;
+import static org.wastastic.Names.METHOD_HANDLE_DESCRIPTOR;
 import static org.wastastic.Names.METHOD_HANDLE_INTERNAL_NAME;
+import static org.wastastic.Names.OBJECT_DESCRIPTOR;
 import static org.wastastic.Names.OBJECT_INTERNAL_NAME;
 
 enum ValueType {
@@ -33,7 +39,11 @@ enum ValueType {
     F32,
     F64,
     FUNCREF,
-    EXTERNREF;
+    EXTERNREF,
+
+    // Every reference in the any hierarchy (GC structs and arrays, i31 and the abstract types above them). The JVM
+    // only ever sees these as Object; the precise heap type is checked by the translator, not the verifier.
+    ANYREF;
 
     @NotNull String descriptor() {
         return switch (this) {
@@ -41,21 +51,33 @@ enum ValueType {
             case I64 -> "J";
             case F32 -> "F";
             case F64 -> "D";
+            case FUNCREF -> METHOD_HANDLE_DESCRIPTOR;
+            case EXTERNREF, ANYREF -> OBJECT_DESCRIPTOR;
+        };
+    }
+
+    // The verification type in the form MethodVisitor.visitFrame takes.
+    @NotNull Object frameType() {
+        return switch (this) {
+            case I32 -> INTEGER;
+            case I64 -> LONG;
+            case F32 -> FLOAT;
+            case F64 -> DOUBLE;
             case FUNCREF -> METHOD_HANDLE_INTERNAL_NAME;
-            case EXTERNREF -> OBJECT_INTERNAL_NAME;
+            case EXTERNREF, ANYREF -> OBJECT_INTERNAL_NAME;
         };
     }
 
     boolean isDoubleWidth() {
         return switch (this) {
-            case I32, F32, FUNCREF, EXTERNREF -> false;
+            case I32, F32, FUNCREF, EXTERNREF, ANYREF -> false;
             case I64, F64 -> true;
         };
     }
 
     int width() {
         return switch (this) {
-            case I32, F32, FUNCREF, EXTERNREF -> 1;
+            case I32, F32, FUNCREF, EXTERNREF, ANYREF -> 1;
             case I64, F64 -> 2;
         };
     }
@@ -66,7 +88,7 @@ enum ValueType {
             case I64 -> LLOAD;
             case F32 -> FLOAD;
             case F64 -> DLOAD;
-            case FUNCREF, EXTERNREF -> ALOAD;
+            case FUNCREF, EXTERNREF, ANYREF -> ALOAD;
         };
     }
 
@@ -76,7 +98,7 @@ enum ValueType {
             case I64 -> LSTORE;
             case F32 -> FSTORE;
             case F64 -> DSTORE;
-            case FUNCREF, EXTERNREF -> ASTORE;
+            case FUNCREF, EXTERNREF, ANYREF -> ASTORE;
         };
     }
 
@@ -86,7 +108,7 @@ enum ValueType {
             case I64 -> LRETURN;
             case F32 -> FRETURN;
             case F64 -> DRETURN;
-            case FUNCREF, EXTERNREF -> ARETURN;
+            case FUNCREF, EXTERNREF, ANYREF -> ARETURN;
         };
     }
 
@@ -96,7 +118,14 @@ enum ValueType {
             case I64 -> LCONST_0;
             case F32 -> FCONST_0;
             case F64 -> DCONST_0;
-            case FUNCREF, EXTERNREF -> ACONST_NULL;
+            case FUNCREF, EXTERNREF, ANYREF -> ACONST_NULL;
+        };
+    }
+
+    boolean isReference() {
+        return switch (this) {
+            case I32, I64, F32, F64 -> false;
+            case FUNCREF, EXTERNREF, ANYREF -> true;
         };
     }
 
@@ -107,7 +136,7 @@ enum ValueType {
             case F32 -> float.class;
             case F64 -> double.class;
             case FUNCREF -> MethodHandle.class;
-            case EXTERNREF -> Object.class;
+            case EXTERNREF, ANYREF -> Object.class;
         };
     }
 
@@ -118,7 +147,7 @@ enum ValueType {
             case F32 -> "(Lorg/wastastic/ModuleInstance;)F";
             case F64 -> "(Lorg/wastastic/ModuleInstance;)D";
             case FUNCREF -> "(Lorg/wastastic/ModuleInstance;)Ljava/lang/invoke/MethodHandle;";
-            case EXTERNREF -> "(Lorg/wastastic/ModuleInstance;)Ljava/lang/Object;";
+            case EXTERNREF, ANYREF -> "(Lorg/wastastic/ModuleInstance;)Ljava/lang/Object;";
         };
     }
 
@@ -129,7 +158,7 @@ enum ValueType {
             case F32 -> "(FLorg/wastastic/ModuleInstance;)V";
             case F64 -> "(DLorg/wastastic/ModuleInstance;)V";
             case FUNCREF -> "(Ljava/lang/invoke/MethodHandle;Lorg/wastastic/ModuleInstance;)V";
-            case EXTERNREF -> "(Ljava/lang/Object;Lorg/wastastic/ModuleInstance;)V";
+            case EXTERNREF, ANYREF -> "(Ljava/lang/Object;Lorg/wastastic/ModuleInstance;)V";
         };
     }
 }
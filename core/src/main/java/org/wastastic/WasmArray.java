@@ -0,0 +1,136 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static org.objectweb.asm.Type.getInternalName;
+
+// Common superclass of the classes generated for WASM GC array types. Each array type gets its own class, extending its
+// supertype's class or else the storage class for its element type below, so that ref.test/ref.cast are instanceof
+// checks like they are for structs. The elements live in an ordinary JVM array held by the storage class.
+public abstract class WasmArray {
+    WasmArray() {}
+
+    abstract int length();
+
+    abstract @NotNull Object elements();
+
+    static final String INTERNAL_NAME = getInternalName(WasmArray.class);
+
+    // Internal name of the storage class that array types with this element type extend.
+    static @NotNull String storageInternalName(@NotNull FieldType elementType) {
+        return INTERNAL_NAME + "$" + elementType.arrayAccessorSuffix();
+    }
+
+    public abstract static class I8 extends WasmArray {
+        final byte @NotNull[] elements;
+
+        protected I8(byte @NotNull[] elements) {
+            this.elements = elements;
+        }
+
+        @Override int length() {
+            return elements.length;
+        }
+
+        @Override @NotNull Object elements() {
+            return elements;
+        }
+    }
+
+    public abstract static class I16 extends WasmArray {
+        final short @NotNull[] elements;
+
+        protected I16(short @NotNull[] elements) {
+            this.elements = elements;
+        }
+
+        @Override int length() {
+            return elements.length;
+        }
+
+        @Override @NotNull Object elements() {
+            return elements;
+        }
+    }
+
+    public abstract static class I32 extends WasmArray {
+        final int @NotNull[] elements;
+
+        protected I32(int @NotNull[] elements) {
+            this.elements = elements;
+        }
+
+        @Override int length() {
+            return elements.length;
+        }
+
+        @Override @NotNull Object elements() {
+            return elements;
+        }
+    }
+
+    public abstract static class I64 extends WasmArray {
+        final long @NotNull[] elements;
+
+        protected I64(long @NotNull[] elements) {
+            this.elements = elements;
+        }
+
+        @Override int length() {
+            return elements.length;
+        }
+
+        @Override @NotNull Object elements() {
+            return elements;
+        }
+    }
+
+    public abstract static class F32 extends WasmArray {
+        final float @NotNull[] elements;
+
+        protected F32(float @NotNull[] elements) {
+            this.elements = elements;
+        }
+
+        @Override int length() {
+            return elements.length;
+        }
+
+        @Override @NotNull Object elements() {
+            return elements;
+        }
+    }
+
+    public abstract static class F64 extends WasmArray {
+        final double @NotNull[] elements;
+
+        protected F64(double @NotNull[] elements) {
+            this.elements = elements;
+        }
+
+        @Override int length() {
+            return elements.length;
+        }
+
+        @Override @NotNull Object elements() {
+            return elements;
+        }
+    }
+
+    public abstract static class Ref extends WasmArray {
+        final @Nullable Object @NotNull[] elements;
+
+        protected Ref(@Nullable Object @NotNull[] elements) {
+            this.elements = elements;
+        }
+
+        @Override int length() {
+            return elements.length;
+        }
+
+        @Override @NotNull Object elements() {
+            return elements;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static java.lang.invoke.MethodType.methodType;
+import static java.util.Objects.requireNonNull;
+import static org.objectweb.asm.Type.getInternalName;
+import static org.wastastic.Names.methodDescriptor;
+
+// Thrown by the WASM throw instruction. These never capture a stack trace: they're routinely used for control flow,
+// and a guest-level backtrace isn't something the exception-handling proposal exposes anyway.
+public final class WasmException extends Exception {
+    private final @NotNull Tag tag;
+    private final @Nullable Object @NotNull[] payload;
+
+    WasmException(@NotNull Tag tag, @Nullable Object @NotNull[] payload) {
+        super("uncaught WASM exception", null, false, false);
+        this.tag = tag;
+        this.payload = payload;
+    }
+
+    // Numeric payload values are passed boxed and can't be null; references can be.
+    public static @NotNull WasmException of(@NotNull Tag tag, @Nullable Object @NotNull... payload) {
+        var parameterTypes = tag.parameterTypes();
+
+        if (payload.length != parameterTypes.size()) {
+            throw new IllegalArgumentException("payload size doesn't match tag");
+        }
+
+        // Checked after copying, so that the caller can't change an element once it's been checked.
+        var values = payload.clone();
+        for (var i = 0; i < values.length; i++) {
+            checkPayloadValue(i, parameterTypes.get(i), values[i]);
+            values[i] = MultipleResults.fromHost(values[i]);
+        }
+
+        return create(values, requireNonNull(tag));
+    }
+
+    private static void checkPayloadValue(int index, @NotNull Class<?> type, @Nullable Object value) {
+        if (type.isPrimitive()) {
+            if (value == null) {
+                throw new IllegalArgumentException("payload value " + index + " is null, but the tag expects " + type);
+            }
+
+            if (!methodType(type).wrap().returnType().isInstance(value)) {
+                throw new IllegalArgumentException("payload value " + index + " is a " + value.getClass().getName() + ", but the tag expects " + type);
+            }
+        }
+        else if (value != null && !type.isInstance(value)) {
+            throw new IllegalArgumentException("payload value " + index + " is a " + value.getClass().getName() + ", but the tag expects " + type.getName());
+        }
+    }
+
+    public @NotNull Tag tag() {
+        return tag;
+    }
+
+    public @Nullable Object payload(int index) {
+        return MultipleResults.toHost(payload[index]);
+    }
+
+    public int payloadSize() {
+        return payload.length;
+    }
+
+    //------------------------------------------------------------------------------------------------------------------
+    static final String INTERNAL_NAME = getInternalName(WasmException.class);
+
+    static final String CREATE_NAME = "create";
+    static final String CREATE_DESCRIPTOR = methodDescriptor(WasmException.class, Object[].class, Tag.class);
+    static final String CREATE_EMPTY_DESCRIPTOR = methodDescriptor(WasmException.class, Tag.class);
+
+    static @NotNull WasmException create(@Nullable Object @NotNull[] payload, @NotNull Tag tag) {
+        var preallocated = tag.preallocatedException;
+        return preallocated != null ? preallocated : new WasmException(tag, payload);
+    }
+
+    @SuppressWarnings("unused")
+    static @NotNull WasmException create(@NotNull Tag tag) {
+        return requireNonNull(tag.preallocatedException);
+    }
+
+    static final String TAG_NAME = "tag";
+    static final String TAG_DESCRIPTOR = methodDescriptor(Tag.class, WasmException.class);
+
+    @SuppressWarnings("unused")
+    static @NotNull Tag tag(@NotNull WasmException self) {
+        return self.tag;
+    }
+
+    static final String PAYLOAD_I32_NAME = "payloadI32";
+    static final String PAYLOAD_I32_DESCRIPTOR = methodDescriptor(int.class, int.class, WasmException.class);
+
+    @SuppressWarnings("unused")
+    static int payloadI32(int index, @NotNull WasmException self) {
+        return (Integer) self.payload[index];
+    }
+
+    static final String PAYLOAD_I64_NAME = "payloadI64";
+    static final String PAYLOAD_I64_DESCRIPTOR = methodDescriptor(long.class, int.class, WasmException.class);
+
+    @SuppressWarnings("unused")
+    static long payloadI64(int index, @NotNull WasmException self) {
+        return (Long) self.payload[index];
+    }
+
+    static final String PAYLOAD_F32_NAME = "payloadF32";
+    static final String PAYLOAD_F32_DESCRIPTOR = methodDescriptor(float.class, int.class, WasmException.class);
+
+    @SuppressWarnings("unused")
+    static float payloadF32(int index, @NotNull WasmException self) {
+        return (Float) self.payload[index];
+    }
+
+    static final String PAYLOAD_F64_NAME = "payloadF64";
+    static final String PAYLOAD_F64_DESCRIPTOR = methodDescriptor(double.class, int.class, WasmException.class);
+
+    @SuppressWarnings("unused")
+    static double payloadF64(int index, @NotNull WasmException self) {
+        return (Double) self.payload[index];
+    }
+
+    static final String PAYLOAD_REF_NAME = "payloadRef";
+    static final String PAYLOAD_REF_DESCRIPTOR = methodDescriptor(Object.class, int.class, WasmException.class);
+
+    @SuppressWarnings("unused")
+    static @Nullable Object payloadRef(int index, @NotNull WasmException self) {
+        return self.payload[index];
+    }
+}
@@ -0,0 +1,35 @@
+package org.wastastic;
+
+import org.jetbrains.annotations.NotNull;
+
+import static org.objectweb.asm.Type.getInternalName;
+
+// An i31 reference. A final class of its own rather than a boxed Integer: creating one never goes through the Integer
+// cache, so a reference that doesn't escape the compiled function can be scalar-replaced by the JIT, and an i31 can't
+// be mistaken for a host's boxed i32.
+public final class WasmI31 {
+    private final int value;
+
+    WasmI31(int value) {
+        this.value = value;
+    }
+
+    // The sign-extended 31-bit value.
+    public int value() {
+        return value;
+    }
+
+    @Override public boolean equals(Object other) {
+        return other instanceof WasmI31 i31 && i31.value == value;
+    }
+
+    @Override public int hashCode() {
+        return value;
+    }
+
+    @Override public @NotNull String toString() {
+        return "i31(" + value + ")";
+    }
+
+    static final String INTERNAL_NAME = getInternalName(WasmI31.class);
+}
@@ -16,10 +16,28 @@ final class WasmOpcodes {
     static final byte SECTION_CODE = 10;
     static final byte SECTION_DATA = 11;
     static final byte SECTION_DATA_COUNT = 12;
+    static final byte SECTION_TAG = 13;
 
+    static final byte TYPE_REC = 0x4e;
+    static final byte TYPE_SUB_FINAL = 0x4f;
+    static final byte TYPE_SUB = 0x50;
+    static final byte TYPE_ARRAY = 0x5e;
+    static final byte TYPE_STRUCT = 0x5f;
     static final byte TYPE_FUNCTION = 0x60;
+    static final byte TYPE_REF_NULL = 0x63;
+    static final byte TYPE_REF = 0x64;
+    static final byte TYPE_ARRAYREF = 0x6a;
+    static final byte TYPE_STRUCTREF = 0x6b;
+    static final byte TYPE_I31REF = 0x6c;
+    static final byte TYPE_EQREF = 0x6d;
+    static final byte TYPE_ANYREF = 0x6e;
     static final byte TYPE_EXTERNREF = 0x6f;
     static final byte TYPE_FUNCREF = 0x70;
+    static final byte TYPE_NULLREF = 0x71;
+    static final byte TYPE_NULLEXTERNREF = 0x72;
+    static final byte TYPE_NULLFUNCREF = 0x73;
+    static final byte TYPE_I16 = 0x77;
+    static final byte TYPE_I8 = 0x78;
     static final byte TYPE_F64 = 0x7c;
     static final byte TYPE_F32 = 0x7d;
     static final byte TYPE_I64 = 0x7e;
@@ -31,6 +49,10 @@ final class WasmOpcodes {
     static final byte OP_LOOP = 0x03;
     static final byte OP_IF = 0x04;
     static final byte OP_ELSE = 0x05;
+    static final byte OP_TRY = 0x06;
+    static final byte OP_CATCH = 0x07;
+    static final byte OP_THROW = 0x08;
+    static final byte OP_RETHROW = 0x09;
     static final byte OP_END = 0x0b;
     static final byte OP_BR = 0x0c;
     static final byte OP_BR_IF = 0x0d;
@@ -38,6 +60,12 @@ final class WasmOpcodes {
     static final byte OP_RETURN = 0x0f;
     static final byte OP_CALL = 0x10;
     static final byte OP_CALL_INDIRECT = 0x11;
+    static final byte OP_RETURN_CALL = 0x12;
+    static final byte OP_RETURN_CALL_INDIRECT = 0x13;
+    static final byte OP_CALL_REF = 0x14;
+    static final byte OP_RETURN_CALL_REF = 0x15;
+    static final byte OP_DELEGATE = 0x18;
+    static final byte OP_CATCH_ALL = 0x19;
     static final byte OP_DROP = 0x1a;
     static final byte OP_SELECT = 0x1b;
     static final byte OP_SELECT_VEC = 0x1c;
@@ -208,8 +236,39 @@ final class WasmOpcodes {
     static final byte OP_REF_NULL = (byte) 0xd0;
     static final byte OP_REF_IS_NULL = (byte) 0xd1;
     static final byte OP_REF_FUNC = (byte) 0xd2;
+    static final byte OP_REF_EQ = (byte) 0xd3;
+    static final byte OP_REF_AS_NON_NULL = (byte) 0xd4;
+    static final byte OP_BR_ON_NULL = (byte) 0xd5;
+    static final byte OP_BR_ON_NON_NULL = (byte) 0xd6;
+    static final byte OP_GC_PREFIX = (byte) 0xfb;
     static final byte OP_CONT_PREFIX = (byte) 0xfc;
 
+    static final int OP_GC_STRUCT_NEW = 0;
+    static final int OP_GC_STRUCT_NEW_DEFAULT = 1;
+    static final int OP_GC_STRUCT_GET = 2;
+    static final int OP_GC_STRUCT_GET_S = 3;
+    static final int OP_GC_STRUCT_GET_U = 4;
+    static final int OP_GC_STRUCT_SET = 5;
+    static final int OP_GC_ARRAY_NEW = 6;
+    static final int OP_GC_ARRAY_NEW_DEFAULT = 7;
+    static final int OP_GC_ARRAY_NEW_FIXED = 8;
+    static final int OP_GC_ARRAY_GET = 11;
+    static final int OP_GC_ARRAY_GET_S = 12;
+    static final int OP_GC_ARRAY_GET_U = 13;
+    static final int OP_GC_ARRAY_SET = 14;
+    static final int OP_GC_ARRAY_LEN = 15;
+    static final int OP_GC_ARRAY_FILL = 16;
+    static final int OP_GC_ARRAY_COPY = 17;
+    static final int OP_GC_REF_TEST = 20;
+    static final int OP_GC_REF_TEST_NULL = 21;
+    static final int OP_GC_REF_CAST = 22;
+    static final int OP_GC_REF_CAST_NULL = 23;
+    static final int OP_GC_ANY_CONVERT_EXTERN = 26;
+    static final int OP_GC_EXTERN_CONVERT_ANY = 27;
+    static final int OP_GC_REF_I31 = 28;
+    static final int OP_GC_I31_GET_S = 29;
+    static final int OP_GC_I31_GET_U = 30;
+
     static final int OP_CONT_I32_TRUNC_SAT_F32_S = 0;
     static final int OP_CONT_I32_TRUNC_SAT_F32_U = 1;
     static final int OP_CONT_I32_TRUNC_SAT_F64_S = 2;
@@ -228,4 +287,7 @@ final class WasmOpcodes {
     static final int OP_CONT_TABLE_GROW = 15;
     static final int OP_CONT_TABLE_SIZE = 16;
     static final int OP_CONT_TABLE_FILL = 17;
+
+    // multi-memory: set in a memarg's alignment field when an explicit memory index follows it
+    static final int MEMARG_MEMORY_INDEX_FLAG = 0x40;
 }
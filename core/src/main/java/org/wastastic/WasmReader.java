@@ -8,24 +8,59 @@ import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 import static org.wastastic.WasmOpcodes.OP_END;
+import static org.wastastic.WasmOpcodes.OP_F32_CONST;
+import static org.wastastic.WasmOpcodes.OP_F64_CONST;
 import static org.wastastic.WasmOpcodes.OP_GLOBAL_GET;
 import static org.wastastic.WasmOpcodes.OP_I32_CONST;
 import static org.wastastic.WasmOpcodes.OP_I64_CONST;
 import static org.wastastic.WasmOpcodes.OP_REF_FUNC;
 import static org.wastastic.WasmOpcodes.OP_REF_NULL;
+import static org.wastastic.WasmOpcodes.TYPE_ANYREF;
+import static org.wastastic.WasmOpcodes.TYPE_ARRAYREF;
+import static org.wastastic.WasmOpcodes.TYPE_EQREF;
 import static org.wastastic.WasmOpcodes.TYPE_EXTERNREF;
 import static org.wastastic.WasmOpcodes.TYPE_F32;
 import static org.wastastic.WasmOpcodes.TYPE_F64;
 import static org.wastastic.WasmOpcodes.TYPE_FUNCREF;
+import static org.wastastic.WasmOpcodes.TYPE_I16;
+import static org.wastastic.WasmOpcodes.TYPE_I31REF;
 import static org.wastastic.WasmOpcodes.TYPE_I32;
 import static org.wastastic.WasmOpcodes.TYPE_I64;
+import static org.wastastic.WasmOpcodes.TYPE_I8;
+import static org.wastastic.WasmOpcodes.TYPE_NULLEXTERNREF;
+import static org.wastastic.WasmOpcodes.TYPE_NULLFUNCREF;
+import static org.wastastic.WasmOpcodes.TYPE_NULLREF;
+import static org.wastastic.WasmOpcodes.TYPE_REF;
+import static org.wastastic.WasmOpcodes.TYPE_REF_NULL;
+import static org.wastastic.WasmOpcodes.TYPE_STRUCTREF;
 
 final class WasmReader {
     private final @NotNull MemorySegment input;
+    private final @NotNull TypeIndexResolver typeIndexResolver;
     private long offset = 0;
 
     WasmReader(@NotNull MemorySegment input) {
+        this(input, WasmReader::unresolvableTypeIndex);
+    }
+
+    WasmReader(@NotNull MemorySegment input, @NotNull TypeIndexResolver typeIndexResolver) {
         this.input = requireNonNull(input);
+        this.typeIndexResolver = requireNonNull(typeIndexResolver);
+    }
+
+    // A reader over the rest of the input that doesn't advance this one.
+    @NotNull WasmReader withTypeIndexResolver(@NotNull TypeIndexResolver typeIndexResolver) {
+        return new WasmReader(input.asSlice(offset), typeIndexResolver);
+    }
+
+    // Maps a concrete heap type (a type index) to the value type that references to it erase to.
+    @FunctionalInterface
+    interface TypeIndexResolver {
+        @NotNull ValueType referenceType(int typeIndex) throws TranslationException;
+    }
+
+    private static @NotNull ValueType unresolvableTypeIndex(int typeIndex) throws TranslationException {
+        throw new TranslationException("Unexpected type index in reference type: " + typeIndex);
     }
 
     byte nextByte() {
@@ -251,26 +286,80 @@ final class WasmReader {
     @NotNull ValueType nextValueType() throws TranslationException {
         var code = nextByte();
         return switch (code) {
-            case TYPE_EXTERNREF -> ValueType.EXTERNREF;
-            case TYPE_FUNCREF -> ValueType.FUNCREF;
             case TYPE_F64 -> ValueType.F64;
             case TYPE_F32 -> ValueType.F32;
             case TYPE_I64 -> ValueType.I64;
             case TYPE_I32 -> ValueType.I32;
+            case TYPE_REF, TYPE_REF_NULL -> nextHeapType();
+            default -> abstractHeapType(code);
+        };
+    }
+
+    // Nullability isn't tracked: (ref ht) and (ref null ht) erase to the same value type.
+    @NotNull ValueType nextHeapType() throws TranslationException {
+        var code = nextSigned33();
+
+        if (code >= 0) {
+            return typeIndexResolver.referenceType((int) code);
+        }
+        else {
+            return abstractHeapType((byte) (code & 0x7f));
+        }
+    }
+
+    private static @NotNull ValueType abstractHeapType(byte code) throws TranslationException {
+        return switch (code) {
+            case TYPE_FUNCREF, TYPE_NULLFUNCREF -> ValueType.FUNCREF;
+            case TYPE_EXTERNREF, TYPE_NULLEXTERNREF -> ValueType.EXTERNREF;
+            case TYPE_ANYREF, TYPE_EQREF, TYPE_I31REF, TYPE_STRUCTREF, TYPE_ARRAYREF, TYPE_NULLREF -> ValueType.ANYREF;
             default -> throw new TranslationException("Invalid value type: " + Integer.toHexString(Byte.toUnsignedInt(code)));
         };
     }
 
+    @NotNull FieldType nextFieldType() throws TranslationException {
+        FieldType.Packing packing;
+        ValueType valueType;
+
+        switch (peekByte()) {
+            case TYPE_I8 -> {
+                nextByte();
+                packing = FieldType.Packing.I8;
+                valueType = ValueType.I32;
+            }
+
+            case TYPE_I16 -> {
+                nextByte();
+                packing = FieldType.Packing.I16;
+                valueType = ValueType.I32;
+            }
+
+            default -> {
+                packing = FieldType.Packing.NONE;
+                valueType = nextValueType();
+            }
+        }
+
+        var mutability = switch (nextByte()) {
+            case 0x00 -> Mutability.CONST;
+            case 0x01 -> Mutability.VAR;
+            default -> throw new TranslationException("Invalid field mutability");
+        };
+
+        return new FieldType(valueType, packing, mutability);
+    }
+
     @NotNull String nextName() {
         return nextUtf8(nextUnsigned32());
     }
 
     @NotNull ValueType nextReferenceType() throws TranslationException {
-        return switch (nextByte()) {
-            case TYPE_EXTERNREF -> ValueType.EXTERNREF;
-            case TYPE_FUNCREF -> ValueType.FUNCREF;
-            default -> throw new TranslationException("Invalid reference type");
-        };
+        var type = nextValueType();
+
+        if (!type.isReference()) {
+            throw new TranslationException("Invalid reference type");
+        }
+
+        return type;
     }
 
     @NotNull List<ValueType> nextResultType() throws TranslationException {
@@ -308,10 +397,10 @@ final class WasmReader {
         return new MemoryType(nextLimits());
     }
 
-    int nextI32ConstantExpression() throws TranslationException {
+    @NotNull Constant nextI32ConstantExpression() throws TranslationException {
         var value = switch (nextByte()) {
-            case OP_GLOBAL_GET -> throw new TranslationException("TODO implement global.get constants");
-            case OP_I32_CONST -> nextSigned32();
+            case OP_GLOBAL_GET -> new GlobalGetConstant(nextUnsigned32());
+            case OP_I32_CONST -> new I32Constant(nextSigned32());
             default -> throw new TranslationException("Invalid i32 constant expression");
         };
 
@@ -325,7 +414,10 @@ final class WasmReader {
     @NotNull Constant nextFunctionRefConstantExpression() throws TranslationException {
         var value = switch (nextByte()) {
             case OP_GLOBAL_GET -> throw new TranslationException("TODO implement global.get constants");
-            case OP_REF_NULL -> NullConstant.INSTANCE;
+            case OP_REF_NULL -> {
+                nextHeapType();
+                yield NullConstant.INSTANCE;
+            }
             case OP_REF_FUNC -> new FunctionRefConstant(nextUnsigned32());
             default -> throw new TranslationException("Invalid funcref constant expression");
         };
@@ -339,10 +431,15 @@ final class WasmReader {
 
     @NotNull Constant nextConstantExpression() throws TranslationException {
         var value = switch (nextByte()) {
-            case OP_GLOBAL_GET -> throw new TranslationException("TODO implement global.get constants");
+            case OP_GLOBAL_GET -> new GlobalGetConstant(nextUnsigned32());
             case OP_I32_CONST -> new I32Constant(nextSigned32());
             case OP_I64_CONST -> new I64Constant(nextSigned64());
-            case OP_REF_NULL -> NullConstant.INSTANCE;
+            case OP_F32_CONST -> new F32Constant(nextFloat32());
+            case OP_F64_CONST -> new F64Constant(nextFloat64());
+            case OP_REF_NULL -> {
+                nextHeapType();
+                yield NullConstant.INSTANCE;
+            }
             case OP_REF_FUNC -> new FunctionRefConstant(nextUnsigned32());
             default -> throw new TranslationException("Invalid constant expression");
         };
@@ -364,7 +461,10 @@ final class WasmReader {
     @NotNull Constant nextExternRefConstantExpression() throws TranslationException {
         var value = switch (nextByte()) {
             case OP_GLOBAL_GET -> throw new TranslationException("TODO implement global.get constants");
-            case OP_REF_NULL -> NullConstant.INSTANCE;
+            case OP_REF_NULL -> {
+                nextHeapType();
+                yield NullConstant.INSTANCE;
+            }
             default -> throw new TranslationException("Invalid externref constant expression");
         };
 
@@ -375,10 +475,19 @@ final class WasmReader {
         return value;
     }
 
+    long offset() {
+        return offset;
+    }
+
     boolean hasRemaining() {
         return offset != input.byteSize();
     }
 
+    // The rest of the input, without advancing past it.
+    @NotNull MemorySegment remaining() {
+        return input.asSlice(offset);
+    }
+
     @NotNull MemorySegment nextSlice(long size) {
         var slice = input.asSlice(offset, size);
         offset += size;
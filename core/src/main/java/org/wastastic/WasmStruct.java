@@ -0,0 +1,11 @@
+package org.wastastic;
+
+import static org.objectweb.asm.Type.getInternalName;
+
+// Common superclass of the classes generated for WASM GC struct types. Struct fields are public, so hosts can read them
+// reflectively, but their layout is an implementation detail.
+public abstract class WasmStruct {
+    protected WasmStruct() {}
+
+    static final String INTERNAL_NAME = getInternalName(WasmStruct.class);
+}